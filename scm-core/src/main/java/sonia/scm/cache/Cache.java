@@ -77,6 +77,28 @@ public interface Cache<K, V> extends org.apache.shiro.cache.Cache<K, V> {
    */
   V remove(K key);
 
+  /**
+   * Replaces the element with the specified key, only if the key is still mapped to the expected element. This allows
+   * to update an element without resurrecting it, if it was removed or replaced concurrently. The default
+   * implementation is not atomic, implementations should override it.
+   *
+   * @param key key of the cached element
+   * @param expected element which is expected to be cached for the key
+   * @param value new element
+   *
+   * @return {@code true} if the element was replaced
+   *
+   * @since 2.41.0
+   */
+  default boolean replace(K key, V expected, V value) {
+    V current = get(key);
+    if (current != null && current.equals(expected)) {
+      put(key, value);
+      return true;
+    }
+    return false;
+  }
+
   /**
    * Remove all elements with matching {@link Predicate} from this cache.
    * The method returns all previous cached values.
@@ -111,6 +133,33 @@ public interface Cache<K, V> extends org.apache.shiro.cache.Cache<K, V> {
    */
   V get(K key);
 
+  /**
+   * Returns the element with the specified key. If the cache contains no element with the key, the element is
+   * computed with the given loader and put into the cache. Implementations may ensure that only one computation per
+   * key runs at a time, so that concurrent callers for the same key wait for the running computation instead of
+   * starting their own. The default implementation does not coordinate concurrent callers.
+   *
+   * @param key key of the element
+   * @param loader computes the element, if it is not cached
+   * @param <E> type of the exception thrown by the loader
+   *
+   * @return the cached or computed element or null, if the loader returns null
+   *
+   * @throws E if the loader fails
+   *
+   * @since 2.41.0
+   */
+  default <E extends Exception> V get(K key, CacheLoader<? extends V, E> loader) throws E {
+    V value = get(key);
+    if (value == null) {
+      value = loader.load();
+      if (value != null) {
+        put(key, value);
+      }
+    }
+    return value;
+  }
+
   /**
    * Returns performance statistics of the cache or null if the cache does not
    * support statistics. The returned statistic is a snapshot of the current
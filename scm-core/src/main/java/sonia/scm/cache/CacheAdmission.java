@@ -0,0 +1,74 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package sonia.scm.cache;
+
+/**
+ * Controls the admission of new elements to caches, which admit only frequently requested elements near their
+ * capacity. Elements, which are computed within {@link #admitAll(CacheLoader)}, are admitted regardless of the
+ * frequency of their keys. This is useful for results, which are computed in advance because they will be requested
+ * soon, like the results of a cache warm-up after a push. Their keys are new and have never been requested before.
+ *
+ * @since 2.41.0
+ */
+public final class CacheAdmission {
+
+  private static final ThreadLocal<Boolean> ADMIT_ALL = new ThreadLocal<>();
+
+  private CacheAdmission() {
+  }
+
+  /**
+   * Runs the given computation and admits all elements, which are stored in caches by the current thread during the
+   * computation.
+   *
+   * @param computation computation which stores elements in caches
+   * @param <V> type of the result of the computation
+   * @param <E> type of the exception thrown by the computation
+   *
+   * @return result of the computation
+   *
+   * @throws E if the computation fails
+   */
+  public static <V, E extends Exception> V admitAll(CacheLoader<V, E> computation) throws E {
+    if (isAdmittingAll()) {
+      return computation.load();
+    }
+    ADMIT_ALL.set(Boolean.TRUE);
+    try {
+      return computation.load();
+    } finally {
+      ADMIT_ALL.remove();
+    }
+  }
+
+  /**
+   * Returns {@code true} if the current thread runs within {@link #admitAll(CacheLoader)}.
+   *
+   * @return {@code true} if all new elements are admitted
+   */
+  public static boolean isAdmittingAll() {
+    return ADMIT_ALL.get() != null;
+  }
+}
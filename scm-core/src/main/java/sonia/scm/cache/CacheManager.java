@@ -24,9 +24,15 @@
 
 package sonia.scm.cache;
 
+//~--- non-JDK imports --------------------------------------------------------
+
+import sonia.scm.repository.RepositoryCacheKey;
+
 //~--- JDK imports ------------------------------------------------------------
 
 import java.io.Closeable;
+import java.util.Collections;
+import java.util.Map;
 
 /**
  * The {@link CacheManager} holds references to {@link Cache}
@@ -48,4 +54,34 @@ public interface CacheManager extends Closeable {
    * @return the cache with the specified types and name
    */
   <K, V> Cache<K, V> getCache(String name);
+
+  /**
+   * Returns the repository cache with the specified types and name. Elements of a single repository can be removed
+   * from the cache with {@link RepositoryCache#clearRepository(String)}. If the cache does not exist, a new cache is
+   * created. The default implementation wraps the cache from {@link #getCache(String)} and removes the elements of a
+   * repository by iterating over all elements.
+   *
+   * @param name - The name of the cache
+   * @param <K> - The type of the keys for the cache
+   * @param <V>  - The type of cache elements
+   *
+   * @return the repository cache with the specified types and name
+   *
+   * @since 2.41.0
+   */
+  default <K extends RepositoryCacheKey, V> RepositoryCache<K, V> getRepositoryCache(String name) {
+    return new PredicateRepositoryCache<>(getCache(name));
+  }
+
+  /**
+   * Returns all caches which were created by this manager, mapped by their names. The default implementation returns
+   * an empty map, for managers which do not keep track of their caches.
+   *
+   * @return caches by name
+   *
+   * @since 2.41.0
+   */
+  default Map<String, Cache<?, ?>> getCaches() {
+    return Collections.emptyMap();
+  }
 }
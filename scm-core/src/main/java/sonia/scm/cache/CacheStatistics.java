@@ -44,9 +44,32 @@ public final class CacheStatistics {
    * @param missCount miss count
    */
   public CacheStatistics(String name, long hitCount, long missCount) {
+    this(name, hitCount, missCount, -1, 0, 0, 0, -1);
+  }
+
+  /**
+   * Constructs a new performance statistic for a {@link Cache}.
+   * @param name             name of the cache
+   * @param hitCount         hit count
+   * @param missCount        miss count
+   * @param size             number of elements or -1 if unknown
+   * @param evictionCount    number of evicted elements
+   * @param loadCount        number of computed elements
+   * @param totalLoadTime    total time spent computing elements in nanoseconds
+   * @param estimatedMemory  estimated memory of all elements in bytes or -1 if unknown
+   * @since 2.41.0
+   */
+  @SuppressWarnings("java:S107") // statistics are immutable
+  public CacheStatistics(String name, long hitCount, long missCount, long size, long evictionCount, long loadCount,
+                         long totalLoadTime, long estimatedMemory) {
     this.name = name;
     this.hitCount = hitCount;
     this.missCount = missCount;
+    this.size = size;
+    this.evictionCount = evictionCount;
+    this.loadCount = loadCount;
+    this.totalLoadTime = totalLoadTime;
+    this.estimatedMemory = estimatedMemory;
   }
 
   //~--- methods --------------------------------------------------------------
@@ -68,7 +91,12 @@ public final class CacheStatistics {
 
     return Objects.equal(name, other.name)
       && Objects.equal(hitCount, other.hitCount)
-      && Objects.equal(missCount, other.missCount);
+      && Objects.equal(missCount, other.missCount)
+      && Objects.equal(size, other.size)
+      && Objects.equal(evictionCount, other.evictionCount)
+      && Objects.equal(loadCount, other.loadCount)
+      && Objects.equal(totalLoadTime, other.totalLoadTime)
+      && Objects.equal(estimatedMemory, other.estimatedMemory);
   }
 
   /**
@@ -76,7 +104,7 @@ public final class CacheStatistics {
    */
   @Override
   public int hashCode() {
-    return Objects.hashCode(name, hitCount, missCount);
+    return Objects.hashCode(name, hitCount, missCount, size, evictionCount, loadCount, totalLoadTime, estimatedMemory);
   }
 
   /**
@@ -89,6 +117,11 @@ public final class CacheStatistics {
       .add("name", name)
       .add("hitCount", hitCount)
       .add("missCount", missCount)
+      .add("size", size)
+      .add("evictionCount", evictionCount)
+      .add("loadCount", loadCount)
+      .add("totalLoadTime", totalLoadTime)
+      .add("estimatedMemory", estimatedMemory)
       .toString();
     //J+
   }
@@ -149,6 +182,52 @@ public final class CacheStatistics {
     return hitCount + missCount;
   }
 
+  /**
+   * Returns the number of elements in the cache.
+   * @return number of elements or -1 if unknown
+   * @since 2.41.0
+   */
+  public long getSize() {
+    return size;
+  }
+
+  /**
+   * Returns the number of elements which were evicted from the cache.
+   * @return number of evicted elements
+   * @since 2.41.0
+   */
+  public long getEvictionCount() {
+    return evictionCount;
+  }
+
+  /**
+   * Returns the number of elements which were computed by the cache.
+   * @return number of computed elements
+   * @see Cache#get(Object, CacheLoader)
+   * @since 2.41.0
+   */
+  public long getLoadCount() {
+    return loadCount;
+  }
+
+  /**
+   * Returns the total time spent computing elements.
+   * @return total time in nanoseconds
+   * @since 2.41.0
+   */
+  public long getTotalLoadTime() {
+    return totalLoadTime;
+  }
+
+  /**
+   * Returns the estimated memory, which is retained by the elements of the cache.
+   * @return estimated memory in bytes or -1 if unknown
+   * @since 2.41.0
+   */
+  public long getEstimatedMemory() {
+    return estimatedMemory;
+  }
+
   /**
    * Calculates the ratio of a counter.
    *
@@ -173,6 +252,31 @@ public final class CacheStatistics {
    */
   private final long missCount;
 
+  /**
+   * number of elements
+   */
+  private final long size;
+
+  /**
+   * eviction count
+   */
+  private final long evictionCount;
+
+  /**
+   * load count
+   */
+  private final long loadCount;
+
+  /**
+   * total load time in nanoseconds
+   */
+  private final long totalLoadTime;
+
+  /**
+   * estimated memory in bytes
+   */
+  private final long estimatedMemory;
+
   /**
    * name of cache
    */
@@ -0,0 +1,109 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package sonia.scm.cache;
+
+import com.google.common.base.Predicate;
+import sonia.scm.repository.RepositoryCacheKey;
+import sonia.scm.repository.RepositoryCacheKeyPredicate;
+
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * {@link RepositoryCache} for cache managers without native support. The entries of a repository are removed by
+ * iterating over all entries of the cache.
+ *
+ * @param <K> type of the keys for the cache
+ * @param <V> type of cached elements
+ */
+final class PredicateRepositoryCache<K extends RepositoryCacheKey, V> implements RepositoryCache<K, V> {
+
+  private final Cache<K, V> cache;
+
+  PredicateRepositoryCache(Cache<K, V> cache) {
+    this.cache = cache;
+  }
+
+  @Override
+  public void clearRepository(String repositoryId) {
+    cache.removeAll(new RepositoryCacheKeyPredicate<>(repositoryId));
+  }
+
+  @Override
+  public void clear() {
+    cache.clear();
+  }
+
+  @Override
+  public boolean contains(K key) {
+    return cache.contains(key);
+  }
+
+  @Override
+  public V put(K key, V value) {
+    return cache.put(key, value);
+  }
+
+  @Override
+  public V remove(K key) {
+    return cache.remove(key);
+  }
+
+  @Override
+  public boolean replace(K key, V expected, V value) {
+    return cache.replace(key, expected, value);
+  }
+
+  @Override
+  @SuppressWarnings("java:S4738") // we have to use guava predicate for compatibility
+  public Iterable<V> removeAll(Predicate<K> predicate) {
+    return cache.removeAll(predicate);
+  }
+
+  @Override
+  public int size() {
+    return cache.size();
+  }
+
+  @Override
+  public Set<K> keys() {
+    return cache.keys();
+  }
+
+  @Override
+  public Collection<V> values() {
+    return cache.values();
+  }
+
+  @Override
+  public V get(K key) {
+    return cache.get(key);
+  }
+
+  @Override
+  public CacheStatistics getStatistics() {
+    return cache.getStatistics();
+  }
+}
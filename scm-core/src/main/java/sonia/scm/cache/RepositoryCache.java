@@ -0,0 +1,59 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package sonia.scm.cache;
+
+import sonia.scm.repository.RepositoryCacheKey;
+import sonia.scm.repository.RevisionCacheKey;
+
+/**
+ * Cache for entries which belong to a repository. The entries are grouped by the id of their repository, so that all
+ * entries of a repository can be dropped at once, without iterating over the entries of other repositories.
+ *
+ * @param <K> type of the keys for the cache
+ * @param <V> type of cached elements
+ *
+ * @since 2.41.0
+ */
+public interface RepositoryCache<K extends RepositoryCacheKey, V> extends Cache<K, V> {
+
+  /**
+   * Removes all elements of the repository with the given id from this cache.
+   *
+   * @param repositoryId id of the repository
+   */
+  void clearRepository(String repositoryId);
+
+  /**
+   * Removes all elements of the repository with the given id, whose keys are not resolved to commit ids (see
+   * {@link RevisionCacheKey#isResolved()}). The default implementation iterates over all elements of the cache,
+   * implementations should keep the unresolved elements apart, so that they can be dropped at once.
+   *
+   * @param repositoryId id of the repository
+   */
+  default void clearUnresolved(String repositoryId) {
+    removeAll(key -> repositoryId.equals(key.getRepositoryId())
+      && !(key instanceof RevisionCacheKey && ((RevisionCacheKey) key).isResolved()));
+  }
+}
@@ -28,6 +28,9 @@ package sonia.scm.group;
 
 import sonia.scm.GenericDAO;
 
+import java.util.Collection;
+import java.util.stream.Collectors;
+
 /**
  * Data access object for groups. This class should only used by the
  * {@link GroupManager}. Plugins and other classes should use the
@@ -36,4 +39,21 @@ import sonia.scm.GenericDAO;
  * @author Sebastian Sdorra
  * @since 1.14
  */
-public interface GroupDAO extends GenericDAO<Group> {}
+public interface GroupDAO extends GenericDAO<Group> {
+
+  /**
+   * Returns all groups, which contain the given member. The default implementation iterates over all groups,
+   * implementations should use an index to resolve the groups with a single lookup.
+   *
+   * @param member name of the member
+   *
+   * @return groups of the member
+   *
+   * @since 2.41.0
+   */
+  default Collection<Group> getGroupsForMember(String member) {
+    return getAll().stream()
+      .filter(group -> group.isMember(member))
+      .collect(Collectors.toList());
+  }
+}
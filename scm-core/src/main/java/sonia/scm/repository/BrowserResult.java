@@ -26,12 +26,16 @@ package sonia.scm.repository;
 
 import lombok.EqualsAndHashCode;
 import lombok.ToString;
+import sonia.scm.cache.Completable;
 
 import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
 
 @EqualsAndHashCode
 @ToString
-public class BrowserResult implements Serializable {
+public class BrowserResult implements Serializable, Completable {
 
   private String revision;
   private String requestedRevision;
@@ -61,4 +65,31 @@ public class BrowserResult implements Serializable {
   public FileObject getFile() {
     return file;
   }
+
+  /**
+   * Returns {@code false} if the values of one of the file objects are not computed yet or their computation was
+   * aborted (see {@link FileObject#isPartialResult()} and {@link FileObject#isComputationAborted()}).
+   *
+   * @return {@code true} if all values of the file objects are computed
+   *
+   * @since 2.41.0
+   */
+  @Override
+  public boolean isComplete() {
+    Deque<FileObject> queue = new ArrayDeque<>();
+    if (file != null) {
+      queue.push(file);
+    }
+    while (!queue.isEmpty()) {
+      FileObject current = queue.pop();
+      if (current.isPartialResult() || current.isComputationAborted()) {
+        return false;
+      }
+      Collection<FileObject> children = current.getChildren();
+      if (children != null) {
+        children.forEach(queue::push);
+      }
+    }
+    return true;
+  }
 }
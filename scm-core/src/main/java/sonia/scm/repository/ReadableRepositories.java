@@ -0,0 +1,158 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package sonia.scm.repository;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableSet;
+
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Set of repositories, which are readable by a subject. The set can be used to filter listings without
+ * checking the read permission for every single repository. If the readable repositories could not be precomputed,
+ * the set checks each repository on demand and remembers the decision. Ids are compared case-insensitive, just like
+ * the ids of permissions.
+ *
+ * @see ReadableRepositoriesResolver
+ * @since 2.41.0
+ */
+public final class ReadableRepositories {
+
+  private static final ReadableRepositories ALL = new ReadableRepositories(null, null);
+
+  private final Predicate<String> check;
+  private final Supplier<Set<String>> ids;
+
+  private ReadableRepositories(Predicate<String> check, Supplier<Set<String>> ids) {
+    this.check = check;
+    this.ids = ids;
+  }
+
+  /**
+   * Returns a set which contains every repository.
+   *
+   * @return set of every repository
+   */
+  public static ReadableRepositories all() {
+    return ALL;
+  }
+
+  /**
+   * Returns a set which contains the repositories with the given ids.
+   *
+   * @param ids ids of the readable repositories
+   *
+   * @return set of repositories
+   */
+  public static ReadableRepositories of(Collection<String> ids) {
+    ImmutableSet.Builder<String> builder = ImmutableSet.builder();
+    for (String id : ids) {
+      builder.add(normalize(id));
+    }
+    Set<String> set = builder.build();
+    return new ReadableRepositories(id -> set.contains(normalize(id)), () -> set);
+  }
+
+  /**
+   * Returns a set which checks the given predicate for a repository, the first time the repository is looked up.
+   * The ids of the set are only computed, if {@link #getIds()} is called.
+   *
+   * @param readable   checks whether the repository with the given id is readable
+   * @param candidates supplies the ids of every repository, used to compute {@link #getIds()}
+   *
+   * @return set of repositories
+   */
+  public static ReadableRepositories checking(Predicate<String> readable, Supplier<? extends Collection<String>> candidates) {
+    Map<String, Boolean> decisions = new ConcurrentHashMap<>();
+    Predicate<String> check = id -> decisions.computeIfAbsent(normalize(id), key -> readable.test(id));
+    return new ReadableRepositories(check, Suppliers.memoize(() -> {
+      ImmutableSet.Builder<String> builder = ImmutableSet.builder();
+      for (String id : candidates.get()) {
+        if (check.test(id)) {
+          builder.add(normalize(id));
+        }
+      }
+      return builder.build();
+    }));
+  }
+
+  /**
+   * Returns {@code true} if every repository is readable.
+   *
+   * @return {@code true} if every repository is readable
+   */
+  public boolean isAll() {
+    return ids == null;
+  }
+
+  /**
+   * Returns {@code true} if the repository with the given id is readable.
+   *
+   * @param repositoryId id of the repository
+   *
+   * @return {@code true} if the repository is readable
+   */
+  public boolean contains(String repositoryId) {
+    return check == null || (repositoryId != null && check.test(repositoryId));
+  }
+
+  /**
+   * Returns {@code true} if the given repository is readable.
+   *
+   * @param repository repository
+   *
+   * @return {@code true} if the repository is readable
+   */
+  public boolean contains(Repository repository) {
+    return contains(repository.getId());
+  }
+
+  /**
+   * Returns the lower case ids of the readable repositories. This method must not be called, if every repository is
+   * readable. If the repositories are checked on demand, every repository is checked by this method.
+   *
+   * @return ids of readable repositories
+   */
+  public Set<String> getIds() {
+    Preconditions.checkState(ids != null, "every repository is readable");
+    return ids.get();
+  }
+
+  private static String normalize(String id) {
+    return id.toLowerCase(Locale.ENGLISH);
+  }
+
+  @Override
+  public String toString() {
+    return ids == null ? "ReadableRepositories{all}" : "ReadableRepositories" + ids.get();
+  }
+}
@@ -66,6 +66,18 @@ public class RepositoryCacheKeyPredicate<T extends RepositoryCacheKey>
     return repositoryId.equals(item.getRepositoryId());
   }
 
+  /**
+   * Returns the id of the repository, whose keys are matched.
+   *
+   * @return id of the repository
+   *
+   * @since 2.41.0
+   */
+  public String getRepositoryId()
+  {
+    return repositoryId;
+  }
+
   //~--- fields ---------------------------------------------------------------
 
   /** Field description */
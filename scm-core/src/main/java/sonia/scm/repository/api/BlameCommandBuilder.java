@@ -36,7 +36,7 @@ import sonia.scm.cache.CacheManager;
 import sonia.scm.repository.BlameResult;
 import sonia.scm.repository.PreProcessorUtil;
 import sonia.scm.repository.Repository;
-import sonia.scm.repository.RepositoryCacheKey;
+import sonia.scm.repository.RevisionCacheKey;
 import sonia.scm.repository.spi.BlameCommand;
 import sonia.scm.repository.spi.BlameCommandRequest;
 
@@ -89,11 +89,14 @@ public final class BlameCommandBuilder
    * @param blameCommand implementation of the {@link BlameCommand}
    * @param repository repository to query
    * @param preProcessorUtil
+   * @param revisionResolver resolves the revision to a commit id for the cache key
    */
   BlameCommandBuilder(CacheManager cacheManager, BlameCommand blameCommand,
-                      Repository repository, PreProcessorUtil preProcessorUtil)
+                      Repository repository, PreProcessorUtil preProcessorUtil,
+                      RevisionResolver revisionResolver)
   {
-    this.cache = cacheManager.getCache(CACHE_NAME);
+    this.cache = cacheManager.getRepositoryCache(CACHE_NAME);
+    this.revisionResolver = revisionResolver;
     this.blameCommand = blameCommand;
     this.repository = repository;
     this.preProcessorUtil = preProcessorUtil;
@@ -150,7 +153,14 @@ public final class BlameCommandBuilder
     }
     else
     {
-      CacheKey key = new CacheKey(repository, requestClone);
+      String commitId = revisionResolver.resolve(requestClone.getRevision());
+      CacheKey key = new CacheKey(repository, requestClone, commitId);
+
+      if (commitId != null)
+      {
+        // compute the result for the resolved commit, the branch could be moved before the computation starts
+        requestClone.setRevision(commitId);
+      }
 
       result = cache.get(key);
 
@@ -241,7 +251,7 @@ public final class BlameCommandBuilder
    * @version        Enter version here..., 12/06/05
    * @author         Enter your name here...
    */
-  static class CacheKey implements RepositoryCacheKey, Serializable
+  static class CacheKey implements RevisionCacheKey, Serializable
   {
 
     /** Field description */
@@ -255,11 +265,22 @@ public final class BlameCommandBuilder
      *
      * @param repository
      * @param request
+     * @param commitId resolved revision of the request or {@code null}
      */
-    public CacheKey(Repository repository, BlameCommandRequest request)
+    public CacheKey(Repository repository, BlameCommandRequest request, String commitId)
     {
       this.repositoryId = repository.getId();
-      this.request = request;
+      this.resolved = commitId != null;
+
+      if (resolved)
+      {
+        this.request = request.clone();
+        this.request.setRevision(commitId);
+      }
+      else
+      {
+        this.request = request;
+      }
     }
 
     //~--- methods ------------------------------------------------------------
@@ -317,6 +338,12 @@ public final class BlameCommandBuilder
       return repositoryId;
     }
 
+    @Override
+    public boolean isResolved()
+    {
+      return resolved;
+    }
+
     //~--- fields -------------------------------------------------------------
 
     /** repository id */
@@ -324,6 +351,9 @@ public final class BlameCommandBuilder
 
     /** request object */
     private final BlameCommandRequest request;
+
+    /** true if the revision of the request is a commit id */
+    private final boolean resolved;
   }
 
 
@@ -347,6 +377,9 @@ public final class BlameCommandBuilder
   /** the repository */
   private final Repository repository;
 
+  /** resolves revisions to commit ids */
+  private final RevisionResolver revisionResolver;
+
   /** request for the blame command implementation */
   private final BlameCommandRequest request = new BlameCommandRequest();
 }
@@ -54,7 +54,7 @@ public final class BranchDetailsCommandBuilder {
   public BranchDetailsCommandBuilder(Repository repository, BranchDetailsCommand command, CacheManager cacheManager) {
     this.repository = repository;
     this.command = command;
-    this.cache = cacheManager.getCache(CACHE_NAME);
+    this.cache = cacheManager.getRepositoryCache(CACHE_NAME);
   }
 
   /**
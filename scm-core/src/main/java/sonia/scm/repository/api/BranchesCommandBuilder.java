@@ -77,7 +77,7 @@ public final class BranchesCommandBuilder
   BranchesCommandBuilder(CacheManager cacheManager,
     BranchesCommand branchesCommand, Repository repository)
   {
-    this.cache = cacheManager.getCache(CACHE_NAME);
+    this.cache = cacheManager.getRepositoryCache(CACHE_NAME);
     this.branchesCommand = branchesCommand;
     this.repository = repository;
   }
@@ -109,23 +109,11 @@ public final class BranchesCommandBuilder
     {
       CacheKey key = new CacheKey(repository);
 
-      branches = cache.get(key);
-
-      if (branches == null)
-      {
-        if (logger.isDebugEnabled())
-        {
-          logger.debug("get branches for repository {}", repository);
-        }
-
-        branches = getBranchesFromCommand();
-
-        cache.put(key, branches);
-      }
-      else if (logger.isDebugEnabled())
-      {
-        logger.debug("get branches for repository {} from cache", repository);
-      }
+      // concurrent requests for the same key wait for a single computation
+      branches = cache.get(key, () -> {
+        logger.debug("get branches for repository {}", repository);
+        return getBranchesFromCommand();
+      });
     }
 
     return branches;
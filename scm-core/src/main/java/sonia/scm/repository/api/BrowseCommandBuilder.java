@@ -35,7 +35,7 @@ import sonia.scm.repository.BrowserResult;
 import sonia.scm.repository.FileObject;
 import sonia.scm.repository.PreProcessorUtil;
 import sonia.scm.repository.Repository;
-import sonia.scm.repository.RepositoryCacheKey;
+import sonia.scm.repository.RevisionCacheKey;
 import sonia.scm.repository.spi.BrowseCommand;
 import sonia.scm.repository.spi.BrowseCommandRequest;
 
@@ -88,12 +88,15 @@ public final class BrowseCommandBuilder
    * @param browseCommand implementation of the {@link BrowseCommand}
    * @param repository repository to query
    * @param preProcessorUtil this factory is used to create browse commands for the collapse feature
+   * @param revisionResolver resolves the revision to a commit id for the cache key
    */
   BrowseCommandBuilder(CacheManager cacheManager, BrowseCommand browseCommand,
                        Repository repository, PreProcessorUtil preProcessorUtil,
-                       Supplier<BrowseCommand> browseCommandFactory)
+                       Supplier<BrowseCommand> browseCommandFactory,
+                       RevisionResolver revisionResolver)
   {
-    this.cache = cacheManager.getCache(CACHE_NAME);
+    this.cache = cacheManager.getRepositoryCache(CACHE_NAME);
+    this.revisionResolver = revisionResolver;
     this.browseCommand = browseCommand;
     this.repository = repository;
     this.preProcessorUtil = preProcessorUtil;
@@ -138,31 +141,34 @@ public final class BrowseCommandBuilder
           request);
       }
 
-      result = computeBrowserResult();
+      result = computeBrowserResult(request);
     }
     else
     {
-      CacheKey key = new CacheKey(repository, request);
+      String commitId = revisionResolver.resolve(request.getRevision());
+      CacheKey key = new CacheKey(repository, request, commitId);
 
-      result = cache.get(key);
+      cacheKey = key;
 
-      if (result == null)
+      // compute the result for the resolved commit, the branch could be moved before the computation starts
+      BrowseCommandRequest computeRequest = request;
+      if (commitId != null)
       {
-        if (logger.isDebugEnabled())
-        {
-          logger.debug("create browser result for {}", request);
-        }
+        computeRequest = request.clone();
+        computeRequest.setRevision(commitId);
+      }
 
-        result = computeBrowserResult();
+      // concurrent requests for the same key wait for a single computation
+      BrowseCommandRequest resolvedRequest = computeRequest;
+      result = cache.get(key, () -> {
+        logger.debug("create browser result for {}", resolvedRequest);
+        return computeBrowserResult(resolvedRequest);
+      });
 
-        if (result != null)
-        {
-          cache.put(key, result);
-        }
-      }
-      else if (logger.isDebugEnabled())
+      if (result != null && !Objects.equal(request.getRevision(), result.getRequestedRevision()))
       {
-        logger.debug("retrieve browser result from cache for {}", request);
+        // the result was computed for another name of the same commit
+        result = new BrowserResult(result.getRevision(), request.getRevision(), result.getFile());
       }
     }
 
@@ -174,10 +180,10 @@ public final class BrowseCommandBuilder
     return result;
   }
 
-  private BrowserResult computeBrowserResult() throws IOException {
-    BrowserResult result = browseCommand.getBrowserResult(request);
-    if (result != null && !request.isRecursive() && request.isCollapse()) {
-      new BrowserResultCollapser().collapseFolders(browseCommandFactory.get(), request, result.getFile());
+  private BrowserResult computeBrowserResult(BrowseCommandRequest browseRequest) throws IOException {
+    BrowserResult result = browseCommand.getBrowserResult(browseRequest);
+    if (result != null && !browseRequest.isRecursive() && browseRequest.isCollapse()) {
+      new BrowserResultCollapser().collapseFolders(browseCommandFactory.get(), browseRequest, result.getFile());
     }
     return result;
   }
@@ -343,9 +349,8 @@ public final class BrowseCommandBuilder
   }
 
   private void updateCache(BrowserResult updatedResult) {
-    if (!disableCache) {
-      CacheKey key = new CacheKey(repository, request);
-      cache.put(key, updatedResult);
+    if (!disableCache && cacheKey != null) {
+      cache.put(cacheKey, updatedResult);
     }
   }
 
@@ -358,7 +363,7 @@ public final class BrowseCommandBuilder
    * @version        Enter version here..., 12/06/05
    * @author         Enter your name here...
    */
-  static class CacheKey implements RepositoryCacheKey, Serializable
+  static class CacheKey implements RevisionCacheKey, Serializable
   {
 
     /** Field description */
@@ -372,11 +377,18 @@ public final class BrowseCommandBuilder
      *
      * @param repository
      * @param request
+     * @param commitId resolved revision of the request or {@code null}
      */
-    public CacheKey(Repository repository, BrowseCommandRequest request)
+    public CacheKey(Repository repository, BrowseCommandRequest request, String commitId)
     {
       this.repositoryId = repository.getId();
       this.request = request.clone();
+      this.resolved = commitId != null;
+
+      if (resolved)
+      {
+        this.request.setRevision(commitId);
+      }
     }
 
     //~--- methods ------------------------------------------------------------
@@ -434,6 +446,12 @@ public final class BrowseCommandBuilder
       return repositoryId;
     }
 
+    @Override
+    public boolean isResolved()
+    {
+      return resolved;
+    }
+
     //~--- fields -------------------------------------------------------------
 
     /** repository id */
@@ -441,6 +459,9 @@ public final class BrowseCommandBuilder
 
     /** request object */
     private final BrowseCommandRequest request;
+
+    /** true if the revision of the request is a commit id */
+    private final boolean resolved;
   }
 
 
@@ -465,6 +486,12 @@ public final class BrowseCommandBuilder
   /** the repsitory */
   private final Repository repository;
 
+  /** resolves revisions to commit ids */
+  private final RevisionResolver revisionResolver;
+
+  /** key of the last result, used to store updates of the result */
+  private CacheKey cacheKey;
+
   /** request for the command */
   private final BrowseCommandRequest request = new BrowseCommandRequest(this::updateCache);
 }
@@ -27,6 +27,7 @@ package sonia.scm.repository.api;
 //~--- non-JDK imports --------------------------------------------------------
 
 import com.google.common.base.Objects;
+import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableList;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -38,7 +39,7 @@ import sonia.scm.repository.ChangesetPagingResult;
 import sonia.scm.repository.Feature;
 import sonia.scm.repository.PreProcessorUtil;
 import sonia.scm.repository.Repository;
-import sonia.scm.repository.RepositoryCacheKey;
+import sonia.scm.repository.RevisionCacheKey;
 import sonia.scm.repository.spi.LogCommand;
 import sonia.scm.repository.spi.LogCommandRequest;
 
@@ -103,11 +104,14 @@ public final class LogCommandBuilder
    * @param repository repository to query
    * @param preProcessorUtil
    * @param supportedFeatures The supported features of the provider
+   * @param revisionResolver resolves revisions to commit ids for the cache key
    */
   LogCommandBuilder(CacheManager cacheManager, LogCommand logCommand,
-                    Repository repository, PreProcessorUtil preProcessorUtil, Set<Feature> supportedFeatures)
+                    Repository repository, PreProcessorUtil preProcessorUtil, Set<Feature> supportedFeatures,
+                    RevisionResolver revisionResolver)
   {
-    this.cache = cacheManager.getCache(CACHE_NAME);
+    this.cache = cacheManager.getRepositoryCache(CACHE_NAME);
+    this.revisionResolver = revisionResolver;
     this.logCommand = logCommand;
     this.repository = repository;
     this.preProcessorUtil = preProcessorUtil;
@@ -173,7 +177,9 @@ public final class LogCommandBuilder
     }
     else
     {
-      CacheKey key = new CacheKey(repository, id);
+      String commitId = revisionResolver.lookup(id);
+      // the id is only known to be a commit id, if the resolver has resolved it before
+      CacheKey key = commitId != null ? new CacheKey(repository, commitId, true) : new CacheKey(repository, id, false);
       ChangesetPagingResult cpr = cache.get(key);
 
       if (cpr == null)
@@ -187,8 +193,10 @@ public final class LogCommandBuilder
 
         if (changeset != null)
         {
+          // the id could be a branch or tag name, so we store the changeset by its commit id
+          revisionResolver.record(id, changeset.getId());
           cpr = new ChangesetPagingResult(1, ImmutableList.of(changeset));
-          cache.put(key, cpr);
+          cache.put(new CacheKey(repository, changeset.getId(), true), cpr);
         }
       }
       else
@@ -232,28 +240,13 @@ public final class LogCommandBuilder
     }
     else
     {
-      CacheKey key = new CacheKey(repository, request);
+      CacheKey key = createCacheKey();
 
-      cpr = cache.get(key);
-
-      if (cpr == null)
-      {
-        if (logger.isDebugEnabled())
-        {
-          logger.debug("get changesets for {}", request);
-        }
-
-        cpr = logCommand.getChangesets(request);
-
-        if (cpr != null)
-        {
-          cache.put(key, cpr);
-        }
-      }
-      else if (logger.isDebugEnabled())
-      {
-        logger.debug("get changesets from cache for {}", request);
-      }
+      // concurrent requests for the same key wait for a single computation
+      cpr = cache.get(key, () -> {
+        logger.debug("get changesets for {}", request);
+        return logCommand.getChangesets(request);
+      });
     }
 
     if (!disablePreProcessors && (cpr != null))
@@ -264,6 +257,35 @@ public final class LogCommandBuilder
     return cpr;
   }
 
+  private CacheKey createCacheKey() throws IOException {
+    String branchHead = revisionResolver.resolve(request.getBranch());
+    String startChangeset = revisionResolver.resolve(request.getStartChangeset());
+    String endChangeset = revisionResolver.resolve(request.getEndChangeset());
+    String ancestorChangeset = revisionResolver.resolve(request.getAncestorChangeset());
+
+    // without branch and start changeset the log starts at the head of the default branch, which changes on push
+    boolean resolved = (branchHead != null || startChangeset != null)
+      && isResolved(request.getBranch(), branchHead)
+      && isResolved(request.getStartChangeset(), startChangeset)
+      && isResolved(request.getEndChangeset(), endChangeset)
+      && isResolved(request.getAncestorChangeset(), ancestorChangeset);
+
+    LogCommandRequest keyRequest = new LogCommandRequest();
+    keyRequest.setBranch(request.getBranch());
+    keyRequest.setPath(request.getPath());
+    keyRequest.setPagingStart(request.getPagingStart());
+    keyRequest.setPagingLimit(request.getPagingLimit());
+    keyRequest.setStartChangeset(startChangeset != null ? startChangeset : request.getStartChangeset());
+    keyRequest.setEndChangeset(endChangeset != null ? endChangeset : request.getEndChangeset());
+    keyRequest.setAncestorChangeset(ancestorChangeset != null ? ancestorChangeset : request.getAncestorChangeset());
+
+    return new CacheKey(repository, keyRequest, branchHead, resolved);
+  }
+
+  private static boolean isResolved(String revision, String commitId) {
+    return Strings.isNullOrEmpty(revision) || commitId != null;
+  }
+
   //~--- set methods ----------------------------------------------------------
 
   /**
@@ -416,7 +438,7 @@ public final class LogCommandBuilder
    * @version        Enter version here..., 12/06/05
    * @author         Enter your name here...
    */
-  static class CacheKey implements RepositoryCacheKey, Serializable
+  static class CacheKey implements RevisionCacheKey, Serializable
   {
 
     /** Field description */
@@ -430,11 +452,15 @@ public final class LogCommandBuilder
      *
      * @param repository
      * @param request
+     * @param branchHead commit id of the requested branch or {@code null}
+     * @param resolved true if all revisions of the request are commit ids
      */
-    public CacheKey(Repository repository, LogCommandRequest request)
+    public CacheKey(Repository repository, LogCommandRequest request, String branchHead, boolean resolved)
     {
       this.repositoryId = repository.getId();
       this.request = request;
+      this.branchHead = branchHead;
+      this.resolved = resolved;
       this.changesetId = null;
     }
 
@@ -445,12 +471,15 @@ public final class LogCommandBuilder
      *
      * @param repository
      * @param changesetId
+     * @param resolved true if the changeset id is a commit id and not a branch or tag name
      */
-    public CacheKey(Repository repository, String changesetId)
+    public CacheKey(Repository repository, String changesetId, boolean resolved)
     {
       this.repositoryId = repository.getId();
       this.changesetId = changesetId;
       this.request = null;
+      this.branchHead = null;
+      this.resolved = resolved;
     }
 
     //~--- methods ------------------------------------------------------------
@@ -480,6 +509,7 @@ public final class LogCommandBuilder
 
       return Objects.equal(repositoryId, other.repositoryId)
         && Objects.equal(changesetId, other.changesetId)
+        && Objects.equal(branchHead, other.branchHead)
         && Objects.equal(request, other.request);
     }
 
@@ -492,7 +522,7 @@ public final class LogCommandBuilder
     @Override
     public int hashCode()
     {
-      return Objects.hashCode(repositoryId, changesetId, request);
+      return Objects.hashCode(repositoryId, changesetId, branchHead, request);
     }
 
     //~--- get methods --------------------------------------------------------
@@ -509,6 +539,12 @@ public final class LogCommandBuilder
       return repositoryId;
     }
 
+    @Override
+    public boolean isResolved()
+    {
+      return resolved;
+    }
+
     //~--- fields -------------------------------------------------------------
 
     /** Field description */
@@ -519,6 +555,12 @@ public final class LogCommandBuilder
 
     /** Field description */
     private final LogCommandRequest request;
+
+    /** commit id of the requested branch */
+    private final String branchHead;
+
+    /** true if all revisions of the key are commit ids */
+    private final boolean resolved;
   }
 
 
@@ -537,6 +579,9 @@ public final class LogCommandBuilder
   /** repository to query */
   private final Repository repository;
 
+  /** resolves revisions to commit ids */
+  private final RevisionResolver revisionResolver;
+
   /** disable cache */
   private boolean disableCache = false;
 
@@ -36,11 +36,13 @@ import sonia.scm.cache.Cache;
 import sonia.scm.repository.Modifications;
 import sonia.scm.repository.PreProcessorUtil;
 import sonia.scm.repository.Repository;
-import sonia.scm.repository.RepositoryCacheKey;
+import sonia.scm.repository.RevisionCacheKey;
 import sonia.scm.repository.spi.ModificationsCommand;
 import sonia.scm.repository.spi.ModificationsCommandRequest;
 
 import java.io.IOException;
+import java.io.Serializable;
+import java.util.Objects;
 
 /**
  * Get the modifications applied to files in a revision.
@@ -66,6 +68,8 @@ public final class ModificationsCommandBuilder {
 
   private final PreProcessorUtil preProcessorUtil;
 
+  private final RevisionResolver revisionResolver;
+
   @Setter
   private boolean disableCache = false;
 
@@ -119,18 +123,20 @@ public final class ModificationsCommandBuilder {
       log.info("Get modifications for {} with disabled cache", request);
       modifications = modificationsCommand.getModifications(request);
     } else {
-      ModificationsCommandBuilder.CacheKey key = new ModificationsCommandBuilder.CacheKey(repository.getId(), request);
+      ModificationsCommandBuilder.CacheKey key = createCacheKey();
       if (cache.contains(key)) {
         modifications = cache.get(key);
         log.debug("Get modifications for {} from the cache", request);
       } else {
         log.info("Get modifications for {} with enabled cache", request);
-        modifications = modificationsCommand.getModifications(request);
+        // resolved keys are computed for the resolved commits, the branch could be moved before the computation starts
+        modifications = modificationsCommand.getModifications(key.request());
         if (modifications != null) {
           cache.put(key, modifications);
           log.debug("Modifications for {} added to the cache with key {}", request, key);
         }
       }
+      modifications = withRequestedRevisions(key, modifications);
     }
     if (!disablePreProcessors && (modifications != null)) {
       preProcessorUtil.prepareForReturn(repository, modifications);
@@ -138,19 +144,62 @@ public final class ModificationsCommandBuilder {
     return modifications;
   }
 
+  private Modifications withRequestedRevisions(CacheKey key, Modifications modifications) {
+    if (modifications == null || !key.isResolved()) {
+      return modifications;
+    }
+    // the modifications were computed for the resolved commits, so we restore the requested names
+    String revision = restore(modifications.getRevision(), key.request().getRevision(), request.getRevision());
+    String baseRevision = restore(
+      modifications.getBaseRevision().orElse(null),
+      key.request().getBaseRevision().orElse(null),
+      request.getBaseRevision().orElse(null)
+    );
+    if (Objects.equals(revision, modifications.getRevision())
+      && Objects.equals(baseRevision, modifications.getBaseRevision().orElse(null))) {
+      return modifications;
+    }
+    return new Modifications(baseRevision, revision, modifications.getModifications());
+  }
+
+  private String restore(String revision, String resolved, String requested) {
+    return resolved != null && resolved.equals(revision) ? requested : revision;
+  }
+
+  private CacheKey createCacheKey() throws IOException {
+    String revision = revisionResolver.resolve(request.getRevision());
+    String baseRevision = request.getBaseRevision().orElse(null);
+    String resolvedBaseRevision = revisionResolver.resolve(baseRevision);
+
+    boolean resolved = revision != null && (baseRevision == null || resolvedBaseRevision != null);
+    if (resolved) {
+      return new CacheKey(repository.getId(), new ModificationsCommandRequest(revision, resolvedBaseRevision), true);
+    }
+    return new CacheKey(repository.getId(), new ModificationsCommandRequest(request.getRevision(), baseRevision), false);
+  }
+
   @AllArgsConstructor
   @Getter
-  @Setter
   @EqualsAndHashCode
   @ToString
-  class CacheKey implements RepositoryCacheKey {
+  static class CacheKey implements RevisionCacheKey, Serializable {
+
+    private static final long serialVersionUID = 5489630208170522736L;
+
     private final String repositoryId;
     private final ModificationsCommandRequest request;
+    @EqualsAndHashCode.Exclude
+    private final boolean resolved;
 
     @Override
     public String getRepositoryId() {
       return repositoryId;
     }
+
+    @Override
+    public boolean isResolved() {
+      return resolved;
+    }
   }
 
 }
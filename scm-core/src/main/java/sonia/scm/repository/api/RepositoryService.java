@@ -35,6 +35,7 @@ import sonia.scm.repository.RepositoryExportingCheck;
 import sonia.scm.repository.RepositoryPermissions;
 import sonia.scm.repository.RepositoryReadOnlyChecker;
 import sonia.scm.repository.spi.BranchDetailsCommand;
+import sonia.scm.repository.spi.LogCommand;
 import sonia.scm.repository.spi.RepositoryServiceProvider;
 import sonia.scm.repository.work.WorkdirProvider;
 import sonia.scm.security.Authentications;
@@ -44,6 +45,7 @@ import javax.annotation.Nullable;
 import java.io.Closeable;
 import java.io.IOException;
 import java.util.Set;
+import java.util.function.Supplier;
 import java.util.stream.Stream;
 
 /**
@@ -162,7 +164,7 @@ public final class RepositoryService implements Closeable {
     LOG.debug("create blame command for repository {}", repository);
 
     return new BlameCommandBuilder(cacheManager, provider.getBlameCommand(),
-      repository, preProcessorUtil);
+      repository, preProcessorUtil, createRevisionResolver());
   }
 
   /**
@@ -205,7 +207,7 @@ public final class RepositoryService implements Closeable {
     LOG.debug("create browse command for repository {}", repository);
 
     return new BrowseCommandBuilder(cacheManager, provider.getBrowseCommand(),
-      repository, preProcessorUtil, provider::getBrowseCommand);
+      repository, preProcessorUtil, provider::getBrowseCommand, createRevisionResolver());
   }
 
   /**
@@ -289,8 +291,10 @@ public final class RepositoryService implements Closeable {
   public LogCommandBuilder getLogCommand() {
     LOG.debug("create log command for repository {}", repository);
 
-    return new LogCommandBuilder(cacheManager, provider.getLogCommand(),
-      repository, preProcessorUtil, provider.getSupportedFeatures());
+    LogCommand logCommand = provider.getLogCommand();
+    return new LogCommandBuilder(cacheManager, logCommand,
+      repository, preProcessorUtil, provider.getSupportedFeatures(),
+      new RevisionResolver(cacheManager, repository, () -> logCommand));
   }
 
   /**
@@ -302,7 +306,7 @@ public final class RepositoryService implements Closeable {
    */
   public ModificationsCommandBuilder getModificationsCommand() {
     LOG.debug("create modifications command for repository {}", repository);
-    return new ModificationsCommandBuilder(provider.getModificationsCommand(), repository, cacheManager.getCache(ModificationsCommandBuilder.CACHE_NAME), preProcessorUtil);
+    return new ModificationsCommandBuilder(provider.getModificationsCommand(), repository, cacheManager.getRepositoryCache(ModificationsCommandBuilder.CACHE_NAME), preProcessorUtil, createRevisionResolver());
   }
 
   /**
@@ -509,6 +513,11 @@ public final class RepositoryService implements Closeable {
     return new ChangesetsCommandBuilder(repository, provider.getChangesetsCommand());
   }
 
+  private RevisionResolver createRevisionResolver() {
+    Supplier<LogCommand> logCommandFactory = isSupported(Command.LOG) ? provider::getLogCommand : null;
+    return new RevisionResolver(cacheManager, repository, logCommandFactory);
+  }
+
   /**
    * Returns true if the command is supported by the repository service.
    *
@@ -38,8 +38,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import sonia.scm.HandlerEventType;
 import sonia.scm.NotFoundException;
-import sonia.scm.cache.Cache;
 import sonia.scm.cache.CacheManager;
+import sonia.scm.cache.RepositoryCache;
 import sonia.scm.config.ScmConfiguration;
 import sonia.scm.event.ScmEventBus;
 import sonia.scm.repository.ClearRepositoryCacheEvent;
@@ -48,7 +48,6 @@ import sonia.scm.repository.NamespaceAndName;
 import sonia.scm.repository.PostReceiveRepositoryHookEvent;
 import sonia.scm.repository.PreProcessorUtil;
 import sonia.scm.repository.Repository;
-import sonia.scm.repository.RepositoryCacheKeyPredicate;
 import sonia.scm.repository.RepositoryEvent;
 import sonia.scm.repository.RepositoryExportingCheck;
 import sonia.scm.repository.RepositoryManager;
@@ -62,7 +61,11 @@ import sonia.scm.security.ScmSecurityException;
 import sonia.scm.user.EMail;
 
 import javax.annotation.Nullable;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static sonia.scm.ContextEntry.ContextBuilder.entity;
 import static sonia.scm.NotFoundException.notFound;
@@ -130,6 +133,11 @@ public final class RepositoryServiceFactory {
   @Nullable
   private final EMail eMail;
 
+  /**
+   * time of the last created service by repository id
+   */
+  private final Map<String, Instant> lastAccess = new ConcurrentHashMap<>();
+
 
   /**
    * Constructs a new {@link RepositoryServiceFactory}. This constructor
@@ -278,6 +286,8 @@ public final class RepositoryServiceFactory {
     // check for read permissions of current user
     RepositoryPermissions.read(repository).check();
 
+    lastAccess.put(repository.getId(), Instant.now());
+
     RepositoryService service = null;
 
     for (RepositoryServiceResolver resolver : resolvers) {
@@ -304,12 +314,30 @@ public final class RepositoryServiceFactory {
     return service;
   }
 
+  /**
+   * Returns the time at which a service for the repository was created the last time. This is the time of the last
+   * access to the repository since the start of the server.
+   *
+   * @param repositoryId id of the repository
+   *
+   * @return time of the last access or empty, if the repository was not accessed since the start of the server
+   *
+   * @since 2.41.0
+   */
+  public Optional<Instant> getLastAccess(String repositoryId) {
+    return Optional.ofNullable(lastAccess.get(repositoryId));
+  }
+
   /**
    * Hook and listener to clear all relevant repository caches.
    */
   private static class CacheClearHook {
 
-    private final Set<Cache<?, ?>> caches = Sets.newHashSet();
+    /** caches of results for branches and tags, which have to be cleared on every push */
+    private final Set<RepositoryCache<?, ?>> refCaches = Sets.newHashSet();
+    /** caches of results for revisions, which are only cleared for unresolved revisions on push */
+    private final Set<RepositoryCache<?, ?>> revisionCaches = Sets.newHashSet();
+    private final RepositoryCache<?, ?> logCache;
     private final CacheManager cacheManager;
 
     /**
@@ -320,12 +348,14 @@ public final class RepositoryServiceFactory {
      */
     public CacheClearHook(CacheManager cacheManager) {
       this.cacheManager = cacheManager;
-      this.caches.add(cacheManager.getCache(BlameCommandBuilder.CACHE_NAME));
-      this.caches.add(cacheManager.getCache(BrowseCommandBuilder.CACHE_NAME));
-      this.caches.add(cacheManager.getCache(LogCommandBuilder.CACHE_NAME));
-      this.caches.add(cacheManager.getCache(TagsCommandBuilder.CACHE_NAME));
-      this.caches.add(cacheManager.getCache(BranchesCommandBuilder.CACHE_NAME));
-      this.caches.add(cacheManager.getCache(BranchDetailsCommandBuilder.CACHE_NAME));
+      this.logCache = cacheManager.getRepositoryCache(LogCommandBuilder.CACHE_NAME);
+      this.revisionCaches.add(cacheManager.getRepositoryCache(BlameCommandBuilder.CACHE_NAME));
+      this.revisionCaches.add(cacheManager.getRepositoryCache(BrowseCommandBuilder.CACHE_NAME));
+      this.revisionCaches.add(cacheManager.getRepositoryCache(ModificationsCommandBuilder.CACHE_NAME));
+      this.refCaches.add(cacheManager.getRepositoryCache(TagsCommandBuilder.CACHE_NAME));
+      this.refCaches.add(cacheManager.getRepositoryCache(BranchesCommandBuilder.CACHE_NAME));
+      this.refCaches.add(cacheManager.getRepositoryCache(BranchDetailsCommandBuilder.CACHE_NAME));
+      this.refCaches.add(cacheManager.getRepositoryCache(RevisionResolver.CACHE_NAME));
     }
 
     /**
@@ -341,7 +371,8 @@ public final class RepositoryServiceFactory {
     /**
      * Clear caches on repository push.
      * We do this synchronously, because there are often workflows which are creating branches and fetch them straight
-     * after the creation.
+     * after the creation. Results which were computed for commit ids are kept, because they can not be changed by a
+     * push. Only changesets have to be removed, if the push has changed tags, because they contain their tags.
      *
      * @param event hook event
      */
@@ -352,8 +383,24 @@ public final class RepositoryServiceFactory {
       if (repository != null) {
         String id = repository.getId();
 
-        clearCaches(id);
+        logger.debug("clear caches of branches and tags for repository id {}", id);
+        refCaches.forEach(cache -> cache.clearRepository(id));
+        revisionCaches.forEach(cache -> cache.clearUnresolved(id));
+
+        if (mayHaveChangedTags(event.getContext())) {
+          logCache.clearRepository(id);
+        } else {
+          logCache.clearUnresolved(id);
+        }
+      }
+    }
+
+    private boolean mayHaveChangedTags(HookContext context) {
+      if (context == null || !context.isFeatureSupported(HookFeature.TAG_PROVIDER)) {
+        return true;
       }
+      HookTagProvider tagProvider = context.getTagProvider();
+      return !tagProvider.getCreatedTags().isEmpty() || !tagProvider.getDeletedTags().isEmpty();
     }
 
     /**
@@ -379,18 +426,18 @@ public final class RepositoryServiceFactory {
     }
 
     private void invalidateCachesForChangedPublicKeys() {
-      cacheManager.getCache(LogCommandBuilder.CACHE_NAME).clear();
-      cacheManager.getCache(TagsCommandBuilder.CACHE_NAME).clear();
+      logCache.clear();
+      cacheManager.getRepositoryCache(TagsCommandBuilder.CACHE_NAME).clear();
     }
 
-    @SuppressWarnings({"unchecked", "java:S3740", "rawtypes"})
     private void clearCaches(final String repositoryId) {
       if (logger.isDebugEnabled()) {
         logger.debug("clear caches for repository id {}", repositoryId);
       }
 
-      RepositoryCacheKeyPredicate predicate = new RepositoryCacheKeyPredicate(repositoryId);
-      caches.forEach(cache -> cache.removeAll(predicate));
+      refCaches.forEach(cache -> cache.clearRepository(repositoryId));
+      revisionCaches.forEach(cache -> cache.clearRepository(repositoryId));
+      logCache.clearRepository(repositoryId);
     }
   }
 
@@ -0,0 +1,179 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package sonia.scm.repository.api;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Strings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sonia.scm.NotFoundException;
+import sonia.scm.cache.CacheManager;
+import sonia.scm.cache.RepositoryCache;
+import sonia.scm.repository.Changeset;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryCacheKey;
+import sonia.scm.repository.spi.LogCommand;
+import sonia.scm.repository.spi.LogCommandRequest;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.function.Supplier;
+
+/**
+ * Resolves symbolic revisions like branch or tag names to the id of the commit they are pointing to. Results of
+ * commands which are computed for a resolved commit id never change, so their cache entries do not have to be removed
+ * on push and can be shared between all names pointing to the same commit. Only the small cache of this resolver and
+ * the entries for unresolved revisions are removed on push.
+ *
+ * @since 2.41.0
+ */
+final class RevisionResolver {
+
+  /** name of the cache */
+  static final String CACHE_NAME = "sonia.cache.cmd.revisions";
+
+  private static final Logger logger = LoggerFactory.getLogger(RevisionResolver.class);
+
+  private final RepositoryCache<CacheKey, String> cache;
+  private final Repository repository;
+  private final Supplier<LogCommand> logCommandFactory;
+
+  private LogCommand logCommand;
+
+  /**
+   * Constructs a new resolver.
+   *
+   * @param cacheManager cache manager
+   * @param repository repository to resolve revisions for
+   * @param logCommandFactory creates the log command to resolve revisions or {@code null}, if the repository does not
+   *                          support the log command
+   */
+  RevisionResolver(CacheManager cacheManager, Repository repository, Supplier<LogCommand> logCommandFactory) {
+    this.cache = cacheManager.getRepositoryCache(CACHE_NAME);
+    this.repository = repository;
+    this.logCommandFactory = logCommandFactory;
+  }
+
+  /**
+   * Returns the commit id for the given revision or {@code null}, if the revision could not be resolved. Empty
+   * revisions, which are pointing to the default branch, are never resolved.
+   *
+   * @param revision branch, tag or commit id
+   *
+   * @return commit id or {@code null}
+   *
+   * @throws IOException
+   */
+  String resolve(String revision) throws IOException {
+    if (Strings.isNullOrEmpty(revision) || logCommandFactory == null) {
+      return null;
+    }
+
+    String id = lookup(revision);
+    if (id == null) {
+      Changeset changeset;
+      try {
+        changeset = getLogCommand().getChangeset(revision, new LogCommandRequest());
+      } catch (NotFoundException ex) {
+        logger.debug("could not resolve revision {} of repository {}", revision, repository, ex);
+        return null;
+      }
+      if (changeset != null) {
+        id = changeset.getId();
+        record(revision, id);
+      }
+    }
+    return id;
+  }
+
+  /**
+   * Returns the commit id for the given revision, if it was resolved before.
+   *
+   * @param revision branch, tag or commit id
+   *
+   * @return commit id or {@code null}
+   */
+  String lookup(String revision) {
+    if (Strings.isNullOrEmpty(revision)) {
+      return null;
+    }
+    return cache.get(new CacheKey(repository.getId(), revision));
+  }
+
+  /**
+   * Stores the commit id of a revision, which was resolved by a command.
+   *
+   * @param revision branch, tag or commit id
+   * @param id id of the commit
+   */
+  void record(String revision, String id) {
+    if (!Strings.isNullOrEmpty(revision) && id != null) {
+      logger.trace("resolved revision {} of repository {} to {}", revision, repository, id);
+      cache.put(new CacheKey(repository.getId(), revision), id);
+    }
+  }
+
+  private LogCommand getLogCommand() {
+    if (logCommand == null) {
+      logCommand = logCommandFactory.get();
+    }
+    return logCommand;
+  }
+
+  static class CacheKey implements RepositoryCacheKey, Serializable {
+
+    private static final long serialVersionUID = -4232787154786328312L;
+
+    private final String repositoryId;
+    private final String revision;
+
+    CacheKey(String repositoryId, String revision) {
+      this.repositoryId = repositoryId;
+      this.revision = revision;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (obj == null || getClass() != obj.getClass()) {
+        return false;
+      }
+
+      final CacheKey other = (CacheKey) obj;
+
+      return Objects.equal(repositoryId, other.repositoryId)
+        && Objects.equal(revision, other.revision);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hashCode(repositoryId, revision);
+    }
+
+    @Override
+    public String getRepositoryId() {
+      return repositoryId;
+    }
+  }
+}
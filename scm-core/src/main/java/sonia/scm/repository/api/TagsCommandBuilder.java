@@ -81,7 +81,7 @@ public final class TagsCommandBuilder
   TagsCommandBuilder(CacheManager cacheManager, TagsCommand command,
     Repository repository)
   {
-    this.cache = cacheManager.getCache(CACHE_NAME);
+    this.cache = cacheManager.getRepositoryCache(CACHE_NAME);
     this.command = command;
     this.repository = repository;
   }
@@ -32,6 +32,7 @@ import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.ToString;
 
+import java.io.Serializable;
 import java.util.Optional;
 
 import static java.util.Optional.ofNullable;
@@ -42,7 +43,10 @@ import static java.util.Optional.ofNullable;
 @Setter
 @AllArgsConstructor
 @NoArgsConstructor
-public class ModificationsCommandRequest implements Resetable {
+public class ModificationsCommandRequest implements Resetable, Serializable {
+
+  private static final long serialVersionUID = -3276361482738167204L;
+
   private String revision;
   private String baseRevision;
 
@@ -37,13 +37,18 @@ import sonia.scm.event.Event;
 public final class AuthorizationChangedEvent {
   
   private final String nameOfAffectedUser;
+  private final String idOfAffectedRepository;
+  private final String affectedNamespace;
   
-  private AuthorizationChangedEvent(String nameOfAffectedUser) {
+  private AuthorizationChangedEvent(String nameOfAffectedUser, String idOfAffectedRepository, String affectedNamespace) {
     this.nameOfAffectedUser = nameOfAffectedUser;
+    this.idOfAffectedRepository = idOfAffectedRepository;
+    this.affectedNamespace = affectedNamespace;
   }
   
   /**
-   * Returns {@code true} if every user is affected by this data change.
+   * Returns {@code true} if every user is affected by this data change. This is also the case for events, which
+   * are limited to a repository or a namespace.
    * 
    * @return {@code true} if every user is affected
    */
@@ -59,6 +64,50 @@ public final class AuthorizationChangedEvent {
   public String getNameOfAffectedUser(){
     return nameOfAffectedUser;
   }
+
+  /**
+   * Returns {@code true} if only the permissions of a single repository have changed.
+   *
+   * @return {@code true} if the event is limited to a repository
+   *
+   * @since 2.41.0
+   */
+  public boolean isRepositorySpecific() {
+    return idOfAffectedRepository != null;
+  }
+
+  /**
+   * Returns the id of the repository, whose permissions have changed.
+   *
+   * @return id of affected repository or {@code null}
+   *
+   * @since 2.41.0
+   */
+  public String getIdOfAffectedRepository() {
+    return idOfAffectedRepository;
+  }
+
+  /**
+   * Returns {@code true} if only the permissions of the repositories of a single namespace have changed.
+   *
+   * @return {@code true} if the event is limited to a namespace
+   *
+   * @since 2.41.0
+   */
+  public boolean isNamespaceSpecific() {
+    return affectedNamespace != null;
+  }
+
+  /**
+   * Returns the namespace, whose permissions have changed.
+   *
+   * @return affected namespace or {@code null}
+   *
+   * @since 2.41.0
+   */
+  public String getAffectedNamespace() {
+    return affectedNamespace;
+  }
   
   /**
    * Creates a new event which affects every user.
@@ -66,7 +115,7 @@ public final class AuthorizationChangedEvent {
    * @return new event for every user
    */
   public static AuthorizationChangedEvent createForEveryUser() {
-    return new AuthorizationChangedEvent(null);
+    return new AuthorizationChangedEvent(null, null, null);
   }
   
   /**
@@ -77,7 +126,35 @@ public final class AuthorizationChangedEvent {
    * @return new event for a single user
    */
   public static AuthorizationChangedEvent createForUser(String nameOfAffectedUser) {
-    return new AuthorizationChangedEvent(nameOfAffectedUser);
+    return new AuthorizationChangedEvent(nameOfAffectedUser, null, null);
+  }
+
+  /**
+   * Creates a new event which affects every user, but only the permissions of a single repository. The repository
+   * may have been created, modified or deleted.
+   *
+   * @param idOfAffectedRepository id of the affected repository
+   *
+   * @return new event for a single repository
+   *
+   * @since 2.41.0
+   */
+  public static AuthorizationChangedEvent createForRepository(String idOfAffectedRepository) {
+    return new AuthorizationChangedEvent(null, idOfAffectedRepository, null);
+  }
+
+  /**
+   * Creates a new event which affects every user, but only the permissions of the repositories within a single
+   * namespace.
+   *
+   * @param affectedNamespace affected namespace
+   *
+   * @return new event for a single namespace
+   *
+   * @since 2.41.0
+   */
+  public static AuthorizationChangedEvent createForNamespace(String affectedNamespace) {
+    return new AuthorizationChangedEvent(null, null, affectedNamespace);
   }
   
 }
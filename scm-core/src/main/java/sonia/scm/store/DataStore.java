@@ -68,4 +68,54 @@ public interface DataStore<T> extends MultiEntryStore<T> {
    * @return map of all stored items
    */
   public Map<String, T> getAll();
+
+  /**
+   * Returns {@code true} if the store maintains the indexes, which were declared when the store was built. If a store
+   * implementation does not support indexes, the store builder wraps it and answers index lookups by reading every
+   * item of the store.
+   *
+   * @return {@code true} if the store implements {@link #getByIndex(String, String)} and
+   *   {@link #getByIndexPrefix(String, String)}
+   * @since 2.41.0
+   */
+  default boolean supportsIndexes() {
+    return false;
+  }
+
+  /**
+   * Returns all items, whose value for the given index is equal to the given value. The index has to be declared,
+   * when the store is built (see {@link TypedStoreParametersBuilder.OptionalRepositoryBuilder#withIndex}). Lookups
+   * with an index do not have to read every item of the store.
+   *
+   * @param index name of the index
+   * @param value indexed value
+   *
+   * @return map of matching items by id
+   *
+   * @throws IllegalArgumentException if no index with the given name was declared
+   * @throws UnsupportedOperationException if the store implementation does not support indexes, stores which are
+   *   built with an index never throw this exception (see {@link #supportsIndexes()})
+   * @since 2.41.0
+   */
+  default Map<String, T> getByIndex(String index, String value) {
+    throw new UnsupportedOperationException("store does not support indexes");
+  }
+
+  /**
+   * Returns all items, whose value for the given index starts with the given prefix, see
+   * {@link #getByIndex(String, String)}.
+   *
+   * @param index name of the index
+   * @param prefix prefix of the indexed value
+   *
+   * @return map of matching items by id, ordered by the indexed value
+   *
+   * @throws IllegalArgumentException if no index with the given name was declared
+   * @throws UnsupportedOperationException if the store implementation does not support indexes, stores which are
+   *   built with an index never throw this exception (see {@link #supportsIndexes()})
+   * @since 2.41.0
+   */
+  default Map<String, T> getByIndexPrefix(String index, String prefix) {
+    throw new UnsupportedOperationException("store does not support indexes");
+  }
 }
@@ -0,0 +1,111 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package sonia.scm.store;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Answers index lookups for a store implementation, which does not support indexes, by reading every item of the
+ * store. All other methods are delegated to the wrapped store. The wrapper implements {@link ConfigurationEntryStore},
+ * so that it can be used for data stores as well as for configuration entry stores.
+ *
+ * @param <T> type of stored objects
+ * @since 2.41.0
+ */
+final class ScanningIndexStore<T> implements ConfigurationEntryStore<T> {
+
+  private final DataStore<T> delegate;
+  private final Map<String, Function<T, String>> extractors;
+
+  ScanningIndexStore(DataStore<T> delegate, Map<String, Function<T, String>> extractors) {
+    this.delegate = delegate;
+    this.extractors = extractors;
+  }
+
+  @Override
+  public String put(T item) {
+    return delegate.put(item);
+  }
+
+  @Override
+  public void put(String id, T item) {
+    delegate.put(id, item);
+  }
+
+  @Override
+  public Map<String, T> getAll() {
+    return delegate.getAll();
+  }
+
+  @Override
+  public void clear() {
+    delegate.clear();
+  }
+
+  @Override
+  public void remove(String id) {
+    delegate.remove(id);
+  }
+
+  @Override
+  public T get(String id) {
+    return delegate.get(id);
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public Collection<T> getMatchingValues(Predicate<T> predicate) {
+    if (delegate instanceof ConfigurationEntryStore) {
+      return ((ConfigurationEntryStore<T>) delegate).getMatchingValues(predicate);
+    }
+    return delegate.getAll().values().stream().filter(predicate).collect(Collectors.toList());
+  }
+
+  @Override
+  public boolean supportsIndexes() {
+    return true;
+  }
+
+  @Override
+  public Map<String, T> getByIndex(String index, String value) {
+    Map<String, T> items = delegate.getAll();
+    return scan(items).find(index, value, items::get);
+  }
+
+  @Override
+  public Map<String, T> getByIndexPrefix(String index, String prefix) {
+    Map<String, T> items = delegate.getAll();
+    return scan(items).findByPrefix(index, prefix, items::get);
+  }
+
+  private StoreIndexes<T> scan(Map<String, T> items) {
+    StoreIndexes<T> indexes = new StoreIndexes<>(extractors);
+    indexes.rebuild(items);
+    return indexes;
+  }
+}
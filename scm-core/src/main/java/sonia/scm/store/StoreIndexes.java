@@ -0,0 +1,219 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package sonia.scm.store;
+
+import com.google.common.collect.ImmutableMap;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * In memory secondary indexes for the entries of a {@link DataStore}. Each index maps the value, which is extracted
+ * from an entry by the function passed to {@link TypedStoreParametersBuilder.OptionalRepositoryBuilder#withIndex},
+ * to the ids of the entries. The values are kept sorted, so that equality and prefix lookups do not have to read
+ * every entry of the store.
+ * <p>
+ * This class is meant to be used by store implementations. The store has to call {@link #put(String, Object)} and
+ * {@link #remove(String)} on every modification and {@link #rebuild(Map)} whenever it has (re-)loaded its entries.
+ *
+ * @param <T> type of stored objects
+ * @since 2.41.0
+ */
+public final class StoreIndexes<T> {
+
+  private final Map<String, Index> indexes;
+
+  public StoreIndexes(Map<String, Function<T, String>> extractors) {
+    ImmutableMap.Builder<String, Index> builder = ImmutableMap.builder();
+    extractors.forEach((name, extractor) -> builder.put(name, new Index(extractor)));
+    this.indexes = builder.build();
+  }
+
+  /**
+   * Returns {@code true} if no index was declared for the store.
+   *
+   * @return {@code true} if there are no indexes
+   */
+  public boolean isEmpty() {
+    return indexes.isEmpty();
+  }
+
+  /**
+   * Adds or replaces the entry with the given id in all indexes.
+   *
+   * @param id id of the entry
+   * @param item stored object
+   */
+  public synchronized void put(String id, T item) {
+    indexes.values().forEach(index -> index.put(id, item));
+  }
+
+  /**
+   * Removes the entry with the given id from all indexes.
+   *
+   * @param id id of the entry
+   */
+  public synchronized void remove(String id) {
+    indexes.values().forEach(index -> index.remove(id));
+  }
+
+  /**
+   * Removes all entries from all indexes.
+   */
+  public synchronized void clear() {
+    indexes.values().forEach(Index::clear);
+  }
+
+  /**
+   * Replaces the content of all indexes with the given entries.
+   *
+   * @param items all entries of the store
+   */
+  public synchronized void rebuild(Map<String, T> items) {
+    clear();
+    items.forEach(this::put);
+  }
+
+  /**
+   * Returns all entries, whose indexed value is equal to the given value. The entries are read with the given reader.
+   * Entries which no longer match, because they were modified after they were indexed, are skipped.
+   *
+   * @param name name of the index
+   * @param value indexed value
+   * @param reader reads the entry with the given id from the store
+   *
+   * @return matching entries by id
+   */
+  public Map<String, T> find(String name, String value, Function<String, T> reader) {
+    Index index = index(name);
+    Set<String> ids;
+    synchronized (this) {
+      ids = index.find(value);
+    }
+    return read(ids, reader, item -> value.equals(index.extractor.apply(item)));
+  }
+
+  /**
+   * Returns all entries, whose indexed value starts with the given prefix, ordered by the indexed value. See
+   * {@link #find(String, String, Function)}.
+   *
+   * @param name name of the index
+   * @param prefix prefix of the indexed value
+   * @param reader reads the entry with the given id from the store
+   *
+   * @return matching entries by id
+   */
+  public Map<String, T> findByPrefix(String name, String prefix, Function<String, T> reader) {
+    Index index = index(name);
+    Set<String> ids;
+    synchronized (this) {
+      ids = index.findByPrefix(prefix);
+    }
+    return read(ids, reader, item -> {
+      String value = index.extractor.apply(item);
+      return value != null && value.startsWith(prefix);
+    });
+  }
+
+  private Index index(String name) {
+    Index index = indexes.get(name);
+    if (index == null) {
+      throw new IllegalArgumentException("store has no index with name " + name);
+    }
+    return index;
+  }
+
+  private Map<String, T> read(Set<String> ids, Function<String, T> reader, Predicate<T> matches) {
+    Map<String, T> items = new LinkedHashMap<>();
+    for (String id : ids) {
+      T item = reader.apply(id);
+      if (item != null && matches.test(item)) {
+        items.put(id, item);
+      }
+    }
+    return Collections.unmodifiableMap(items);
+  }
+
+  private class Index {
+
+    private final Function<T, String> extractor;
+    private final NavigableMap<String, Set<String>> idsByValue = new TreeMap<>();
+    private final Map<String, String> valueById = new HashMap<>();
+
+    private Index(Function<T, String> extractor) {
+      this.extractor = extractor;
+    }
+
+    void put(String id, T item) {
+      remove(id);
+      String value = extractor.apply(item);
+      if (value != null) {
+        idsByValue.computeIfAbsent(value, v -> new TreeSet<>()).add(id);
+        valueById.put(id, value);
+      }
+    }
+
+    void remove(String id) {
+      String value = valueById.remove(id);
+      if (value != null) {
+        Set<String> ids = idsByValue.get(value);
+        ids.remove(id);
+        if (ids.isEmpty()) {
+          idsByValue.remove(value);
+        }
+      }
+    }
+
+    void clear() {
+      idsByValue.clear();
+      valueById.clear();
+    }
+
+    Set<String> find(String value) {
+      Set<String> ids = idsByValue.get(value);
+      return ids != null ? new TreeSet<>(ids) : Collections.emptySet();
+    }
+
+    Set<String> findByPrefix(String prefix) {
+      Set<String> ids = new LinkedHashSet<>();
+      for (Map.Entry<String, Set<String>> entry : idsByValue.tailMap(prefix, true).entrySet()) {
+        if (!entry.getKey().startsWith(prefix)) {
+          break;
+        }
+        ids.addAll(entry.getValue());
+      }
+      return ids;
+    }
+  }
+}
@@ -25,8 +25,11 @@
 package sonia.scm.store;
 
 import javax.xml.bind.annotation.adapters.XmlAdapter;
+import java.util.Collections;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Function;
 
 /**
  * The fields of the {@link TypedStoreParameters} are used from the {@link ConfigurationStoreFactory},
@@ -44,4 +47,26 @@ public interface TypedStoreParameters<T> extends StoreParameters {
   @SuppressWarnings("java:S1452") // we could not provide generic type, because we don't know it here
   Set<XmlAdapter<?,?>> getAdapters();
 
+  /**
+   * Returns the maximum number of entries, which should be kept in memory by the store. A size of {@code 0} disables
+   * the cache. Only implementations of {@link DataStore} make use of this value.
+   *
+   * @return maximum number of cached entries
+   * @since 2.41.0
+   */
+  default int getCacheSize() {
+    return 0;
+  }
+
+  /**
+   * Returns the functions to extract the indexed values from the stored objects by the name of the index. Only
+   * implementations of {@link DataStore} make use of indexes.
+   *
+   * @return index functions by name
+   * @since 2.41.0
+   */
+  default Map<String, Function<T, String>> getIndexes() {
+    return Collections.emptyMap();
+  }
+
 }
@@ -24,6 +24,7 @@
 
 package sonia.scm.store;
 
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import lombok.AccessLevel;
 import lombok.Getter;
@@ -33,7 +34,10 @@ import sonia.scm.plugin.PluginLoader;
 import sonia.scm.repository.Repository;
 
 import javax.xml.bind.annotation.adapters.XmlAdapter;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.function.Function;
@@ -73,6 +77,8 @@ public final class TypedStoreParametersBuilder<T,S> {
     private String repositoryId;
     private ClassLoader classLoader;
     private Set<XmlAdapter<?, ?>> adapters;
+    private int cacheSize;
+    private Map<String, Function<T, String>> indexes = Collections.emptyMap();
 
     public Optional<ClassLoader> getClassLoader() {
       return Optional.ofNullable(classLoader);
@@ -82,6 +88,7 @@ public final class TypedStoreParametersBuilder<T,S> {
   public class OptionalRepositoryBuilder {
 
     private final Set<XmlAdapter<?,?>> adapters = new HashSet<>();
+    private final Map<String, Function<T, String>> indexes = new LinkedHashMap<>();
 
     /**
      * Use this to create or get a store for a specific repository. This step is optional. If you
@@ -130,13 +137,54 @@ public final class TypedStoreParametersBuilder<T,S> {
       return this;
     }
 
+    /**
+     * Keeps up to the given number of entries in memory, so that reading them does not require to parse the stored
+     * files again. The cache is updated on every write and detects modifications of the underlying files. Values
+     * returned by a cached store are shared, so they must not be modified without storing them again.
+     * Currently only {@link DataStore}s support caching.
+     *
+     * @param maximumSize maximum number of cached entries
+     *
+     * @return {@code this}
+     * @since 2.41.0
+     */
+    public OptionalRepositoryBuilder withCache(int maximumSize) {
+      parameters.setCacheSize(maximumSize);
+      return this;
+    }
+
+    /**
+     * Declares an index for the store, which can be used with {@link DataStore#getByIndex(String, String)} and
+     * {@link DataStore#getByIndexPrefix(String, String)}. The index is maintained on every write and rebuilt, when the
+     * store is loaded. Objects for which the function returns {@code null} are not indexed. Stores with the same
+     * name should always use the same function for an index name.
+     * Currently only {@link DataStore}s support indexes. If the store implementation does not maintain indexes
+     * (see {@link DataStore#supportsIndexes()}), lookups fall back to reading every item of the store.
+     *
+     * @param name name of the index
+     * @param extractor function to extract the indexed value from a stored object
+     *
+     * @return {@code this}
+     * @since 2.41.0
+     */
+    public OptionalRepositoryBuilder withIndex(String name, Function<T, String> extractor) {
+      indexes.put(name, extractor);
+      return this;
+    }
+
     /**
      * Creates or gets the store with the given name and (if specified) the given repository. If no
      * repository is given, the store will be global.
      */
+    @SuppressWarnings("unchecked")
     public S build(){
       parameters.setAdapters(ImmutableSet.copyOf(adapters));
-      return factory.apply(parameters);
+      parameters.setIndexes(ImmutableMap.copyOf(indexes));
+      S store = factory.apply(parameters);
+      if (!indexes.isEmpty() && store instanceof DataStore && !((DataStore<T>) store).supportsIndexes()) {
+        return (S) new ScanningIndexStore<>((DataStore<T>) store, parameters.getIndexes());
+      }
+      return store;
     }
   }
 
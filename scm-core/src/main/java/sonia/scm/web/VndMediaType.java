@@ -103,6 +103,9 @@ public class VndMediaType {
   public static final String QUERY_RESULT = PREFIX + "queryResult" + SUFFIX;
   public static final String SEARCHABLE_TYPE_COLLECTION = PREFIX + "searchableTypeCollection" + SUFFIX;
 
+  public static final String CACHE = PREFIX + "cache" + SUFFIX;
+  public static final String CACHE_COLLECTION = PREFIX + "cacheCollection" + SUFFIX;
+
   private VndMediaType() {
   }
 
@@ -0,0 +1,69 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package sonia.scm.cache;
+
+import com.google.common.base.Predicate;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.repository.RepositoryCacheKey;
+import sonia.scm.repository.RevisionCacheKey;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PredicateRepositoryCacheTest {
+
+  @Mock
+  private Cache<RepositoryCacheKey, String> cache;
+
+  @Captor
+  private ArgumentCaptor<Predicate<RepositoryCacheKey>> predicate;
+
+  @Test
+  void shouldRemoveOnlyUnresolvedElementsOfRepository() {
+    new PredicateRepositoryCache<>(cache).clearUnresolved("heart-of-gold");
+
+    verify(cache).removeAll(predicate.capture());
+    assertThat(predicate.getValue().apply(key("heart-of-gold", false))).isTrue();
+    assertThat(predicate.getValue().apply(key("heart-of-gold", true))).isFalse();
+    assertThat(predicate.getValue().apply(key("puzzle-42", false))).isFalse();
+    assertThat(predicate.getValue().apply(() -> "heart-of-gold")).isTrue();
+  }
+
+  private RevisionCacheKey key(String repositoryId, boolean resolved) {
+    RevisionCacheKey key = mock(RevisionCacheKey.class);
+    when(key.getRepositoryId()).thenReturn(repositoryId);
+    if (repositoryId.equals("heart-of-gold")) {
+      when(key.isResolved()).thenReturn(resolved);
+    }
+    return key;
+  }
+}
@@ -0,0 +1,73 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package sonia.scm.repository;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BrowserResultTest {
+
+  @Test
+  void shouldBeCompleteWithComputedFileObjects() {
+    FileObject root = directory();
+    root.addChild(new FileObject());
+
+    assertThat(new BrowserResult("42", root).isComplete()).isTrue();
+  }
+
+  @Test
+  void shouldBeCompleteWithoutFileObject() {
+    assertThat(new BrowserResult("42", null).isComplete()).isTrue();
+  }
+
+  @Test
+  void shouldNotBeCompleteWithPartialChild() {
+    FileObject root = directory();
+    FileObject child = directory();
+    root.addChild(child);
+    FileObject partial = new FileObject();
+    partial.setPartialResult(true);
+    child.addChild(partial);
+
+    assertThat(new BrowserResult("42", root).isComplete()).isFalse();
+  }
+
+  @Test
+  void shouldNotBeCompleteWithAbortedComputation() {
+    FileObject root = directory();
+    FileObject aborted = new FileObject();
+    aborted.setComputationAborted(true);
+    root.addChild(aborted);
+
+    assertThat(new BrowserResult("42", root).isComplete()).isFalse();
+  }
+
+  private FileObject directory() {
+    FileObject directory = new FileObject();
+    directory.setDirectory(true);
+    return directory;
+  }
+}
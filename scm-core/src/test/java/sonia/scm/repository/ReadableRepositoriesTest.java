@@ -0,0 +1,89 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package sonia.scm.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ReadableRepositoriesTest {
+
+  @Test
+  void shouldContainEveryRepository() {
+    ReadableRepositories readable = ReadableRepositories.all();
+
+    assertThat(readable.isAll()).isTrue();
+    assertThat(readable.contains("42")).isTrue();
+    assertThatThrownBy(readable::getIds).isInstanceOf(IllegalStateException.class);
+  }
+
+  @Test
+  void shouldCompareIdsCaseInsensitive() {
+    ReadableRepositories readable = ReadableRepositories.of(Arrays.asList("HeartOfGold", "puzzle"));
+
+    assertThat(readable.isAll()).isFalse();
+    assertThat(readable.contains("heartofgold")).isTrue();
+    assertThat(readable.contains("Puzzle")).isTrue();
+    assertThat(readable.contains("restaurant")).isFalse();
+    assertThat(readable.contains((String) null)).isFalse();
+    assertThat(readable.getIds()).containsOnly("heartofgold", "puzzle");
+  }
+
+  @Test
+  void shouldCheckRepositoriesOnDemand() {
+    List<String> checked = new ArrayList<>();
+    ReadableRepositories readable = ReadableRepositories.checking(
+      id -> checked.add(id) && id.equals("HeartOfGold"),
+      () -> {
+        throw new IllegalStateException("candidates should not be listed");
+      }
+    );
+
+    assertThat(readable.isAll()).isFalse();
+    assertThat(readable.contains("HeartOfGold")).isTrue();
+    assertThat(readable.contains("heartofgold")).isTrue();
+    assertThat(readable.contains("puzzle")).isFalse();
+    assertThat(checked).containsExactly("HeartOfGold", "puzzle");
+  }
+
+  @Test
+  void shouldCheckCandidatesForIds() {
+    List<String> checked = new ArrayList<>();
+    ReadableRepositories readable = ReadableRepositories.checking(
+      id -> checked.add(id) && !id.equals("puzzle"),
+      () -> Arrays.asList("HeartOfGold", "puzzle", "restaurant")
+    );
+
+    assertThat(readable.contains("restaurant")).isTrue();
+    assertThat(readable.getIds()).containsOnly("heartofgold", "restaurant");
+    assertThat(readable.getIds()).containsOnly("heartofgold", "restaurant");
+    assertThat(checked).containsExactly("restaurant", "HeartOfGold", "puzzle");
+  }
+}
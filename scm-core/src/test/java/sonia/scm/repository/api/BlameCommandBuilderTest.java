@@ -0,0 +1,104 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package sonia.scm.repository.api;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.cache.CacheManager;
+import sonia.scm.cache.RepositoryCache;
+import sonia.scm.repository.BlameLine;
+import sonia.scm.repository.BlameResult;
+import sonia.scm.repository.Changeset;
+import sonia.scm.repository.PreProcessorUtil;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.spi.BlameCommand;
+import sonia.scm.repository.spi.BlameCommandRequest;
+import sonia.scm.repository.spi.LogCommand;
+import sonia.scm.repository.spi.LogCommandRequest;
+
+import java.io.IOException;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class BlameCommandBuilderTest {
+
+  private final Repository repository = new Repository("AmRy34KFi1", "git", "hitchhiker", "heart-of-gold");
+
+  @Mock
+  private CacheManager cacheManager;
+  @Mock
+  private RepositoryCache<BlameCommandBuilder.CacheKey, BlameResult> cache;
+  @Mock
+  private RepositoryCache<RevisionResolver.CacheKey, String> revisions;
+  @Mock
+  private BlameCommand blameCommand;
+  @Mock
+  private LogCommand logCommand;
+  @Mock
+  private PreProcessorUtil preProcessorUtil;
+
+  private BlameCommandBuilder builder;
+
+  @BeforeEach
+  void setUpBuilder() {
+    when(cacheManager.<BlameCommandBuilder.CacheKey, BlameResult>getRepositoryCache(BlameCommandBuilder.CACHE_NAME))
+      .thenReturn(cache);
+    when(cacheManager.<RevisionResolver.CacheKey, String>getRepositoryCache(RevisionResolver.CACHE_NAME))
+      .thenReturn(revisions);
+    RevisionResolver resolver = new RevisionResolver(cacheManager, repository, () -> logCommand);
+    builder = new BlameCommandBuilder(cacheManager, blameCommand, repository, preProcessorUtil, resolver);
+  }
+
+  @Test
+  void shouldComputeResultForResolvedCommitIfBranchMoves() throws IOException {
+    Changeset old = new Changeset();
+    old.setId("c1");
+    when(logCommand.getChangeset(eq("main"), any(LogCommandRequest.class))).thenReturn(old);
+    // the branch is moved to c2 after it was resolved to c1
+    when(blameCommand.getBlameResult(any())).thenAnswer(ic -> {
+      String revision = ic.<BlameCommandRequest>getArgument(0).getRevision();
+      String commitId = "main".equals(revision) ? "c2" : revision;
+      BlameLine line = new BlameLine(1, commitId, 0L, null, "line of " + commitId, "code");
+      return new BlameResult(Collections.singletonList(line));
+    });
+
+    BlameResult result = builder.setRevision("main").getBlameResult("README.md");
+
+    assertThat(result.getLine(0).getRevision()).isEqualTo("c1");
+    BlameCommandRequest request = new BlameCommandRequest();
+    request.setPath("README.md");
+    request.setRevision("main");
+    verify(cache).put(new BlameCommandBuilder.CacheKey(repository, request, "c1"), result);
+  }
+}
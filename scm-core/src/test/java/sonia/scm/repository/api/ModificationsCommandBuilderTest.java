@@ -0,0 +1,101 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package sonia.scm.repository.api;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.cache.CacheManager;
+import sonia.scm.cache.RepositoryCache;
+import sonia.scm.repository.Added;
+import sonia.scm.repository.Changeset;
+import sonia.scm.repository.Modifications;
+import sonia.scm.repository.PreProcessorUtil;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.spi.LogCommand;
+import sonia.scm.repository.spi.LogCommandRequest;
+import sonia.scm.repository.spi.ModificationsCommand;
+import sonia.scm.repository.spi.ModificationsCommandRequest;
+
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ModificationsCommandBuilderTest {
+
+  private final Repository repository = new Repository("AmRy34KFi1", "git", "hitchhiker", "heart-of-gold");
+
+  @Mock
+  private CacheManager cacheManager;
+  @Mock
+  private RepositoryCache<ModificationsCommandBuilder.CacheKey, Modifications> cache;
+  @Mock
+  private RepositoryCache<RevisionResolver.CacheKey, String> revisions;
+  @Mock
+  private ModificationsCommand modificationsCommand;
+  @Mock
+  private LogCommand logCommand;
+  @Mock
+  private PreProcessorUtil preProcessorUtil;
+
+  private ModificationsCommandBuilder builder;
+
+  @BeforeEach
+  void setUpBuilder() {
+    when(cacheManager.<RevisionResolver.CacheKey, String>getRepositoryCache(RevisionResolver.CACHE_NAME))
+      .thenReturn(revisions);
+    RevisionResolver resolver = new RevisionResolver(cacheManager, repository, () -> logCommand);
+    builder = new ModificationsCommandBuilder(modificationsCommand, repository, cache, preProcessorUtil, resolver);
+  }
+
+  @Test
+  void shouldComputeResultForResolvedCommitIfBranchMoves() throws IOException {
+    Changeset old = new Changeset();
+    old.setId("c1");
+    when(logCommand.getChangeset(eq("main"), any(LogCommandRequest.class))).thenReturn(old);
+    // the branch is moved to c2 after it was resolved to c1
+    when(modificationsCommand.getModifications(any(ModificationsCommandRequest.class))).thenAnswer(ic -> {
+      String revision = ic.<ModificationsCommandRequest>getArgument(0).getRevision();
+      String commitId = "main".equals(revision) ? "c2" : revision;
+      return new Modifications(revision, new Added("added-in-" + commitId));
+    });
+
+    Modifications modifications = builder.revision("main").getModifications();
+
+    assertThat(modifications.getRevision()).isEqualTo("main");
+    assertThat(modifications.getEffectedPaths()).containsExactly("added-in-c1");
+    ModificationsCommandBuilder.CacheKey key = new ModificationsCommandBuilder.CacheKey(
+      repository.getId(), new ModificationsCommandRequest("c1", null), true
+    );
+    verify(cache).put(eq(key), any());
+  }
+}
@@ -0,0 +1,124 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package sonia.scm.repository.api;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.cache.CacheManager;
+import sonia.scm.cache.RepositoryCache;
+import sonia.scm.repository.Changeset;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.spi.LogCommand;
+import sonia.scm.repository.spi.LogCommandRequest;
+
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static sonia.scm.ContextEntry.ContextBuilder.entity;
+import static sonia.scm.NotFoundException.notFound;
+
+@ExtendWith(MockitoExtension.class)
+class RevisionResolverTest {
+
+  private final Repository repository = new Repository(
+    "AmRy34KFi1", "git", "hitchhiker", "heart-of-gold"
+  );
+
+  @Mock
+  private CacheManager cacheManager;
+
+  @Mock
+  private RepositoryCache<RevisionResolver.CacheKey, String> cache;
+
+  @Mock
+  private LogCommand logCommand;
+
+  private RevisionResolver resolver;
+
+  @BeforeEach
+  void setUpResolver() {
+    when(cacheManager.<RevisionResolver.CacheKey, String>getRepositoryCache(RevisionResolver.CACHE_NAME))
+      .thenReturn(cache);
+    resolver = new RevisionResolver(cacheManager, repository, () -> logCommand);
+  }
+
+  @Test
+  void shouldNotResolveEmptyRevision() throws IOException {
+    assertThat(resolver.resolve(null)).isNull();
+    assertThat(resolver.resolve("")).isNull();
+
+    verifyNoInteractions(logCommand, cache);
+  }
+
+  @Test
+  void shouldNotResolveWithoutLogCommand() throws IOException {
+    resolver = new RevisionResolver(cacheManager, repository, null);
+
+    assertThat(resolver.resolve("main")).isNull();
+  }
+
+  @Test
+  void shouldResolveAndCacheRevision() throws IOException {
+    when(logCommand.getChangeset(eq("main"), any(LogCommandRequest.class))).thenReturn(changeset("42"));
+
+    assertThat(resolver.resolve("main")).isEqualTo("42");
+
+    verify(cache).put(new RevisionResolver.CacheKey(repository.getId(), "main"), "42");
+  }
+
+  @Test
+  void shouldReturnCachedRevision() throws IOException {
+    when(cache.get(new RevisionResolver.CacheKey(repository.getId(), "main"))).thenReturn("42");
+
+    assertThat(resolver.resolve("main")).isEqualTo("42");
+
+    verifyNoInteractions(logCommand);
+  }
+
+  @Test
+  void shouldReturnNullForUnknownRevision() throws IOException {
+    when(logCommand.getChangeset(eq("unknown"), any(LogCommandRequest.class)))
+      .thenThrow(notFound(entity("Revision", "unknown").in(repository)));
+
+    assertThat(resolver.resolve("unknown")).isNull();
+
+    verify(cache, never()).put(any(), any());
+  }
+
+  private Changeset changeset(String id) {
+    Changeset changeset = new Changeset();
+    changeset.setId(id);
+    return changeset;
+  }
+}
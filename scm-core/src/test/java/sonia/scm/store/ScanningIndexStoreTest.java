@@ -0,0 +1,120 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package sonia.scm.store;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ScanningIndexStoreTest {
+
+  private final PlainDataStore store = new PlainDataStore();
+
+  @Test
+  void shouldFindByScanningIfStoreDoesNotSupportIndexes() {
+    DataStore<String> indexed = build(store);
+    indexed.put("1", "trillian");
+    indexed.put("2", "zaphod");
+    indexed.put("3", "tricia");
+
+    assertThat(indexed.supportsIndexes()).isTrue();
+    assertThat(indexed.getByIndex("value", "zaphod")).containsOnlyKeys("2");
+    assertThat(indexed.getByIndexPrefix("value", "tri")).containsOnlyKeys("1", "3");
+    assertThat(store.getAll()).containsOnlyKeys("1", "2", "3");
+  }
+
+  @Test
+  void shouldKeepConfigurationEntryStore() {
+    DataStore<String> indexed = build(store);
+    indexed.put("1", "trillian");
+    indexed.put("2", "zaphod");
+
+    assertThat(indexed).isInstanceOf(ConfigurationEntryStore.class);
+    assertThat(((ConfigurationEntryStore<String>) indexed).getMatchingValues(v -> v.startsWith("z")))
+      .containsExactly("zaphod");
+  }
+
+  @Test
+  void shouldNotWrapStoresWithoutIndexes() {
+    DataStore<String> built = new TypedStoreParametersBuilder<String, DataStore<String>>(String.class, p -> store)
+      .withName("test")
+      .build();
+
+    assertThat(built).isSameAs(store);
+  }
+
+  private DataStore<String> build(DataStore<String> dataStore) {
+    return new TypedStoreParametersBuilder<String, DataStore<String>>(String.class, p -> dataStore)
+      .withName("test")
+      .withIndex("value", value -> value)
+      .build();
+  }
+
+  private static class PlainDataStore implements ConfigurationEntryStore<String> {
+
+    private final Map<String, String> items = new TreeMap<>();
+
+    @Override
+    public String put(String item) {
+      put(item, item);
+      return item;
+    }
+
+    @Override
+    public void put(String id, String item) {
+      items.put(id, item);
+    }
+
+    @Override
+    public Map<String, String> getAll() {
+      return items;
+    }
+
+    @Override
+    public void clear() {
+      items.clear();
+    }
+
+    @Override
+    public void remove(String id) {
+      items.remove(id);
+    }
+
+    @Override
+    public String get(String id) {
+      return items.get(id);
+    }
+
+    @Override
+    public Collection<String> getMatchingValues(Predicate<String> predicate) {
+      return items.values().stream().filter(predicate).collect(Collectors.toList());
+    }
+  }
+}
@@ -0,0 +1,119 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package sonia.scm.store;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class StoreIndexesTest {
+
+  private final Map<String, String> values = new HashMap<>();
+  private final StoreIndexes<String> indexes = new StoreIndexes<>(ImmutableMap.of(
+    "value", value -> value,
+    "first", value -> value.isEmpty() ? null : value.substring(0, 1)
+  ));
+
+  @Test
+  void shouldFindByValue() {
+    put("1", "trillian");
+    put("2", "zaphod");
+    put("3", "trillian");
+
+    assertThat(indexes.find("value", "trillian", values::get)).containsOnlyKeys("1", "3");
+    assertThat(indexes.find("first", "z", values::get)).containsOnlyKeys("2");
+    assertThat(indexes.find("value", "arthur", values::get)).isEmpty();
+  }
+
+  @Test
+  void shouldFindByPrefix() {
+    put("1", "src/main/java");
+    put("2", "src/test/java");
+    put("3", "srcs");
+    put("4", "docs");
+
+    assertThat(indexes.findByPrefix("value", "src/", values::get)).containsOnlyKeys("1", "2");
+    assertThat(indexes.findByPrefix("value", "src", values::get)).containsKeys("1", "2", "3").hasSize(3);
+  }
+
+  @Test
+  void shouldUpdateIndexOnPut() {
+    put("1", "trillian");
+    put("1", "zaphod");
+
+    assertThat(indexes.find("value", "trillian", values::get)).isEmpty();
+    assertThat(indexes.find("value", "zaphod", values::get)).containsOnlyKeys("1");
+  }
+
+  @Test
+  void shouldRemoveFromIndex() {
+    put("1", "trillian");
+    indexes.remove("1");
+
+    assertThat(indexes.find("value", "trillian", values::get)).isEmpty();
+  }
+
+  @Test
+  void shouldNotIndexNullValues() {
+    put("1", "");
+
+    assertThat(indexes.findByPrefix("first", "", values::get)).isEmpty();
+    assertThat(indexes.find("value", "", values::get)).containsOnlyKeys("1");
+  }
+
+  @Test
+  void shouldSkipEntriesWhichNoLongerMatch() {
+    put("1", "trillian");
+    values.put("1", "zaphod");
+
+    assertThat(indexes.find("value", "trillian", values::get)).isEmpty();
+  }
+
+  @Test
+  void shouldRebuildIndexes() {
+    put("1", "trillian");
+    values.clear();
+    values.put("2", "trillian");
+
+    indexes.rebuild(values);
+
+    assertThat(indexes.find("value", "trillian", values::get)).containsOnlyKeys("2");
+  }
+
+  @Test
+  void shouldFailForUnknownIndex() {
+    assertThrows(IllegalArgumentException.class, () -> indexes.find("unknown", "value", values::get));
+  }
+
+  private void put(String id, String value) {
+    values.put(id, value);
+    indexes.put(id, value);
+  }
+}
@@ -0,0 +1,159 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package sonia.scm.store.mvstore;
+
+import com.google.common.xml.XmlEscapers;
+import sonia.scm.store.StoreException;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLEventWriter;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.events.Attribute;
+import javax.xml.stream.events.StartElement;
+import javax.xml.stream.events.XMLEvent;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Converts the entries of a configuration entry store from and to the file format of the xml configuration entry
+ * store. The values are not unmarshalled, so that no type information is required.
+ */
+final class ConfigEntryDocuments {
+
+  private static final String TAG_CONFIGURATION = "configuration";
+  private static final String TAG_ENTRY = "entry";
+  private static final String TAG_KEY = "key";
+  private static final String TAG_VALUE = "value";
+
+  private ConfigEntryDocuments() {
+  }
+
+  static byte[] join(Map<String, byte[]> entries) {
+    try {
+      ByteArrayOutputStream output = new ByteArrayOutputStream();
+      write(output, "<?xml version=\"1.0\" ?>\n<" + TAG_CONFIGURATION + " type=\"config-entry\">\n");
+      for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+        write(output, "  <entry>\n    <key>" + XmlEscapers.xmlContentEscaper().escape(entry.getKey()) + "</key>\n");
+        output.write(entry.getValue());
+        write(output, "\n  </entry>\n");
+      }
+      write(output, "</" + TAG_CONFIGURATION + ">\n");
+      return output.toByteArray();
+    } catch (IOException ex) {
+      throw new StoreException("could not create configuration entry document", ex);
+    }
+  }
+
+  /**
+   * Returns {@code true}, if the root element of the document is marked as configuration entry store.
+   */
+  static boolean isConfigEntryDocument(byte[] document) {
+    try {
+      XMLEventReader reader = createReader(document);
+      try {
+        while (reader.hasNext()) {
+          XMLEvent event = reader.nextEvent();
+          if (event.isStartElement()) {
+            StartElement root = event.asStartElement();
+            Attribute type = root.getAttributeByName(QName.valueOf("type"));
+            return TAG_CONFIGURATION.equals(root.getName().getLocalPart()) && type != null && "config-entry".equals(type.getValue());
+          }
+        }
+        return false;
+      } finally {
+        reader.close();
+      }
+    } catch (XMLStreamException ex) {
+      throw new StoreException("could not read configuration document", ex);
+    }
+  }
+
+  static Map<String, byte[]> split(byte[] document) {
+    Map<String, byte[]> entries = new LinkedHashMap<>();
+    try {
+      XMLEventReader reader = createReader(document);
+      try {
+        String key = null;
+        while (reader.hasNext()) {
+          XMLEvent event = reader.nextEvent();
+          if (isStartOf(event, TAG_ENTRY)) {
+            key = null;
+          } else if (isStartOf(event, TAG_KEY)) {
+            key = reader.getElementText();
+          } else if (isStartOf(event, TAG_VALUE) && key != null) {
+            entries.put(key, copyElement(event, reader));
+          }
+        }
+      } finally {
+        reader.close();
+      }
+    } catch (XMLStreamException ex) {
+      throw new StoreException("could not read configuration entry document", ex);
+    }
+    return entries;
+  }
+
+  private static XMLEventReader createReader(byte[] document) throws XMLStreamException {
+    XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+    inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+    inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+    return inputFactory.createXMLEventReader(new ByteArrayInputStream(document));
+  }
+
+  private static byte[] copyElement(XMLEvent start, XMLEventReader reader) throws XMLStreamException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    XMLOutputFactory outputFactory = XMLOutputFactory.newFactory();
+    outputFactory.setProperty(XMLOutputFactory.IS_REPAIRING_NAMESPACES, Boolean.TRUE);
+    XMLEventWriter writer = outputFactory.createXMLEventWriter(output, StandardCharsets.UTF_8.name());
+    writer.add(start);
+    int depth = 1;
+    while (depth > 0) {
+      XMLEvent event = reader.nextEvent();
+      if (event.isStartElement()) {
+        depth++;
+      } else if (event.isEndElement()) {
+        depth--;
+      }
+      writer.add(event);
+    }
+    writer.close();
+    return output.toByteArray();
+  }
+
+  private static boolean isStartOf(XMLEvent event, String tag) {
+    return event.isStartElement() && tag.equals(event.asStartElement().getName().getLocalPart());
+  }
+
+  private static void write(ByteArrayOutputStream output, String value) throws IOException {
+    output.write(value.getBytes(StandardCharsets.UTF_8));
+  }
+}
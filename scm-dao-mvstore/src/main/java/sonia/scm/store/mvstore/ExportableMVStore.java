@@ -0,0 +1,102 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package sonia.scm.store.mvstore;
+
+import sonia.scm.store.ExportableStore;
+import sonia.scm.store.Exporter;
+import sonia.scm.store.StoreEntryMetaData;
+import sonia.scm.store.StoreType;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Exports a store of the {@link MVStoreBackend} with the same entry names and contents as the xml stores.
+ */
+class ExportableMVStore implements ExportableStore {
+
+  private final MVStoreBackend backend;
+  private final String mapName;
+  private final StoreType type;
+  private final String name;
+
+  ExportableMVStore(MVStoreBackend backend, String mapName) {
+    this.backend = backend;
+    this.mapName = mapName;
+    this.type = MapNames.typeOf(mapName);
+    this.name = MapNames.nameOf(mapName);
+  }
+
+  @Override
+  public StoreEntryMetaData getMetaData() {
+    if (type == StoreType.CONFIG || type == StoreType.CONFIG_ENTRY) {
+      return new StoreEntryMetaData(type, name + MVStoreImporter.XML_EXTENSION);
+    }
+    return new StoreEntryMetaData(type, name);
+  }
+
+  @Override
+  public void export(Exporter exporter) throws IOException {
+    Map<String, byte[]> entries = backend.read(mapName, LinkedHashMap::new, Collections.emptyMap());
+    switch (type) {
+      case CONFIG:
+        byte[] configuration = entries.get(MVStoreConfigurationStore.KEY);
+        if (configuration != null) {
+          put(exporter, name + MVStoreImporter.XML_EXTENSION, configuration);
+        }
+        break;
+      case CONFIG_ENTRY:
+        put(exporter, name + MVStoreImporter.XML_EXTENSION, ConfigEntryDocuments.join(entries));
+        break;
+      case DATA:
+        for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+          put(exporter, entry.getKey() + MVStoreImporter.XML_EXTENSION, entry.getValue());
+        }
+        break;
+      case BLOB:
+        for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+          try (
+            OutputStream output = exporter.put(entry.getKey() + MVStoreImporter.BLOB_EXTENSION, backend.getStreamLength(entry.getValue()));
+            InputStream input = backend.getStream(entry.getValue())
+          ) {
+            input.transferTo(output);
+          }
+        }
+        break;
+      default:
+        throw new IllegalStateException("unsupported store type " + type);
+    }
+  }
+
+  private void put(Exporter exporter, String entryName, byte[] content) throws IOException {
+    try (OutputStream output = exporter.put(entryName, content.length)) {
+      output.write(content);
+    }
+  }
+}
@@ -0,0 +1,302 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package sonia.scm.store.mvstore;
+
+import com.github.legman.Subscribe;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import org.h2.mvstore.MVMap;
+import org.h2.mvstore.MVStore;
+import org.h2.mvstore.StreamStore;
+import org.h2.mvstore.tx.Transaction;
+import org.h2.mvstore.tx.TransactionMap;
+import org.h2.mvstore.tx.TransactionStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sonia.scm.HandlerEventType;
+import sonia.scm.SCMContextProvider;
+import sonia.scm.repository.RepositoryEvent;
+import sonia.scm.repository.RepositoryLocationResolver;
+import sonia.scm.store.StoreException;
+import sonia.scm.store.StoreType;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Embedded key value storage for all stores of this module. All stores are kept in a single
+ * <a href="https://h2database.com/html/mvstore.html">MVStore</a> file ({@value #FILE_NAME}) in the base directory.
+ * Each store is a map of its own, the values are the xml documents which would be written by the xml stores. The
+ * content of blobs is kept in a {@link StreamStore}, the maps of blob stores contain only references to the content.
+ * <p>
+ * Every operation of a store runs in a transaction. Multiple operations, even on different stores, can be combined
+ * to a single atomic transaction with {@link #transactional(Runnable)}. Write transactions are serialized, readers
+ * see only committed data. Space of outdated values is reclaimed by the background writer of the MVStore.
+ * <p>
+ * When the backend is opened for the first time, all existing xml stores are copied into it (see
+ * {@link XmlStoreMigration}).
+ *
+ * @since 2.41.0
+ */
+@Singleton
+public class MVStoreBackend implements Closeable {
+
+  static final String FILE_NAME = "store.mv.db";
+  private static final String STREAM_MAP = "streams";
+  private static final String META_MAP = "meta";
+  private static final String MIGRATED = "xmlStoresMigrated";
+
+  private static final Logger LOG = LoggerFactory.getLogger(MVStoreBackend.class);
+
+  /**
+   * rewrite chunks, if less than this percentage of them is in use
+   */
+  private static final int AUTO_COMPACT_FILL_RATE = 50;
+
+  /**
+   * maximum time in milliseconds to spend for compaction during shutdown
+   */
+  private static final int SHUTDOWN_COMPACTION_TIME = 2000;
+
+  private final MVStore store;
+  private final TransactionStore transactionStore;
+  private final StreamStore streamStore;
+  private final Lock writeLock = new ReentrantLock();
+  private final ThreadLocal<Transaction> currentTransaction = new ThreadLocal<>();
+  private final ThreadLocal<Set<String>> modifiedMaps = new ThreadLocal<>();
+  private final Map<String, AtomicLong> versions = new ConcurrentHashMap<>();
+  private final Map<Class<?>, JAXBContext> contexts = new ConcurrentHashMap<>();
+
+  @Inject
+  public MVStoreBackend(SCMContextProvider contextProvider, RepositoryLocationResolver locationResolver) {
+    this(new File(contextProvider.getBaseDirectory(), FILE_NAME));
+    migrateXmlStores(new XmlStoreMigration(contextProvider, locationResolver));
+  }
+
+  @VisibleForTesting
+  MVStoreBackend(File file) {
+    LOG.info("open store {}", file);
+    this.store = new MVStore.Builder()
+      .fileName(file.getPath())
+      .autoCompactFillRate(AUTO_COMPACT_FILL_RATE)
+      .open();
+    this.transactionStore = new TransactionStore(store);
+    this.transactionStore.init();
+
+    MVMap<Long, byte[]> streamMap = store.openMap(STREAM_MAP);
+    this.streamStore = new StreamStore(streamMap);
+    Long lastKey = streamMap.lastKey();
+    if (lastKey != null) {
+      streamStore.setNextKey(lastKey + 1);
+    }
+  }
+
+  @VisibleForTesting
+  void migrateXmlStores(XmlStoreMigration migration) {
+    MVMap<String, String> meta = store.openMap(META_MAP);
+    if (!meta.containsKey(MIGRATED)) {
+      // the migration overwrites existing entries, so it is safe to run it again after a failure
+      migration.migrate(this);
+      meta.put(MIGRATED, Boolean.TRUE.toString());
+      store.commit();
+    }
+  }
+
+  /**
+   * Runs the given action in a single transaction. All changes of stores from this module, which are made by the
+   * action, are committed together or, if the action throws an exception, not at all. Nested calls join the
+   * outer transaction.
+   *
+   * @param action action to run
+   */
+  public void transactional(Runnable action) {
+    transactional(() -> {
+      action.run();
+      return null;
+    });
+  }
+
+  /**
+   * Runs the given action in a single transaction and returns its result, see {@link #transactional(Runnable)}.
+   *
+   * @param action action to run
+   * @param <R> type of result
+   *
+   * @return result of the action
+   */
+  public <R> R transactional(Supplier<R> action) {
+    if (currentTransaction.get() != null) {
+      return action.get();
+    }
+    R result;
+    writeLock.lock();
+    Transaction transaction = transactionStore.begin();
+    Set<String> modified = new HashSet<>();
+    currentTransaction.set(transaction);
+    modifiedMaps.set(modified);
+    try {
+      result = action.get();
+      transaction.commit();
+    } catch (RuntimeException ex) {
+      transaction.rollback();
+      throw ex;
+    } finally {
+      currentTransaction.remove();
+      modifiedMaps.remove();
+      // committed and rolled back changes are both modifications for the indexes of the stores
+      modified.forEach(name -> version(name).incrementAndGet());
+      writeLock.unlock();
+    }
+    // write the changes to disk, so that they survive a crash of the process
+    store.commit();
+    return result;
+  }
+
+  <R> R read(String mapName, Function<TransactionMap<String, byte[]>, R> reader, R defaultValue) {
+    Transaction transaction = currentTransaction.get();
+    if (transaction != null) {
+      return reader.apply(transaction.openMap(mapName));
+    }
+    if (!transactionStore.hasMap(mapName)) {
+      // do not create maps for read only access
+      return defaultValue;
+    }
+    transaction = transactionStore.begin();
+    try {
+      return reader.apply(transaction.openMap(mapName));
+    } finally {
+      transaction.commit();
+    }
+  }
+
+  <R> R write(String mapName, Function<TransactionMap<String, byte[]>, R> writer) {
+    return transactional(() -> {
+      modifiedMaps.get().add(mapName);
+      return writer.apply(currentTransaction.get().openMap(mapName));
+    });
+  }
+
+  /**
+   * Returns the version of the map with the given name. The version is incremented after each transaction, which
+   * has modified the map.
+   *
+   * @param mapName name of the map
+   *
+   * @return current version of the map
+   */
+  long getVersion(String mapName) {
+    return version(mapName).get();
+  }
+
+  private AtomicLong version(String mapName) {
+    return versions.computeIfAbsent(mapName, name -> new AtomicLong());
+  }
+
+  synchronized byte[] putStream(InputStream content) throws IOException {
+    byte[] reference = streamStore.put(content);
+    store.commit();
+    return reference;
+  }
+
+  InputStream getStream(byte[] reference) {
+    return streamStore.get(reference);
+  }
+
+  long getStreamLength(byte[] reference) {
+    return streamStore.length(reference);
+  }
+
+  synchronized void removeStream(byte[] reference) {
+    streamStore.remove(reference);
+  }
+
+  List<String> getMapNames(String prefix) {
+    return store.getMapNames()
+      .stream()
+      .filter(name -> name.startsWith(prefix))
+      .sorted()
+      .collect(toList());
+  }
+
+  void removeMaps(String prefix) {
+    List<byte[]> streams = transactional(() -> {
+      List<byte[]> references = new ArrayList<>();
+      Transaction transaction = currentTransaction.get();
+      for (String name : getMapNames(prefix)) {
+        LOG.debug("remove store {}", name);
+        modifiedMaps.get().add(name);
+        TransactionMap<String, byte[]> map = transaction.openMap(name);
+        if (MapNames.typeOf(name) == StoreType.BLOB) {
+          references.addAll(map.values());
+        }
+        transaction.removeMap(map);
+      }
+      return references;
+    });
+    streams.forEach(this::removeStream);
+  }
+
+  JAXBContext getContext(Class<?> type) {
+    return contexts.computeIfAbsent(type, t -> {
+      try {
+        return JAXBContext.newInstance(t);
+      } catch (JAXBException e) {
+        throw new StoreException("failed to create context for store", e);
+      }
+    });
+  }
+
+  @Subscribe(async = false)
+  public void onRepositoryEvent(RepositoryEvent event) {
+    if (event.getEventType() == HandlerEventType.DELETE) {
+      removeMaps(MapNames.repositoryPrefix(event.getItem().getId()));
+    }
+  }
+
+  @Override
+  public void close() {
+    LOG.info("close store");
+    transactionStore.close();
+    store.close(SHUTDOWN_COMPACTION_TIME);
+  }
+}
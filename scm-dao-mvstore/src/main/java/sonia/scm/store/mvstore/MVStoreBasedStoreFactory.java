@@ -0,0 +1,56 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package sonia.scm.store.mvstore;
+
+import sonia.scm.repository.RepositoryReadOnlyChecker;
+import sonia.scm.store.StoreParameters;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * Base class for store factories of this module.
+ */
+abstract class MVStoreBasedStoreFactory {
+
+  protected final MVStoreBackend backend;
+  private final RepositoryReadOnlyChecker readOnlyChecker;
+
+  MVStoreBasedStoreFactory(MVStoreBackend backend, RepositoryReadOnlyChecker readOnlyChecker) {
+    this.backend = backend;
+    this.readOnlyChecker = readOnlyChecker;
+  }
+
+  /**
+   * Returns a supplier for the read only state of the store, which is evaluated on every write, because a repository
+   * could become read only (e.g. archived) after the store was created.
+   */
+  BooleanSupplier readOnly(StoreParameters storeParameters) {
+    String repositoryId = storeParameters.getRepositoryId();
+    if (repositoryId == null) {
+      return () -> false;
+    }
+    return () -> readOnlyChecker.isReadOnly(repositoryId);
+  }
+}
@@ -0,0 +1,109 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package sonia.scm.store.mvstore;
+
+import sonia.scm.store.Blob;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+
+/**
+ * Blob of a {@link MVStoreBlobStore}. Written content is buffered in a temporary file and moved to the store, when the
+ * output stream is closed.
+ */
+final class MVStoreBlob implements Blob {
+
+  private final MVStoreBlobStore store;
+  private final String id;
+
+  MVStoreBlob(MVStoreBlobStore store, String id) {
+    this.store = store;
+    this.id = id;
+  }
+
+  @Override
+  public void commit() {
+    // content is stored when the output stream is closed
+  }
+
+  @Override
+  public String getId() {
+    return id;
+  }
+
+  @Override
+  public InputStream getInputStream() throws FileNotFoundException {
+    byte[] reference = store.getReference(id);
+    if (reference == null) {
+      throw new FileNotFoundException("blob " + id + " does not exist");
+    }
+    return store.getContent(reference);
+  }
+
+  @Override
+  public OutputStream getOutputStream() throws IOException {
+    File buffer = File.createTempFile("scm-blob-", ".tmp");
+    return new FilterOutputStream(new FileOutputStream(buffer)) {
+
+      private boolean closed = false;
+
+      @Override
+      public void write(byte[] b, int off, int len) throws IOException {
+        out.write(b, off, len);
+      }
+
+      @Override
+      public void close() throws IOException {
+        if (closed) {
+          return;
+        }
+        closed = true;
+        try {
+          super.close();
+          try (InputStream content = Files.newInputStream(buffer.toPath())) {
+            store.replaceContent(id, content);
+          }
+        } finally {
+          Files.deleteIfExists(buffer.toPath());
+        }
+      }
+    };
+  }
+
+  @Override
+  public long getSize() {
+    byte[] reference = store.getReference(id);
+    if (reference == null) {
+      return -1;
+    }
+    return store.getSize(reference);
+  }
+}
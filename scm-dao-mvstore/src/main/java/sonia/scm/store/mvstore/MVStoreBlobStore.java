@@ -0,0 +1,172 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package sonia.scm.store.mvstore;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Strings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sonia.scm.security.KeyGenerator;
+import sonia.scm.store.Blob;
+import sonia.scm.store.BlobStore;
+import sonia.scm.store.EntryAlreadyExistsStoreException;
+import sonia.scm.store.StoreException;
+import sonia.scm.store.StoreReadOnlyException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Blob store backed by a map of the {@link MVStoreBackend}. The map contains the id of each blob and a reference to
+ * its content in the stream store of the backend.
+ */
+class MVStoreBlobStore implements BlobStore {
+
+  private static final Logger LOG = LoggerFactory.getLogger(MVStoreBlobStore.class);
+
+  private final MVStoreBackend backend;
+  private final String mapName;
+  private final KeyGenerator keyGenerator;
+  private final BooleanSupplier readOnly;
+
+  MVStoreBlobStore(MVStoreBackend backend, String mapName, KeyGenerator keyGenerator, BooleanSupplier readOnly) {
+    this.backend = backend;
+    this.mapName = mapName;
+    this.keyGenerator = keyGenerator;
+    this.readOnly = readOnly;
+  }
+
+  @Override
+  public Blob create() {
+    return create(keyGenerator.createKey());
+  }
+
+  @Override
+  public Blob create(String id) {
+    Preconditions.checkArgument(!Strings.isNullOrEmpty(id), "id argument is required");
+    LOG.debug("create new blob with id {} in store {}", id, mapName);
+    assertNotReadOnly();
+
+    byte[] empty = putStream(new ByteArrayInputStream(new byte[0]));
+    boolean created = backend.write(mapName, map -> map.putIfAbsent(id, empty) == null);
+    if (!created) {
+      backend.removeStream(empty);
+      throw new EntryAlreadyExistsStoreException("blob with id ".concat(id).concat(" allready exists"));
+    }
+    return new MVStoreBlob(this, id);
+  }
+
+  @Override
+  public Blob get(String id) {
+    Preconditions.checkArgument(!Strings.isNullOrEmpty(id), "id argument is required");
+    if (getReference(id) == null) {
+      return null;
+    }
+    return new MVStoreBlob(this, id);
+  }
+
+  @Override
+  public List<Blob> getAll() {
+    LOG.trace("get all blobs from store {}", mapName);
+    Collection<String> ids = backend.read(mapName, map -> new ArrayList<>(map.keySet()), Collections.emptyList());
+    List<Blob> blobs = new ArrayList<>();
+    for (String id : ids) {
+      blobs.add(new MVStoreBlob(this, id));
+    }
+    return Collections.unmodifiableList(blobs);
+  }
+
+  @Override
+  public void remove(Blob blob) {
+    Preconditions.checkNotNull(blob, "blob argument is required");
+    remove(blob.getId());
+  }
+
+  @Override
+  public void remove(String id) {
+    Preconditions.checkArgument(!Strings.isNullOrEmpty(id), "id argument is required");
+    LOG.debug("remove blob {} from store {}", id, mapName);
+    assertNotReadOnly();
+
+    byte[] reference = backend.write(mapName, map -> map.remove(id));
+    if (reference != null) {
+      backend.removeStream(reference);
+    }
+  }
+
+  @Override
+  public void clear() {
+    LOG.debug("clear store {}", mapName);
+    assertNotReadOnly();
+
+    List<byte[]> references = backend.write(mapName, map -> {
+      List<byte[]> values = new ArrayList<>(map.values());
+      map.clear();
+      return values;
+    });
+    references.forEach(backend::removeStream);
+  }
+
+  byte[] getReference(String id) {
+    return backend.read(mapName, map -> map.get(id), null);
+  }
+
+  InputStream getContent(byte[] reference) {
+    return backend.getStream(reference);
+  }
+
+  long getSize(byte[] reference) {
+    return backend.getStreamLength(reference);
+  }
+
+  void replaceContent(String id, InputStream content) {
+    assertNotReadOnly();
+    byte[] reference = putStream(content);
+    byte[] oldReference = backend.write(mapName, map -> map.put(id, reference));
+    if (oldReference != null) {
+      backend.removeStream(oldReference);
+    }
+  }
+
+  private byte[] putStream(InputStream content) {
+    try {
+      return backend.putStream(content);
+    } catch (IOException ex) {
+      throw new StoreException("could not write blob content to store " + mapName, ex);
+    }
+  }
+
+  private void assertNotReadOnly() {
+    if (readOnly.getAsBoolean()) {
+      throw new StoreReadOnlyException(mapName);
+    }
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package sonia.scm.store.mvstore;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sonia.scm.store.AbstractStore;
+
+import java.util.Arrays;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Configuration store backed by a map of the {@link MVStoreBackend}. The map contains only a single entry with the
+ * key {@value #KEY}. The object is read again, if the content of the entry was changed by another store instance.
+ *
+ * @param <T> type of stored object
+ */
+class MVStoreConfigurationStore<T> extends AbstractStore<T> {
+
+  static final String KEY = "configuration";
+
+  private static final Logger LOG = LoggerFactory.getLogger(MVStoreConfigurationStore.class);
+
+  private final MVStoreBackend backend;
+  private final String mapName;
+  private final XmlCodec<T> codec;
+  private byte[] content;
+
+  MVStoreConfigurationStore(MVStoreBackend backend, String mapName, XmlCodec<T> codec, BooleanSupplier readOnly) {
+    super(readOnly);
+    this.backend = backend;
+    this.mapName = mapName;
+    this.codec = codec;
+  }
+
+  @Override
+  public synchronized T get() {
+    byte[] current = backend.read(mapName, map -> map.get(KEY), null);
+    if (current == null) {
+      storeObject = null;
+    } else if (storeObject == null || !Arrays.equals(current, content)) {
+      storeObject = codec.decode(current);
+    }
+    content = current;
+    return storeObject;
+  }
+
+  @Override
+  public synchronized void set(T object) {
+    super.set(object);
+  }
+
+  @Override
+  public synchronized void delete() {
+    super.delete();
+  }
+
+  @Override
+  protected T readObject() {
+    LOG.debug("read configuration from store {}", mapName);
+    content = backend.read(mapName, map -> map.get(KEY), null);
+    return codec.decode(content);
+  }
+
+  @Override
+  protected void writeObject(T object) {
+    LOG.debug("write configuration to store {}", mapName);
+    byte[] encoded = codec.encode(object);
+    backend.write(mapName, map -> map.put(KEY, encoded));
+    content = encoded;
+  }
+
+  @Override
+  protected void deleteObject() {
+    LOG.debug("delete configuration from store {}", mapName);
+    backend.write(mapName, map -> map.remove(KEY));
+    content = null;
+  }
+}
@@ -0,0 +1,57 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package sonia.scm.store.mvstore;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import sonia.scm.repository.RepositoryReadOnlyChecker;
+import sonia.scm.store.ConfigurationStore;
+import sonia.scm.store.ConfigurationStoreFactory;
+import sonia.scm.store.StoreType;
+import sonia.scm.store.TypedStoreParameters;
+
+/**
+ * Creates configuration stores, which are kept in the {@link MVStoreBackend}.
+ *
+ * @since 2.41.0
+ */
+@Singleton
+public class MVStoreConfigurationStoreFactory extends MVStoreBasedStoreFactory implements ConfigurationStoreFactory {
+
+  @Inject
+  public MVStoreConfigurationStoreFactory(MVStoreBackend backend, RepositoryReadOnlyChecker readOnlyChecker) {
+    super(backend, readOnlyChecker);
+  }
+
+  @Override
+  public <T> ConfigurationStore<T> getStore(TypedStoreParameters<T> storeParameters) {
+    return new MVStoreConfigurationStore<>(
+      backend,
+      MapNames.of(StoreType.CONFIG, storeParameters),
+      XmlCodec.document(backend.getContext(storeParameters.getType()), storeParameters),
+      readOnly(storeParameters)
+    );
+  }
+}
@@ -0,0 +1,192 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package sonia.scm.store.mvstore;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Strings;
+import org.h2.mvstore.tx.TransactionMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sonia.scm.security.KeyGenerator;
+import sonia.scm.store.ConfigurationEntryStore;
+import sonia.scm.store.StoreIndexes;
+import sonia.scm.store.StoreReadOnlyException;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Data and configuration entry store backed by a map of the {@link MVStoreBackend}. Every entry is stored with its
+ * id as key and the xml representation of the object as value.
+ * <p>
+ * Declared indexes are kept in memory. They are built on the first lookup and rebuilt, if the version of the map
+ * shows that it was modified by another instance.
+ *
+ * @param <T> type of stored objects
+ */
+class MVStoreDataStore<T> implements ConfigurationEntryStore<T> {
+
+  private static final Logger LOG = LoggerFactory.getLogger(MVStoreDataStore.class);
+
+  private static final long NOT_INDEXED = -1L;
+
+  private final MVStoreBackend backend;
+  private final String mapName;
+  private final XmlCodec<T> codec;
+  private final KeyGenerator keyGenerator;
+  private final BooleanSupplier readOnly;
+  private final StoreIndexes<T> indexes;
+
+  // guarded by indexes
+  private long indexedVersion = NOT_INDEXED;
+
+  MVStoreDataStore(MVStoreBackend backend, String mapName, XmlCodec<T> codec, KeyGenerator keyGenerator, BooleanSupplier readOnly, StoreIndexes<T> indexes) {
+    this.backend = backend;
+    this.mapName = mapName;
+    this.codec = codec;
+    this.keyGenerator = keyGenerator;
+    this.readOnly = readOnly;
+    this.indexes = indexes;
+  }
+
+  @Override
+  public String put(T item) {
+    String id = keyGenerator.createKey();
+    put(id, item);
+    return id;
+  }
+
+  @Override
+  public void put(String id, T item) {
+    Preconditions.checkArgument(!Strings.isNullOrEmpty(id), "id argument is required");
+    LOG.debug("put item {} to store {}", id, mapName);
+    assertNotReadOnly();
+
+    byte[] content = codec.encode(item);
+    modify(map -> map.put(id, content), () -> indexes.put(id, item));
+  }
+
+  @Override
+  public T get(String id) {
+    Preconditions.checkArgument(!Strings.isNullOrEmpty(id), "id argument is required");
+    LOG.trace("get item {} from store {}", id, mapName);
+
+    return codec.decode(backend.read(mapName, map -> map.get(id), null));
+  }
+
+  @Override
+  public Map<String, T> getAll() {
+    LOG.trace("get all items from store {}", mapName);
+
+    Map<String, byte[]> entries = backend.read(mapName, LinkedHashMap::new, Collections.emptyMap());
+    Map<String, T> items = new LinkedHashMap<>();
+    entries.forEach((id, content) -> items.put(id, codec.decode(content)));
+    return Collections.unmodifiableMap(items);
+  }
+
+  @Override
+  public Collection<T> getMatchingValues(Predicate<T> predicate) {
+    return getAll().values().stream().filter(predicate).collect(toList());
+  }
+
+  @Override
+  public void remove(String id) {
+    Preconditions.checkArgument(!Strings.isNullOrEmpty(id), "id argument is required");
+    LOG.debug("remove item {} from store {}", id, mapName);
+    assertNotReadOnly();
+
+    modify(map -> map.remove(id), () -> indexes.remove(id));
+  }
+
+  @Override
+  public void clear() {
+    LOG.debug("clear store {}", mapName);
+    assertNotReadOnly();
+
+    modify(map -> {
+      map.clear();
+      return null;
+    }, indexes::clear);
+  }
+
+  @Override
+  public boolean supportsIndexes() {
+    return true;
+  }
+
+  @Override
+  public Map<String, T> getByIndex(String index, String value) {
+    return currentIndexes().find(index, value, this::get);
+  }
+
+  @Override
+  public Map<String, T> getByIndexPrefix(String index, String prefix) {
+    return currentIndexes().findByPrefix(index, prefix, this::get);
+  }
+
+  private void modify(Function<TransactionMap<String, byte[]>, ?> writer, Runnable indexUpdate) {
+    if (indexes.isEmpty()) {
+      backend.write(mapName, writer);
+      return;
+    }
+    long version = backend.getVersion(mapName);
+    // the lock of the indexes must not be held during the write, because the write could wait for a transaction
+    backend.write(mapName, writer);
+    synchronized (indexes) {
+      // the index stays valid only if nobody else has modified the map and the change is already committed
+      if (indexedVersion == version && backend.getVersion(mapName) == version + 1) {
+        indexUpdate.run();
+        indexedVersion = version + 1;
+      } else {
+        indexedVersion = NOT_INDEXED;
+      }
+    }
+  }
+
+  private StoreIndexes<T> currentIndexes() {
+    synchronized (indexes) {
+      long version = backend.getVersion(mapName);
+      if (!indexes.isEmpty() && indexedVersion != version) {
+        LOG.debug("rebuild indexes of store {}", mapName);
+        indexes.rebuild(getAll());
+        indexedVersion = version;
+      }
+    }
+    return indexes;
+  }
+
+  private void assertNotReadOnly() {
+    if (readOnly.getAsBoolean()) {
+      throw new StoreReadOnlyException(mapName);
+    }
+  }
+}
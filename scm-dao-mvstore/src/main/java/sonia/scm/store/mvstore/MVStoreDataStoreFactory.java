@@ -0,0 +1,64 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package sonia.scm.store.mvstore;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import sonia.scm.repository.RepositoryReadOnlyChecker;
+import sonia.scm.security.KeyGenerator;
+import sonia.scm.store.DataStore;
+import sonia.scm.store.DataStoreFactory;
+import sonia.scm.store.StoreIndexes;
+import sonia.scm.store.StoreType;
+import sonia.scm.store.TypedStoreParameters;
+
+/**
+ * Creates data stores, which are kept in the {@link MVStoreBackend}.
+ *
+ * @since 2.41.0
+ */
+@Singleton
+public class MVStoreDataStoreFactory extends MVStoreBasedStoreFactory implements DataStoreFactory {
+
+  private final KeyGenerator keyGenerator;
+
+  @Inject
+  public MVStoreDataStoreFactory(MVStoreBackend backend, KeyGenerator keyGenerator, RepositoryReadOnlyChecker readOnlyChecker) {
+    super(backend, readOnlyChecker);
+    this.keyGenerator = keyGenerator;
+  }
+
+  @Override
+  public <T> DataStore<T> getStore(TypedStoreParameters<T> storeParameters) {
+    return new MVStoreDataStore<>(
+      backend,
+      MapNames.of(StoreType.DATA, storeParameters),
+      XmlCodec.document(backend.getContext(storeParameters.getType()), storeParameters),
+      keyGenerator,
+      readOnly(storeParameters),
+      new StoreIndexes<>(storeParameters.getIndexes())
+    );
+  }
+}
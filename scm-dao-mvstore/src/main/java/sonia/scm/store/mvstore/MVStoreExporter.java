@@ -0,0 +1,63 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package sonia.scm.store.mvstore;
+
+import com.google.inject.Inject;
+import sonia.scm.repository.Repository;
+import sonia.scm.store.ExportableStore;
+import sonia.scm.store.StoreExporter;
+
+import java.util.List;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Lists the stores of a repository from the {@link MVStoreBackend} for the repository export.
+ *
+ * @since 2.41.0
+ */
+public class MVStoreExporter implements StoreExporter {
+
+  /**
+   * blobs of this store are the exports itself, so they are never exported
+   */
+  private static final String EXCLUDED_EXPORT_STORE = "repository-export";
+
+  private final MVStoreBackend backend;
+
+  @Inject
+  public MVStoreExporter(MVStoreBackend backend) {
+    this.backend = backend;
+  }
+
+  @Override
+  public List<ExportableStore> listExportableStores(Repository repository) {
+    return backend.getMapNames(MapNames.repositoryPrefix(repository.getId()))
+      .stream()
+      .filter(mapName -> !EXCLUDED_EXPORT_STORE.equals(MapNames.nameOf(mapName)))
+      .map(mapName -> new ExportableMVStore(backend, mapName))
+      .collect(toList());
+  }
+}
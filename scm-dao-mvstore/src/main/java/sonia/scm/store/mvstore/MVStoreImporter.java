@@ -0,0 +1,141 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package sonia.scm.store.mvstore;
+
+import com.google.inject.Inject;
+import sonia.scm.ContextEntry;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.api.ImportFailedException;
+import sonia.scm.store.StoreEntryImporter;
+import sonia.scm.store.StoreEntryImporterFactory;
+import sonia.scm.store.StoreEntryMetaData;
+import sonia.scm.store.StoreImporter;
+import sonia.scm.store.StoreType;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+
+/**
+ * Imports stores in the format of the xml stores into the {@link MVStoreBackend}. This is used for the import of
+ * repositories and for the migration of existing xml stores.
+ *
+ * @since 2.41.0
+ */
+public class MVStoreImporter implements StoreImporter {
+
+  static final String XML_EXTENSION = ".xml";
+  static final String BLOB_EXTENSION = ".blob";
+
+  private final MVStoreBackend backend;
+
+  @Inject
+  public MVStoreImporter(MVStoreBackend backend) {
+    this.backend = backend;
+  }
+
+  @Override
+  public StoreEntryImporterFactory doImport(Repository repository) {
+    return metaData -> importStore(metaData, repository.getId());
+  }
+
+  /**
+   * Returns an importer for a global store or a store of the repository with the given id.
+   *
+   * @param metaData type and name of the store
+   * @param repositoryId id of the repository or {@code null} for global stores
+   *
+   * @return importer for the entries of the store
+   */
+  StoreEntryImporter importStore(StoreEntryMetaData metaData, String repositoryId) {
+    StoreType type = metaData.getType();
+    switch (type) {
+      case CONFIG:
+      case CONFIG_ENTRY:
+        // the repository import does not distinguish between configuration and configuration entry stores
+        return (name, stream) -> importConfiguration(repositoryId, stripExtension(name, XML_EXTENSION), read(name, stream));
+      case DATA:
+        return (name, stream) -> {
+          byte[] content = read(name, stream);
+          backend.write(mapName(metaData, repositoryId), map -> map.put(stripExtension(name, XML_EXTENSION), content));
+        };
+      case BLOB:
+        return (name, stream) -> {
+          byte[] reference;
+          try {
+            reference = backend.putStream(stream);
+          } catch (IOException e) {
+            throw importFailed(name, e);
+          }
+          byte[] oldReference = backend.write(mapName(metaData, repositoryId), map -> map.put(stripExtension(name, BLOB_EXTENSION), reference));
+          if (oldReference != null) {
+            backend.removeStream(oldReference);
+          }
+        };
+      default:
+        throw new ImportFailedException(ContextEntry.ContextBuilder.noContext(), "unsupported store type " + type);
+    }
+  }
+
+  private void importConfiguration(String repositoryId, String storeName, byte[] content) {
+    if (ConfigEntryDocuments.isConfigEntryDocument(content)) {
+      Map<String, byte[]> entries = ConfigEntryDocuments.split(content);
+      backend.write(MapNames.of(StoreType.CONFIG_ENTRY, storeName, repositoryId), map -> {
+        map.clear();
+        entries.forEach(map::put);
+        return null;
+      });
+    } else {
+      backend.write(MapNames.of(StoreType.CONFIG, storeName, repositoryId), map -> map.put(MVStoreConfigurationStore.KEY, content));
+    }
+  }
+
+  private String mapName(StoreEntryMetaData metaData, String repositoryId) {
+    return MapNames.of(metaData.getType(), metaData.getName(), repositoryId);
+  }
+
+  private static String stripExtension(String name, String extension) {
+    if (name.endsWith(extension)) {
+      return name.substring(0, name.length() - extension.length());
+    }
+    return name;
+  }
+
+  private static byte[] read(String name, InputStream stream) {
+    try {
+      return stream.readAllBytes();
+    } catch (IOException e) {
+      throw importFailed(name, e);
+    }
+  }
+
+  private static ImportFailedException importFailed(String name, IOException cause) {
+    return new ImportFailedException(
+      ContextEntry.ContextBuilder.noContext(),
+      String.format("Could not import store entry %s", name),
+      cause
+    );
+  }
+}
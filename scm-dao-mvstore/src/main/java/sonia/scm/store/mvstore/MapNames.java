@@ -0,0 +1,82 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package sonia.scm.store.mvstore;
+
+import sonia.scm.store.StoreParameters;
+import sonia.scm.store.StoreType;
+
+/**
+ * Names of the maps which hold the stores. Stores of repositories are named
+ * {@code repository/<repository id>/<store type>/<store name>}, global stores {@code global/<store type>/<store name>}.
+ */
+final class MapNames {
+
+  private static final String SEPARATOR = "/";
+  private static final String REPOSITORY = "repository";
+  private static final String GLOBAL = "global";
+
+  private MapNames() {
+  }
+
+  static String of(StoreType type, StoreParameters parameters) {
+    return of(type, parameters.getName(), parameters.getRepositoryId());
+  }
+
+  static String of(StoreType type, String name, String repositoryId) {
+    if (repositoryId != null) {
+      return repositoryPrefix(repositoryId) + type.getValue() + SEPARATOR + name;
+    }
+    return GLOBAL + SEPARATOR + type.getValue() + SEPARATOR + name;
+  }
+
+  static String repositoryPrefix(String repositoryId) {
+    return REPOSITORY + SEPARATOR + repositoryId + SEPARATOR;
+  }
+
+  static StoreType typeOf(String mapName) {
+    String type = split(mapName)[1];
+    for (StoreType storeType : StoreType.values()) {
+      if (storeType.getValue().equals(type)) {
+        return storeType;
+      }
+    }
+    throw new IllegalArgumentException("unknown store type " + type);
+  }
+
+  static String nameOf(String mapName) {
+    return split(mapName)[2];
+  }
+
+  /**
+   * Splits the name into scope, store type and store name.
+   */
+  private static String[] split(String mapName) {
+    if (mapName.startsWith(REPOSITORY + SEPARATOR)) {
+      String[] parts = mapName.split(SEPARATOR, 4);
+      return new String[]{parts[0] + SEPARATOR + parts[1], parts[2], parts[3]};
+    }
+    return mapName.split(SEPARATOR, 3);
+  }
+}
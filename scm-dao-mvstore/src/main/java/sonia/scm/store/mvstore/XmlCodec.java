@@ -0,0 +1,131 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package sonia.scm.store.mvstore;
+
+import sonia.scm.store.StoreException;
+import sonia.scm.store.TypedStoreParameters;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.bind.annotation.adapters.XmlAdapter;
+import javax.xml.namespace.QName;
+import javax.xml.transform.stream.StreamSource;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Optional;
+
+/**
+ * Converts the objects of a store from and to xml. Objects are written in the same format as the files of the xml
+ * stores, so that exports look the same for both implementations.
+ *
+ * @param <T> type of objects
+ */
+final class XmlCodec<T> {
+
+  static final QName ENTRY_VALUE = QName.valueOf("value");
+
+  private final JAXBContext context;
+  private final TypedStoreParameters<T> parameters;
+  private final QName elementName;
+
+  private XmlCodec(JAXBContext context, TypedStoreParameters<T> parameters, QName elementName) {
+    this.context = context;
+    this.parameters = parameters;
+    this.elementName = elementName;
+  }
+
+  /**
+   * Creates a codec which writes documents with the root element of the type.
+   */
+  static <T> XmlCodec<T> document(JAXBContext context, TypedStoreParameters<T> parameters) {
+    return new XmlCodec<>(context, parameters, null);
+  }
+
+  /**
+   * Creates a codec which writes {@code value} elements without xml declaration, like the entries of configuration
+   * entry stores.
+   */
+  static <T> XmlCodec<T> entryValue(JAXBContext context, TypedStoreParameters<T> parameters) {
+    return new XmlCodec<>(context, parameters, ENTRY_VALUE);
+  }
+
+  byte[] encode(T object) {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    withClassLoader(() -> {
+      Marshaller marshaller = context.createMarshaller();
+      marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
+      for (XmlAdapter<?, ?> adapter : parameters.getAdapters()) {
+        marshaller.setAdapter(adapter);
+      }
+      if (elementName != null) {
+        marshaller.setProperty(Marshaller.JAXB_FRAGMENT, Boolean.TRUE);
+        marshaller.marshal(new JAXBElement<>(elementName, parameters.getType(), object), output);
+      } else {
+        marshaller.marshal(object, output);
+      }
+      return null;
+    });
+    return output.toByteArray();
+  }
+
+  T decode(byte[] content) {
+    if (content == null) {
+      return null;
+    }
+    return withClassLoader(() -> {
+      Unmarshaller unmarshaller = context.createUnmarshaller();
+      for (XmlAdapter<?, ?> adapter : parameters.getAdapters()) {
+        unmarshaller.setAdapter(adapter);
+      }
+      return unmarshaller.unmarshal(new StreamSource(new ByteArrayInputStream(content)), parameters.getType()).getValue();
+    });
+  }
+
+  private <R> R withClassLoader(JaxbAction<R> action) {
+    ClassLoader contextClassLoader = null;
+    Optional<ClassLoader> classLoader = parameters.getClassLoader();
+    if (classLoader.isPresent()) {
+      contextClassLoader = Thread.currentThread().getContextClassLoader();
+      Thread.currentThread().setContextClassLoader(classLoader.get());
+    }
+    try {
+      return action.run();
+    } catch (JAXBException e) {
+      throw new StoreException("failure during marshalling/unmarshalling", e);
+    } finally {
+      if (contextClassLoader != null) {
+        Thread.currentThread().setContextClassLoader(contextClassLoader);
+      }
+    }
+  }
+
+  @FunctionalInterface
+  private interface JaxbAction<R> {
+    R run() throws JAXBException;
+  }
+}
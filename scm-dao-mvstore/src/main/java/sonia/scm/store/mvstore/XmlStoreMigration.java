@@ -0,0 +1,154 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package sonia.scm.store.mvstore;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sonia.scm.SCMContextProvider;
+import sonia.scm.repository.RepositoryLocationResolver;
+import sonia.scm.store.ExportableStore;
+import sonia.scm.store.FileStoreExporter;
+import sonia.scm.store.StoreEntryImporter;
+import sonia.scm.store.StoreException;
+
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+
+/**
+ * Copies all global and repository stores from the xml layout into the {@link MVStoreBackend}. The stores are read
+ * with the {@link FileStoreExporter} and written with the {@link MVStoreImporter}, exactly like a repository export
+ * followed by an import. The xml files are left untouched, so that it is possible to switch back.
+ * <p>
+ * This is not implemented as an update step, because the update engine reads the executed update steps from a store
+ * before any step is executed. So the stores have to be migrated before the update engine is created.
+ */
+class XmlStoreMigration {
+
+  private static final Logger LOG = LoggerFactory.getLogger(XmlStoreMigration.class);
+
+  private static final String STORE_DIRECTORY = "store";
+
+  private final SCMContextProvider contextProvider;
+  private final RepositoryLocationResolver locationResolver;
+
+  XmlStoreMigration(SCMContextProvider contextProvider, RepositoryLocationResolver locationResolver) {
+    this.contextProvider = contextProvider;
+    this.locationResolver = locationResolver;
+  }
+
+  void migrate(MVStoreBackend backend) {
+    MVStoreImporter importer = new MVStoreImporter(backend);
+    FileStoreExporter exporter = new FileStoreExporter(locationResolver);
+
+    Path baseDirectory = contextProvider.getBaseDirectory().toPath();
+    LOG.info("migrate global xml stores from {}", baseDirectory);
+    migrate(importer, exporter.listExportableStores(asList(
+      baseDirectory.resolve("config"),
+      baseDirectory.resolve("var").resolve("data"),
+      baseDirectory.resolve("var").resolve("blob")
+    )), null);
+
+    if (locationResolver.supportsLocationType(Path.class)) {
+      locationResolver.forClass(Path.class).forAllLocations((repositoryId, location) -> {
+        LOG.info("migrate xml stores of repository {}", repositoryId);
+        migrate(importer, exporter.listExportableStores(listChildren(location.resolve(STORE_DIRECTORY))), repositoryId);
+      });
+    }
+  }
+
+  private void migrate(MVStoreImporter importer, List<ExportableStore> stores, String repositoryId) {
+    for (ExportableStore store : stores) {
+      LOG.debug("migrate store {}", store.getMetaData());
+      StoreEntryImporter entryImporter = importer.importStore(store.getMetaData(), repositoryId);
+      try {
+        store.export((name, size) -> new ImportingOutputStream(entryImporter, name));
+      } catch (IOException ex) {
+        throw new StoreException("failed to migrate store " + store.getMetaData(), ex);
+      }
+    }
+  }
+
+  private Collection<Path> listChildren(Path directory) {
+    if (!Files.isDirectory(directory)) {
+      return emptyList();
+    }
+    try (Stream<Path> children = Files.list(directory)) {
+      return children.collect(Collectors.toList());
+    } catch (IOException ex) {
+      throw new UncheckedIOException("failed to list store directory " + directory, ex);
+    }
+  }
+
+  /**
+   * Buffers an exported entry in a temporary file and passes it to the importer, when the stream is closed.
+   */
+  private static class ImportingOutputStream extends FilterOutputStream {
+
+    private final StoreEntryImporter importer;
+    private final String name;
+    private final Path buffer;
+
+    ImportingOutputStream(StoreEntryImporter importer, String name) throws IOException {
+      this(importer, name, Files.createTempFile("scm-migration-", ".tmp"));
+    }
+
+    private ImportingOutputStream(StoreEntryImporter importer, String name, Path buffer) throws IOException {
+      super(new FileOutputStream(buffer.toFile()));
+      this.importer = importer;
+      this.name = name;
+      this.buffer = buffer;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      out.write(b, off, len);
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        super.close();
+        try (InputStream content = Files.newInputStream(buffer)) {
+          importer.importEntry(name, content);
+        }
+      } finally {
+        Files.deleteIfExists(buffer);
+      }
+    }
+  }
+}
@@ -0,0 +1,66 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package sonia.scm.store.mvstore;
+
+import org.junit.After;
+import org.junit.Test;
+import sonia.scm.repository.RepositoryReadOnlyChecker;
+import sonia.scm.security.UUIDKeyGenerator;
+import sonia.scm.store.ConfigurationEntryStore;
+import sonia.scm.store.ConfigurationEntryStoreFactory;
+import sonia.scm.store.ConfigurationEntryStoreTestBase;
+import sonia.scm.store.StoreObject;
+
+import java.io.File;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+
+public class MVStoreConfigurationEntryStoreTest extends ConfigurationEntryStoreTestBase {
+
+  private MVStoreBackend backend;
+
+  @Override
+  protected ConfigurationEntryStoreFactory createConfigurationStoreFactory() {
+    if (backend == null) {
+      backend = new MVStoreBackend(new File(contextProvider.getBaseDirectory(), MVStoreBackend.FILE_NAME));
+    }
+    return new MVStoreConfigurationEntryStoreFactory(backend, new UUIDKeyGenerator(), mock(RepositoryReadOnlyChecker.class));
+  }
+
+  @After
+  public void closeBackend() {
+    backend.close();
+  }
+
+  @Test
+  public void shouldReturnMatchingValues() {
+    ConfigurationEntryStore<StoreObject> entryStore = getDataStore(StoreObject.class);
+    entryStore.put("a", new StoreObject("one"));
+    entryStore.put("b", new StoreObject("two"));
+
+    assertEquals(1, entryStore.getMatchingValues(value -> value.getValue().equals("two")).size());
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package sonia.scm.store.mvstore;
+
+import org.junit.After;
+import org.junit.Test;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryReadOnlyChecker;
+import sonia.scm.store.ConfigurationStore;
+import sonia.scm.store.StoreObject;
+import sonia.scm.store.StoreReadOnlyException;
+import sonia.scm.store.StoreTestBase;
+
+import java.io.File;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class MVStoreConfigurationStoreTest extends StoreTestBase {
+
+  private final RepositoryReadOnlyChecker readOnlyChecker = mock(RepositoryReadOnlyChecker.class);
+
+  private MVStoreBackend backend;
+
+  @Override
+  protected MVStoreConfigurationStoreFactory createStoreFactory() {
+    if (backend == null) {
+      backend = new MVStoreBackend(new File(contextProvider.getBaseDirectory(), MVStoreBackend.FILE_NAME));
+    }
+    return new MVStoreConfigurationStoreFactory(backend, readOnlyChecker);
+  }
+
+  @After
+  public void closeBackend() {
+    if (backend != null) {
+      backend.close();
+    }
+  }
+
+  @Test
+  public void shouldStoreAndLoadInRepository() {
+    Repository repository = new Repository("id", "git", "ns", "n");
+    ConfigurationStore<StoreObject> store = createStore(repository);
+
+    store.set(new StoreObject("value"));
+
+    assertEquals("value", store.get().getValue());
+    assertNull(createStoreFactory().withType(StoreObject.class).withName("test").build().get());
+  }
+
+  @Test
+  public void shouldSeeChangesOfOtherInstances() {
+    Repository repository = new Repository("id", "git", "ns", "n");
+    ConfigurationStore<StoreObject> store = createStore(repository);
+    store.set(new StoreObject("one"));
+    assertEquals("one", store.get().getValue());
+
+    createStore(repository).set(new StoreObject("two"));
+
+    assertEquals("two", store.get().getValue());
+  }
+
+  @Test
+  public void shouldDeleteConfiguration() {
+    Repository repository = new Repository("id", "git", "ns", "n");
+    ConfigurationStore<StoreObject> store = createStore(repository);
+    store.set(new StoreObject("value"));
+
+    store.delete();
+
+    assertNull(store.get());
+  }
+
+  @Test
+  public void shouldNotStoreForReadOnlyRepository() {
+    Repository repository = new Repository("id", "git", "ns", "n");
+    when(readOnlyChecker.isReadOnly("id")).thenReturn(true);
+    ConfigurationStore<StoreObject> store = createStore(repository);
+
+    StoreObject storeObject = new StoreObject("value");
+    assertThrows(StoreReadOnlyException.class, () -> store.set(storeObject));
+  }
+
+  private ConfigurationStore<StoreObject> createStore(Repository repository) {
+    return createStoreFactory()
+      .withType(StoreObject.class)
+      .withName("test")
+      .forRepository(repository)
+      .build();
+  }
+}
@@ -0,0 +1,197 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package sonia.scm.store.mvstore;
+
+import com.google.common.collect.ImmutableSet;
+import org.junit.After;
+import org.junit.Test;
+import sonia.scm.HandlerEventType;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryEvent;
+import sonia.scm.repository.RepositoryReadOnlyChecker;
+import sonia.scm.security.UUIDKeyGenerator;
+import sonia.scm.store.DataStore;
+import sonia.scm.store.DataStoreTestBase;
+import sonia.scm.store.StoreObject;
+import sonia.scm.store.StoreReadOnlyException;
+
+import java.io.File;
+
+import static java.util.Collections.singleton;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class MVStoreDataStoreTest extends DataStoreTestBase {
+
+  private final RepositoryReadOnlyChecker readOnlyChecker = mock(RepositoryReadOnlyChecker.class);
+
+  private MVStoreBackend backend;
+
+  @Override
+  protected MVStoreDataStoreFactory createDataStoreFactory() {
+    if (backend == null) {
+      backend = new MVStoreBackend(new File(contextProvider.getBaseDirectory(), MVStoreBackend.FILE_NAME));
+    }
+    return new MVStoreDataStoreFactory(backend, new UUIDKeyGenerator(), readOnlyChecker);
+  }
+
+  @Override
+  protected <T> DataStore<T> getDataStore(Class<T> type, Repository repository) {
+    return createDataStoreFactory()
+      .withType(type)
+      .withName("test")
+      .forRepository(repository)
+      .build();
+  }
+
+  @Override
+  protected <T> DataStore<T> getDataStore(Class<T> type) {
+    return createDataStoreFactory()
+      .withType(type)
+      .withName("test")
+      .build();
+  }
+
+  @After
+  public void closeBackend() {
+    backend.close();
+  }
+
+  @Test
+  public void shouldKeepDataAfterReopen() {
+    store.put("abc", new StoreObject("abc_value"));
+
+    backend.close();
+    backend = null;
+
+    assertEquals("abc_value", getDataStore(StoreObject.class).get("abc").getValue());
+  }
+
+  @Test
+  public void shouldCommitMultipleStoresAtomically() {
+    DataStore<StoreObject> other = createDataStoreFactory().withType(StoreObject.class).withName("other").build();
+
+    backend.transactional(() -> {
+      store.put("one", new StoreObject("1"));
+      other.put("two", new StoreObject("2"));
+    });
+
+    assertEquals("1", store.get("one").getValue());
+    assertEquals("2", other.get("two").getValue());
+  }
+
+  @Test
+  public void shouldRollbackTransactionOnException() {
+    DataStore<StoreObject> other = createDataStoreFactory().withType(StoreObject.class).withName("other").build();
+
+    try {
+      backend.transactional(() -> {
+        store.put("one", new StoreObject("1"));
+        other.put("two", new StoreObject("2"));
+        throw new IllegalStateException("abort");
+      });
+      fail("exception expected");
+    } catch (IllegalStateException ex) {
+      // expected
+    }
+
+    assertNull(store.get("one"));
+    assertNull(other.get("two"));
+  }
+
+  @Test
+  public void shouldRemoveStoresOfDeletedRepository() {
+    repoStore.put("abc", new StoreObject("abc_value"));
+
+    backend.onRepositoryEvent(new RepositoryEvent(HandlerEventType.DELETE, repository));
+
+    assertTrue(getDataStore(StoreObject.class, repository).getAll().isEmpty());
+    assertTrue(backend.getMapNames(MapNames.repositoryPrefix(repository.getId())).isEmpty());
+  }
+
+  @Test(expected = StoreReadOnlyException.class)
+  public void shouldNotStoreForReadOnlyRepository() {
+    when(readOnlyChecker.isReadOnly(repository.getId())).thenReturn(true);
+
+    repoStore.put("abc", new StoreObject("abc_value"));
+  }
+
+  @Test
+  public void shouldFindByIndex() {
+    DataStore<StoreObject> indexed = createIndexedStore();
+    indexed.put("1", new StoreObject("trillian"));
+    indexed.put("2", new StoreObject("zaphod"));
+    indexed.put("3", new StoreObject("tricia"));
+
+    assertEquals(singleton("2"), indexed.getByIndex("value", "zaphod").keySet());
+    assertEquals(ImmutableSet.of("1", "3"), indexed.getByIndexPrefix("value", "tri").keySet());
+
+    indexed.remove("2");
+    indexed.put("3", new StoreObject("arthur"));
+
+    assertTrue(indexed.getByIndex("value", "zaphod").isEmpty());
+    assertEquals(singleton("1"), indexed.getByIndexPrefix("value", "tri").keySet());
+  }
+
+  @Test
+  public void shouldFindEntriesWrittenByOtherInstances() {
+    DataStore<StoreObject> indexed = createIndexedStore();
+    indexed.put("1", new StoreObject("trillian"));
+    assertEquals(singleton("1"), indexed.getByIndex("value", "trillian").keySet());
+
+    createIndexedStore().put("2", new StoreObject("trillian"));
+
+    assertEquals(ImmutableSet.of("1", "2"), indexed.getByIndex("value", "trillian").keySet());
+  }
+
+  @Test
+  public void shouldNotFindRolledBackEntries() {
+    DataStore<StoreObject> indexed = createIndexedStore();
+    assertTrue(indexed.getByIndex("value", "trillian").isEmpty());
+
+    try {
+      backend.transactional(() -> {
+        indexed.put("1", new StoreObject("trillian"));
+        throw new IllegalStateException("abort");
+      });
+    } catch (IllegalStateException ex) {
+      // expected
+    }
+
+    assertTrue(indexed.getByIndex("value", "trillian").isEmpty());
+  }
+
+  private DataStore<StoreObject> createIndexedStore() {
+    return createDataStoreFactory()
+      .withType(StoreObject.class)
+      .withName("indexed")
+      .withIndex("value", StoreObject::getValue)
+      .build();
+  }
+}
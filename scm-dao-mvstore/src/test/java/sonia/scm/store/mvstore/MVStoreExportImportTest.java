@@ -0,0 +1,150 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package sonia.scm.store.mvstore;
+
+import com.google.common.io.ByteStreams;
+import org.junit.After;
+import org.junit.Test;
+import sonia.scm.AbstractTestBase;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryReadOnlyChecker;
+import sonia.scm.security.UUIDKeyGenerator;
+import sonia.scm.store.Blob;
+import sonia.scm.store.BlobStore;
+import sonia.scm.store.ConfigurationEntryStore;
+import sonia.scm.store.ConfigurationStore;
+import sonia.scm.store.DataStore;
+import sonia.scm.store.ExportableStore;
+import sonia.scm.store.StoreEntryImporterFactory;
+import sonia.scm.store.StoreObject;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class MVStoreExportImportTest extends AbstractTestBase {
+
+  private final Repository source = new Repository("source", "git", "hitchhiker", "source");
+  private final Repository target = new Repository("target", "git", "hitchhiker", "target");
+
+  private final RepositoryReadOnlyChecker readOnlyChecker = mock(RepositoryReadOnlyChecker.class);
+
+  private MVStoreBackend backend;
+
+  @Override
+  protected void postSetUp() {
+    backend = new MVStoreBackend(new File(contextProvider.getBaseDirectory(), MVStoreBackend.FILE_NAME));
+  }
+
+  @After
+  public void closeBackend() {
+    backend.close();
+  }
+
+  @Test
+  public void shouldExportAndImportAllStoreTypes() throws IOException {
+    dataStore(source).put("data", new StoreObject("data_value"));
+    entryStore(source).put("entry", new StoreObject("entry_value"));
+    configurationStore(source).set(new StoreObject("config_value"));
+    Blob blob = blobStore(source).create("blob");
+    try (OutputStream output = blob.getOutputStream()) {
+      output.write("blob_content".getBytes(StandardCharsets.UTF_8));
+    }
+
+    List<ExportableStore> stores = new MVStoreExporter(backend).listExportableStores(source);
+    assertThat(stores).hasSize(4);
+
+    StoreEntryImporterFactory importerFactory = new MVStoreImporter(backend).doImport(target);
+    for (ExportableStore store : stores) {
+      ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+      String[] entryName = new String[1];
+      store.export((name, size) -> {
+        entryName[0] = name;
+        return buffer;
+      });
+      importerFactory.importStore(store.getMetaData())
+        .importEntry(entryName[0], new ByteArrayInputStream(buffer.toByteArray()));
+    }
+
+    assertThat(dataStore(target).get("data").getValue()).isEqualTo("data_value");
+    assertThat(entryStore(target).get("entry").getValue()).isEqualTo("entry_value");
+    assertThat(configurationStore(target).get().getValue()).isEqualTo("config_value");
+    try (InputStream input = blobStore(target).get("blob").getInputStream()) {
+      assertThat(new String(ByteStreams.toByteArray(input), StandardCharsets.UTF_8)).isEqualTo("blob_content");
+    }
+  }
+
+  @Test
+  public void shouldNotExportRepositoryExportStore() {
+    dataStore(source).put("data", new StoreObject("data_value"));
+    new MVStoreDataStoreFactory(backend, new UUIDKeyGenerator(), readOnlyChecker)
+      .withType(StoreObject.class)
+      .withName("repository-export")
+      .forRepository(source)
+      .build()
+      .put("export", new StoreObject("export"));
+
+    assertThat(new MVStoreExporter(backend).listExportableStores(source)).hasSize(1);
+  }
+
+  private DataStore<StoreObject> dataStore(Repository repository) {
+    return new MVStoreDataStoreFactory(backend, new UUIDKeyGenerator(), readOnlyChecker)
+      .withType(StoreObject.class)
+      .withName("data")
+      .forRepository(repository)
+      .build();
+  }
+
+  private ConfigurationEntryStore<StoreObject> entryStore(Repository repository) {
+    return new MVStoreConfigurationEntryStoreFactory(backend, new UUIDKeyGenerator(), readOnlyChecker)
+      .withType(StoreObject.class)
+      .withName("entries")
+      .forRepository(repository)
+      .build();
+  }
+
+  private ConfigurationStore<StoreObject> configurationStore(Repository repository) {
+    return new MVStoreConfigurationStoreFactory(backend, readOnlyChecker)
+      .withType(StoreObject.class)
+      .withName("config")
+      .forRepository(repository)
+      .build();
+  }
+
+  private BlobStore blobStore(Repository repository) {
+    return new MVStoreBlobStoreFactory(backend, new UUIDKeyGenerator(), readOnlyChecker)
+      .withName("blobs")
+      .forRepository(repository)
+      .build();
+  }
+}
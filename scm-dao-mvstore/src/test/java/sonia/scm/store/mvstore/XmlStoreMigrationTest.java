@@ -0,0 +1,135 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package sonia.scm.store.mvstore;
+
+import com.google.common.io.ByteStreams;
+import org.junit.After;
+import org.junit.Test;
+import sonia.scm.AbstractTestBase;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryReadOnlyChecker;
+import sonia.scm.security.UUIDKeyGenerator;
+import sonia.scm.store.Blob;
+import sonia.scm.store.FileBlobStoreFactory;
+import sonia.scm.store.JAXBConfigurationEntryStoreFactory;
+import sonia.scm.store.JAXBConfigurationStoreFactory;
+import sonia.scm.store.JAXBDataStoreFactory;
+import sonia.scm.store.StoreObject;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class XmlStoreMigrationTest extends AbstractTestBase {
+
+  // the location resolver of the test base knows only a repository with the id "id"
+  private final Repository repository = new Repository("id", "git", "hitchhiker", "HeartOfGold");
+
+  private final RepositoryReadOnlyChecker readOnlyChecker = mock(RepositoryReadOnlyChecker.class);
+
+  private MVStoreBackend backend;
+
+  @After
+  public void closeBackend() {
+    if (backend != null) {
+      backend.close();
+    }
+  }
+
+  @Test
+  public void shouldMigrateGlobalStores() {
+    new JAXBConfigurationStoreFactory(contextProvider, repositoryLocationResolver, readOnlyChecker)
+      .withType(StoreObject.class).withName("config").build()
+      .set(new StoreObject("config_value"));
+    new JAXBConfigurationEntryStoreFactory(contextProvider, repositoryLocationResolver, new UUIDKeyGenerator(), readOnlyChecker)
+      .withType(StoreObject.class).withName("entries").build()
+      .put("entry", new StoreObject("entry_value"));
+    new JAXBDataStoreFactory(contextProvider, repositoryLocationResolver, new UUIDKeyGenerator(), readOnlyChecker)
+      .withType(StoreObject.class).withName("data").build()
+      .put("data", new StoreObject("data_value"));
+
+    openBackend();
+
+    assertThat(new MVStoreConfigurationStoreFactory(backend, readOnlyChecker)
+      .withType(StoreObject.class).withName("config").build().get().getValue())
+      .isEqualTo("config_value");
+    assertThat(new MVStoreConfigurationEntryStoreFactory(backend, new UUIDKeyGenerator(), readOnlyChecker)
+      .withType(StoreObject.class).withName("entries").build().get("entry").getValue())
+      .isEqualTo("entry_value");
+    assertThat(new MVStoreDataStoreFactory(backend, new UUIDKeyGenerator(), readOnlyChecker)
+      .withType(StoreObject.class).withName("data").build().get("data").getValue())
+      .isEqualTo("data_value");
+  }
+
+  @Test
+  public void shouldMigrateRepositoryStores() throws IOException {
+    new JAXBDataStoreFactory(contextProvider, repositoryLocationResolver, new UUIDKeyGenerator(), readOnlyChecker)
+      .withType(StoreObject.class).withName("data").forRepository(repository).build()
+      .put("data", new StoreObject("data_value"));
+    Blob blob = new FileBlobStoreFactory(contextProvider, repositoryLocationResolver, new UUIDKeyGenerator(), readOnlyChecker)
+      .withName("blobs").forRepository(repository).build()
+      .create("blob");
+    try (OutputStream output = blob.getOutputStream()) {
+      output.write("blob_content".getBytes(StandardCharsets.UTF_8));
+    }
+    blob.commit();
+
+    openBackend();
+
+    assertThat(new MVStoreDataStoreFactory(backend, new UUIDKeyGenerator(), readOnlyChecker)
+      .withType(StoreObject.class).withName("data").forRepository(repository).build().get("data").getValue())
+      .isEqualTo("data_value");
+    Blob migrated = new MVStoreBlobStoreFactory(backend, new UUIDKeyGenerator(), readOnlyChecker)
+      .withName("blobs").forRepository(repository).build()
+      .get("blob");
+    try (InputStream input = migrated.getInputStream()) {
+      assertThat(new String(ByteStreams.toByteArray(input), StandardCharsets.UTF_8)).isEqualTo("blob_content");
+    }
+  }
+
+  @Test
+  public void shouldMigrateOnlyOnce() {
+    openBackend();
+    backend.close();
+
+    new JAXBDataStoreFactory(contextProvider, repositoryLocationResolver, new UUIDKeyGenerator(), readOnlyChecker)
+      .withType(StoreObject.class).withName("data").build()
+      .put("data", new StoreObject("data_value"));
+
+    openBackend();
+
+    assertThat(new MVStoreDataStoreFactory(backend, new UUIDKeyGenerator(), readOnlyChecker)
+      .withType(StoreObject.class).withName("data").build().getAll())
+      .isEmpty();
+  }
+
+  private void openBackend() {
+    backend = new MVStoreBackend(contextProvider, repositoryLocationResolver);
+  }
+}
@@ -26,6 +26,7 @@ package sonia.scm.group.xml;
 
 //~--- non-JDK imports --------------------------------------------------------
 
+import com.google.common.collect.ImmutableSet;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 
@@ -35,6 +36,17 @@ import sonia.scm.xml.AbstractXmlDAO;
 
 import sonia.scm.store.ConfigurationStoreFactory;
 
+//~--- JDK imports ------------------------------------------------------------
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
 /**
  *
  * @author Sebastian Sdorra
@@ -61,10 +73,82 @@ public class XmlGroupDAO extends AbstractXmlDAO<Group, XmlGroupDatabase>
       .withType(XmlGroupDatabase.class)
       .withName(STORE_NAME)
       .build());
+
+    for (Group group : getAll())
+    {
+      index(group.getName(), group.getMembers(), true);
+    }
   }
 
   //~--- methods --------------------------------------------------------------
 
+  /**
+   * Returns the groups of the member with a single lookup in the membership
+   * index.
+   *
+   * @param member name of the member
+   *
+   * @return groups of the member
+   */
+  @Override
+  public Collection<Group> getGroupsForMember(String member)
+  {
+    return groupsByMember.getOrDefault(member, Collections.emptySet())
+      .stream()
+      .map(this::get)
+      .filter(Objects::nonNull)
+      .collect(Collectors.toList());
+  }
+
+  /**
+   * Updates the membership index after a group was added, modified or
+   * removed.
+   *
+   * @param previous group before the change
+   * @param current group after the change
+   */
+  @Override
+  protected void afterChange(Group previous, Group current)
+  {
+    if (previous != null)
+    {
+      index(previous.getName(), previous.getMembers(), false);
+    }
+
+    if (current != null)
+    {
+      index(current.getName(), current.getMembers(), true);
+    }
+  }
+
+  private void index(String group, List<String> members, boolean add)
+  {
+    if (members == null)
+    {
+      return;
+    }
+
+    for (String member : members)
+    {
+      // the sets are immutable, so that readers never see a set which is
+      // modified concurrently
+      groupsByMember.compute(member, (m, groups) -> {
+        Set<String> current = groups != null ? groups : Collections.emptySet();
+
+        if (add)
+        {
+          return ImmutableSet.<String>builder().addAll(current).add(group).build();
+        }
+
+        Set<String> remaining = current.stream()
+          .filter(name -> !name.equals(group))
+          .collect(ImmutableSet.toImmutableSet());
+
+        return remaining.isEmpty() ? null : remaining;
+      });
+    }
+  }
+
   /**
    * Method description
    *
@@ -90,4 +174,9 @@ public class XmlGroupDAO extends AbstractXmlDAO<Group, XmlGroupDatabase>
   {
     return new XmlGroupDatabase();
   }
+
+  //~--- fields ---------------------------------------------------------------
+
+  /** names of the groups by member, guarded by the store for writes */
+  private final Map<String, Set<String>> groupsByMember = new ConcurrentHashMap<>();
 }
@@ -0,0 +1,222 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package sonia.scm.repository.xml;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sonia.scm.repository.Repository;
+import sonia.scm.store.CopyOnWrite;
+
+import javax.xml.bind.JAXBException;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Binary snapshot of the metadata of all repositories, which allows to load the metadata with a single sequential read
+ * at startup. Each entry stores the modification time and the size of the metadata file it was created from. Entries
+ * of files which were modified afterwards, or shortly before the snapshot was written, are not used.
+ * <p>
+ * The snapshot starts with the format version, the creation time and the number of entries. Each entry consists of
+ * the repository id, the repository path, the modification time and size of the metadata file and the metadata itself,
+ * marshalled as xml like the metadata file. Snapshots with another version are ignored.
+ */
+class MetadataSnapshot {
+
+  static final String FILE_NAME = "repository-metadata.snapshot";
+
+  private static final Logger LOG = LoggerFactory.getLogger(MetadataSnapshot.class);
+
+  private static final int VERSION = 2;
+
+  /**
+   * files modified within this interval before the snapshot was written could be modified again without a change of
+   * their modification time
+   */
+  private static final long RACY_INTERVAL = 2000L;
+
+  private final Path file;
+
+  MetadataSnapshot(Path file) {
+    this.file = file;
+  }
+
+  /**
+   * Reads all usable entries of the snapshot. If the snapshot does not exist or could not be read, an empty map is
+   * returned.
+   *
+   * @return entries mapped by repository id
+   */
+  Map<String, Entry> read() {
+    if (!Files.exists(file)) {
+      return Collections.emptyMap();
+    }
+    try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+      if (input.readInt() != VERSION) {
+        LOG.info("ignore repository metadata snapshot {} with unknown version", file);
+        return Collections.emptyMap();
+      }
+      long created = input.readLong();
+      int count = input.readInt();
+      Map<String, Entry> entries = new HashMap<>();
+      for (int i = 0; i < count; i++) {
+        Entry entry = Entry.read(input);
+        if (entry.lastModified < created - RACY_INTERVAL) {
+          entries.put(entry.id, entry);
+        }
+      }
+      LOG.debug("read {} of {} entries from repository metadata snapshot {}", entries.size(), count, file);
+      return entries;
+    } catch (IOException | RuntimeException ex) {
+      LOG.warn("failed to read repository metadata snapshot {}, metadata is read from xml files", file, ex);
+      return Collections.emptyMap();
+    }
+  }
+
+  void write(Collection<Entry> entries) {
+    LOG.debug("write {} entries to repository metadata snapshot {}", entries.size(), file);
+    long created = System.currentTimeMillis();
+    CopyOnWrite.withTemporaryFile(temp -> {
+      try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+        output.writeInt(VERSION);
+        output.writeLong(created);
+        output.writeInt(entries.size());
+        for (Entry entry : entries) {
+          entry.write(output);
+        }
+      }
+    }, file);
+  }
+
+  /**
+   * Creates an entry for the metadata file of the repository, which was just read or written.
+   *
+   * @param repositoryPath location of the repository
+   * @param metadataFile metadata file of the repository
+   * @param metadata metadata of the repository, marshalled by {@link MetadataStore#marshal(Repository)}
+   *
+   * @return new entry
+   */
+  static Entry createEntry(Path repositoryPath, Path metadataFile, String repositoryId, byte[] metadata) {
+    try {
+      BasicFileAttributes attributes = Files.readAttributes(metadataFile, BasicFileAttributes.class);
+      return new Entry(
+        repositoryId,
+        repositoryPath.toString(),
+        attributes.lastModifiedTime().toMillis(),
+        attributes.size(),
+        metadata
+      );
+    } catch (IOException ex) {
+      throw new UncheckedIOException("failed to create snapshot entry for " + metadataFile, ex);
+    }
+  }
+
+  static final class Entry {
+
+    private final String id;
+    private final String path;
+    private final long lastModified;
+    private final long size;
+    private final byte[] data;
+
+    private Entry(String id, String path, long lastModified, long size, byte[] data) {
+      this.id = id;
+      this.path = path;
+      this.lastModified = lastModified;
+      this.size = size;
+      this.data = data;
+    }
+
+    private static Entry read(DataInputStream input) throws IOException {
+      String id = input.readUTF();
+      String path = input.readUTF();
+      long lastModified = input.readLong();
+      long size = input.readLong();
+      byte[] data = new byte[input.readInt()];
+      input.readFully(data);
+      return new Entry(id, path, lastModified, size, data);
+    }
+
+    private void write(DataOutputStream output) throws IOException {
+      output.writeUTF(id);
+      output.writeUTF(path);
+      output.writeLong(lastModified);
+      output.writeLong(size);
+      output.writeInt(data.length);
+      output.write(data);
+    }
+
+    /**
+     * Returns {@code true} if the entry was created from the current version of the metadata file.
+     *
+     * @param repositoryPath location of the repository
+     * @param metadataFile metadata file of the repository
+     *
+     * @return {@code true} if the entry is up to date
+     */
+    boolean isCurrent(Path repositoryPath, Path metadataFile) {
+      if (!path.equals(repositoryPath.toString())) {
+        return false;
+      }
+      try {
+        BasicFileAttributes attributes = Files.readAttributes(metadataFile, BasicFileAttributes.class);
+        return attributes.lastModifiedTime().toMillis() == lastModified && attributes.size() == size;
+      } catch (NoSuchFileException ex) {
+        return false;
+      } catch (IOException ex) {
+        LOG.debug("could not read attributes of {}", metadataFile, ex);
+        return false;
+      }
+    }
+
+    /**
+     * Returns the repository of the entry or {@code null}, if it could not be unmarshalled.
+     *
+     * @param metadataStore store to unmarshal the metadata
+     *
+     * @return repository or {@code null}
+     */
+    Repository getRepository(MetadataStore metadataStore) {
+      try {
+        return metadataStore.unmarshal(data);
+      } catch (JAXBException | RuntimeException ex) {
+        LOG.debug("could not unmarshal snapshot entry of repository {}", id, ex);
+        return null;
+      }
+    }
+  }
+}
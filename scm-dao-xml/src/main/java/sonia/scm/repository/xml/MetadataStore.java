@@ -36,6 +36,9 @@ import sonia.scm.update.UpdateStepRepositoryMetadataAccess;
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.Marshaller;
+import javax.xml.transform.stream.StreamSource;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.nio.file.Path;
 
 public class MetadataStore implements UpdateStepRepositoryMetadataAccess<Path> {
@@ -77,7 +80,29 @@ public class MetadataStore implements UpdateStepRepositoryMetadataAccess<Path> {
     }
   }
 
-  private Path resolveDataPath(Path repositoryPath) {
+  /**
+   * Marshals the repository metadata in the format of the metadata file, but without formatting.
+   */
+  byte[] marshal(Repository repository) {
+    try {
+      ByteArrayOutputStream output = new ByteArrayOutputStream();
+      jaxbContext.createMarshaller().marshal(repository, output);
+      return output.toByteArray();
+    } catch (JAXBException ex) {
+      throw new InternalRepositoryException(repository, "failed to marshal repository metadata", ex);
+    }
+  }
+
+  /**
+   * Unmarshals repository metadata, which was created by {@link #marshal(Repository)} or read from a metadata file.
+   */
+  Repository unmarshal(byte[] metadata) throws JAXBException {
+    return jaxbContext.createUnmarshaller()
+      .unmarshal(new StreamSource(new ByteArrayInputStream(metadata)), Repository.class)
+      .getValue();
+  }
+
+  Path resolveDataPath(Path repositoryPath) {
     return repositoryPath.resolve(StoreConstants.REPOSITORY_METADATA.concat(StoreConstants.FILE_EXTENSION));
   }
 }
@@ -24,6 +24,9 @@
 
 package sonia.scm.repository.xml;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import sonia.scm.SCMContextProvider;
 import sonia.scm.io.FileSystem;
 import sonia.scm.repository.BasicRepositoryLocationResolver;
@@ -33,10 +36,15 @@ import sonia.scm.store.StoreConstants;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
+import java.io.Closeable;
 import java.nio.file.Path;
 import java.time.Clock;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.function.BiConsumer;
 
 import static sonia.scm.ContextEntry.ContextBuilder.entity;
@@ -49,14 +57,30 @@ import static sonia.scm.ContextEntry.ContextBuilder.entity;
  * Please use the {@link sonia.scm.store.DataStoreFactory } and the {@link sonia.scm.store.DataStore} classes to store data<br>
  * Please use the {@link sonia.scm.store.BlobStoreFactory } and the {@link sonia.scm.store.BlobStore} classes to store binary files<br>
  * Please use the {@link sonia.scm.store.ConfigurationStoreFactory} and the {@link sonia.scm.store.ConfigurationStore} classes  to store configurations
+ * <p>
+ * New and removed locations are appended to the journal of the {@link PathDatabase}. Updates of the modification date
+ * are only kept in memory and are written, together with the compacted journal, by a background flush which runs at
+ * most once per {@value #FLUSH_DELAY} milliseconds and on {@link #close()}.
  *
  * @since 2.0.0
  */
 @Singleton
-public class PathBasedRepositoryLocationResolver extends BasicRepositoryLocationResolver<Path> {
+public class PathBasedRepositoryLocationResolver extends BasicRepositoryLocationResolver<Path> implements Closeable {
 
   public static final String STORE_NAME = "repository-paths";
 
+  private static final Logger LOG = LoggerFactory.getLogger(PathBasedRepositoryLocationResolver.class);
+
+  /**
+   * delay in milliseconds between a modification and the write of the path database
+   */
+  static final long FLUSH_DELAY = 1000L;
+
+  /**
+   * the journal is not compacted before it has reached this size
+   */
+  private static final long MINIMUM_COMPACTION_SIZE = 4096L;
+
   private final SCMContextProvider contextProvider;
   private final InitialRepositoryLocationResolver initialRepositoryLocationResolver;
   private final FileSystem fileSystem;
@@ -65,9 +89,14 @@ public class PathBasedRepositoryLocationResolver extends BasicRepositoryLocation
   private final Map<String, Path> pathById;
 
   private final Clock clock;
+  private final ScheduledExecutorService flushExecutor;
 
   private long creationTime;
-  private long lastModified;
+  private volatile long lastModified;
+
+  // guarded by this
+  private boolean dirty;
+  private boolean flushScheduled;
 
   @Inject
   public PathBasedRepositoryLocationResolver(SCMContextProvider contextProvider, InitialRepositoryLocationResolver initialRepositoryLocationResolver, FileSystem fileSystem) {
@@ -75,6 +104,10 @@ public class PathBasedRepositoryLocationResolver extends BasicRepositoryLocation
   }
 
   PathBasedRepositoryLocationResolver(SCMContextProvider contextProvider, InitialRepositoryLocationResolver initialRepositoryLocationResolver, FileSystem fileSystem, Clock clock) {
+    this(contextProvider, initialRepositoryLocationResolver, fileSystem, clock, createFlushExecutor());
+  }
+
+  PathBasedRepositoryLocationResolver(SCMContextProvider contextProvider, InitialRepositoryLocationResolver initialRepositoryLocationResolver, FileSystem fileSystem, Clock clock, ScheduledExecutorService flushExecutor) {
     super(Path.class);
     this.contextProvider = contextProvider;
     this.initialRepositoryLocationResolver = initialRepositoryLocationResolver;
@@ -82,6 +115,7 @@ public class PathBasedRepositoryLocationResolver extends BasicRepositoryLocation
     this.pathById = new ConcurrentHashMap<>();
 
     this.clock = clock;
+    this.flushExecutor = flushExecutor;
 
     this.creationTime = clock.millis();
     pathDatabase = new PathDatabase(resolveStorePath());
@@ -89,6 +123,15 @@ public class PathBasedRepositoryLocationResolver extends BasicRepositoryLocation
     read();
   }
 
+  private static ScheduledExecutorService createFlushExecutor() {
+    return Executors.newSingleThreadScheduledExecutor(
+      new ThreadFactoryBuilder()
+        .setNameFormat("PathDatabaseFlush-%d")
+        .setDaemon(true)
+        .build()
+    );
+  }
+
   @Override
   protected <T> RepositoryLocationResolverInstance<T> create(Class<T> type) {
     return new RepositoryLocationResolverInstance<T>() {
@@ -138,27 +181,64 @@ public class PathBasedRepositoryLocationResolver extends BasicRepositoryLocation
     return resolvedPath;
   }
 
-  Path remove(String repositoryId) {
+  synchronized Path remove(String repositoryId) {
     Path removedPath = pathById.remove(repositoryId);
-    writePathDatabase();
+    lastModified = clock.millis();
+    pathDatabase.appendRemoval(repositoryId, lastModified);
+    journalAppended();
     return contextProvider.resolve(removedPath);
   }
 
-  void updateModificationDate() {
-    this.writePathDatabase();
+  /**
+   * Updates the modification date in memory. The path database is written in the background by the next flush.
+   */
+  synchronized void updateModificationDate() {
+    lastModified = clock.millis();
+    dirty = true;
+    scheduleFlush();
   }
 
-  private void writePathDatabase() {
-    lastModified = clock.millis();
-    pathDatabase.write(creationTime, lastModified, pathById);
+  private void journalAppended() {
+    if (pathDatabase.isJournalLargerThan(MINIMUM_COMPACTION_SIZE)) {
+      dirty = true;
+      scheduleFlush();
+    }
   }
 
-  private void read() {
-    Path storePath = resolveStorePath();
+  private void scheduleFlush() {
+    if (!flushScheduled) {
+      flushScheduled = true;
+      try {
+        flushExecutor.schedule(this::flush, FLUSH_DELAY, TimeUnit.MILLISECONDS);
+      } catch (RejectedExecutionException ex) {
+        LOG.debug("flush executor is not available, write path database in current thread", ex);
+        flush();
+      }
+    }
+  }
+
+  /**
+   * Writes pending modifications and the content of the journal to the path database.
+   */
+  synchronized void flush() {
+    flushScheduled = false;
+    if (dirty || pathDatabase.hasJournal()) {
+      pathDatabase.write(creationTime, lastModified, pathById);
+      dirty = false;
+    }
+  }
 
-    // Files.exists is slow on java 8
-    if (storePath.toFile().exists()) {
-      pathDatabase.read(this::onLoadDates, this::onLoadRepository);
+  @Override
+  public void close() {
+    flushExecutor.shutdownNow();
+    flush();
+  }
+
+  private synchronized void read() {
+    pathDatabase.read(this::onLoadDates, this::onLoadRepository, pathById::remove, this::onLoadModification);
+    if (pathDatabase.hasJournal()) {
+      // start with an empty journal, this drops incomplete records from a previous crash
+      flush();
     }
   }
 
@@ -167,6 +247,10 @@ public class PathBasedRepositoryLocationResolver extends BasicRepositoryLocation
     this.lastModified = lastModified;
   }
 
+  private void onLoadModification(long lastModified) {
+    this.lastModified = Math.max(this.lastModified, lastModified);
+  }
+
   public Long getCreationTime() {
     return creationTime;
   }
@@ -187,9 +271,11 @@ public class PathBasedRepositoryLocationResolver extends BasicRepositoryLocation
       .resolve(STORE_NAME.concat(StoreConstants.FILE_EXTENSION));
   }
 
-  private void setLocation(String repositoryId, Path repositoryBasePath) {
+  private synchronized void setLocation(String repositoryId, Path repositoryBasePath) {
     pathById.put(repositoryId, repositoryBasePath);
-    writePathDatabase();
+    lastModified = clock.millis();
+    pathDatabase.appendRepository(repositoryId, repositoryBasePath, lastModified);
+    journalAppended();
   }
 
   public void refresh() {
@@ -33,16 +33,39 @@ import sonia.scm.xml.XmlStreams;
 import sonia.scm.xml.XmlStreams.AutoCloseableXMLReader;
 import sonia.scm.xml.XmlStreams.AutoCloseableXMLWriter;
 
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
 import javax.xml.stream.XMLStreamConstants;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
 import javax.xml.stream.XMLStreamWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Map;
 
+/**
+ * Xml file which maps the ids of all repositories to their directories. Creations and removals of repositories are
+ * appended as small records to a journal next to the file (the name of the file with the suffix
+ * {@value #JOURNAL_SUFFIX}), so that they do not require to rewrite the whole file. The journal is replayed on top of
+ * the file by {@link #read(OnRepositories, OnRepository, OnRemoval, OnModification)} and is removed by every
+ * {@link #write(long, long, Map)}:
+ *
+ * <pre>
+ * &lt;repository id="42" last-modified="1600000000000"&gt;repositories/42&lt;/repository&gt;
+ * &lt;removed id="42" last-modified="1600000000000"&gt;&lt;/removed&gt;
+ * </pre>
+ */
 class PathDatabase {
 
   private static final Logger LOG = LoggerFactory.getLogger(PathDatabase.class);
@@ -57,10 +80,16 @@ class PathDatabase {
   private static final String ELEMENT_REPOSITORY = "repository";
   private static final String ATTRIBUTE_ID = "id";
 
+  static final String JOURNAL_SUFFIX = ".journal";
+  private static final String ELEMENT_JOURNAL = "journal";
+  private static final String ELEMENT_REMOVED = "removed";
+
   private final Path storePath;
+  private final Path journalPath;
 
   PathDatabase(Path storePath){
     this.storePath = storePath;
+    this.journalPath = storePath.resolveSibling(storePath.getFileName().toString() + JOURNAL_SUFFIX);
   }
 
   void write(long creationTime, long lastModified, Map<String, Path> pathDatabase) {
@@ -89,6 +118,70 @@ class PathDatabase {
       },
       storePath
     );
+
+    try {
+      Files.deleteIfExists(journalPath);
+    } catch (IOException ex) {
+      throw new InternalRepositoryException(
+        ContextEntry.ContextBuilder.entity(Path.class, journalPath.toString()).build(),
+        "failed to remove journal of repository path database",
+        ex
+      );
+    }
+  }
+
+  void appendRepository(String id, Path path, long lastModified) {
+    LOG.trace("append repository {} to journal {}", id, journalPath);
+    appendRecord(writer -> {
+      writer.writeStartElement(ELEMENT_REPOSITORY);
+      writer.writeAttribute(ATTRIBUTE_ID, id);
+      writer.writeAttribute(ATTRIBUTE_LAST_MODIFIED, String.valueOf(lastModified));
+      writer.writeCharacters(path.toString());
+      writer.writeEndElement();
+    });
+  }
+
+  void appendRemoval(String id, long lastModified) {
+    LOG.trace("append removal of repository {} to journal {}", id, journalPath);
+    appendRecord(writer -> {
+      writer.writeStartElement(ELEMENT_REMOVED);
+      writer.writeAttribute(ATTRIBUTE_ID, id);
+      writer.writeAttribute(ATTRIBUTE_LAST_MODIFIED, String.valueOf(lastModified));
+      writer.writeEndElement();
+    });
+  }
+
+  private void appendRecord(RecordWriter recordWriter) {
+    ensureParentDirectoryExists();
+    ByteArrayOutputStream record = new ByteArrayOutputStream();
+    try {
+      XMLStreamWriter writer = XMLOutputFactory.newFactory().createXMLStreamWriter(record, ENCODING);
+      recordWriter.write(writer);
+      writer.close();
+      // the record is appended with a single write, so that a crash leaves at most one incomplete record
+      try (OutputStream output = new FileOutputStream(journalPath.toFile(), true)) {
+        record.writeTo(output);
+      }
+    } catch (XMLStreamException | IOException ex) {
+      throw new InternalRepositoryException(
+        ContextEntry.ContextBuilder.entity(Path.class, journalPath.toString()).build(),
+        "failed to append to journal of repository path database",
+        ex
+      );
+    }
+  }
+
+  boolean hasJournal() {
+    // Files.exists is slow on java 8
+    return journalPath.toFile().exists();
+  }
+
+  /**
+   * Returns {@code true} if the journal has become larger than the given minimum size and the database file itself.
+   */
+  boolean isJournalLargerThan(long minimumSize) {
+    long journalSize = journalPath.toFile().length();
+    return journalSize >= Math.max(minimumSize, storePath.toFile().length());
   }
 
   private void ensureParentDirectoryExists() {
@@ -120,7 +213,17 @@ class PathDatabase {
     writer.writeEndElement();
   }
 
-  void read(OnRepositories onRepositories, OnRepository onRepository) {
+  void read(OnRepositories onRepositories, OnRepository onRepository, OnRemoval onRemoval, OnModification onModification) {
+    // Files.exists is slow on java 8
+    if (storePath.toFile().exists()) {
+      read(onRepositories, onRepository);
+    }
+    if (hasJournal()) {
+      replayJournal(onRepository, onRemoval, onModification);
+    }
+  }
+
+  private void read(OnRepositories onRepositories, OnRepository onRepository) {
     LOG.trace("read repository path database from {}", storePath);
     try (AutoCloseableXMLReader reader = XmlStreams.createReader(storePath)) {
 
@@ -145,6 +248,50 @@ class PathDatabase {
     }
   }
 
+  private void replayJournal(OnRepository onRepository, OnRemoval onRemoval, OnModification onModification) {
+    LOG.debug("replay journal {}", journalPath);
+    try (InputStream stream = openJournal()) {
+      XMLInputFactory factory = XMLInputFactory.newInstance();
+      factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+      XMLStreamReader reader = factory.createXMLStreamReader(stream, ENCODING);
+      try {
+        // journal start
+        reader.nextTag();
+
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+          String id = reader.getAttributeValue(null, ATTRIBUTE_ID);
+          long lastModified = Long.parseLong(reader.getAttributeValue(null, ATTRIBUTE_LAST_MODIFIED));
+          if (ELEMENT_REPOSITORY.equals(reader.getLocalName())) {
+            onRepository.handle(id, Paths.get(reader.getElementText()));
+          } else {
+            onRemoval.handle(id);
+            reader.nextTag();
+          }
+          onModification.handle(lastModified);
+        }
+      } finally {
+        reader.close();
+      }
+    } catch (XMLStreamException ex) {
+      LOG.warn("journal {} ends with an incomplete record, which is ignored", journalPath, ex);
+    } catch (IOException ex) {
+      throw new InternalRepositoryException(
+        ContextEntry.ContextBuilder.entity(Path.class, journalPath.toString()).build(),
+        "failed to read journal of repository path database",
+        ex
+      );
+    }
+  }
+
+  private InputStream openJournal() throws IOException {
+    // the journal has no root element, so we have to wrap it to get a well formed document
+    return new SequenceInputStream(Collections.enumeration(Arrays.asList(
+      new ByteArrayInputStream(("<" + ELEMENT_JOURNAL + ">").getBytes(StandardCharsets.UTF_8)),
+      Files.newInputStream(journalPath),
+      new ByteArrayInputStream(("</" + ELEMENT_JOURNAL + ">").getBytes(StandardCharsets.UTF_8))
+    )));
+  }
+
   private void readRepository(XMLStreamReader reader, OnRepository onRepository) throws XMLStreamException {
     String id = reader.getAttributeValue(null, ATTRIBUTE_ID);
     Path path = Paths.get(reader.getElementText());
@@ -171,4 +318,25 @@ class PathDatabase {
 
   }
 
+  @FunctionalInterface
+  interface OnRemoval {
+
+    void handle(String id);
+
+  }
+
+  @FunctionalInterface
+  interface OnModification {
+
+    void handle(long lastModified);
+
+  }
+
+  @FunctionalInterface
+  private interface RecordWriter {
+
+    void write(XMLStreamWriter writer) throws XMLStreamException;
+
+  }
+
 }
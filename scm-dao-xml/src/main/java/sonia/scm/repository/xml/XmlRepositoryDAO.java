@@ -26,8 +26,13 @@ package sonia.scm.repository.xml;
 
 //~--- non-JDK imports --------------------------------------------------------
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sonia.scm.SCMContextProvider;
 import sonia.scm.io.FileSystem;
 import sonia.scm.repository.InternalRepositoryException;
 import sonia.scm.repository.NamespaceAndName;
@@ -35,25 +40,57 @@ import sonia.scm.repository.Repository;
 import sonia.scm.repository.RepositoryDAO;
 import sonia.scm.repository.RepositoryExportingCheck;
 import sonia.scm.repository.RepositoryLocationResolver;
+import sonia.scm.store.StoreConstants;
 import sonia.scm.store.StoreReadOnlyException;
 
 import javax.inject.Inject;
+import java.io.Closeable;
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.Supplier;
 
 /**
+ * The metadata of all repositories is read at startup with up to {@value #LOAD_THREADS_PROPERTY} threads (the default
+ * is twice the number of processors). If the system property {@value #SNAPSHOT_PROPERTY} is set to {@code true}, the
+ * metadata is additionally kept in a binary snapshot, so that only the metadata of modified repositories has to be
+ * parsed on the next start.
+ *
  * @author Sebastian Sdorra
  */
 @Singleton
-public class XmlRepositoryDAO implements RepositoryDAO {
+public class XmlRepositoryDAO implements RepositoryDAO, Closeable {
+
+  /**
+   * System property for the number of threads which read the repository metadata at startup.
+   *
+   * @since 2.41.0
+   */
+  public static final String LOAD_THREADS_PROPERTY = "scm.xmlRepositoryDao.loadThreads";
+
+  /**
+   * System property which enables the binary snapshot of the repository metadata.
+   *
+   * @since 2.41.0
+   */
+  public static final String SNAPSHOT_PROPERTY = "scm.xmlRepositoryDao.snapshot";
+
+  private static final Logger LOG = LoggerFactory.getLogger(XmlRepositoryDAO.class);
 
   private final MetadataStore metadataStore = new MetadataStore();
 
@@ -65,11 +102,33 @@ public class XmlRepositoryDAO implements RepositoryDAO {
   private final Map<NamespaceAndName, Repository> byNamespaceAndName;
   private final ReadWriteLock byNamespaceLock = new ReentrantReadWriteLock();
 
+  private final int loadThreads;
+  private final MetadataSnapshot snapshot;
+  private final Map<String, MetadataSnapshot.Entry> snapshotEntries = new ConcurrentHashMap<>();
+  private volatile boolean snapshotModified;
+
   @Inject
+  public XmlRepositoryDAO(SCMContextProvider contextProvider, PathBasedRepositoryLocationResolver repositoryLocationResolver, FileSystem fileSystem, RepositoryExportingCheck repositoryExportingCheck) {
+    this(
+      repositoryLocationResolver,
+      fileSystem,
+      repositoryExportingCheck,
+      Integer.getInteger(LOAD_THREADS_PROPERTY, Runtime.getRuntime().availableProcessors() * 2),
+      Boolean.getBoolean(SNAPSHOT_PROPERTY) ? createSnapshot(contextProvider) : null
+    );
+  }
+
   public XmlRepositoryDAO(PathBasedRepositoryLocationResolver repositoryLocationResolver, FileSystem fileSystem, RepositoryExportingCheck repositoryExportingCheck) {
+    this(repositoryLocationResolver, fileSystem, repositoryExportingCheck, 1, null);
+  }
+
+  @VisibleForTesting
+  XmlRepositoryDAO(PathBasedRepositoryLocationResolver repositoryLocationResolver, FileSystem fileSystem, RepositoryExportingCheck repositoryExportingCheck, int loadThreads, MetadataSnapshot snapshot) {
     this.repositoryLocationResolver = repositoryLocationResolver;
     this.fileSystem = fileSystem;
     this.repositoryExportingCheck = repositoryExportingCheck;
+    this.loadThreads = Math.max(1, loadThreads);
+    this.snapshot = snapshot;
 
     this.byId = new HashMap<>();
     this.byNamespaceAndName = new TreeMap<>();
@@ -77,15 +136,136 @@ public class XmlRepositoryDAO implements RepositoryDAO {
     init();
   }
 
+  private static MetadataSnapshot createSnapshot(SCMContextProvider contextProvider) {
+    return new MetadataSnapshot(
+      contextProvider.getBaseDirectory()
+        .toPath()
+        .resolve(StoreConstants.CONFIG_DIRECTORY_NAME)
+        .resolve(MetadataSnapshot.FILE_NAME)
+    );
+  }
+
   private void init() {
+    Map<String, Path> locations = new LinkedHashMap<>();
+    repositoryLocationResolver.create(Path.class).forAllLocations(locations::put);
+
+    Map<String, MetadataSnapshot.Entry> previousEntries = snapshot != null ? snapshot.read() : Collections.emptyMap();
+    List<Repository> repositories = load(locations, previousEntries);
+
     withWriteLockedMaps(() -> {
-      RepositoryLocationResolver.RepositoryLocationResolverInstance<Path> pathRepositoryLocationResolverInstance = repositoryLocationResolver.create(Path.class);
-      pathRepositoryLocationResolverInstance.forAllLocations((repositoryId, repositoryPath) -> {
-        Repository repository = metadataStore.read(repositoryPath);
+      for (Repository repository : repositories) {
         byNamespaceAndName.put(repository.getNamespaceAndName(), repository);
-        byId.put(repositoryId, repository);
-      });
+        byId.put(repository.getId(), repository);
+      }
     });
+
+    if (snapshot != null && (snapshotModified || previousEntries.size() != snapshotEntries.size())) {
+      writeSnapshot();
+    }
+  }
+
+  private List<Repository> load(Map<String, Path> locations, Map<String, MetadataSnapshot.Entry> previousEntries) {
+    int threads = Math.min(loadThreads, locations.size());
+    if (threads <= 1) {
+      List<Repository> repositories = new ArrayList<>(locations.size());
+      locations.forEach((id, path) -> repositories.add(load(id, path, previousEntries)));
+      return repositories;
+    }
+
+    LOG.debug("read metadata of {} repositories with {} threads", locations.size(), threads);
+    ExecutorService executor = Executors.newFixedThreadPool(
+      threads,
+      new ThreadFactoryBuilder()
+        .setNameFormat("RepositoryMetadataReader-%d")
+        .setDaemon(true)
+        .build()
+    );
+    try {
+      List<Future<Repository>> futures = new ArrayList<>(locations.size());
+      locations.forEach((id, path) -> futures.add(executor.submit(() -> load(id, path, previousEntries))));
+
+      List<Repository> repositories = new ArrayList<>(locations.size());
+      for (Future<Repository> future : futures) {
+        repositories.add(getLoaded(future));
+      }
+      return repositories;
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private Repository getLoaded(Future<Repository> future) {
+    try {
+      return future.get();
+    } catch (ExecutionException ex) {
+      if (ex.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) ex.getCause();
+      }
+      throw new IllegalStateException("failed to read repository metadata", ex.getCause());
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("interrupted while reading repository metadata", ex);
+    }
+  }
+
+  private Repository load(String repositoryId, Path repositoryPath, Map<String, MetadataSnapshot.Entry> previousEntries) {
+    if (snapshot == null) {
+      return metadataStore.read(repositoryPath);
+    }
+    Path metadataFile = metadataStore.resolveDataPath(repositoryPath);
+    MetadataSnapshot.Entry entry = previousEntries.get(repositoryId);
+    if (entry != null && entry.isCurrent(repositoryPath, metadataFile)) {
+      Repository repository = entry.getRepository(metadataStore);
+      if (repository != null) {
+        snapshotEntries.put(repositoryId, entry);
+        return repository;
+      }
+    }
+    Repository repository = metadataStore.read(repositoryPath);
+    updateSnapshot(repositoryPath, repository);
+    return repository;
+  }
+
+  private void updateSnapshot(Path repositoryPath, Repository repository) {
+    if (snapshot != null) {
+      snapshotEntries.put(
+        repository.getId(),
+        MetadataSnapshot.createEntry(
+          repositoryPath,
+          metadataStore.resolveDataPath(repositoryPath),
+          repository.getId(),
+          metadataStore.marshal(repository)
+        )
+      );
+      snapshotModified = true;
+    }
+  }
+
+  private void removeFromSnapshot(String repositoryId) {
+    if (snapshot != null && snapshotEntries.remove(repositoryId) != null) {
+      snapshotModified = true;
+    }
+  }
+
+  private synchronized void writeSnapshot() {
+    snapshotModified = false;
+    try {
+      snapshot.write(new ArrayList<>(snapshotEntries.values()));
+    } catch (RuntimeException ex) {
+      LOG.warn("failed to write repository metadata snapshot", ex);
+    }
+  }
+
+  /**
+   * Writes the snapshot of the repository metadata, if it is enabled and was modified.
+   *
+   * @since 2.41.0
+   */
+  @Override
+  public void close() {
+    if (snapshot != null && snapshotModified) {
+      writeSnapshot();
+    }
   }
 
   @Override
@@ -112,6 +292,7 @@ public class XmlRepositoryDAO implements RepositoryDAO {
       repositoryLocationResolver.remove(repository.getId());
       throw new InternalRepositoryException(repository, "failed to create filesystem", e);
     }
+    updateSnapshot(repositoryPath, clone);
 
     withWriteLockedMaps(() -> {
       byId.put(repository.getId(), clone);
@@ -170,6 +351,7 @@ public class XmlRepositoryDAO implements RepositoryDAO {
       .getLocation(repository.getId());
     repositoryLocationResolver.updateModificationDate();
     metadataStore.write(repositoryPath, clone);
+    updateSnapshot(repositoryPath, clone);
   }
 
   private boolean mustNotModifyRepository(Repository clone) {
@@ -191,6 +373,7 @@ public class XmlRepositoryDAO implements RepositoryDAO {
       }
       return repositoryLocationResolver.remove(repository.getId());
     });
+    removeFromSnapshot(repository.getId());
 
     try {
       fileSystem.destroy(path.toFile());
@@ -215,6 +398,7 @@ public class XmlRepositoryDAO implements RepositoryDAO {
       byNamespaceAndName.clear();
       byId.clear();
     });
+    snapshotEntries.clear();
     init();
   }
 
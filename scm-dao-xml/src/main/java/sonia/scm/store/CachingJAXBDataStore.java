@@ -0,0 +1,143 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package sonia.scm.store;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sonia.scm.security.KeyGenerator;
+
+import java.io.File;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * {@link JAXBDataStore} which keeps the unmarshalled entries in memory. The cache is updated on every write of this
+ * store. Every read compares the modification time and size of the file with the cached entry, so that changes from
+ * outside of this store are detected. The directory listing for {@link #getAll()} is reused as long as the
+ * modification time of the store is unchanged.
+ * <p>
+ * Modification times have a limited resolution, so a file could be changed again without a new modification time.
+ * Entries and listings which were read shortly after the last modification are therefore not trusted and will be read
+ * again.
+ *
+ * @param <T> type of stored data.
+ * @since 2.41.0
+ */
+final class CachingJAXBDataStore<T> extends JAXBDataStore<T> {
+
+  private static final Logger LOG = LoggerFactory.getLogger(CachingJAXBDataStore.class);
+
+  private final Cache<String, CachedEntry<T>> cache;
+  private volatile Listing listing;
+
+  CachingJAXBDataStore(KeyGenerator keyGenerator, TypedStoreContext<T> context, File directory, BooleanSupplier readOnly, int cacheSize) {
+    super(keyGenerator, context, directory, readOnly);
+    this.cache = CacheBuilder.newBuilder().maximumSize(cacheSize).build();
+  }
+
+  @Override
+  public synchronized void put(String id, T item) {
+    super.put(id, item);
+    File file = getFile(id);
+    cache.put(file.getName(), new CachedEntry<>(item, file.lastModified(), file.length(), false));
+  }
+
+  @Override
+  protected synchronized void remove(File file) {
+    cache.invalidate(file.getName());
+    super.remove(file);
+  }
+
+  @Override
+  protected T read(File file) {
+    long lastModified = file.lastModified();
+    if (lastModified == 0) {
+      cache.invalidate(file.getName());
+      return null;
+    }
+
+    long length = file.length();
+    CachedEntry<T> entry = cache.getIfPresent(file.getName());
+    if (entry != null && entry.isUpToDate(lastModified, length)) {
+      LOG.trace("use cached entry for {}", file);
+      return entry.value;
+    }
+
+    T value = super.read(file);
+    if (value != null) {
+      cache.put(file.getName(), new CachedEntry<>(value, lastModified, length, isRacy(lastModified)));
+    }
+    return value;
+  }
+
+  @Override
+  protected Stream<File> listFiles() {
+    long lastModified = getModificationTime();
+    Listing current = listing;
+    if (current == null || current.racy || current.lastModified != lastModified) {
+      try (Stream<File> files = super.listFiles()) {
+        current = new Listing(files.collect(Collectors.toList()), lastModified, isRacy(lastModified));
+      }
+      listing = current;
+    }
+    return current.files.stream();
+  }
+
+  private static final class CachedEntry<T> {
+
+    private final T value;
+    private final long lastModified;
+    private final long length;
+    private final boolean racy;
+
+    private CachedEntry(T value, long lastModified, long length, boolean racy) {
+      this.value = value;
+      this.lastModified = lastModified;
+      this.length = length;
+      this.racy = racy;
+    }
+
+    boolean isUpToDate(long lastModified, long length) {
+      return !racy && this.lastModified == lastModified && this.length == length;
+    }
+  }
+
+  private static final class Listing {
+
+    private final List<File> files;
+    private final long lastModified;
+    private final boolean racy;
+
+    private Listing(List<File> files, long lastModified, boolean racy) {
+      this.files = files;
+      this.lastModified = lastModified;
+      this.racy = racy;
+    }
+  }
+}
@@ -0,0 +1,372 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package sonia.scm.store;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+import javax.xml.XMLConstants;
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.namespace.QName;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Arrays.asList;
+import static javax.xml.stream.XMLStreamConstants.END_ELEMENT;
+import static javax.xml.stream.XMLStreamConstants.START_ELEMENT;
+
+/**
+ * Append only journal of a {@link JAXBConfigurationEntryStore}. Every mutation of the store is appended as a small xml
+ * record to a file next to the store file (the name of the store file with the suffix {@value #SUFFIX}). The records
+ * have the same structure as the entries of the store file, removed entries are written as a {@code remove} record
+ * which contains only the key:
+ *
+ * <pre>
+ * &lt;entry&gt;&lt;key&gt;a&lt;/key&gt;&lt;value&gt;...&lt;/value&gt;&lt;/entry&gt;
+ * &lt;remove&gt;&lt;key&gt;a&lt;/key&gt;&lt;/remove&gt;
+ * </pre>
+ *
+ * The journal is replayed on top of the store file during load and is merged back into the store file by a
+ * compaction.
+ */
+final class ConfigEntryJournal {
+
+  static final String SUFFIX = ".journal";
+
+  private static final String TAG_CONFIGURATION = "configuration";
+  private static final String TAG_JOURNAL = "journal";
+  private static final String TAG_ENTRY = "entry";
+  private static final String TAG_REMOVE = "remove";
+  private static final String TAG_KEY = "key";
+  private static final String TAG_VALUE = "value";
+
+  private static final Logger LOG = LoggerFactory.getLogger(ConfigEntryJournal.class);
+
+  private ConfigEntryJournal() {
+  }
+
+  static File of(File file) {
+    return new File(file.getPath() + SUFFIX);
+  }
+
+  static Path of(Path file) {
+    return file.resolveSibling(file.getFileName().toString() + SUFFIX);
+  }
+
+  static <V> void appendEntry(File journal, Marshaller marshaller, Class<V> type, String key, V value)
+    throws XMLStreamException, JAXBException, IOException {
+    marshaller.setProperty(Marshaller.JAXB_FRAGMENT, Boolean.TRUE);
+
+    ByteArrayOutputStream record = new ByteArrayOutputStream();
+    XMLStreamWriter writer = createWriter(record);
+    writer.writeStartElement(TAG_ENTRY);
+    writeKey(writer, key);
+    marshaller.marshal(new JAXBElement<>(QName.valueOf(TAG_VALUE), type, value), writer);
+    writer.writeEndElement();
+    writer.close();
+
+    append(journal, record);
+  }
+
+  static void appendRemove(File journal, String key) throws XMLStreamException, IOException {
+    ByteArrayOutputStream record = new ByteArrayOutputStream();
+    XMLStreamWriter writer = createWriter(record);
+    writer.writeStartElement(TAG_REMOVE);
+    writeKey(writer, key);
+    writer.writeEndElement();
+    writer.close();
+
+    append(journal, record);
+  }
+
+  /**
+   * Applies all records of the journal to the given entries. An incomplete record at the end of the journal (e.g. from
+   * a crash during append) is skipped together with everything behind it.
+   */
+  static <V> void replay(File journal, Unmarshaller unmarshaller, Class<V> type, Map<String, V> entries)
+    throws IOException {
+    LOG.debug("replay journal {}", journal);
+
+    try (InputStream stream = openJournal(journal.toPath())) {
+      XMLStreamReader reader = createReader(stream);
+      try {
+        // journal start
+        reader.nextTag();
+
+        while (reader.nextTag() == START_ELEMENT) {
+          String record = reader.getLocalName();
+
+          // read key
+          reader.nextTag();
+          String key = reader.getElementText();
+
+          if (TAG_ENTRY.equals(record)) {
+            // read value
+            reader.nextTag();
+            JAXBElement<V> element = unmarshaller.unmarshal(reader, type);
+            if (!element.isNil()) {
+              entries.put(key, element.getValue());
+            } else {
+              LOG.warn("could not unmarshall object of entry store journal");
+            }
+          } else {
+            entries.remove(key);
+          }
+          skipToEndOf(reader, record);
+        }
+      } finally {
+        reader.close();
+      }
+    } catch (XMLStreamException | JAXBException ex) {
+      LOG.warn("journal {} ends with an incomplete record, which is ignored", journal, ex);
+    }
+  }
+
+  /**
+   * Merges the journal into the store file without knowing the type of the stored values. The merged content has the
+   * format of a regular store file and can be used for export.
+   */
+  static byte[] merge(Path file, Path journal) throws IOException {
+    try {
+      DocumentBuilder builder = createDocumentBuilderFactory().newDocumentBuilder();
+      Document document;
+      if (Files.exists(file)) {
+        document = builder.parse(file.toFile());
+      } else {
+        document = builder.newDocument();
+        Element root = document.createElement(TAG_CONFIGURATION);
+        root.setAttribute("type", "config-entry");
+        document.appendChild(root);
+      }
+
+      Element root = document.getDocumentElement();
+      Map<String, Element> entries = new HashMap<>();
+      for (Element entry : childElements(root, TAG_ENTRY)) {
+        entries.put(keyOf(entry), entry);
+      }
+
+      for (Element record : readRecords(document, journal)) {
+        String key = keyOf(record);
+        Element existing = entries.remove(key);
+        if (TAG_ENTRY.equals(record.getTagName())) {
+          Node imported = document.importNode(record, true);
+          if (existing != null) {
+            root.replaceChild(imported, existing);
+          } else {
+            root.appendChild(imported);
+          }
+          entries.put(key, (Element) imported);
+        } else if (existing != null) {
+          root.removeChild(existing);
+        }
+      }
+
+      // the store expects an indented file, so we have to drop the old indentation and write a new one
+      removeIndentation(root);
+
+      ByteArrayOutputStream output = new ByteArrayOutputStream();
+      Transformer transformer = createTransformerFactory().newTransformer();
+      transformer.setOutputProperty(OutputKeys.ENCODING, StandardCharsets.UTF_8.name());
+      transformer.setOutputProperty(OutputKeys.INDENT, "yes");
+      transformer.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "2");
+      transformer.transform(new DOMSource(document), new StreamResult(output));
+      return output.toByteArray();
+    } catch (ParserConfigurationException | SAXException | TransformerException ex) {
+      throw new IOException("failed to merge journal " + journal + " into " + file, ex);
+    }
+  }
+
+  private static List<Element> readRecords(Document document, Path journal) throws IOException {
+    List<Element> records = new ArrayList<>();
+    try (InputStream stream = openJournal(journal)) {
+      XMLStreamReader reader = createReader(stream);
+      try {
+        // journal start
+        reader.nextTag();
+
+        while (reader.nextTag() == START_ELEMENT) {
+          records.add(readElement(document, reader));
+        }
+      } finally {
+        reader.close();
+      }
+    } catch (XMLStreamException ex) {
+      LOG.warn("journal {} ends with an incomplete record, which is ignored", journal, ex);
+    }
+    return records;
+  }
+
+  private static Element readElement(Document document, XMLStreamReader reader) throws XMLStreamException {
+    Element element = document.createElementNS(emptyToNull(reader.getNamespaceURI()), qualifiedName(reader.getPrefix(), reader.getLocalName()));
+    for (int i = 0; i < reader.getNamespaceCount(); i++) {
+      String prefix = reader.getNamespacePrefix(i);
+      String name = prefix == null || prefix.isEmpty() ? XMLConstants.XMLNS_ATTRIBUTE : XMLConstants.XMLNS_ATTRIBUTE + ":" + prefix;
+      element.setAttributeNS(XMLConstants.XMLNS_ATTRIBUTE_NS_URI, name, reader.getNamespaceURI(i));
+    }
+    for (int i = 0; i < reader.getAttributeCount(); i++) {
+      element.setAttributeNS(emptyToNull(reader.getAttributeNamespace(i)), qualifiedName(reader.getAttributePrefix(i), reader.getAttributeLocalName(i)), reader.getAttributeValue(i));
+    }
+    while (reader.next() != END_ELEMENT) {
+      if (reader.isStartElement()) {
+        element.appendChild(readElement(document, reader));
+      } else if (reader.isCharacters()) {
+        element.appendChild(document.createTextNode(reader.getText()));
+      }
+    }
+    return element;
+  }
+
+  private static String qualifiedName(String prefix, String localName) {
+    return prefix == null || prefix.isEmpty() ? localName : prefix + ":" + localName;
+  }
+
+  private static String emptyToNull(String value) {
+    return value == null || value.isEmpty() ? null : value;
+  }
+
+  private static void removeIndentation(Element element) {
+    List<Node> whitespace = new ArrayList<>();
+    boolean hasElements = false;
+    NodeList children = element.getChildNodes();
+    for (int i = 0; i < children.getLength(); i++) {
+      Node child = children.item(i);
+      if (child instanceof Element) {
+        hasElements = true;
+        removeIndentation((Element) child);
+      } else if (child.getNodeType() == Node.TEXT_NODE && child.getTextContent().trim().isEmpty()) {
+        whitespace.add(child);
+      }
+    }
+    if (hasElements) {
+      whitespace.forEach(element::removeChild);
+    }
+  }
+
+  private static String keyOf(Element element) {
+    List<Element> keys = childElements(element, TAG_KEY);
+    return keys.isEmpty() ? "" : keys.get(0).getTextContent();
+  }
+
+  private static List<Element> childElements(Element parent, String tag) {
+    List<Element> elements = new ArrayList<>();
+    NodeList children = parent.getChildNodes();
+    for (int i = 0; i < children.getLength(); i++) {
+      Node child = children.item(i);
+      if (child instanceof Element && tag.equals(child.getNodeName())) {
+        elements.add((Element) child);
+      }
+    }
+    return elements;
+  }
+
+  private static void writeKey(XMLStreamWriter writer, String key) throws XMLStreamException {
+    writer.writeStartElement(TAG_KEY);
+    writer.writeCharacters(key);
+    writer.writeEndElement();
+  }
+
+  private static void skipToEndOf(XMLStreamReader reader, String tag) throws XMLStreamException {
+    while (!(reader.isEndElement() && tag.equals(reader.getLocalName()))) {
+      reader.next();
+    }
+  }
+
+  private static void append(File journal, ByteArrayOutputStream record) throws IOException {
+    try (OutputStream output = new FileOutputStream(journal, true)) {
+      record.writeTo(output);
+    }
+  }
+
+  private static InputStream openJournal(Path journal) throws IOException {
+    // the journal has no root element, so we have to wrap it to get a well formed document
+    return new SequenceInputStream(Collections.enumeration(asList(
+      new ByteArrayInputStream(("<" + TAG_JOURNAL + ">").getBytes(StandardCharsets.UTF_8)),
+      Files.newInputStream(journal),
+      new ByteArrayInputStream(("</" + TAG_JOURNAL + ">").getBytes(StandardCharsets.UTF_8))
+    )));
+  }
+
+  private static XMLStreamWriter createWriter(OutputStream stream) throws XMLStreamException {
+    return XMLOutputFactory.newFactory().createXMLStreamWriter(stream, StandardCharsets.UTF_8.name());
+  }
+
+  private static XMLStreamReader createReader(InputStream stream) throws XMLStreamException {
+    XMLInputFactory factory = XMLInputFactory.newInstance();
+    factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+    factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+    return factory.createXMLStreamReader(stream, StandardCharsets.UTF_8.name());
+  }
+
+  private static DocumentBuilderFactory createDocumentBuilderFactory() throws ParserConfigurationException {
+    DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+    factory.setNamespaceAware(true);
+    factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+    factory.setExpandEntityReferences(false);
+    return factory;
+  }
+
+  private static TransformerFactory createTransformerFactory() {
+    TransformerFactory factory = TransformerFactory.newInstance();
+    factory.setAttribute(XMLConstants.ACCESS_EXTERNAL_DTD, "");
+    factory.setAttribute(XMLConstants.ACCESS_EXTERNAL_STYLESHEET, "");
+    return factory;
+  }
+}
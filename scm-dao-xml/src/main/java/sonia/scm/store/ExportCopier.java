@@ -49,4 +49,16 @@ final class ExportCopier {
       );
     }
   }
+
+  static void putContentIntoStream(Exporter exporter, String name, byte[] content) {
+    try (OutputStream stream = exporter.put(name, content.length)) {
+      stream.write(content);
+    } catch (IOException e) {
+      throw new ExportFailedException(
+        noContext(),
+        "Could not write content to export stream: " + name,
+        e
+      );
+    }
+  }
 }
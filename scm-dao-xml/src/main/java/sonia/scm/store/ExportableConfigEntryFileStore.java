@@ -25,12 +25,14 @@
 package sonia.scm.store;
 
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Optional;
 import java.util.function.Function;
 
 import static java.util.Optional.empty;
 import static java.util.Optional.of;
+import static sonia.scm.store.ExportCopier.putContentIntoStream;
 import static sonia.scm.store.ExportCopier.putFileContentIntoStream;
 
 class ExportableConfigEntryFileStore implements ExportableStore {
@@ -51,6 +53,12 @@ class ExportableConfigEntryFileStore implements ExportableStore {
 
   @Override
   public void export(Exporter exporter) throws IOException {
-    putFileContentIntoStream(exporter, file);
+    Path journal = ConfigEntryJournal.of(file);
+    if (Files.exists(journal)) {
+      // export the merged state, so that the exported file has the same format as without journal
+      putContentIntoStream(exporter, file.getFileName().toString(), ConfigEntryJournal.merge(file, journal));
+    } else {
+      putFileContentIntoStream(exporter, file);
+    }
   }
 }
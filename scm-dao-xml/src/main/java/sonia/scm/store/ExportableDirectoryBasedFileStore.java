@@ -26,6 +26,7 @@ package sonia.scm.store;
 
 import sonia.scm.repository.api.ExportFailedException;
 
+import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -57,9 +58,10 @@ abstract class ExportableDirectoryBasedFileStore implements ExportableStore {
   }
 
   private void exportDirectoryEntries(Exporter exporter, Path directory) {
-    try (Stream<Path> fileList = Files.list(directory)) {
-      fileList.forEach(fileOrDir -> exportIfRelevant(exporter, fileOrDir));
-    } catch (IOException e) {
+    boolean sharded = ShardedStoreLayout.isSharded(directory.toFile());
+    try (Stream<File> fileList = ShardedStoreLayout.files(directory.toFile(), sharded)) {
+      fileList.forEach(fileOrDir -> exportIfRelevant(exporter, fileOrDir.toPath()));
+    } catch (StoreException e) {
       throw new ExportFailedException(
         noContext(),
         "Could not read directory " + directory,
@@ -31,12 +31,17 @@ import com.google.common.base.Strings;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import sonia.scm.util.IOUtil;
 
 //~--- JDK imports ------------------------------------------------------------
 
 import java.io.File;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
 
 /**
+ * Base class for stores, which keep every entry in a file of the store directory. The files are either stored
+ * directly in the directory or distributed over sub directories, see {@link ShardedStoreLayout}.
  *
  * @author Sebastian Sdorra
  *
@@ -61,10 +66,27 @@ public abstract class FileBasedStore<T> implements MultiEntryStore<T>
    * @param suffix
    */
   public FileBasedStore(File directory, String suffix, boolean readOnly)
+  {
+    this(directory, suffix, () -> readOnly);
+  }
+
+  /**
+   * Constructs a new store, which evaluates the read only state on every
+   * modification.
+   *
+   *
+   * @param directory
+   * @param suffix
+   * @param readOnly
+   *
+   * @since 2.41.0
+   */
+  public FileBasedStore(File directory, String suffix, BooleanSupplier readOnly)
   {
     this.directory = directory;
     this.suffix = suffix;
     this.readOnly = readOnly;
+    this.sharded = ShardedStoreLayout.isSharded(directory);
   }
 
   //~--- methods --------------------------------------------------------------
@@ -88,9 +110,9 @@ public abstract class FileBasedStore<T> implements MultiEntryStore<T>
   {
     logger.debug("clear store");
 
-    for (File file : directory.listFiles())
+    try (Stream<File> files = streamFiles())
     {
-      remove(file);
+      files.forEach(this::remove);
     }
   }
 
@@ -153,6 +175,62 @@ public abstract class FileBasedStore<T> implements MultiEntryStore<T>
       throw new StoreException(
         "could not delete store entry ".concat(file.getPath()));
     }
+
+    entriesModified();
+  }
+
+  /**
+   * Returns a lazy stream of all entry files of the store. The stream has to be
+   * closed after usage.
+   *
+   * @return stream of entry files
+   *
+   * @since 2.41.0
+   */
+  protected Stream<File> streamFiles()
+  {
+    return ShardedStoreLayout.files(directory, sharded);
+  }
+
+  /**
+   * Creates the parent directory of a new entry file, if it does not exist.
+   *
+   * @param file entry file
+   *
+   * @since 2.41.0
+   */
+  protected void createParentDirectory(File file)
+  {
+    if (sharded)
+    {
+      IOUtil.mkdirs(file.getParentFile());
+    }
+  }
+
+  /**
+   * Must be called after an entry was created or removed.
+   *
+   * @since 2.41.0
+   */
+  protected void entriesModified()
+  {
+    if (sharded)
+    {
+      ShardedStoreLayout.touch(directory);
+    }
+  }
+
+  /**
+   * Returns a modification time, which changes if an entry is created or
+   * removed.
+   *
+   * @return modification time of the store
+   *
+   * @since 2.41.0
+   */
+  protected long getModificationTime()
+  {
+    return ShardedStoreLayout.lastModified(directory, sharded);
   }
 
   //~--- get methods ----------------------------------------------------------
@@ -170,7 +248,14 @@ public abstract class FileBasedStore<T> implements MultiEntryStore<T>
     Preconditions.checkArgument(!Strings.isNullOrEmpty(id),
       "id argument is required");
 
-    return new File(directory, id.concat(suffix));
+    String fileName = id.concat(suffix);
+
+    if (sharded)
+    {
+      return ShardedStoreLayout.resolve(directory, fileName);
+    }
+
+    return new File(directory, fileName);
   }
 
   /**
@@ -189,7 +274,7 @@ public abstract class FileBasedStore<T> implements MultiEntryStore<T>
   }
 
   protected void assertNotReadOnly() {
-    if (readOnly) {
+    if (readOnly.getAsBoolean()) {
       throw new StoreReadOnlyException(directory.getAbsoluteFile().toString());
     }
   }
@@ -202,5 +287,8 @@ public abstract class FileBasedStore<T> implements MultiEntryStore<T>
   /** Field description */
   private final String suffix;
 
-  private final boolean readOnly;
+  private final BooleanSupplier readOnly;
+
+  /** true if the entries are distributed over sub directories */
+  private final boolean sharded;
 }
@@ -50,10 +50,12 @@ class FileBasedStoreEntryImporter implements StoreEntryImporter {
 
   @Override
   public void importEntry(String name, InputStream stream) {
-    Path filePath = directory.resolve(name);
     try {
+      Path filePath = ShardedStoreLayout.resolveEntry(directory, name);
       Files.copy(stream, filePath, REPLACE_EXISTING);
-    } catch (IOException e) {
+      // a journal of a config entry store would be replayed on top of the imported file
+      Files.deleteIfExists(ConfigEntryJournal.of(filePath));
+    } catch (IOException | StoreException e) {
       throw new ImportFailedException(
         ContextEntry.ContextBuilder.noContext(),
         String.format("Could not import file %s for store %s", name, directory.toString()),
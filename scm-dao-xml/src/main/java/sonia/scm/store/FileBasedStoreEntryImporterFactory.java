@@ -49,6 +49,9 @@ class FileBasedStoreEntryImporterFactory implements StoreEntryImporterFactory {
     try {
       storeDirectory = storeDirectory.resolve(resolveFilePath(storeType.getValue(), storeName));
       Files.createDirectories(storeDirectory);
+      if (storeType == StoreType.DATA || storeType == StoreType.BLOB) {
+        ShardedStoreLayout.prepare(storeDirectory.toFile());
+      }
       if (!Files.exists(storeDirectory)) {
         throw new ImportFailedException(
           ContextEntry.ContextBuilder.noContext(),
@@ -26,20 +26,29 @@ package sonia.scm.store;
 
 //~--- non-JDK imports --------------------------------------------------------
 
+import com.github.legman.Subscribe;
+import com.google.inject.Inject;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import sonia.scm.HandlerEventType;
 import sonia.scm.SCMContextProvider;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryEvent;
+import sonia.scm.repository.RepositoryImportEvent;
 import sonia.scm.repository.RepositoryLocationResolver;
 import sonia.scm.repository.RepositoryReadOnlyChecker;
 import sonia.scm.util.IOUtil;
 
 import java.io.File;
 import java.nio.file.Path;
+import java.util.function.Function;
 
 //~--- JDK imports ------------------------------------------------------------
 
 /**
- * Abstract store factory for file based stores.
+ * Abstract store factory for file based stores. Typed stores are shared between callers, see
+ * {@link #getOrCreateStore(TypedStoreParameters, Function)}.
  *
  * @author Sebastian Sdorra
  */
@@ -53,12 +62,58 @@ public abstract class FileBasedStoreFactory {
   private final RepositoryLocationResolver repositoryLocationResolver;
   private final Store store;
   private final RepositoryReadOnlyChecker readOnlyChecker;
+  private final StoreCache storeCache;
 
-  protected FileBasedStoreFactory(SCMContextProvider contextProvider, RepositoryLocationResolver repositoryLocationResolver, Store store, RepositoryReadOnlyChecker readOnlyChecker) {
+  protected FileBasedStoreFactory(SCMContextProvider contextProvider, RepositoryLocationResolver repositoryLocationResolver, StoreType storeType, RepositoryReadOnlyChecker readOnlyChecker) {
     this.contextProvider = contextProvider;
     this.repositoryLocationResolver = repositoryLocationResolver;
-    this.store = store;
+    this.store = Store.forStoreType(storeType);
     this.readOnlyChecker = readOnlyChecker;
+    this.storeCache = new StoreCache(storeType);
+  }
+
+  /**
+   * Publishes the number of opened stores and created jaxb contexts. The meter registry is not available during the
+   * bootstrap phase (e.g. for update steps), so the injection is optional.
+   *
+   * @param meterRegistry meter registry
+   */
+  @Inject(optional = true)
+  void bindMetrics(MeterRegistry meterRegistry) {
+    storeCache.bindTo(meterRegistry);
+  }
+
+  /**
+   * Returns the shared store for the given parameters or creates a new one. Stores are identified by type, name and
+   * repository. Implementations of stores returned by this method have to be thread safe.
+   *
+   * @param storeParameters parameters of the store
+   * @param factory creates the store from a context, if no shared instance exists
+   * @param <T> type of stored objects
+   * @param <S> type of store
+   *
+   * @return shared store instance
+   */
+  <T, S> S getOrCreateStore(TypedStoreParameters<T> storeParameters, Function<TypedStoreContext<T>, S> factory) {
+    return storeCache.get(storeParameters, factory);
+  }
+
+  @Subscribe(async = false)
+  public void onRepositoryEvent(RepositoryEvent event) {
+    if (event.getEventType() == HandlerEventType.DELETE || (event.getEventType() == HandlerEventType.MODIFY && isRenamed(event))) {
+      storeCache.evict(event.getItem().getId());
+    }
+  }
+
+  @Subscribe(async = false)
+  public void onRepositoryImport(RepositoryImportEvent event) {
+    // the importer writes the store files directly, so we have to drop stores which were opened during the import
+    storeCache.evict(event.getItem().getId());
+  }
+
+  private boolean isRenamed(RepositoryEvent event) {
+    Repository oldRepository = event.getOldItem();
+    return oldRepository != null && !oldRepository.getNamespaceAndName().equals(event.getItem().getNamespaceAndName());
   }
 
   protected File getStoreLocation(StoreParameters storeParameters) {
@@ -40,6 +40,7 @@ import java.io.File;
 import java.io.IOException;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * File based implementation of {@link BlobStore}.
@@ -77,6 +78,7 @@ public class FileBlobStore extends FileBasedStore<Blob> implements BlobStore {
     assertNotReadOnly();
 
     File file = getFile(id);
+    createParentDirectory(file);
 
     try {
       if (file.exists()) {
@@ -91,6 +93,8 @@ public class FileBlobStore extends FileBasedStore<Blob> implements BlobStore {
       throw new StoreException("could not create blob for id ".concat(id), ex);
     }
 
+    entriesModified();
+
     return new FileBlob(id, file);
   }
 
@@ -107,8 +111,8 @@ public class FileBlobStore extends FileBasedStore<Blob> implements BlobStore {
 
     Builder<Blob> builder = ImmutableList.builder();
 
-    for (File file : directory.listFiles()) {
-      builder.add(read(file));
+    try (Stream<File> files = streamFiles()) {
+      files.forEach(file -> builder.add(read(file)));
     }
 
     return builder.build();
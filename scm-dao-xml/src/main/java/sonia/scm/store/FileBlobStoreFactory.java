@@ -32,7 +32,6 @@ import sonia.scm.SCMContextProvider;
 import sonia.scm.repository.RepositoryLocationResolver;
 import sonia.scm.repository.RepositoryReadOnlyChecker;
 import sonia.scm.security.KeyGenerator;
-import sonia.scm.util.IOUtil;
 
 import java.io.File;
 
@@ -54,7 +53,7 @@ public class FileBlobStoreFactory extends FileBasedStoreFactory implements BlobS
    */
   @Inject
   public FileBlobStoreFactory(SCMContextProvider contextProvider , RepositoryLocationResolver repositoryLocationResolver, KeyGenerator keyGenerator, RepositoryReadOnlyChecker readOnlyChecker) {
-    super(contextProvider, repositoryLocationResolver, Store.BLOB, readOnlyChecker);
+    super(contextProvider, repositoryLocationResolver, StoreType.BLOB, readOnlyChecker);
     this.keyGenerator = keyGenerator;
   }
 
@@ -62,7 +61,7 @@ public class FileBlobStoreFactory extends FileBasedStoreFactory implements BlobS
   @SuppressWarnings("unchecked")
   public BlobStore getStore(StoreParameters storeParameters) {
     File storeLocation = getStoreLocation(storeParameters);
-    IOUtil.mkdirs(storeLocation);
+    ShardedStoreLayout.prepare(storeLocation);
     return new FileBlobStore(keyGenerator, storeLocation, mustBeReadOnly(storeParameters));
   }
 }
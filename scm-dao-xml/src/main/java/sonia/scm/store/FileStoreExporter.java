@@ -87,6 +87,25 @@ public class FileStoreExporter implements StoreExporter {
     return exportableStores;
   }
 
+  /**
+   * Lists the stores in the given store type directories (the directories for configuration, data and blob stores).
+   * In contrast to {@link #listExportableStores(Repository)} this can be used for global stores, too, because these do
+   * not share a common parent directory. Directories which do not exist are skipped.
+   *
+   * @param storeTypeDirectories directories of the store types
+   *
+   * @return stores of the directories
+   * @since 2.41.0
+   */
+  public List<ExportableStore> listExportableStores(Collection<Path> storeTypeDirectories) {
+    List<ExportableStore> exportableStores = new ArrayList<>();
+    storeTypeDirectories
+      .stream()
+      .filter(Files::isDirectory)
+      .forEach(storeTypeDirectory -> exportStoreTypeDirectories(exportableStores, storeTypeDirectory));
+    return exportableStores;
+  }
+
   private Path resolveStoreDirectory(Repository repository) {
     return locationResolver
       .forClass(Path.class)
@@ -120,7 +139,8 @@ public class FileStoreExporter implements StoreExporter {
 
   private StoreType getEnumForValue(Path storePath) {
     if (Files.isDirectory(storePath)) {
-      for (StoreType type : StoreType.values()) {
+      // only data and blob stores are directories
+      for (StoreType type : asList(StoreType.DATA, StoreType.BLOB)) {
         if (type.getValue().equals(storePath.getParent().getFileName().toString())) {
           return type;
         }
@@ -25,7 +25,6 @@
 package sonia.scm.store;
 
 import com.google.common.collect.Collections2;
-import com.google.common.collect.Maps;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import sonia.scm.security.KeyGenerator;
@@ -37,14 +36,40 @@ import javax.xml.bind.JAXBElement;
 import javax.xml.bind.Marshaller;
 import javax.xml.namespace.QName;
 import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Predicate;
 
 import static javax.xml.stream.XMLStreamConstants.END_ELEMENT;
 
+/**
+ * JAXB implementation of {@link ConfigurationEntryStore}. Instances are shared between callers, all entries are kept in
+ * memory and are read again, if the file was modified by someone else.
+ * <p>
+ * If the store is created with a compaction executor, it runs in journal mode: mutations are appended to a
+ * {@link ConfigEntryJournal} instead of rewriting the whole file. The journal is merged back into the file in the
+ * background, as soon as it has grown larger than the file itself. The compaction writes a snapshot of the entries
+ * without holding the lock of the store, only the swap of the file and the journal blocks writers. A journal, which is
+ * found on load, is always replayed and compacted, even if the journal mode is disabled.
+ * <p>
+ * Declared indexes are built from the entries in memory and rebuilt whenever the entries are loaded again.
+ *
+ * @param <V> type of stored values
+ */
 public class JAXBConfigurationEntryStore<V> implements ConfigurationEntryStore<V> {
 
   private static final String TAG_CONFIGURATION = "configuration";
@@ -58,20 +83,50 @@ public class JAXBConfigurationEntryStore<V> implements ConfigurationEntryStore<V
   private static final Logger LOG = LoggerFactory.getLogger(JAXBConfigurationEntryStore.class);
 
 
+  /**
+   * the journal is not compacted before it has reached this size
+   */
+  static final long MINIMUM_COMPACTION_SIZE = 4096L;
+
+  private static final String COMPACTION_SUFFIX = ".compacting";
+
   private final File file;
+  private final File journal;
   private final KeyGenerator keyGenerator;
   private final Class<V> type;
   private final TypedStoreContext<V> context;
-  private final Map<String, V> entries = Maps.newHashMap();
+  private final Executor compactionExecutor;
+  private final AtomicBoolean compactionScheduled = new AtomicBoolean();
+  private final StoreIndexes<V> indexes;
+  // guarded by file
+  private Map<String, V> indexedEntries;
+  private volatile Map<String, V> entries = new ConcurrentHashMap<>();
+  private volatile FileState loadedState;
+  private volatile FileState journalState;
+  // guarded by file, incremented whenever the file is rewritten with the entries in memory
+  private long rewrites;
 
   JAXBConfigurationEntryStore(File file, KeyGenerator keyGenerator, Class<V> type, TypedStoreContext<V> context) {
+    this(file, keyGenerator, type, context, null);
+  }
+
+  JAXBConfigurationEntryStore(File file, KeyGenerator keyGenerator, Class<V> type, TypedStoreContext<V> context, Executor compactionExecutor) {
     this.file = file;
+    this.journal = ConfigEntryJournal.of(file);
     this.keyGenerator = keyGenerator;
     this.type = type;
     this.context = context;
+    this.compactionExecutor = compactionExecutor;
+    this.indexes = context.createIndexes();
     // initial load
-    if (file.exists()) {
-      load();
+    if (file.exists() || journal.exists()) {
+      entries = load();
+    }
+    loadedState = FileState.of(file);
+    journalState = FileState.of(journal);
+    if (journalState.exists()) {
+      // start with an empty journal, this drops incomplete records from a previous crash
+      compact();
     }
   }
 
@@ -81,7 +136,8 @@ public class JAXBConfigurationEntryStore<V> implements ConfigurationEntryStore<V
 
     synchronized (file) {
       entries.clear();
-      store();
+      indexes.clear();
+      rewrite();
     }
   }
 
@@ -99,8 +155,16 @@ public class JAXBConfigurationEntryStore<V> implements ConfigurationEntryStore<V
     LOG.debug("put item {} to configuration store", id);
 
     synchronized (file) {
-      entries.put(id, item);
-      store();
+      currentEntries().put(id, item);
+      if (indexedEntries == entries) {
+        indexes.put(id, item);
+      }
+      if (isJournaled()) {
+        context.withMarshaller(m -> ConfigEntryJournal.appendEntry(journal, m, type, id, item));
+        journalAppended();
+      } else {
+        rewrite();
+      }
     }
   }
 
@@ -109,8 +173,16 @@ public class JAXBConfigurationEntryStore<V> implements ConfigurationEntryStore<V
     LOG.debug("remove item {} from configuration store", id);
 
     synchronized (file) {
-      entries.remove(id);
-      store();
+      boolean removed = currentEntries().remove(id) != null;
+      if (indexedEntries == entries) {
+        indexes.remove(id);
+      }
+      if (removed && isJournaled()) {
+        context.withMarshaller(m -> ConfigEntryJournal.appendRemove(journal, id));
+        journalAppended();
+      } else if (!isJournaled()) {
+        rewrite();
+      }
     }
   }
 
@@ -118,22 +190,164 @@ public class JAXBConfigurationEntryStore<V> implements ConfigurationEntryStore<V
   public V get(String id) {
     LOG.trace("get item {} from configuration store", id);
 
-    return entries.get(id);
+    return currentEntries().get(id);
   }
 
   @Override
   public Map<String, V> getAll() {
     LOG.trace("get all items from configuration store");
 
-    return Collections.unmodifiableMap(entries);
+    return Collections.unmodifiableMap(currentEntries());
   }
 
   @Override
   public Collection<V> getMatchingValues(Predicate<V> predicate) {
-    return Collections2.filter(entries.values(), predicate::test);
+    return Collections2.filter(currentEntries().values(), predicate::test);
+  }
+
+  @Override
+  public boolean supportsIndexes() {
+    return true;
+  }
+
+  @Override
+  public Map<String, V> getByIndex(String index, String value) {
+    return currentIndexes().find(index, value, this::get);
+  }
+
+  @Override
+  public Map<String, V> getByIndexPrefix(String index, String prefix) {
+    return currentIndexes().findByPrefix(index, prefix, this::get);
+  }
+
+  private StoreIndexes<V> currentIndexes() {
+    synchronized (file) {
+      Map<String, V> current = currentEntries();
+      if (indexedEntries != current) {
+        LOG.debug("rebuild indexes of {}", file);
+        indexes.rebuild(current);
+        indexedEntries = current;
+      }
+    }
+    return indexes;
+  }
+
+  /**
+   * Merges the journal into the store file. The entries are written without holding the lock of the store,
+   * records which are appended in the meantime are kept in the journal.
+   */
+  void compact() {
+    Map<String, V> snapshot;
+    long journalLength;
+    long rewritesAtSnapshot;
+    FileState fileAtSnapshot;
+    synchronized (file) {
+      compactionScheduled.set(false);
+      if (!journal.exists()) {
+        return;
+      }
+      snapshot = new LinkedHashMap<>(currentEntries());
+      journalLength = journal.length();
+      rewritesAtSnapshot = rewrites;
+      fileAtSnapshot = loadedState;
+    }
+
+    LOG.debug("compact journal of {}", file);
+    Path compacted = new File(file.getPath() + COMPACTION_SUFFIX).toPath();
+    try {
+      writeEntries(compacted, snapshot);
+      synchronized (file) {
+        if (rewrites != rewritesAtSnapshot || !fileAtSnapshot.equals(FileState.of(file))) {
+          LOG.debug("{} was rewritten during compaction, drop compacted file", file);
+          return;
+        }
+        Files.move(compacted, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        loadedState = FileState.of(file);
+        // a crash before the journal is truncated is harmless, the records can be replayed on the compacted file again
+        truncateJournal(journalLength);
+        journalState = FileState.of(journal);
+      }
+    } catch (IOException ex) {
+      throw new StoreException("could not compact journal of " + file, ex);
+    } finally {
+      deleteQuietly(compacted);
+    }
+  }
+
+  private void truncateJournal(long compactedLength) throws IOException {
+    Path journalPath = journal.toPath();
+    long length = journal.length();
+    if (length <= compactedLength) {
+      Files.deleteIfExists(journalPath);
+      return;
+    }
+    Path remaining = new File(journal.getPath() + COMPACTION_SUFFIX).toPath();
+    try (FileChannel source = FileChannel.open(journalPath, StandardOpenOption.READ);
+         FileChannel target = FileChannel.open(remaining, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+      long position = compactedLength;
+      while (position < length) {
+        position += source.transferTo(position, length - position, target);
+      }
+    }
+    Files.move(remaining, journalPath, StandardCopyOption.REPLACE_EXISTING);
   }
 
-  private void load() {
+  private void deleteQuietly(Path path) {
+    try {
+      Files.deleteIfExists(path);
+    } catch (IOException ex) {
+      LOG.warn("could not delete {}", path, ex);
+    }
+  }
+
+  private boolean isJournaled() {
+    return compactionExecutor != null;
+  }
+
+  private void journalAppended() {
+    journalState = FileState.of(journal);
+    if (journalState.length >= Math.max(MINIMUM_COMPACTION_SIZE, loadedState.length) && compactionScheduled.compareAndSet(false, true)) {
+      try {
+        compactionExecutor.execute(this::compact);
+      } catch (RejectedExecutionException ex) {
+        LOG.debug("compaction executor is not available, compact {} in current thread", file, ex);
+        compact();
+      }
+    }
+  }
+
+  private Map<String, V> currentEntries() {
+    if (isModified()) {
+      synchronized (file) {
+        if (isModified()) {
+          LOG.debug("{} was modified, reload configuration", file);
+          FileState state = FileState.of(file);
+          FileState currentJournalState = FileState.of(journal);
+          entries = state.exists() || currentJournalState.exists() ? load() : new ConcurrentHashMap<>();
+          loadedState = state;
+          journalState = currentJournalState;
+        }
+      }
+    }
+    return entries;
+  }
+
+  private boolean isModified() {
+    return !loadedState.equals(FileState.of(file)) || !journalState.equals(FileState.of(journal));
+  }
+
+  private Map<String, V> load() {
+    Map<String, V> loaded = new ConcurrentHashMap<>();
+    if (file.exists()) {
+      loadFile(loaded);
+    }
+    if (journal.exists()) {
+      context.withUnmarshaller(u -> ConfigEntryJournal.replay(journal, u, type, loaded));
+    }
+    return loaded;
+  }
+
+  private void loadFile(Map<String, V> loaded) {
     LOG.debug("load configuration from {}", file);
 
     context.withUnmarshaller(u -> {
@@ -162,7 +376,7 @@ public class JAXBConfigurationEntryStore<V> implements ConfigurationEntryStore<V
 
             LOG.trace("add element {} to configuration entry store", v);
 
-            entries.put(key, v);
+            loaded.put(key, v);
           } else {
             LOG.warn("could not unmarshall object of entry store");
           }
@@ -178,50 +392,98 @@ public class JAXBConfigurationEntryStore<V> implements ConfigurationEntryStore<V
     });
   }
 
+  private void rewrite() {
+    rewrites++;
+    store();
+    try {
+      Files.deleteIfExists(journal.toPath());
+    } catch (IOException ex) {
+      throw new StoreException("could not remove journal " + journal, ex);
+    }
+    journalState = FileState.of(journal);
+  }
+
   private void store() {
     LOG.debug("store configuration to {}", file);
 
+    CopyOnWrite.withTemporaryFile(temp -> writeEntries(temp, entries), file.toPath());
+    loadedState = FileState.of(file);
+  }
+
+  private void writeEntries(Path target, Map<String, V> entriesToWrite) {
     context.withMarshaller(m -> {
       m.setProperty(Marshaller.JAXB_FRAGMENT, Boolean.TRUE);
 
-      CopyOnWrite.withTemporaryFile(
-        temp -> {
-          try (AutoCloseableXMLWriter writer = XmlStreams.createWriter(temp)) {
-            writer.writeStartDocument();
+      try (AutoCloseableXMLWriter writer = XmlStreams.createWriter(target)) {
+        writer.writeStartDocument();
 
-            // configuration start
-            writer.writeStartElement(TAG_CONFIGURATION);
-            writer.writeAttribute("type", "config-entry");
+        // configuration start
+        writer.writeStartElement(TAG_CONFIGURATION);
+        writer.writeAttribute("type", "config-entry");
 
-            for (Entry<String, V> e : entries.entrySet()) {
+        for (Entry<String, V> e : entriesToWrite.entrySet()) {
 
-              // entry start
-              writer.writeStartElement(TAG_ENTRY);
+          // entry start
+          writer.writeStartElement(TAG_ENTRY);
 
-              // key start
-              writer.writeStartElement(TAG_KEY);
-              writer.writeCharacters(e.getKey());
+          // key start
+          writer.writeStartElement(TAG_KEY);
+          writer.writeCharacters(e.getKey());
 
-              // key end
-              writer.writeEndElement();
+          // key end
+          writer.writeEndElement();
 
-              // value
-              JAXBElement<V> je = new JAXBElement<>(QName.valueOf(TAG_VALUE), type,
-                e.getValue());
+          // value
+          JAXBElement<V> je = new JAXBElement<>(QName.valueOf(TAG_VALUE), type,
+            e.getValue());
 
-              m.marshal(je, writer);
+          m.marshal(je, writer);
 
-              // entry end
-              writer.writeEndElement();
-            }
+          // entry end
+          writer.writeEndElement();
+        }
 
-            // configuration end
-            writer.writeEndElement();
-            writer.writeEndDocument();
-          }
-        },
-        file.toPath()
-      );
+        // configuration end
+        writer.writeEndElement();
+        writer.writeEndDocument();
+      }
     });
   }
+
+  private static final class FileState {
+
+    private final long lastModified;
+    private final long length;
+
+    private FileState(long lastModified, long length) {
+      this.lastModified = lastModified;
+      this.length = length;
+    }
+
+    static FileState of(File file) {
+      // both methods return 0 if the file does not exist
+      return new FileState(file.lastModified(), file.length());
+    }
+
+    boolean exists() {
+      return lastModified != 0;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      FileState that = (FileState) o;
+      return lastModified == that.lastModified && length == that.length;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(lastModified, length);
+    }
+  }
 }
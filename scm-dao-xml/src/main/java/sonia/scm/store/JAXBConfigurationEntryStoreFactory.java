@@ -26,8 +26,12 @@ package sonia.scm.store;
 
 //~--- non-JDK imports --------------------------------------------------------
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import sonia.scm.SCMContextProvider;
 import sonia.scm.repository.RepositoryLocationResolver;
 import sonia.scm.repository.RepositoryReadOnlyChecker;
@@ -35,29 +39,72 @@ import sonia.scm.security.KeyGenerator;
 
 //~--- JDK imports ------------------------------------------------------------
 
+import java.io.Closeable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
 /**
+ * Creates {@link JAXBConfigurationEntryStore}s. If the system property {@value #JOURNAL_PROPERTY} is set to
+ * {@code true}, the stores append mutations to a journal and compact it in the background, instead of rewriting the
+ * whole file on each mutation.
  *
  * @author Sebastian Sdorra
  */
 @Singleton
 public class JAXBConfigurationEntryStoreFactory extends FileBasedStoreFactory
-  implements ConfigurationEntryStoreFactory {
+  implements ConfigurationEntryStoreFactory, Closeable {
+
+  static final String JOURNAL_PROPERTY = "scm.store.configEntry.journal";
+
+  private static final Logger LOG = LoggerFactory.getLogger(JAXBConfigurationEntryStoreFactory.class);
 
   private KeyGenerator keyGenerator;
+  private final ExecutorService compactionExecutor;
 
   @Inject
   public JAXBConfigurationEntryStoreFactory(SCMContextProvider contextProvider, RepositoryLocationResolver repositoryLocationResolver, KeyGenerator keyGenerator, RepositoryReadOnlyChecker readOnlyChecker) {
-    super(contextProvider, repositoryLocationResolver, Store.CONFIG, readOnlyChecker);
+    this(contextProvider, repositoryLocationResolver, keyGenerator, readOnlyChecker, Boolean.getBoolean(JOURNAL_PROPERTY));
+  }
+
+  @VisibleForTesting
+  JAXBConfigurationEntryStoreFactory(SCMContextProvider contextProvider, RepositoryLocationResolver repositoryLocationResolver, KeyGenerator keyGenerator, RepositoryReadOnlyChecker readOnlyChecker, boolean journal) {
+    super(contextProvider, repositoryLocationResolver, StoreType.CONFIG_ENTRY, readOnlyChecker);
     this.keyGenerator = keyGenerator;
+    this.compactionExecutor = journal ? createCompactionExecutor() : null;
+  }
+
+  private static ExecutorService createCompactionExecutor() {
+    return Executors.newSingleThreadExecutor(
+      new ThreadFactoryBuilder()
+        .setNameFormat("ConfigEntryStoreCompaction-%d")
+        .setDaemon(true)
+        .build()
+    );
   }
 
   @Override
   public <T> ConfigurationEntryStore<T> getStore(TypedStoreParameters<T> storeParameters) {
-    return new JAXBConfigurationEntryStore<>(
+    return getOrCreateStore(storeParameters, context -> new JAXBConfigurationEntryStore<>(
       getStoreLocation(storeParameters.getName().concat(StoreConstants.FILE_EXTENSION), storeParameters.getType(), storeParameters.getRepositoryId()),
       keyGenerator,
       storeParameters.getType(),
-      TypedStoreContext.of(storeParameters)
-    );
+      context,
+      compactionExecutor
+    ));
+  }
+
+  @Override
+  public void close() {
+    if (compactionExecutor != null) {
+      compactionExecutor.shutdown();
+      try {
+        if (!compactionExecutor.awaitTermination(10, TimeUnit.SECONDS)) {
+          LOG.warn("compaction of config entry stores did not finish, journals are replayed on next start");
+        }
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+      }
+    }
   }
 }
@@ -33,7 +33,8 @@ import java.io.IOException;
 import java.util.function.BooleanSupplier;
 
 /**
- * JAXB implementation of {@link ConfigurationStore}.
+ * JAXB implementation of {@link ConfigurationStore}. Instances are shared between callers, so the stored object is
+ * read again, if the file was modified by someone else.
  *
  * @param <T>
  * @author Sebastian Sdorra
@@ -49,6 +50,8 @@ public class JAXBConfigurationStore<T> extends AbstractStore<T> {
   private final Class<T> type;
   private final File configFile;
 
+  private long lastModified = -1;
+
   public JAXBConfigurationStore(TypedStoreContext<T> context, Class<T> type, File configFile, BooleanSupplier readOnly) {
     super(readOnly);
     this.context = context;
@@ -65,10 +68,40 @@ public class JAXBConfigurationStore<T> extends AbstractStore<T> {
     return type;
   }
 
+  /**
+   * Returns the size of the stored file in bytes or {@code 0}, if the file does not exist.
+   *
+   * @return size of the stored file
+   * @since 2.41.0
+   */
+  public long getSize() {
+    return configFile.length();
+  }
+
+  @Override
+  public synchronized T get() {
+    if (storeObject != null && lastModified != configFile.lastModified()) {
+      LOG.debug("{} was modified, reload object", configFile);
+      storeObject = null;
+    }
+    return super.get();
+  }
+
+  @Override
+  public synchronized void set(T object) {
+    super.set(object);
+  }
+
+  @Override
+  public synchronized void delete() {
+    super.delete();
+  }
+
   @Override
   protected T readObject() {
     LOG.debug("load {} from store {}", type, configFile);
 
+    lastModified = configFile.lastModified();
     if (configFile.exists()) {
       return context.unmarshall(configFile);
     }
@@ -82,6 +115,7 @@ public class JAXBConfigurationStore<T> extends AbstractStore<T> {
       temp -> context.marshal(object, temp.toFile()),
       configFile.toPath()
     );
+    lastModified = configFile.lastModified();
   }
 
   @Override
@@ -45,19 +45,18 @@ public class JAXBConfigurationStoreFactory extends FileBasedStoreFactory impleme
    */
   @Inject
   public JAXBConfigurationStoreFactory(SCMContextProvider contextProvider, RepositoryLocationResolver repositoryLocationResolver, RepositoryReadOnlyChecker readOnlyChecker) {
-    super(contextProvider, repositoryLocationResolver, Store.CONFIG, readOnlyChecker);
+    super(contextProvider, repositoryLocationResolver, StoreType.CONFIG, readOnlyChecker);
   }
 
   @Override
   public <T> JAXBConfigurationStore<T> getStore(TypedStoreParameters<T> storeParameters) {
-    TypedStoreContext<T> context = TypedStoreContext.of(storeParameters);
-    return new JAXBConfigurationStore<>(
+    return getOrCreateStore(storeParameters, context -> new JAXBConfigurationStore<>(
       context,
       storeParameters.getType(),
       getStoreLocation(storeParameters.getName().concat(StoreConstants.FILE_EXTENSION),
         storeParameters.getType(),
         storeParameters.getRepositoryId()),
       () -> mustBeReadOnly(storeParameters)
-    );
+    ));
   }
 }
@@ -24,6 +24,9 @@
 
 package sonia.scm.store;
 
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableMap.Builder;
 import org.slf4j.Logger;
@@ -34,9 +37,16 @@ import javax.xml.bind.JAXBException;
 import javax.xml.bind.Marshaller;
 import java.io.File;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
 
 /**
  * Jaxb implementation of {@link DataStore}.
+ * <p>
+ * Declared indexes are built on the first lookup and updated on every write of this store. All stores for the same
+ * directory share a write generation, so that the indexes are rebuilt, if another store instance has changed the
+ * entries. Changes from outside of the process are detected by a changed modification time of the store.
  *
  * @author Sebastian Sdorra
  *
@@ -49,14 +59,36 @@ public class JAXBDataStore<T> extends FileBasedStore<T> implements DataStore<T>
    */
   private static final Logger LOG = LoggerFactory.getLogger(JAXBDataStore.class);
 
+  /**
+   * modification times within this interval are not trusted, because a file could be changed again without a new
+   * modification time
+   */
+  private static final long RACY_INTERVAL = 1000L;
+
+  /**
+   * write generations by store directory, an entry is kept as long as a store for the directory is referenced
+   */
+  private static final LoadingCache<File, AtomicLong> GENERATIONS = CacheBuilder.newBuilder()
+    .weakValues()
+    .build(CacheLoader.from(directory -> new AtomicLong()));
+
   private final KeyGenerator keyGenerator;
   private final TypedStoreContext<T> context;
+  private final StoreIndexes<T> indexes;
+  private final AtomicLong generation;
+
+  // guarded by indexes
+  private boolean indexed;
+  private long indexedGeneration;
+  private long indexedModification;
 
-  JAXBDataStore(KeyGenerator keyGenerator, TypedStoreContext<T> context, File directory, boolean readOnly) {
+  JAXBDataStore(KeyGenerator keyGenerator, TypedStoreContext<T> context, File directory, BooleanSupplier readOnly) {
     super(directory, StoreConstants.FILE_EXTENSION, readOnly);
     this.keyGenerator = keyGenerator;
     this.directory = directory;
     this.context = context;
+    this.indexes = context.createIndexes();
+    this.generation = GENERATIONS.getUnchecked(directory);
   }
 
   @Override
@@ -67,6 +99,19 @@ public class JAXBDataStore<T> extends FileBasedStore<T> implements DataStore<T>
 
     File file = getFile(id);
 
+    if (indexes.isEmpty()) {
+      write(id, file, item);
+    } else {
+      synchronized (indexes) {
+        boolean indexCurrent = isIndexCurrent();
+        write(id, file, item);
+        indexModified(indexCurrent, () -> indexes.put(id, item));
+      }
+    }
+  }
+
+  private void write(String id, File file, T item) {
+    createParentDirectory(file);
     try {
       Marshaller marshaller = context.createMarshaller();
 
@@ -80,6 +125,13 @@ public class JAXBDataStore<T> extends FileBasedStore<T> implements DataStore<T>
       throw new StoreException("could not write object with id ".concat(id),
         ex);
     }
+    entriesModified();
+  }
+
+  @Override
+  protected void entriesModified() {
+    super.entriesModified();
+    generation.incrementAndGet();
   }
 
   @Override
@@ -91,19 +143,90 @@ public class JAXBDataStore<T> extends FileBasedStore<T> implements DataStore<T>
     return key;
   }
 
+  @Override
+  protected void remove(File file) {
+    if (indexes.isEmpty()) {
+      super.remove(file);
+    } else {
+      synchronized (indexes) {
+        boolean indexCurrent = isIndexCurrent();
+        super.remove(file);
+        indexModified(indexCurrent, () -> indexes.remove(getId(file)));
+      }
+    }
+  }
+
+  @Override
+  public boolean supportsIndexes() {
+    return true;
+  }
+
+  @Override
+  public Map<String, T> getByIndex(String index, String value) {
+    return currentIndexes().find(index, value, this::get);
+  }
+
+  @Override
+  public Map<String, T> getByIndexPrefix(String index, String prefix) {
+    return currentIndexes().findByPrefix(index, prefix, this::get);
+  }
+
+  private StoreIndexes<T> currentIndexes() {
+    synchronized (indexes) {
+      if (!indexes.isEmpty() && !isIndexCurrent()) {
+        LOG.debug("rebuild indexes of store {}", directory);
+        long currentGeneration = generation.get();
+        long lastModified = getModificationTime();
+        indexes.rebuild(getAll());
+        indexedGeneration = currentGeneration;
+        indexedModification = lastModified;
+        indexed = true;
+      }
+    }
+    return indexes;
+  }
+
+  private boolean isIndexCurrent() {
+    return indexed && indexedGeneration == generation.get() && indexedModification == getModificationTime();
+  }
+
+  private void indexModified(boolean indexCurrent, Runnable update) {
+    // the index stays current, if no other store has written between the check and our own write
+    if (indexCurrent && generation.get() == indexedGeneration + 1) {
+      update.run();
+      indexedGeneration++;
+      indexedModification = getModificationTime();
+    } else {
+      indexed = false;
+    }
+  }
+
+  static boolean isRacy(long lastModified) {
+    return System.currentTimeMillis() - lastModified < RACY_INTERVAL;
+  }
+
   @Override
   public Map<String, T> getAll() {
     LOG.trace("get all items from data store");
 
     Builder<String, T> builder = ImmutableMap.builder();
 
-    for (File file : directory.listFiles()) {
-      builder.put(getId(file), read(file));
+    try (Stream<File> files = listFiles()) {
+      files.forEach(file -> {
+        T item = read(file);
+        if (item != null) {
+          builder.put(getId(file), item);
+        }
+      });
     }
 
     return builder.build();
   }
 
+  protected Stream<File> listFiles() {
+    return streamFiles();
+  }
+
   @Override
   protected T read(File file) {
     if (file.exists()) {
@@ -32,7 +32,6 @@ import sonia.scm.SCMContextProvider;
 import sonia.scm.repository.RepositoryLocationResolver;
 import sonia.scm.repository.RepositoryReadOnlyChecker;
 import sonia.scm.security.KeyGenerator;
-import sonia.scm.util.IOUtil;
 
 import java.io.File;
 
@@ -48,14 +47,19 @@ public class JAXBDataStoreFactory extends FileBasedStoreFactory
 
   @Inject
   public JAXBDataStoreFactory(SCMContextProvider contextProvider , RepositoryLocationResolver repositoryLocationResolver, KeyGenerator keyGenerator, RepositoryReadOnlyChecker readOnlyChecker) {
-    super(contextProvider, repositoryLocationResolver, Store.DATA, readOnlyChecker);
+    super(contextProvider, repositoryLocationResolver, StoreType.DATA, readOnlyChecker);
     this.keyGenerator = keyGenerator;
   }
 
   @Override
   public <T> DataStore<T> getStore(TypedStoreParameters<T> storeParameters) {
-    File storeLocation = getStoreLocation(storeParameters);
-    IOUtil.mkdirs(storeLocation);
-    return new JAXBDataStore<>(keyGenerator, TypedStoreContext.of(storeParameters), storeLocation, mustBeReadOnly(storeParameters));
+    return getOrCreateStore(storeParameters, context -> {
+      File storeLocation = getStoreLocation(storeParameters);
+      ShardedStoreLayout.prepare(storeLocation);
+      if (storeParameters.getCacheSize() > 0) {
+        return new CachingJAXBDataStore<>(keyGenerator, context, storeLocation, () -> mustBeReadOnly(storeParameters), storeParameters.getCacheSize());
+      }
+      return new JAXBDataStore<>(keyGenerator, context, storeLocation, () -> mustBeReadOnly(storeParameters));
+    });
   }
 }
@@ -96,7 +96,7 @@ public class JAXBPropertyFileAccess implements PropertyFileAccess {
           .resolve(storeName);
         IOUtil.mkdirs(target.toFile());
         Path resolvedSourceFile = computeV1StoreDir().resolve(storeFile);
-        Path resolvedTargetFile = target.resolve(storeFile.getFileName());
+        Path resolvedTargetFile = ShardedStoreLayout.resolveEntry(target, storeFile.getFileName().toString());
         LOG.trace("moving file {} to {}", resolvedSourceFile, resolvedTargetFile);
         Files.move(resolvedSourceFile, resolvedTargetFile);
       }
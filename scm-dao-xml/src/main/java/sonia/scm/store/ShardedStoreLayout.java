@@ -0,0 +1,252 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package sonia.scm.store;
+
+import com.google.common.hash.Hashing;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sonia.scm.util.IOUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Layout of file based data and blob stores, which distributes the entries over two levels of sub directories. The
+ * names of the sub directories are taken from the hash of the file name of the entry, for example
+ * {@code 3f/a2/<id>.xml}. Stores with this layout are marked with the file {@value #MARKER}, stores without the marker
+ * keep all entries directly in the store directory.
+ * <p>
+ * New stores use the sharded layout, unless the system property {@value #PROPERTY} is set to {@code false}. Existing
+ * stores can be converted with {@link #migrate(Path)}.
+ *
+ * @since 2.41.0
+ */
+public final class ShardedStoreLayout {
+
+  /**
+   * Name of the file which marks a store directory with the sharded layout.
+   */
+  public static final String MARKER = ".sharded";
+
+  static final String PROPERTY = "scm.store.sharded";
+
+  private static final Logger LOG = LoggerFactory.getLogger(ShardedStoreLayout.class);
+
+  private static final int SHARD_NAME_LENGTH = 2;
+
+  private ShardedStoreLayout() {
+  }
+
+  /**
+   * Returns {@code true} if the given store directory uses the sharded layout.
+   *
+   * @param directory store directory
+   *
+   * @return {@code true} for sharded stores
+   */
+  public static boolean isSharded(File directory) {
+    return new File(directory, MARKER).exists();
+  }
+
+  /**
+   * Creates the store directory. New or empty directories are marked for the sharded layout, unless it is disabled.
+   *
+   * @param directory store directory
+   */
+  static void prepare(File directory) {
+    IOUtil.mkdirs(directory);
+    if (isEnabledForNewStores() && isEmpty(directory.toPath())) {
+      createMarker(directory.toPath());
+    }
+  }
+
+  private static boolean isEnabledForNewStores() {
+    return Boolean.parseBoolean(System.getProperty(PROPERTY, Boolean.TRUE.toString()));
+  }
+
+  /**
+   * Returns the path of the entry with the given file name, without creating its parent directories.
+   *
+   * @param directory store directory
+   * @param fileName file name of the entry
+   *
+   * @return path of the entry
+   */
+  static File resolve(File directory, String fileName) {
+    String hash = Hashing.murmur3_128().hashString(fileName, StandardCharsets.UTF_8).toString();
+    return new File(
+      new File(new File(directory, hash.substring(0, SHARD_NAME_LENGTH)), hash.substring(SHARD_NAME_LENGTH, 2 * SHARD_NAME_LENGTH)),
+      fileName
+    );
+  }
+
+  /**
+   * Returns the path of the entry with the given file name in a store directory with either layout. The parent
+   * directories of the entry are created.
+   *
+   * @param directory store directory
+   * @param fileName file name of the entry
+   *
+   * @return path of the entry
+   */
+  public static Path resolveEntry(Path directory, String fileName) {
+    if (!isSharded(directory.toFile())) {
+      return directory.resolve(fileName);
+    }
+    File file = resolve(directory.toFile(), fileName);
+    IOUtil.mkdirs(file.getParentFile());
+    return file.toPath();
+  }
+
+  /**
+   * Returns a lazy stream of all entries of the store directory. The stream has to be closed after usage.
+   *
+   * @param directory store directory
+   * @param sharded {@code true} if the directory uses the sharded layout
+   *
+   * @return stream of entries
+   */
+  static Stream<File> files(File directory, boolean sharded) {
+    Path path = directory.toPath();
+    if (!Files.isDirectory(path)) {
+      return Stream.empty();
+    }
+    if (!sharded) {
+      return list(path).filter(file -> !isMarker(file)).map(Path::toFile);
+    }
+    return list(path)
+      .filter(ShardedStoreLayout::isShard)
+      .flatMap(first -> list(first).filter(ShardedStoreLayout::isShard))
+      .flatMap(ShardedStoreLayout::list)
+      .map(Path::toFile);
+  }
+
+  /**
+   * Moves all entries of a store directory with the flat layout to their sharded location and marks the directory.
+   * The migration can be repeated, if it was interrupted.
+   *
+   * @param directory store directory
+   *
+   * @return number of moved entries
+   */
+  public static int migrate(Path directory) {
+    if (!Files.isDirectory(directory) || isSharded(directory.toFile())) {
+      return 0;
+    }
+    List<Path> entries;
+    try (Stream<Path> children = list(directory)) {
+      entries = children.filter(Files::isRegularFile).collect(Collectors.toList());
+    }
+    LOG.debug("move {} entries of store {} to sharded layout", entries.size(), directory);
+    for (Path entry : entries) {
+      Path target = resolve(directory.toFile(), entry.getFileName().toString()).toPath();
+      move(entry, target);
+    }
+    createMarker(directory);
+    return entries.size();
+  }
+
+  private static void move(Path source, Path target) {
+    try {
+      Files.createDirectories(target.getParent());
+      try {
+        Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException ex) {
+        Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } catch (IOException ex) {
+      throw new StoreException("could not move store entry " + source + " to " + target, ex);
+    }
+  }
+
+  private static void createMarker(Path directory) {
+    try {
+      Files.createFile(directory.resolve(MARKER));
+    } catch (FileAlreadyExistsException ex) {
+      // marked concurrently
+    } catch (IOException ex) {
+      throw new StoreException("could not mark store directory " + directory, ex);
+    }
+  }
+
+  /**
+   * Updates the modification time of the marker. Sharded stores use the modification time of the marker instead of
+   * the modification time of the directory to detect changes of their entries.
+   *
+   * @param directory store directory
+   */
+  static void touch(File directory) {
+    File marker = new File(directory, MARKER);
+    if (!marker.setLastModified(System.currentTimeMillis())) {
+      LOG.debug("could not update modification time of {}", marker);
+    }
+  }
+
+  /**
+   * Returns the modification time, which changes with every new or removed entry.
+   *
+   * @param directory store directory
+   * @param sharded {@code true} if the directory uses the sharded layout
+   *
+   * @return modification time
+   */
+  static long lastModified(File directory, boolean sharded) {
+    if (sharded) {
+      return new File(directory, MARKER).lastModified();
+    }
+    return directory.lastModified();
+  }
+
+  private static boolean isEmpty(Path directory) {
+    try (Stream<Path> children = list(directory)) {
+      return !children.findAny().isPresent();
+    }
+  }
+
+  private static boolean isMarker(Path file) {
+    return MARKER.equals(file.getFileName().toString());
+  }
+
+  private static boolean isShard(Path file) {
+    return file.getFileName().toString().length() == SHARD_NAME_LENGTH && Files.isDirectory(file);
+  }
+
+  private static Stream<Path> list(Path directory) {
+    try {
+      return Files.list(directory);
+    } catch (IOException ex) {
+      throw new StoreException("could not list store directory " + directory, ex);
+    }
+  }
+}
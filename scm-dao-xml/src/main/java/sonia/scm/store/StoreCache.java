@@ -0,0 +1,162 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package sonia.scm.store;
+
+import com.google.common.collect.ImmutableSet;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Cache for store instances and {@link JAXBContext}s of a file based store factory. Stores are shared by their type,
+ * name, repository, class loader, cache size and index names, the {@link JAXBContext} is shared by type. Stores with {@link
+ * javax.xml.bind.annotation.adapters.XmlAdapter}s are never shared, because the adapter instances belong to the
+ * caller.
+ *
+ * @since 2.41.0
+ */
+final class StoreCache {
+
+  private static final Logger LOG = LoggerFactory.getLogger(StoreCache.class);
+
+  private final StoreType storeType;
+
+  private final Map<Key, Object> stores = new ConcurrentHashMap<>();
+  private final Map<Class<?>, JAXBContext> contexts = new ConcurrentHashMap<>();
+
+  private final AtomicLong createdStores = new AtomicLong();
+  private final AtomicLong sharedStores = new AtomicLong();
+  private final AtomicLong createdContexts = new AtomicLong();
+
+  StoreCache(StoreType storeType) {
+    this.storeType = storeType;
+  }
+
+  void bindTo(MeterRegistry registry) {
+    FunctionCounter.builder("scm.store.open", createdStores, AtomicLong::get)
+      .description("Number of opened stores")
+      .tags("type", storeType.getValue(), "result", "created")
+      .register(registry);
+    FunctionCounter.builder("scm.store.open", sharedStores, AtomicLong::get)
+      .description("Number of opened stores")
+      .tags("type", storeType.getValue(), "result", "shared")
+      .register(registry);
+    FunctionCounter.builder("scm.store.context.created", createdContexts, AtomicLong::get)
+      .description("Number of created jaxb contexts")
+      .tags("type", storeType.getValue())
+      .register(registry);
+  }
+
+  @SuppressWarnings("unchecked")
+  <T, S> S get(TypedStoreParameters<T> parameters, Function<TypedStoreContext<T>, S> factory) {
+    if (!parameters.getAdapters().isEmpty()) {
+      LOG.trace("store {} uses adapters and could not be shared", parameters.getName());
+      return create(parameters, factory);
+    }
+    Key key = new Key(parameters);
+    Object store = stores.get(key);
+    if (store != null) {
+      sharedStores.incrementAndGet();
+      return (S) store;
+    }
+    return (S) stores.computeIfAbsent(key, k -> create(parameters, factory));
+  }
+
+  private <T, S> S create(TypedStoreParameters<T> parameters, Function<TypedStoreContext<T>, S> factory) {
+    createdStores.incrementAndGet();
+    return factory.apply(TypedStoreContext.of(context(parameters.getType()), parameters));
+  }
+
+  private JAXBContext context(Class<?> type) {
+    return contexts.computeIfAbsent(type, this::createContext);
+  }
+
+  private JAXBContext createContext(Class<?> type) {
+    LOG.debug("create jaxb context for {}", type);
+    try {
+      JAXBContext context = JAXBContext.newInstance(type);
+      createdContexts.incrementAndGet();
+      return context;
+    } catch (JAXBException e) {
+      throw new StoreException("failed to create context for store", e);
+    }
+  }
+
+  void evict(String repositoryId) {
+    LOG.debug("evict {} stores of repository {}", storeType.getValue(), repositoryId);
+    stores.keySet().removeIf(key -> repositoryId.equals(key.repositoryId));
+  }
+
+  private static final class Key {
+
+    private final Class<?> type;
+    private final String name;
+    private final String repositoryId;
+    private final ClassLoader classLoader;
+    private final int cacheSize;
+    private final Set<String> indexes;
+
+    private Key(TypedStoreParameters<?> parameters) {
+      this.type = parameters.getType();
+      this.name = parameters.getName();
+      this.repositoryId = parameters.getRepositoryId();
+      this.classLoader = parameters.getClassLoader().orElse(null);
+      this.cacheSize = parameters.getCacheSize();
+      this.indexes = ImmutableSet.copyOf(parameters.getIndexes().keySet());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      Key key = (Key) o;
+      return type.equals(key.type)
+        && name.equals(key.name)
+        && Objects.equals(repositoryId, key.repositoryId)
+        && Objects.equals(classLoader, key.classLoader)
+        && cacheSize == key.cacheSize
+        && indexes.equals(key.indexes);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(type, name, repositoryId, classLoader, cacheSize, indexes);
+    }
+  }
+}
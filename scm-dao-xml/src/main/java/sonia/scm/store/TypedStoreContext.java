@@ -52,6 +52,10 @@ final class TypedStoreContext<T> {
     }
   }
 
+  static <T> TypedStoreContext<T> of(JAXBContext jaxbContext, TypedStoreParameters<T> parameters) {
+    return new TypedStoreContext<>(jaxbContext, parameters);
+  }
+
   T unmarshall(File file) {
     AtomicReference<T> ref = new AtomicReference<>();
     withUnmarshaller(unmarshaller -> {
@@ -61,6 +65,10 @@ final class TypedStoreContext<T> {
     return ref.get();
   }
 
+  StoreIndexes<T> createIndexes() {
+    return new StoreIndexes<>(parameters.getIndexes());
+  }
+
   void marshal(Object object, File file) {
     withMarshaller(marshaller -> marshaller.marshal(object, file));
   }
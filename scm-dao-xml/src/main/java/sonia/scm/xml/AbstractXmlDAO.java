@@ -26,18 +26,33 @@ package sonia.scm.xml;
 
 //~--- non-JDK imports --------------------------------------------------------
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableList;
+import com.google.inject.Inject;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import sonia.scm.GenericDAO;
 import sonia.scm.ModelObject;
 import sonia.scm.store.ConfigurationStore;
-
-import java.util.Collection;
+import sonia.scm.store.JAXBConfigurationStore;
 
 //~--- JDK imports ------------------------------------------------------------
 
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
+ * Base class for daos which keep all items in a single xml database. Changes are applied to the database in memory
+ * and are written with a group commit: a change which arrives while another change is waiting to be written is
+ * written together with it. Callers of {@link #add(ModelObject)}, {@link #modify(ModelObject)} and
+ * {@link #delete(ModelObject)} return not before their change was written to the store.
+ * The time a write waits for concurrent changes can be configured with the system property
+ * {@value #GROUP_COMMIT_WINDOW_PROPERTY} (in milliseconds, {@code 0} disables waiting).
  *
  * @author Sebastian Sdorra
  *
@@ -51,6 +66,15 @@ public abstract class AbstractXmlDAO<I extends ModelObject,
   /** Field description */
   public static final String TYPE = "xml";
 
+  /**
+   * System property for the maximum time in milliseconds a write waits for concurrent changes.
+   *
+   * @since 2.41.0
+   */
+  public static final String GROUP_COMMIT_WINDOW_PROPERTY = "scm.xmlDao.groupCommitWindow";
+
+  private static final long DEFAULT_GROUP_COMMIT_WINDOW = 10;
+
   /**
    * the logger for XmlGroupDAO
    */
@@ -67,8 +91,22 @@ public abstract class AbstractXmlDAO<I extends ModelObject,
    * @param store
    */
   public AbstractXmlDAO(ConfigurationStore<T> store)
+  {
+    this(store, Long.getLong(GROUP_COMMIT_WINDOW_PROPERTY, DEFAULT_GROUP_COMMIT_WINDOW));
+  }
+
+  /**
+   * Constructs a dao with the given group commit window.
+   *
+   * @param store store for the database
+   * @param groupCommitWindow maximum time in milliseconds a write waits for concurrent changes
+   *
+   * @since 2.41.0
+   */
+  protected AbstractXmlDAO(ConfigurationStore<T> store, long groupCommitWindow)
   {
     this.store = store;
+    this.groupCommitWindow = TimeUnit.MILLISECONDS.toNanos(Math.max(0, groupCommitWindow));
     db = store.get();
 
     if (db == null)
@@ -112,11 +150,12 @@ public abstract class AbstractXmlDAO<I extends ModelObject,
       logger.trace("add item {} to xml backend", item.getId());
     }
 
-    synchronized (store)
-    {
-      db.add(clone(item));
-      storeDB();
-    }
+    apply(() -> {
+      I copy = clone(item);
+      I previous = db.get(copy.getId());
+      db.add(copy);
+      afterChange(previous, copy);
+    });
   }
 
   /**
@@ -164,11 +203,7 @@ public abstract class AbstractXmlDAO<I extends ModelObject,
       logger.trace("delete item {} from xml backend", item.getId());
     }
 
-    synchronized (store)
-    {
-      db.remove(item.getId());
-      storeDB();
-    }
+    apply(() -> afterChange(db.remove(item.getId()), null));
   }
 
   /**
@@ -187,12 +222,12 @@ public abstract class AbstractXmlDAO<I extends ModelObject,
       logger.trace("modify xml backend item {}", item.getId());
     }
 
-    synchronized (store)
-    {
-      db.remove(item.getId());
-      db.add(clone(item));
-      storeDB();
-    }
+    apply(() -> {
+      I previous = db.remove(item.getId());
+      I copy = clone(item);
+      db.add(copy);
+      afterChange(previous, copy);
+    });
   }
 
   //~--- get methods ----------------------------------------------------------
@@ -264,6 +299,199 @@ public abstract class AbstractXmlDAO<I extends ModelObject,
 
   //~--- methods --------------------------------------------------------------
 
+  /**
+   * Is called after an item of the in-memory database was added, modified or removed, while the database is still
+   * locked. Subclasses can override the method to maintain indexes. The default implementation does nothing.
+   *
+   * @param previous item before the change or {@code null}, if the item was added
+   * @param current item after the change or {@code null}, if the item was removed
+   *
+   * @since 2.41.0
+   */
+  protected void afterChange(I previous, I current)
+  {
+    // nothing to do by default
+  }
+
+  /**
+   * Applies the change to the in-memory database and blocks until it was written to the store.
+   *
+   * @param change change of the database
+   *
+   * @since 2.41.0
+   */
+  protected void apply(Runnable change)
+  {
+    long sequence;
+
+    pendingChanges.incrementAndGet();
+
+    try
+    {
+      synchronized (store)
+      {
+        change.run();
+        sequence = ++changeSequence;
+      }
+    }
+    finally
+    {
+      pendingChanges.decrementAndGet();
+    }
+
+    commit(sequence);
+  }
+
+  /**
+   * Blocks until the change with the given sequence number is written. The first waiting caller writes the changes
+   * of all callers, which have arrived until then.
+   */
+  private void commit(long sequence)
+  {
+    boolean interrupted = false;
+
+    synchronized (commitLock)
+    {
+      // wake up a writer which is waiting for this change
+      commitLock.notifyAll();
+
+      try
+      {
+        while (durableSequence < sequence)
+        {
+          if (collecting)
+          {
+            interrupted |= await(0);
+          }
+          else
+          {
+            interrupted |= writeChanges();
+          }
+        }
+      }
+      finally
+      {
+        if (interrupted)
+        {
+          Thread.currentThread().interrupt();
+        }
+      }
+    }
+  }
+
+  private boolean writeChanges()
+  {
+    boolean interrupted = false;
+
+    collecting = true;
+
+    try
+    {
+      long deadline = System.nanoTime() + groupCommitWindow;
+      long remaining = groupCommitWindow;
+
+      while (pendingChanges.get() > 0 && remaining > 0)
+      {
+        interrupted |= await(remaining);
+        remaining = deadline - System.nanoTime();
+      }
+    }
+    finally
+    {
+      collecting = false;
+    }
+
+    try
+    {
+      synchronized (store)
+      {
+        long sequence = changeSequence;
+        long changes = sequence - durableSequence;
+
+        storeDB();
+        durableSequence = sequence;
+        recordWrite(changes);
+      }
+    }
+    finally
+    {
+      // wake up the waiting callers, even if the write has failed,
+      // so that one of them can retry
+      commitLock.notifyAll();
+    }
+
+    return interrupted;
+  }
+
+  private boolean await(long nanos)
+  {
+    try
+    {
+      if (nanos > 0)
+      {
+        TimeUnit.NANOSECONDS.timedWait(commitLock, nanos);
+      }
+      else
+      {
+        commitLock.wait();
+      }
+
+      return false;
+    }
+    catch (InterruptedException ex)
+    {
+      return true;
+    }
+  }
+
+  private void recordWrite(long changes)
+  {
+    writes.incrementAndGet();
+    committedChanges.addAndGet(changes);
+
+    if (store instanceof JAXBConfigurationStore)
+    {
+      bytesWritten.addAndGet(((JAXBConfigurationStore<?>) store).getSize());
+    }
+
+    if (changesPerWrite != null)
+    {
+      changesPerWrite.record(changes);
+    }
+
+    logger.trace("wrote {} changes with a single write", changes);
+  }
+
+  @Inject(optional = true)
+  void bindMetrics(MeterRegistry registry)
+  {
+    String dao = getClass().getSimpleName();
+
+    FunctionCounter.builder("scm.dao.xml.writes", writes, AtomicLong::get)
+      .description("Number of xml database writes")
+      .tag("dao", dao)
+      .register(registry);
+    FunctionCounter.builder("scm.dao.xml.commits", committedChanges, AtomicLong::get)
+      .description("Number of changes written to the xml database")
+      .tag("dao", dao)
+      .register(registry);
+    FunctionCounter.builder("scm.dao.xml.bytes.written", bytesWritten, AtomicLong::get)
+      .description("Number of bytes written to the xml database")
+      .baseUnit("bytes")
+      .tag("dao", dao)
+      .register(registry);
+    changesPerWrite = DistributionSummary.builder("scm.dao.xml.commits.per.write")
+      .description("Number of changes written with a single write of the xml database")
+      .tag("dao", dao)
+      .register(registry);
+  }
+
+  @VisibleForTesting
+  long getWriteCount()
+  {
+    return writes.get();
+  }
+
   /**
    * Method description
    *
@@ -286,4 +514,29 @@ public abstract class AbstractXmlDAO<I extends ModelObject,
 
   /** Field description */
   protected T db;
+
+  /** lock and monitor for the group commit */
+  private final Object commitLock = new Object();
+
+  /** number of callers which are about to apply a change */
+  private final AtomicInteger pendingChanges = new AtomicInteger();
+
+  private final AtomicLong writes = new AtomicLong();
+
+  private final AtomicLong committedChanges = new AtomicLong();
+
+  private final AtomicLong bytesWritten = new AtomicLong();
+
+  private final long groupCommitWindow;
+
+  private DistributionSummary changesPerWrite;
+
+  /** sequence number of the last applied change, guarded by store */
+  private long changeSequence;
+
+  /** sequence number of the last written change, guarded by commitLock */
+  private long durableSequence;
+
+  /** true while a writer waits for concurrent changes, guarded by commitLock */
+  private boolean collecting;
 }
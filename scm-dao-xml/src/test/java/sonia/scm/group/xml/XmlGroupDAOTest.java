@@ -0,0 +1,103 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package sonia.scm.group.xml;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import sonia.scm.group.Group;
+import sonia.scm.store.InMemoryConfigurationStoreFactory;
+
+import java.util.Collection;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class XmlGroupDAOTest {
+
+  private InMemoryConfigurationStoreFactory storeFactory;
+  private XmlGroupDAO dao;
+
+  @BeforeEach
+  void setUpDao() {
+    storeFactory = InMemoryConfigurationStoreFactory.create();
+    dao = new XmlGroupDAO(storeFactory);
+  }
+
+  @Test
+  void shouldFindGroupsOfMember() {
+    dao.add(new Group("xml", "heartOfGold", "trillian", "zaphod"));
+    dao.add(new Group("xml", "g42", "dent", "prefect"));
+    dao.add(new Group("xml", "fjordsOfAfrican", "dent", "trillian"));
+
+    assertThat(names(dao.getGroupsForMember("trillian"))).containsOnly("heartOfGold", "fjordsOfAfrican");
+    assertThat(names(dao.getGroupsForMember("dent"))).containsOnly("g42", "fjordsOfAfrican");
+    assertThat(dao.getGroupsForMember("marvin")).isEmpty();
+  }
+
+  @Test
+  void shouldUpdateIndexOnModification() {
+    dao.add(new Group("xml", "heartOfGold", "trillian", "zaphod"));
+
+    dao.modify(new Group("xml", "heartOfGold", "zaphod", "marvin"));
+
+    assertThat(dao.getGroupsForMember("trillian")).isEmpty();
+    assertThat(names(dao.getGroupsForMember("marvin"))).containsOnly("heartOfGold");
+    assertThat(names(dao.getGroupsForMember("zaphod"))).containsOnly("heartOfGold");
+  }
+
+  @Test
+  void shouldUpdateIndexOnDeletion() {
+    Group heartOfGold = new Group("xml", "heartOfGold", "trillian");
+    dao.add(heartOfGold);
+    dao.add(new Group("xml", "fjordsOfAfrican", "trillian"));
+
+    dao.delete(heartOfGold);
+
+    assertThat(names(dao.getGroupsForMember("trillian"))).containsOnly("fjordsOfAfrican");
+  }
+
+  @Test
+  void shouldBuildIndexFromStoredGroups() {
+    dao.add(new Group("xml", "heartOfGold", "trillian"));
+
+    XmlGroupDAO reloaded = new XmlGroupDAO(storeFactory);
+
+    assertThat(names(reloaded.getGroupsForMember("trillian"))).containsOnly("heartOfGold");
+  }
+
+  @Test
+  void shouldNotExposeModificationsOfAddedGroups() {
+    Group heartOfGold = new Group("xml", "heartOfGold", "trillian");
+    dao.add(heartOfGold);
+
+    heartOfGold.add("dent");
+
+    assertThat(dao.getGroupsForMember("dent")).isEmpty();
+  }
+
+  private Collection<String> names(Collection<Group> groups) {
+    return groups.stream().map(Group::getName).collect(Collectors.toList());
+  }
+}
@@ -30,6 +30,7 @@ import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
@@ -42,13 +43,20 @@ import sonia.scm.repository.InitialRepositoryLocationResolver;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.time.Clock;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -66,6 +74,9 @@ class PathBasedRepositoryLocationResolverTest {
   @Mock
   private Clock clock;
 
+  @Mock
+  private ScheduledExecutorService flushExecutor;
+
   private final FileSystem fileSystem = new DefaultFileSystem();
 
   private Path basePath;
@@ -93,6 +104,7 @@ class PathBasedRepositoryLocationResolverTest {
   @Test
   void shouldPersistInitialDirectory() {
     resolver.forClass(Path.class).createLocation("newId");
+    resolver.flush();
 
     String content = getXmlFileContent();
 
@@ -106,6 +118,7 @@ class PathBasedRepositoryLocationResolverTest {
     when(clock.millis()).thenReturn(now);
 
     resolver.forClass(Path.class).createLocation("newId");
+    resolver.flush();
 
     assertThat(resolver.getCreationTime()).isEqualTo(CREATION_TIME);
 
@@ -119,6 +132,7 @@ class PathBasedRepositoryLocationResolverTest {
     when(clock.millis()).thenReturn(now);
 
     resolver.forClass(Path.class).createLocation("newId");
+    resolver.flush();
 
     assertThat(resolver.getCreationTime()).isEqualTo(CREATION_TIME);
     assertThat(resolver.getLastModified()).isEqualTo(now);
@@ -153,10 +167,27 @@ class PathBasedRepositoryLocationResolverTest {
     @Test
     void shouldRemoveFromFile() {
       resolverWithExistingData.remove("existingId_1");
+      resolverWithExistingData.flush();
 
       assertThat(getXmlFileContent()).doesNotContain("existingId_1");
     }
 
+    @Test
+    void shouldReplayRemovalFromJournal() {
+      resolverWithExistingData.remove("existingId_1");
+
+      Map<String, Path> foundRepositories = new HashMap<>();
+      createResolver().forClass(Path.class).forAllLocations(foundRepositories::put);
+
+      assertThat(foundRepositories).containsOnlyKeys("existingId_2");
+    }
+
+    @Test
+    void shouldCompactJournalOnStartup() {
+      assertThat(journalPath()).doesNotExist();
+      assertThat(getXmlFileContent()).contains("existingId_1", "existingId_2");
+    }
+
     @Test
     void shouldNotUpdateModificationDateForExistingDirectoryMapping() {
       long now = CREATION_TIME + 100;
@@ -178,15 +209,94 @@ class PathBasedRepositoryLocationResolverTest {
     }
   }
 
+  @Test
+  void shouldAppendNewLocationsToJournal() {
+    resolver.forClass(Path.class).createLocation("newId");
+
+    assertThat(storePath()).doesNotExist();
+    assertThat(content(journalPath())).contains("newId");
+  }
+
+  @Test
+  void shouldWriteModificationDateWithDelay() {
+    long now = CREATION_TIME + 100;
+    when(clock.millis()).thenReturn(now);
+
+    resolver.updateModificationDate();
+
+    assertThat(resolver.getLastModified()).isEqualTo(now);
+    assertThat(storePath()).doesNotExist();
+
+    ArgumentCaptor<Runnable> flush = ArgumentCaptor.forClass(Runnable.class);
+    verify(flushExecutor).schedule(flush.capture(), eq(PathBasedRepositoryLocationResolver.FLUSH_DELAY), eq(TimeUnit.MILLISECONDS));
+    flush.getValue().run();
+
+    assertThat(getXmlFileContent()).contains("last-modified=\"" + now + "\"");
+  }
+
+  @Test
+  void shouldScheduleOnlyOneFlushForMultipleModifications() {
+    resolver.updateModificationDate();
+    resolver.updateModificationDate();
+    resolver.updateModificationDate();
+
+    verify(flushExecutor).schedule(any(Runnable.class), anyLong(), any(TimeUnit.class));
+  }
+
+  @Test
+  void shouldWriteModificationDateOnClose() {
+    long now = CREATION_TIME + 100;
+    when(clock.millis()).thenReturn(now);
+    resolver.forClass(Path.class).createLocation("newId");
+    resolver.updateModificationDate();
+
+    resolver.close();
+
+    verify(flushExecutor).shutdownNow();
+    assertThat(journalPath()).doesNotExist();
+    assertThat(getXmlFileContent())
+      .contains("newId")
+      .contains("last-modified=\"" + now + "\"");
+  }
+
+  @Test
+  void shouldWriteInCurrentThreadIfExecutorIsShutDown() {
+    when(flushExecutor.schedule(any(Runnable.class), anyLong(), any(TimeUnit.class)))
+      .thenThrow(new RejectedExecutionException("shut down"));
+
+    resolver.updateModificationDate();
+
+    assertThat(storePath()).isRegularFile();
+  }
+
+  @Test
+  void shouldIgnoreIncompleteRecordAtTheEndOfTheJournal() throws IOException {
+    resolver.forClass(Path.class).createLocation("newId");
+    Files.write(journalPath(), "<repository id=\"brok".getBytes(Charsets.UTF_8), StandardOpenOption.APPEND);
+
+    Map<String, Path> foundRepositories = new HashMap<>();
+    createResolver().forClass(Path.class).forAllLocations(foundRepositories::put);
+
+    assertThat(foundRepositories).containsOnlyKeys("newId");
+  }
+
   private String getXmlFileContent() {
-    Path storePath = basePath.resolve("config").resolve("repository-paths.xml");
+    Path storePath = storePath();
 
     assertThat(storePath).isRegularFile();
     return content(storePath);
   }
 
+  private Path storePath() {
+    return basePath.resolve("config").resolve("repository-paths.xml");
+  }
+
+  private Path journalPath() {
+    return basePath.resolve("config").resolve("repository-paths.xml.journal");
+  }
+
   private PathBasedRepositoryLocationResolver createResolver() {
-    return new PathBasedRepositoryLocationResolver(contextProvider, initialRepositoryLocationResolver, fileSystem, clock);
+    return new PathBasedRepositoryLocationResolver(contextProvider, initialRepositoryLocationResolver, fileSystem, clock, flushExecutor);
   }
 
   private String content(Path storePath) {
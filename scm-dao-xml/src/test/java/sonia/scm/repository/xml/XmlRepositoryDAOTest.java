@@ -50,6 +50,7 @@ import java.io.IOException;
 import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
 import java.util.Collection;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
@@ -420,6 +421,112 @@ class XmlRepositoryDAOTest {
     }
   }
 
+  @Nested
+  class WithSnapshot {
+
+    private final MetadataStore metadataStore = new MetadataStore();
+
+    private Path basePath;
+    private MetadataSnapshot snapshot;
+
+    @BeforeEach
+    void createRepositories(@TempDir Path basePath) throws IOException {
+      this.basePath = basePath;
+      snapshot = new MetadataSnapshot(basePath.resolve(MetadataSnapshot.FILE_NAME));
+
+      for (int i = 0; i < 20; i++) {
+        writeMetadata(createRepository("repo" + i));
+      }
+      triggeredOnForAllLocations = consumer -> {
+        for (int i = 0; i < 20; i++) {
+          consumer.accept("repo" + i, basePath.resolve("repo" + i));
+        }
+      };
+    }
+
+    @Test
+    void shouldReadRepositoriesInParallel() {
+      XmlRepositoryDAO dao = new XmlRepositoryDAO(locationResolver, fileSystem, repositoryExportingCheck, 4, null);
+
+      assertThat(dao.getAll()).hasSize(20);
+      assertThat(dao.get("repo7").getNamespaceAndName()).isEqualTo(new NamespaceAndName("space", "repo7"));
+    }
+
+    @Test
+    void shouldWriteSnapshotAfterInitialRead() {
+      new XmlRepositoryDAO(locationResolver, fileSystem, repositoryExportingCheck, 4, snapshot);
+
+      assertThat(snapshot.read()).hasSize(20);
+    }
+
+    @Test
+    void shouldReadUnmodifiedRepositoriesFromSnapshot() throws IOException {
+      new XmlRepositoryDAO(locationResolver, fileSystem, repositoryExportingCheck, 4, snapshot);
+
+      // same size and modification time, but not parseable anymore
+      Path unmodified = basePath.resolve("repo3").resolve("metadata.xml");
+      long size = Files.size(unmodified);
+      FileTime lastModified = Files.getLastModifiedTime(unmodified);
+      Files.write(unmodified, new byte[(int) size]);
+      Files.setLastModifiedTime(unmodified, lastModified);
+
+      Repository modified = createRepository("repo5");
+      modified.setDescription("modified");
+      metadataStore.write(basePath.resolve("repo5"), modified);
+
+      XmlRepositoryDAO dao = new XmlRepositoryDAO(locationResolver, fileSystem, repositoryExportingCheck, 4, snapshot);
+
+      assertThat(dao.getAll()).hasSize(20);
+      assertThat(dao.get("repo3").getName()).isEqualTo("repo3");
+      assertThat(dao.get("repo5").getDescription()).isEqualTo("modified");
+    }
+
+    @Test
+    void shouldRestoreCompleteMetadataFromSnapshot() throws IOException {
+      Repository repository = createRepository("repo2");
+      repository.setContact("arthur@hitchhiker.com");
+      repository.setDescription("heart of gold");
+      repository.setPermissions(singletonList(new RepositoryPermission("trillian", asList("read", "pull"), false)));
+      writeMetadata(repository);
+      new XmlRepositoryDAO(locationResolver, fileSystem, repositoryExportingCheck, 4, snapshot);
+
+      Path metadataFile = basePath.resolve("repo2").resolve("metadata.xml");
+      FileTime lastModified = Files.getLastModifiedTime(metadataFile);
+      Files.write(metadataFile, new byte[(int) Files.size(metadataFile)]);
+      Files.setLastModifiedTime(metadataFile, lastModified);
+
+      Repository restored = new XmlRepositoryDAO(locationResolver, fileSystem, repositoryExportingCheck, 4, snapshot)
+        .get("repo2");
+
+      assertThat(restored.getContact()).isEqualTo("arthur@hitchhiker.com");
+      assertThat(restored.getDescription()).isEqualTo("heart of gold");
+      assertThat(restored.getPermissions()).containsExactly(
+        new RepositoryPermission("trillian", asList("read", "pull"), false)
+      );
+    }
+
+    @Test
+    void shouldUpdateSnapshotOnClose() {
+      XmlRepositoryDAO dao = new XmlRepositoryDAO(locationResolver, fileSystem, repositoryExportingCheck, 4, snapshot);
+
+      dao.delete(dao.get("repo1"));
+      dao.close();
+
+      assertThat(snapshot.read()).hasSize(19).doesNotContainKey("repo1");
+    }
+
+    private void writeMetadata(Repository repository) throws IOException {
+      Path repositoryPath = basePath.resolve(repository.getId());
+      Files.createDirectories(repositoryPath);
+      metadataStore.write(repositoryPath, repository);
+      // older files are not racy
+      Files.setLastModifiedTime(
+        repositoryPath.resolve("metadata.xml"),
+        FileTime.fromMillis(System.currentTimeMillis() - 60000L)
+      );
+    }
+  }
+
   private Repository createRepository(String id) {
     return new Repository(id, "xml", "space", id);
   }
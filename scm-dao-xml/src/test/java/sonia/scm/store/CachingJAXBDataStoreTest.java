@@ -0,0 +1,127 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package sonia.scm.store;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import sonia.scm.security.UUIDKeyGenerator;
+
+import java.io.File;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CachingJAXBDataStoreTest {
+
+  private TypedStoreContext<StoreObject> context;
+  private File directory;
+
+  private CachingJAXBDataStore<StoreObject> store;
+
+  @BeforeEach
+  @SuppressWarnings("unchecked")
+  void setUpStore(@TempDir Path tempDir) {
+    TypedStoreParameters<StoreObject> parameters = mock(TypedStoreParameters.class);
+    when(parameters.getType()).thenReturn(StoreObject.class);
+    context = TypedStoreContext.of(parameters);
+    directory = tempDir.toFile();
+    store = new CachingJAXBDataStore<>(new UUIDKeyGenerator(), context, directory, () -> false, 10);
+  }
+
+  @Test
+  void shouldReturnCachedEntry() {
+    store.put("one", new StoreObject("1"));
+    uncachedStore().put("two", new StoreObject("2"));
+    makeOld("two");
+
+    StoreObject first = store.get("two");
+    StoreObject second = store.get("two");
+
+    assertThat(first).isSameAs(second);
+    assertThat(store.get("one")).isSameAs(store.get("one"));
+  }
+
+  @Test
+  void shouldNotTrustRecentlyModifiedFiles() {
+    uncachedStore().put("one", new StoreObject("1"));
+
+    assertThat(store.get("one")).isNotSameAs(store.get("one"));
+  }
+
+  @Test
+  void shouldReturnWrittenEntry() {
+    StoreObject object = new StoreObject("1");
+    store.put("one", object);
+
+    assertThat(store.get("one")).isSameAs(object);
+  }
+
+  @Test
+  void shouldDetectModificationsFromOutside() {
+    store.put("one", new StoreObject("1"));
+
+    uncachedStore().put("one", new StoreObject("external"));
+
+    assertThat(store.get("one").getValue()).isEqualTo("external");
+  }
+
+  @Test
+  void shouldNotReturnRemovedEntry() {
+    store.put("one", new StoreObject("1"));
+    store.remove("one");
+
+    assertThat(store.get("one")).isNull();
+    assertThat(store.getAll()).isEmpty();
+  }
+
+  @Test
+  void shouldNotReturnEntryRemovedFromOutside() {
+    store.put("one", new StoreObject("1"));
+    uncachedStore().remove("one");
+
+    assertThat(store.get("one")).isNull();
+  }
+
+  @Test
+  void shouldDetectNewFilesForGetAll() {
+    store.put("one", new StoreObject("1"));
+    assertThat(store.getAll()).containsOnlyKeys("one");
+
+    uncachedStore().put("two", new StoreObject("2"));
+
+    assertThat(store.getAll()).containsOnlyKeys("one", "two");
+  }
+
+  private void makeOld(String id) {
+    assertThat(new File(directory, id + ".xml").setLastModified(System.currentTimeMillis() - 10000)).isTrue();
+  }
+
+  private JAXBDataStore<StoreObject> uncachedStore() {
+    return new JAXBDataStore<>(new UUIDKeyGenerator(), context, directory, () -> false);
+  }
+}
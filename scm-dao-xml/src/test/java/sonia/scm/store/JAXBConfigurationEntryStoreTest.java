@@ -39,8 +39,12 @@ import java.io.OutputStream;
 import java.net.URL;
 import java.util.UUID;
 
+import static java.util.Collections.singleton;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 //~--- JDK imports ------------------------------------------------------------
 
@@ -145,6 +149,50 @@ public class JAXBConfigurationEntryStoreTest
     assertEquals("abc_value", storeObject.getValue());
   }
 
+  @Test
+  public void shouldShareStoreInstances()
+  {
+    ConfigurationEntryStoreFactory factory = createConfigurationStoreFactory();
+
+    ConfigurationEntryStore<StoreObject> one = factory.withType(StoreObject.class).withName("shared").build();
+    ConfigurationEntryStore<StoreObject> two = factory.withType(StoreObject.class).withName("shared").build();
+
+    assertSame(one, two);
+  }
+
+  @Test
+  public void shouldReloadExternallyModifiedFile() throws IOException
+  {
+    String name = UUID.randomUUID().toString();
+    ConfigurationEntryStore<AssignedPermission> store = createPermissionStore(RESOURCE_FIXED, name);
+    store.put("a45", new AssignedPermission("tuser4", "repository:create"));
+
+    copy(RESOURCE_FIXED, name);
+
+    assertNull(store.get("a45"));
+    assertEquals("tuser", store.get("3ZOHKUePB3").getName());
+  }
+
+  @Test
+  public void shouldRebuildIndexOfExternallyModifiedFile() throws IOException
+  {
+    String name = UUID.randomUUID().toString();
+    copy(RESOURCE_FIXED, name);
+    ConfigurationEntryStore<AssignedPermission> store = createConfigurationStoreFactory()
+      .withType(AssignedPermission.class)
+      .withName(name)
+      .withIndex("name", AssignedPermission::getName)
+      .build();
+    store.put("a45", new AssignedPermission("tuser4", "repository:create"));
+
+    assertEquals(singleton("a45"), store.getByIndex("name", "tuser4").keySet());
+
+    copy(RESOURCE_FIXED, name);
+
+    assertTrue(store.getByIndex("name", "tuser4").isEmpty());
+    assertEquals(singleton("3ZOHKUePB3"), store.getByIndex("name", "tuser").keySet());
+  }
+
   /**
    * Method description
    *
@@ -26,13 +26,22 @@ package sonia.scm.store;
 
 //~--- non-JDK imports --------------------------------------------------------
 
+import com.google.common.collect.ImmutableSet;
 import org.junit.Test;
+import sonia.scm.HandlerEventType;
 import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryEvent;
 import sonia.scm.repository.RepositoryReadOnlyChecker;
 import sonia.scm.security.UUIDKeyGenerator;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.Collections.singleton;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -45,7 +54,7 @@ public class JAXBDataStoreTest extends DataStoreTestBase {
   private final RepositoryReadOnlyChecker readOnlyChecker = mock(RepositoryReadOnlyChecker.class);
 
   @Override
-  protected DataStoreFactory createDataStoreFactory()
+  protected JAXBDataStoreFactory createDataStoreFactory()
   {
     return new JAXBDataStoreFactory(contextProvider, repositoryLocationResolver, new UUIDKeyGenerator(), readOnlyChecker);
   }
@@ -83,4 +92,106 @@ public class JAXBDataStoreTest extends DataStoreTestBase {
     when(readOnlyChecker.isReadOnly(repository.getId())).thenReturn(true);
     getDataStore(StoreObject.class, repository).put("abc", new StoreObject("abc_value"));
   }
+
+  @Test
+  public void shouldShareStoreInstances()
+  {
+    JAXBDataStoreFactory factory = createDataStoreFactory();
+
+    DataStore<StoreObject> one = factory.withType(StoreObject.class).withName("test").forRepository(repository).build();
+    DataStore<StoreObject> two = factory.withType(StoreObject.class).withName("test").forRepository(repository).build();
+
+    assertSame(one, two);
+  }
+
+  @Test
+  public void shouldEvictStoresOfDeletedRepository()
+  {
+    JAXBDataStoreFactory factory = createDataStoreFactory();
+
+    DataStore<StoreObject> one = factory.withType(StoreObject.class).withName("test").forRepository(repository).build();
+    factory.onRepositoryEvent(new RepositoryEvent(HandlerEventType.DELETE, repository));
+    DataStore<StoreObject> two = factory.withType(StoreObject.class).withName("test").forRepository(repository).build();
+
+    assertNotSame(one, two);
+  }
+
+  @Test(expected = StoreReadOnlyException.class)
+  public void shouldNotStoreForRepositoryWhichBecameReadOnly()
+  {
+    JAXBDataStoreFactory factory = createDataStoreFactory();
+    DataStore<StoreObject> store = factory.withType(StoreObject.class).withName("test").forRepository(repository).build();
+
+    when(readOnlyChecker.isReadOnly(repository.getId())).thenReturn(true);
+    store.put("abc", new StoreObject("abc_value"));
+  }
+
+  @Test
+  public void shouldFindByIndex()
+  {
+    DataStore<StoreObject> store = createIndexedStore();
+    store.put("1", new StoreObject("trillian"));
+    store.put("2", new StoreObject("zaphod"));
+    store.put("3", new StoreObject("tricia"));
+
+    assertEquals(singleton("2"), store.getByIndex("value", "zaphod").keySet());
+    assertEquals(ImmutableSet.of("1", "3"), store.getByIndexPrefix("value", "tri").keySet());
+
+    store.remove("2");
+    store.put("3", new StoreObject("arthur"));
+
+    assertTrue(store.getByIndex("value", "zaphod").isEmpty());
+    assertEquals(singleton("1"), store.getByIndexPrefix("value", "tri").keySet());
+  }
+
+  @Test
+  public void shouldFindEntriesWrittenByOtherInstances()
+  {
+    DataStore<StoreObject> store = createIndexedStore();
+    store.put("1", new StoreObject("trillian"));
+    assertEquals(singleton("1"), store.getByIndex("value", "trillian").keySet());
+
+    createIndexedStore().put("2", new StoreObject("trillian"));
+
+    assertEquals(ImmutableSet.of("1", "2"), store.getByIndex("value", "trillian").keySet());
+  }
+
+  @Test
+  public void shouldNotRebuildIndexAfterOwnWrites()
+  {
+    AtomicInteger extracted = new AtomicInteger();
+    DataStore<StoreObject> store = createDataStoreFactory()
+      .withType(StoreObject.class)
+      .withName("counted")
+      .withIndex("value", item -> {
+        extracted.incrementAndGet();
+        return item.getValue();
+      })
+      .build();
+    store.put("1", new StoreObject("trillian"));
+    store.put("2", new StoreObject("zaphod"));
+    store.getByIndex("value", "zaphod");
+    extracted.set(0);
+
+    store.put("3", new StoreObject("arthur"));
+    store.remove("2");
+
+    assertEquals(singleton("3"), store.getByIndex("value", "arthur").keySet());
+    // one extraction for the put and one to verify the found entry
+    assertEquals(2, extracted.get());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldFailForUnknownIndex()
+  {
+    store.getByIndex("value", "trillian");
+  }
+
+  private DataStore<StoreObject> createIndexedStore() {
+    return createDataStoreFactory()
+      .withType(StoreObject.class)
+      .withName("indexed")
+      .withIndex("value", StoreObject::getValue)
+      .build();
+  }
 }
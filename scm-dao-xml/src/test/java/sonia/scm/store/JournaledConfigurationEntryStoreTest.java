@@ -0,0 +1,170 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package sonia.scm.store;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import sonia.scm.security.UUIDKeyGenerator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class JournaledConfigurationEntryStoreTest {
+
+  private final Executor directExecutor = Runnable::run;
+
+  private TypedStoreContext<StoreObject> context;
+  private File file;
+  private File journal;
+
+  @BeforeEach
+  @SuppressWarnings("unchecked")
+  void setUpContext(@TempDir Path tempDir) {
+    TypedStoreParameters<StoreObject> parameters = mock(TypedStoreParameters.class);
+    when(parameters.getType()).thenReturn(StoreObject.class);
+    context = TypedStoreContext.of(parameters);
+    file = tempDir.resolve("test.xml").toFile();
+    journal = ConfigEntryJournal.of(file);
+  }
+
+  @Test
+  void shouldAppendMutationsToJournal() {
+    JAXBConfigurationEntryStore<StoreObject> store = createStore(command -> {});
+
+    store.put("one", new StoreObject("1"));
+    store.put("two", new StoreObject("2"));
+    store.remove("one");
+
+    assertThat(file).doesNotExist();
+    assertThat(journal).exists();
+    assertThat(store.getAll()).containsOnlyKeys("two");
+  }
+
+  @Test
+  void shouldReplayJournalOnLoad() {
+    JAXBConfigurationEntryStore<StoreObject> store = createStore(command -> {});
+    store.put("one", new StoreObject("1"));
+    store.put("two", new StoreObject("2"));
+    store.put("two", new StoreObject("3"));
+    store.remove("one");
+
+    JAXBConfigurationEntryStore<StoreObject> reloaded = createStore(command -> {});
+
+    assertThat(reloaded.getAll()).containsOnlyKeys("two");
+    assertThat(reloaded.get("two").getValue()).isEqualTo("3");
+  }
+
+  @Test
+  void shouldCompactJournalOnLoad() {
+    createStore(command -> {}).put("one", new StoreObject("1"));
+
+    JAXBConfigurationEntryStore<StoreObject> plain = new JAXBConfigurationEntryStore<>(file, new UUIDKeyGenerator(), StoreObject.class, context);
+
+    assertThat(journal).doesNotExist();
+    assertThat(plain.get("one").getValue()).isEqualTo("1");
+  }
+
+  @Test
+  void shouldIgnoreIncompleteRecordAtTheEnd() throws IOException {
+    createStore(command -> {}).put("one", new StoreObject("1"));
+    Files.write(journal.toPath(), "<entry><key>two</key><val".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+    JAXBConfigurationEntryStore<StoreObject> reloaded = createStore(command -> {});
+
+    assertThat(reloaded.getAll()).containsOnlyKeys("one");
+  }
+
+  @Test
+  void shouldCompactJournalInTheBackground() {
+    JAXBConfigurationEntryStore<StoreObject> store = createStore(directExecutor);
+
+    for (int i = 0; i < 100; i++) {
+      store.put("key-" + i, new StoreObject("value of entry " + i));
+    }
+
+    assertThat(file).exists();
+    assertThat(journal.length()).isLessThan(Math.max(JAXBConfigurationEntryStore.MINIMUM_COMPACTION_SIZE, file.length()));
+    assertThat(new JAXBConfigurationEntryStore<>(file, new UUIDKeyGenerator(), StoreObject.class, context).getAll()).hasSize(100);
+  }
+
+  @Test
+  void shouldKeepEntriesWrittenDuringCompaction() throws InterruptedException {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    JAXBConfigurationEntryStore<StoreObject> store = createStore(executor);
+
+    for (int i = 0; i < 500; i++) {
+      store.put("key-" + i, new StoreObject("value of entry " + i));
+    }
+    executor.shutdown();
+    assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+    JAXBConfigurationEntryStore<StoreObject> reloaded = new JAXBConfigurationEntryStore<>(file, new UUIDKeyGenerator(), StoreObject.class, context);
+    assertThat(reloaded.getAll()).hasSize(500);
+    assertThat(reloaded.get("key-499").getValue()).isEqualTo("value of entry 499");
+  }
+
+  @Test
+  void shouldExportMergedState() throws IOException {
+    JAXBConfigurationEntryStore<StoreObject> store = createStore(command -> {});
+    store.put("one", new StoreObject("1"));
+    store.put("two", new StoreObject("2"));
+    store.compact();
+    store.put("two", new StoreObject("changed"));
+    store.remove("one");
+    store.put("three", new StoreObject("3"));
+
+    Exporter exporter = mock(Exporter.class);
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    when(exporter.put(anyString(), anyLong())).thenReturn(output);
+    new ExportableConfigEntryFileStore(file.toPath()).export(exporter);
+
+    Path exported = file.toPath().resolveSibling("exported.xml");
+    Files.write(exported, output.toByteArray());
+    JAXBConfigurationEntryStore<StoreObject> imported = new JAXBConfigurationEntryStore<>(exported.toFile(), new UUIDKeyGenerator(), StoreObject.class, context);
+
+    assertThat(imported.getAll()).containsOnlyKeys("two", "three");
+    assertThat(imported.get("two").getValue()).isEqualTo("changed");
+  }
+
+  private JAXBConfigurationEntryStore<StoreObject> createStore(Executor executor) {
+    return new JAXBConfigurationEntryStore<>(file, new UUIDKeyGenerator(), StoreObject.class, context, executor);
+  }
+}
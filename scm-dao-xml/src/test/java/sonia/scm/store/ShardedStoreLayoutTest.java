@@ -0,0 +1,160 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package sonia.scm.store;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import sonia.scm.security.UUIDKeyGenerator;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ShardedStoreLayoutTest {
+
+  private Path directory;
+
+  @BeforeEach
+  void setUpDirectory(@TempDir Path temp) {
+    directory = temp.resolve("store");
+  }
+
+  @Test
+  void shouldMarkNewStoreDirectory() {
+    ShardedStoreLayout.prepare(directory.toFile());
+
+    assertThat(ShardedStoreLayout.isSharded(directory.toFile())).isTrue();
+  }
+
+  @Test
+  void shouldNotMarkExistingFlatStore() throws IOException {
+    Files.createDirectories(directory);
+    Files.createFile(directory.resolve("a.blob"));
+
+    ShardedStoreLayout.prepare(directory.toFile());
+
+    assertThat(ShardedStoreLayout.isSharded(directory.toFile())).isFalse();
+  }
+
+  @Test
+  void shouldStoreEntriesInShards() {
+    ShardedStoreLayout.prepare(directory.toFile());
+    FileBlobStore store = new FileBlobStore(new UUIDKeyGenerator(), directory.toFile(), false);
+
+    store.create("a");
+    store.create("b");
+
+    Path entry = ShardedStoreLayout.resolve(directory.toFile(), "a.blob").toPath();
+    assertThat(entry).exists();
+    assertThat(directory.relativize(entry).getNameCount()).isEqualTo(3);
+    assertThat(store.getAll()).extracting(Blob::getId).containsExactlyInAnyOrder("a", "b");
+
+    store.remove("a");
+
+    assertThat(entry).doesNotExist();
+    assertThat(store.getAll()).extracting(Blob::getId).containsExactly("b");
+  }
+
+  @Test
+  void shouldUpdateModificationTimeOfShardedStore() {
+    ShardedStoreLayout.prepare(directory.toFile());
+    File marker = directory.resolve(ShardedStoreLayout.MARKER).toFile();
+    marker.setLastModified(42000L);
+    FileBlobStore store = new FileBlobStore(new UUIDKeyGenerator(), directory.toFile(), false);
+
+    store.create("a");
+
+    assertThat(ShardedStoreLayout.lastModified(directory.toFile(), true)).isNotEqualTo(42000L);
+  }
+
+  @Test
+  void shouldMigrateFlatStore() throws IOException {
+    Files.createDirectories(directory);
+    Files.write(directory.resolve("a.xml"), "a".getBytes());
+    Files.write(directory.resolve("b.xml"), "b".getBytes());
+
+    int moved = ShardedStoreLayout.migrate(directory);
+
+    assertThat(moved).isEqualTo(2);
+    assertThat(ShardedStoreLayout.isSharded(directory.toFile())).isTrue();
+    assertThat(directory.resolve("a.xml")).doesNotExist();
+    assertThat(ShardedStoreLayout.resolve(directory.toFile(), "a.xml")).hasContent("a");
+    assertThat(listFileNames(true)).containsExactlyInAnyOrder("a.xml", "b.xml");
+  }
+
+  @Test
+  void shouldContinueInterruptedMigration() throws IOException {
+    Files.createDirectories(directory);
+    Path moved = ShardedStoreLayout.resolve(directory.toFile(), "a.xml").toPath();
+    Files.createDirectories(moved.getParent());
+    Files.write(moved, "a".getBytes());
+    Files.write(directory.resolve("b.xml"), "b".getBytes());
+
+    assertThat(ShardedStoreLayout.migrate(directory)).isEqualTo(1);
+    assertThat(listFileNames(true)).containsExactlyInAnyOrder("a.xml", "b.xml");
+  }
+
+  @Test
+  void shouldNotMigrateShardedStoreAgain() throws IOException {
+    ShardedStoreLayout.prepare(directory.toFile());
+    Files.write(directory.resolve("unrelated.txt"), "x".getBytes());
+
+    assertThat(ShardedStoreLayout.migrate(directory)).isZero();
+    assertThat(directory.resolve("unrelated.txt")).exists();
+  }
+
+  @Test
+  void shouldNotListMarkerOfFlatStore() throws IOException {
+    Files.createDirectories(directory);
+    Files.createFile(directory.resolve("a.xml"));
+    Files.createFile(directory.resolve(ShardedStoreLayout.MARKER));
+
+    assertThat(listFileNames(false)).containsExactly("a.xml");
+  }
+
+  @Test
+  void shouldResolveEntryOfEitherLayout() throws IOException {
+    Files.createDirectories(directory);
+    assertThat(ShardedStoreLayout.resolveEntry(directory, "a.xml")).isEqualTo(directory.resolve("a.xml"));
+
+    ShardedStoreLayout.migrate(directory);
+    Path entry = ShardedStoreLayout.resolveEntry(directory, "a.xml");
+    assertThat(entry).isEqualTo(ShardedStoreLayout.resolve(directory.toFile(), "a.xml").toPath());
+    assertThat(entry.getParent()).isDirectory();
+  }
+
+  private List<String> listFileNames(boolean sharded) {
+    try (Stream<File> files = ShardedStoreLayout.files(directory.toFile(), sharded)) {
+      return files.map(File::getName).collect(Collectors.toList());
+    }
+  }
+}
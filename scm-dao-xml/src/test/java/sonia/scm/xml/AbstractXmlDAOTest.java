@@ -0,0 +1,175 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package sonia.scm.xml;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import sonia.scm.store.ConfigurationStore;
+import sonia.scm.user.User;
+import sonia.scm.user.xml.XmlUserDatabase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AbstractXmlDAOTest {
+
+  private final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+  @AfterEach
+  void shutdownExecutor() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  void shouldWriteEverySequentialChange() {
+    RecordingStore store = new RecordingStore(0);
+    UserDAO dao = new UserDAO(store, 1000);
+
+    dao.add(new User("trillian"));
+    dao.add(new User("zaphod"));
+    dao.delete(new User("trillian"));
+
+    assertThat(store.writes).hasSize(3);
+    assertThat(store.writes.get(2)).containsOnly("zaphod");
+    assertThat(dao.getWriteCount()).isEqualTo(3);
+  }
+
+  @Test
+  void shouldMergeConcurrentChanges() throws Exception {
+    RecordingStore store = new RecordingStore(20);
+    UserDAO dao = new UserDAO(store, 50);
+    CountDownLatch start = new CountDownLatch(1);
+
+    List<Future<Boolean>> results = new ArrayList<>();
+    for (int i = 0; i < 40; i++) {
+      String name = "user" + i;
+      results.add(executor.submit(() -> {
+        start.await();
+        dao.add(new User(name));
+        // the change has to be written, before add returns
+        return store.writes.stream().anyMatch(ids -> ids.contains(name));
+      }));
+    }
+    start.countDown();
+
+    for (Future<Boolean> result : results) {
+      assertThat(result.get(10, TimeUnit.SECONDS)).isTrue();
+    }
+    assertThat(store.writes.get(store.writes.size() - 1)).hasSize(40);
+    assertThat(store.writes).hasSizeLessThan(40);
+  }
+
+  @Test
+  void shouldRetryFailedWriteWithNextChange() {
+    RecordingStore store = new RecordingStore(0);
+    UserDAO dao = new UserDAO(store, 0);
+    store.failures.set(1);
+
+    User trillian = new User("trillian");
+    assertThatThrownBy(() -> dao.add(trillian)).isInstanceOf(IllegalStateException.class);
+
+    dao.add(new User("zaphod"));
+
+    assertThat(store.writes).hasSize(1);
+    assertThat(store.writes.get(0)).containsOnly("trillian", "zaphod");
+  }
+
+  @Test
+  void shouldExposeMetrics() {
+    RecordingStore store = new RecordingStore(0);
+    UserDAO dao = new UserDAO(store, 0);
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    dao.bindMetrics(registry);
+
+    dao.add(new User("trillian"));
+    dao.modify(new User("trillian"));
+
+    assertThat(registry.get("scm.dao.xml.writes").tag("dao", "UserDAO").functionCounter().count()).isEqualTo(2);
+    assertThat(registry.get("scm.dao.xml.commits").functionCounter().count()).isEqualTo(2);
+    assertThat(registry.get("scm.dao.xml.commits.per.write").summary().count()).isEqualTo(2);
+    assertThat(registry.get("scm.dao.xml.bytes.written").functionCounter().count()).isZero();
+  }
+
+  private static class RecordingStore implements ConfigurationStore<XmlUserDatabase> {
+
+    private final List<Set<String>> writes = new CopyOnWriteArrayList<>();
+    private final AtomicInteger failures = new AtomicInteger();
+    private final long delay;
+
+    RecordingStore(long delay) {
+      this.delay = delay;
+    }
+
+    @Override
+    public XmlUserDatabase get() {
+      return null;
+    }
+
+    @Override
+    public void set(XmlUserDatabase db) {
+      if (failures.getAndDecrement() > 0) {
+        throw new IllegalStateException("write failed");
+      }
+      if (delay > 0) {
+        try {
+          Thread.sleep(delay);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      writes.add(db.values().stream().map(User::getId).collect(Collectors.toSet()));
+    }
+  }
+
+  private static class UserDAO extends AbstractXmlDAO<User, XmlUserDatabase> {
+
+    UserDAO(ConfigurationStore<XmlUserDatabase> store, long groupCommitWindow) {
+      super(store, groupCommitWindow);
+    }
+
+    @Override
+    protected User clone(User item) {
+      return item.clone();
+    }
+
+    @Override
+    protected XmlUserDatabase createNewDatabase() {
+      return new XmlUserDatabase();
+    }
+  }
+}
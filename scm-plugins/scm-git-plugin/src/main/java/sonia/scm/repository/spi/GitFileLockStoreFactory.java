@@ -95,6 +95,7 @@ public final class GitFileLockStoreFactory {
           .withType(StoreEntry.class)
           .withName("file-locks")
           .forRepository(repository)
+          .withCache(1)
           .build();
     }
 
@@ -103,7 +104,7 @@ public final class GitFileLockStoreFactory {
     }
 
     public FileLock put(String file) {
-      StoreEntry storeEntry = readEntry();
+      StoreEntry storeEntry = readEntryForUpdate();
       Optional<FileLock> existingLock = storeEntry.get(file);
       if (existingLock.isPresent() && !existingLock.get().getUserId().equals(currentUser.get())) {
         throw createLockException(existingLock.get());
@@ -115,7 +116,7 @@ public final class GitFileLockStoreFactory {
     }
 
     public Optional<FileLock> remove(String file, boolean force) {
-      StoreEntry storeEntry = readEntry();
+      StoreEntry storeEntry = readEntryForUpdate();
       Optional<FileLock> existingFileLock = storeEntry.get(file);
       if (existingFileLock.isPresent()) {
         if (!force && !currentUser.get().equals(existingFileLock.get().getUserId())) {
@@ -156,6 +157,11 @@ public final class GitFileLockStoreFactory {
       return store.getOptional(STORE_ID).orElse(new StoreEntry());
     }
 
+    private StoreEntry readEntryForUpdate() {
+      // the store caches the entry, so we must not modify the shared instance
+      return readEntry().copy();
+    }
+
     private void store(StoreEntry storeEntry) {
       store.put(STORE_ID, storeEntry);
     }
@@ -226,6 +232,14 @@ public final class GitFileLockStoreFactory {
     boolean isEmpty() {
       return files == null || files.isEmpty();
     }
+
+    StoreEntry copy() {
+      StoreEntry copy = new StoreEntry();
+      if (files != null) {
+        copy.setFiles(new TreeMap<>(files));
+      }
+      return copy;
+    }
   }
 
   @Data
@@ -114,6 +114,12 @@ public class MapCache<K, V>
     return map.remove(key);
   }
 
+  @Override
+  public boolean replace(K key, V expected, V value)
+  {
+    return map.replace(key, expected, value);
+  }
+
   /**
    * Method description
    *
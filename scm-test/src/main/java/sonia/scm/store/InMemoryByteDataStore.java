@@ -33,12 +33,14 @@ import java.io.ByteArrayOutputStream;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.Function;
 
 public class InMemoryByteDataStore<T> implements DataStore<T> {
 
   private final Class<T> type;
   private final KeyGenerator generator = new UUIDKeyGenerator();
   private final Map<String, byte[]> store = new HashMap<>();
+  private final Map<String, Function<T, String>> indexes = new HashMap<>();
 
   InMemoryByteDataStore(Class<T> type) {
     this.type = type;
@@ -85,4 +87,29 @@ public class InMemoryByteDataStore<T> implements DataStore<T> {
     }
     return null;
   }
+
+  void addIndexes(Map<String, Function<T, String>> indexes) {
+    this.indexes.putAll(indexes);
+  }
+
+  @Override
+  public boolean supportsIndexes() {
+    return true;
+  }
+
+  @Override
+  public Map<String, T> getByIndex(String index, String value) {
+    return currentIndexes().find(index, value, this::get);
+  }
+
+  @Override
+  public Map<String, T> getByIndexPrefix(String index, String prefix) {
+    return currentIndexes().findByPrefix(index, prefix, this::get);
+  }
+
+  private StoreIndexes<T> currentIndexes() {
+    StoreIndexes<T> storeIndexes = new StoreIndexes<>(indexes);
+    storeIndexes.rebuild(getAll());
+    return storeIndexes;
+  }
 }
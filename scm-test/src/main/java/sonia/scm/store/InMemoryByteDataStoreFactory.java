@@ -42,6 +42,8 @@ public class InMemoryByteDataStoreFactory implements DataStoreFactory {
   @SuppressWarnings("unchecked")
   public <T> DataStore<T> getStore(TypedStoreParameters<T> storeParameters) {
     String name = storeParameters.getName();
-    return stores.computeIfAbsent(name, n -> new InMemoryByteDataStore<T>(storeParameters.getType()));
+    InMemoryByteDataStore<T> store = stores.computeIfAbsent(name, n -> new InMemoryByteDataStore<T>(storeParameters.getType()));
+    store.addIndexes(storeParameters.getIndexes());
+    return store;
   }
 }
@@ -30,12 +30,14 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
+import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 public class InMemoryConfigurationEntryStore<V> implements ConfigurationEntryStore<V> {
 
   private final Map<String, V> values = new HashMap<>();
+  private final Map<String, Function<V, String>> indexes = new HashMap<>();
 
   @Override
   public Collection<V> getMatchingValues(Predicate<V> predicate) {
@@ -73,4 +75,29 @@ public class InMemoryConfigurationEntryStore<V> implements ConfigurationEntrySto
   public V get(String id) {
     return values.get(id);
   }
+
+  void addIndexes(Map<String, Function<V, String>> indexes) {
+    this.indexes.putAll(indexes);
+  }
+
+  @Override
+  public boolean supportsIndexes() {
+    return true;
+  }
+
+  @Override
+  public Map<String, V> getByIndex(String index, String value) {
+    return currentIndexes().find(index, value, this::get);
+  }
+
+  @Override
+  public Map<String, V> getByIndexPrefix(String index, String prefix) {
+    return currentIndexes().findByPrefix(index, prefix, this::get);
+  }
+
+  private StoreIndexes<V> currentIndexes() {
+    StoreIndexes<V> storeIndexes = new StoreIndexes<>(indexes);
+    storeIndexes.rebuild(getAll());
+    return storeIndexes;
+  }
 }
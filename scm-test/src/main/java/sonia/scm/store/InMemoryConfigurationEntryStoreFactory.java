@@ -41,7 +41,9 @@ public class InMemoryConfigurationEntryStoreFactory implements ConfigurationEntr
     if (storeParameters.getRepositoryId() != null) {
       name = name + "-" + storeParameters.getRepositoryId();
     }
-    return get(name);
+    InMemoryConfigurationEntryStore<T> store = get(name);
+    store.addIndexes(storeParameters.getIndexes());
+    return store;
   }
 
   public <T> InMemoryConfigurationEntryStore<T> get(String name) {
@@ -30,6 +30,7 @@ import sonia.scm.security.UUIDKeyGenerator;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.Function;
 
 /**
  * In memory store implementation of {@link DataStore}.
@@ -44,6 +45,7 @@ public class InMemoryDataStore<T> implements DataStore<T> {
 
   private final Map<String, T> store = new HashMap<>();
   private KeyGenerator generator = new UUIDKeyGenerator();
+  private final Map<String, Function<T, String>> indexes = new HashMap<>();
 
   @Override
   public String put(T item) {
@@ -76,4 +78,29 @@ public class InMemoryDataStore<T> implements DataStore<T> {
   public T get(String id) {
     return store.get(id);
   }
+
+  void addIndexes(Map<String, Function<T, String>> indexes) {
+    this.indexes.putAll(indexes);
+  }
+
+  @Override
+  public boolean supportsIndexes() {
+    return true;
+  }
+
+  @Override
+  public Map<String, T> getByIndex(String index, String value) {
+    return currentIndexes().find(index, value, this::get);
+  }
+
+  @Override
+  public Map<String, T> getByIndexPrefix(String index, String prefix) {
+    return currentIndexes().findByPrefix(index, prefix, this::get);
+  }
+
+  private StoreIndexes<T> currentIndexes() {
+    StoreIndexes<T> storeIndexes = new StoreIndexes<>(indexes);
+    storeIndexes.rebuild(getAll());
+    return storeIndexes;
+  }
 }
@@ -45,9 +45,8 @@ public class InMemoryDataStoreFactory implements DataStoreFactory {
 
   @Override
   public <T> DataStore<T> getStore(TypedStoreParameters<T> storeParameters) {
-    if (store != null) {
-      return store;
-    }
-    return new InMemoryDataStore<>();
+    InMemoryDataStore<T> dataStore = store != null ? store : new InMemoryDataStore<>();
+    dataStore.addIndexes(storeParameters.getIndexes());
+    return dataStore;
   }
 }
@@ -0,0 +1,214 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package sonia.scm.api.v2.resources;
+
+import de.otto.edison.hal.HalRepresentation;
+import de.otto.edison.hal.Links;
+import io.swagger.v3.oas.annotations.OpenAPIDefinition;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.apache.shiro.SecurityUtils;
+import org.apache.shiro.subject.Subject;
+import sonia.scm.NotFoundException;
+import sonia.scm.cache.Cache;
+import sonia.scm.cache.CacheManager;
+import sonia.scm.cache.CacheStatistics;
+import sonia.scm.cache.RepositoryCache;
+import sonia.scm.web.VndMediaType;
+
+import javax.inject.Inject;
+import javax.ws.rs.DELETE;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.UriBuilder;
+import javax.ws.rs.core.UriInfo;
+import java.util.Comparator;
+import java.util.List;
+
+import static de.otto.edison.hal.Embedded.embeddedBuilder;
+import static de.otto.edison.hal.Link.link;
+import static java.util.stream.Collectors.toList;
+import static sonia.scm.ContextEntry.ContextBuilder.entity;
+
+/**
+ * Endpoint to inspect the statistics of the caches and to clear them.
+ * @since 2.41.0
+ */
+@OpenAPIDefinition(tags = {
+  @Tag(name = "Cache", description = "Statistics and management of caches")
+})
+@Path("v2/caches")
+public class CacheResource {
+
+  private static final String READ_PERMISSION = "cache:read";
+  private static final String CLEAR_PERMISSION = "cache:clear";
+
+  private final CacheManager cacheManager;
+
+  @Inject
+  public CacheResource(CacheManager cacheManager) {
+    this.cacheManager = cacheManager;
+  }
+
+  @GET
+  @Path("")
+  @Produces(VndMediaType.CACHE_COLLECTION)
+  @Operation(summary = "List of caches", description = "Returns the statistics of all caches.", tags = "Cache")
+  @ApiResponse(
+    responseCode = "200",
+    description = "success",
+    content = @Content(
+      mediaType = VndMediaType.CACHE_COLLECTION,
+      schema = @Schema(implementation = HalRepresentation.class)
+    )
+  )
+  @ApiResponse(responseCode = "401", description = "not authenticated / invalid credentials")
+  @ApiResponse(responseCode = "403", description = "not authorized, the current user does not have the \"cache:read\" privilege")
+  @ApiResponse(
+    responseCode = "500",
+    description = "internal server error",
+    content = @Content(
+      mediaType = VndMediaType.ERROR_TYPE,
+      schema = @Schema(implementation = ErrorDto.class)
+    ))
+  public HalRepresentation getAll(@Context UriInfo uriInfo) {
+    SecurityUtils.getSubject().checkPermission(READ_PERMISSION);
+
+    List<CacheDto> caches = cacheManager.getCaches().entrySet()
+      .stream()
+      .map(entry -> map(entry.getKey(), entry.getValue(), uriInfo))
+      .sorted(Comparator.comparing(CacheDto::getName))
+      .collect(toList());
+
+    return new HalRepresentation(
+      Links.linkingTo().self(uriInfo.getAbsolutePath().toASCIIString()).build(),
+      embeddedBuilder().with("caches", caches).build()
+    );
+  }
+
+  @GET
+  @Path("{name}")
+  @Produces(VndMediaType.CACHE)
+  @Operation(summary = "Get single cache", description = "Returns the statistics of a single cache.", tags = "Cache")
+  @ApiResponse(
+    responseCode = "200",
+    description = "success",
+    content = @Content(
+      mediaType = VndMediaType.CACHE,
+      schema = @Schema(implementation = CacheDto.class)
+    )
+  )
+  @ApiResponse(responseCode = "401", description = "not authenticated / invalid credentials")
+  @ApiResponse(responseCode = "403", description = "not authorized, the current user does not have the \"cache:read\" privilege")
+  @ApiResponse(responseCode = "404", description = "not found, no cache with the specified name available")
+  @ApiResponse(
+    responseCode = "500",
+    description = "internal server error",
+    content = @Content(
+      mediaType = VndMediaType.ERROR_TYPE,
+      schema = @Schema(implementation = ErrorDto.class)
+    ))
+  public CacheDto get(@Context UriInfo uriInfo, @PathParam("name") String name) {
+    SecurityUtils.getSubject().checkPermission(READ_PERMISSION);
+    return map(name, getCache(name), uriInfo);
+  }
+
+  @DELETE
+  @Path("{name}")
+  @Operation(
+    summary = "Clear cache",
+    description = "Removes all elements from the cache or only the elements of a repository, if a repository id is given.",
+    tags = "Cache"
+  )
+  @ApiResponse(responseCode = "204", description = "cleared")
+  @ApiResponse(responseCode = "401", description = "not authenticated / invalid credentials")
+  @ApiResponse(responseCode = "403", description = "not authorized, the current user does not have the \"cache:clear\" privilege")
+  @ApiResponse(responseCode = "404", description = "not found, no cache with the specified name available or the cache does not support the removal of repositories")
+  @ApiResponse(
+    responseCode = "500",
+    description = "internal server error",
+    content = @Content(
+      mediaType = VndMediaType.ERROR_TYPE,
+      schema = @Schema(implementation = ErrorDto.class)
+    ))
+  public void clear(
+    @PathParam("name") String name,
+    @Parameter(description = "id of the repository, whose elements should be removed") @QueryParam("repository") String repositoryId
+  ) {
+    SecurityUtils.getSubject().checkPermission(CLEAR_PERMISSION);
+
+    Cache<?, ?> cache = getCache(name);
+    if (repositoryId == null) {
+      cache.clear();
+    } else if (cache instanceof RepositoryCache) {
+      ((RepositoryCache<?, ?>) cache).clearRepository(repositoryId);
+    } else {
+      throw NotFoundException.notFound(entity(RepositoryCache.class, name));
+    }
+  }
+
+  private Cache<?, ?> getCache(String name) {
+    Cache<?, ?> cache = cacheManager.getCaches().get(name);
+    if (cache == null) {
+      throw new NotFoundException(Cache.class, name);
+    }
+    return cache;
+  }
+
+  private CacheDto map(String name, Cache<?, ?> cache, UriInfo uriInfo) {
+    CacheStatistics statistics = cache.getStatistics();
+    String self = UriBuilder.fromUri(uriInfo.getBaseUri()).path(CacheResource.class).path(CacheResource.class, "get")
+      .build(name).toASCIIString();
+
+    Links.Builder links = Links.linkingTo().self(self);
+    Subject subject = SecurityUtils.getSubject();
+    if (subject.isPermitted(CLEAR_PERMISSION)) {
+      links.single(link("clear", self));
+    }
+
+    CacheDto dto = new CacheDto(links.build());
+    dto.setName(name);
+    dto.setRepositoryCache(cache instanceof RepositoryCache);
+    if (statistics != null) {
+      dto.setSize(statistics.getSize());
+      dto.setHitCount(statistics.getHitCount());
+      dto.setMissCount(statistics.getMissCount());
+      dto.setHitRate(statistics.getHitRate());
+      dto.setEvictionCount(statistics.getEvictionCount());
+      dto.setLoadCount(statistics.getLoadCount());
+      dto.setTotalLoadTime(statistics.getTotalLoadTime());
+      dto.setEstimatedMemory(statistics.getEstimatedMemory());
+    }
+    return dto;
+  }
+}
@@ -77,7 +77,7 @@ public enum CopyStrategy
   }
 
   /**
-   * Method description
+   * Returns a deep copy of the object, if the strategy copies on read. {@link Immutable} objects are never copied.
    *
    *
    * @param object
@@ -87,13 +87,13 @@ public enum CopyStrategy
    */
   public <T> T copyOnRead(T object)
   {
-    return copyOnRead
+    return copyOnRead && !(object instanceof Immutable)
       ? deepCopy(object)
       : object;
   }
 
   /**
-   * Method description
+   * Returns a deep copy of the object, if the strategy copies on write. {@link Immutable} objects are never copied.
    *
    *
    * @param object
@@ -103,7 +103,7 @@ public enum CopyStrategy
    */
   public <T> T copyOnWrite(T object)
   {
-    return copyOnWrite
+    return copyOnWrite && !(object instanceof Immutable)
       ? deepCopy(object)
       : object;
   }
@@ -0,0 +1,729 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package sonia.scm.cache;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Predicate;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sonia.scm.io.ScmObjectInputStream;
+import sonia.scm.util.IOUtil;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Second level tier of a cache, which stores serialized elements in files of the local file system, so that they
+ * survive a restart. The elements are appended to segment files. The store is limited by its size on disk: if the
+ * maximum size is exceeded, the oldest segment is removed with all of its elements. Removals are appended as
+ * tombstones.
+ * <p>
+ * The store is loaded lazily on its first use. The index of the elements is rebuilt from the segment files, which are
+ * mapped into memory for reading. Elements of repositories which no longer exist are dropped when they are read.
+ * <p>
+ * All modifications are executed in order by a background writer, so that requests never wait for the serialization
+ * and the disk. New elements are dropped, if the writer falls behind. Removals wait until they are applied. Reads share
+ * a lock and are only blocked, while the writer modifies the index. The index keeps the elements of each repository,
+ * so that a repository is cleared without reading any key.
+ *
+ * @since 2.41.0
+ */
+final class DiskCacheStore implements Closeable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(DiskCacheStore.class);
+
+  private static final byte PUT = 1;
+  private static final byte REMOVE = 2;
+  private static final byte CLEAR_REPOSITORY = 3;
+
+  private static final int HASH_LENGTH = 16;
+
+  private static final String SEGMENT_PREFIX = "segment-";
+  private static final String SEGMENT_SUFFIX = ".dat";
+
+  /**
+   * the maximum size is divided into this number of segments
+   */
+  private static final int SEGMENTS = 8;
+  private static final long MAX_SEGMENT_SIZE = 256L * 1024 * 1024;
+
+  /**
+   * maximum number of elements waiting for the writer, further elements are not stored
+   */
+  private static final int MAX_PENDING_PUTS = 1024;
+
+  private static final ObjectInputFilter FILTER = ObjectInputFilter.Config.createFilter(
+    "sonia.scm.**;com.cloudogu.**;java.lang.*;java.util.*;java.time.*;com.google.common.collect.*;!*"
+  );
+
+  private final Path directory;
+  private final long maximumSize;
+  private final long segmentSize;
+  private final Predicate<String> repositoryExists;
+
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private final ExecutorService writer;
+  private final AtomicInteger pendingPuts = new AtomicInteger();
+
+  // guarded by lock
+  private final Map<HashCode, Entry> index = new HashMap<>();
+  private final Map<String, Set<HashCode>> byRepository = new HashMap<>();
+  private final Deque<Segment> segments = new ArrayDeque<>();
+
+  private volatile boolean loaded = false;
+  private boolean closed = false;
+
+  /**
+   * Creates a new store.
+   *
+   * @param directory directory for the segment files
+   * @param maximumSize maximum size of all segment files in bytes
+   * @param repositoryExists returns {@code true}, if the repository with the given id exists
+   */
+  DiskCacheStore(Path directory, long maximumSize, Predicate<String> repositoryExists) {
+    this.directory = directory;
+    this.maximumSize = maximumSize;
+    this.segmentSize = Math.min(Math.max(maximumSize / SEGMENTS, 1024), MAX_SEGMENT_SIZE);
+    this.repositoryExists = repositoryExists;
+    this.writer = Executors.newSingleThreadExecutor(
+      new ThreadFactoryBuilder()
+        .setNameFormat("DiskCacheStoreWriter-" + directory.getFileName())
+        .setDaemon(true)
+        .build()
+    );
+  }
+
+  /**
+   * Returns the stored element for the key or {@code null}.
+   *
+   * @param key key of the element
+   * @param repositoryId id of the repository of the element
+   *
+   * @return stored element or {@code null}
+   */
+  Object get(Serializable key, String repositoryId) {
+    byte[] keyBytes = serialize(key);
+    if (keyBytes == null || !ensureLoaded()) {
+      return null;
+    }
+
+    byte[] value;
+    lock.readLock().lock();
+    try {
+      Entry entry = index.get(hash(keyBytes));
+      if (entry == null) {
+        return null;
+      }
+      if (!repositoryExists.apply(entry.repositoryId)) {
+        LOG.debug("repository {} of stored element does not exist anymore", entry.repositoryId);
+        execute(() -> clearRepositoryNow(entry.repositoryId));
+        return null;
+      }
+      value = entry.read(keyBytes);
+    } finally {
+      lock.readLock().unlock();
+    }
+
+    if (value == null) {
+      return null;
+    }
+    return deserialize(value);
+  }
+
+  /**
+   * Stores the element in the background. The element is not stored, if too many elements are waiting to be stored.
+   * The element must not be modified afterwards.
+   *
+   * @param key key of the element
+   * @param repositoryId id of the repository of the element
+   * @param value element to store
+   */
+  void put(Serializable key, String repositoryId, Serializable value) {
+    if (pendingPuts.incrementAndGet() > MAX_PENDING_PUTS) {
+      pendingPuts.decrementAndGet();
+      LOG.trace("too many pending elements for cache store {}, element is not stored", directory);
+      return;
+    }
+    boolean submitted = execute(() -> {
+      pendingPuts.decrementAndGet();
+      putNow(key, repositoryId, value);
+    });
+    if (!submitted) {
+      pendingPuts.decrementAndGet();
+    }
+  }
+
+  private void putNow(Serializable key, String repositoryId, Serializable value) {
+    byte[] keyBytes = serialize(key);
+    byte[] valueBytes = serialize(value);
+    if (keyBytes == null || valueBytes == null) {
+      return;
+    }
+
+    ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    try (DataOutputStream output = new DataOutputStream(buffer)) {
+      output.writeByte(PUT);
+      output.writeUTF(repositoryId);
+      output.write(hash(keyBytes).asBytes());
+      output.writeInt(keyBytes.length);
+      output.write(keyBytes);
+      output.writeInt(valueBytes.length);
+      output.write(valueBytes);
+    } catch (IOException ex) {
+      throw new CacheException("could not create record", ex);
+    }
+
+    withWriteLock(() -> append(buffer.toByteArray()));
+  }
+
+  /**
+   * Removes the element with the given key and waits until the removal is applied.
+   *
+   * @param key key of the element
+   */
+  void remove(Serializable key) {
+    byte[] keyBytes = serialize(key);
+    if (keyBytes != null) {
+      HashCode hash = hash(keyBytes);
+      await(() -> withWriteLock(() -> {
+        if (index.containsKey(hash)) {
+          byte[] record = new byte[1 + HASH_LENGTH];
+          record[0] = REMOVE;
+          System.arraycopy(hash.asBytes(), 0, record, 1, HASH_LENGTH);
+          append(record);
+        }
+      }));
+    }
+  }
+
+  /**
+   * Removes all elements of the given repository and waits until the removal is applied.
+   *
+   * @param repositoryId id of the repository
+   */
+  void clearRepository(String repositoryId) {
+    await(() -> clearRepositoryNow(repositoryId));
+  }
+
+  private void clearRepositoryNow(String repositoryId) {
+    withWriteLock(() -> {
+      if (byRepository.containsKey(repositoryId)) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(buffer)) {
+          output.writeByte(CLEAR_REPOSITORY);
+          output.writeUTF(repositoryId);
+        } catch (IOException ex) {
+          throw new CacheException("could not create record", ex);
+        }
+        append(buffer.toByteArray());
+      }
+    });
+  }
+
+  /**
+   * Removes all elements by deleting the segment files and waits until they are deleted.
+   */
+  void clear() {
+    await(() -> withWriteLock(this::clearNow));
+  }
+
+  private void clearNow() {
+    if (closed) {
+      return;
+    }
+    while (!segments.isEmpty()) {
+      segments.removeFirst().delete();
+    }
+    index.clear();
+    byRepository.clear();
+    loaded = true;
+  }
+
+  /**
+   * Returns the number of stored elements.
+   *
+   * @return number of elements
+   */
+  int size() {
+    if (!ensureLoaded()) {
+      return 0;
+    }
+    lock.readLock().lock();
+    try {
+      return index.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @VisibleForTesting
+  long getSizeOnDisk() {
+    lock.readLock().lock();
+    try {
+      return segments.stream().mapToLong(segment -> segment.length).sum();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Waits until all modifications, which were requested before, are applied.
+   */
+  @VisibleForTesting
+  void flush() {
+    await(() -> {});
+  }
+
+  /**
+   * Writes the pending elements and closes the segment files.
+   */
+  @Override
+  public void close() {
+    writer.shutdown();
+    try {
+      if (!writer.awaitTermination(10, TimeUnit.SECONDS)) {
+        LOG.warn("pending elements of cache store {} were not written in time", directory);
+        writer.shutdownNow();
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+    lock.writeLock().lock();
+    try {
+      closed = true;
+      segments.forEach(Segment::close);
+      segments.clear();
+      index.clear();
+      byRepository.clear();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private boolean execute(Runnable task) {
+    try {
+      writer.execute(task);
+      return true;
+    } catch (RejectedExecutionException ex) {
+      LOG.trace("cache store {} is closed", directory);
+      return false;
+    }
+  }
+
+  private void await(Runnable task) {
+    Future<?> future;
+    try {
+      future = writer.submit(task);
+    } catch (RejectedExecutionException ex) {
+      LOG.trace("cache store {} is closed", directory);
+      return;
+    }
+    try {
+      future.get();
+    } catch (ExecutionException ex) {
+      throw new CacheException("could not modify cache store " + directory, ex.getCause());
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new CacheException("interrupted while modifying cache store " + directory, ex);
+    }
+  }
+
+  private void withWriteLock(Runnable task) {
+    if (!ensureLoaded()) {
+      return;
+    }
+    lock.writeLock().lock();
+    try {
+      if (!closed) {
+        task.run();
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private boolean ensureLoaded() {
+    if (!loaded) {
+      lock.writeLock().lock();
+      try {
+        if (!loaded && !closed) {
+          loaded = true;
+          try {
+            load();
+          } catch (IOException ex) {
+            LOG.warn("could not load cache store {}, clearing store", directory, ex);
+            clearNow();
+          }
+        }
+      } finally {
+        lock.writeLock().unlock();
+      }
+    }
+    return !closed;
+  }
+
+  private void load() throws IOException {
+    Files.createDirectories(directory);
+    try (Stream<Path> files = Files.list(directory)) {
+      for (Path file : files.filter(DiskCacheStore::isSegment).sorted(DiskCacheStore::compareSegments).collect(toList())) {
+        Segment segment = new Segment(file);
+        segments.add(segment);
+        segment.replay();
+      }
+    }
+    segments.stream().filter(segment -> segment != segments.peekLast()).forEach(Segment::seal);
+    LOG.debug("loaded {} elements from cache store {}", index.size(), directory);
+  }
+
+  private void append(byte[] record) {
+    try {
+      Segment segment = segments.peekLast();
+      if (segment == null || segment.length >= segmentSize) {
+        segment = newSegment();
+      }
+      segment.append(record);
+      evict();
+    } catch (IOException ex) {
+      LOG.warn("could not write to cache store {}, clearing store", directory, ex);
+      clearNow();
+    }
+  }
+
+  private Segment newSegment() throws IOException {
+    Segment last = segments.peekLast();
+    long id = last != null ? last.id + 1 : 0;
+    if (last != null) {
+      last.seal();
+    }
+    Segment segment = new Segment(directory.resolve(SEGMENT_PREFIX + id + SEGMENT_SUFFIX));
+    segments.add(segment);
+    return segment;
+  }
+
+  private void evict() {
+    while (segments.size() > 1 && segments.stream().mapToLong(segment -> segment.length).sum() > maximumSize) {
+      Segment oldest = segments.removeFirst();
+      LOG.trace("evict segment {} of cache store {}", oldest.id, directory);
+      index.entrySet().removeIf(e -> {
+        if (e.getValue().segment == oldest) {
+          unindexRepository(e.getValue().repositoryId, e.getKey());
+          return true;
+        }
+        return false;
+      });
+      oldest.delete();
+    }
+  }
+
+  private void indexEntry(HashCode hash, Entry entry) {
+    Entry previous = index.put(hash, entry);
+    if (previous != null) {
+      unindexRepository(previous.repositoryId, hash);
+    }
+    byRepository.computeIfAbsent(entry.repositoryId, id -> new HashSet<>()).add(hash);
+  }
+
+  private void unindexEntry(HashCode hash) {
+    Entry entry = index.remove(hash);
+    if (entry != null) {
+      unindexRepository(entry.repositoryId, hash);
+    }
+  }
+
+  private void unindexRepository(String repositoryId, HashCode hash) {
+    Set<HashCode> hashes = byRepository.get(repositoryId);
+    if (hashes != null) {
+      hashes.remove(hash);
+      if (hashes.isEmpty()) {
+        byRepository.remove(repositoryId);
+      }
+    }
+  }
+
+  private void clearRepositoryIndex(String repositoryId) {
+    Set<HashCode> hashes = byRepository.remove(repositoryId);
+    if (hashes != null) {
+      hashes.forEach(index::remove);
+    }
+  }
+
+  private static HashCode hash(byte[] keyBytes) {
+    return Hashing.murmur3_128().hashBytes(keyBytes);
+  }
+
+  private static byte[] serialize(Object object) {
+    ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    try (ObjectOutputStream output = new ObjectOutputStream(buffer)) {
+      output.writeObject(object);
+    } catch (IOException ex) {
+      LOG.debug("could not serialize {}, element is not stored", object.getClass(), ex);
+      return null;
+    }
+    return buffer.toByteArray();
+  }
+
+  private static Object deserialize(byte[] bytes) {
+    try (ObjectInputStream input = new ScmObjectInputStream(new ByteArrayInputStream(bytes))) {
+      input.setObjectInputFilter(FILTER);
+      return input.readObject();
+    } catch (IOException | ClassNotFoundException ex) {
+      LOG.debug("could not deserialize stored element", ex);
+      return null;
+    }
+  }
+
+  private static boolean isSegment(Path path) {
+    String name = path.getFileName().toString();
+    return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+  }
+
+  private static long segmentId(Path path) {
+    String name = path.getFileName().toString();
+    try {
+      return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    } catch (NumberFormatException ex) {
+      return -1;
+    }
+  }
+
+  private static int compareSegments(Path left, Path right) {
+    return Long.compare(segmentId(left), segmentId(right));
+  }
+
+  /**
+   * File of appended records. Each record is stored with its length and checksum, so that a record which was only
+   * written partially, because the process was killed, is detected and cut off on replay.
+   */
+  private final class Segment {
+
+    private final long id;
+    private final Path file;
+    private final FileChannel channel;
+    private long length;
+    private MappedByteBuffer mapped;
+
+    private Segment(Path file) throws IOException {
+      this.id = segmentId(file);
+      this.file = file;
+      this.channel = FileChannel.open(
+        file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE
+      );
+      this.length = channel.size();
+    }
+
+    private void append(byte[] record) throws IOException {
+      CRC32 crc = new CRC32();
+      crc.update(record);
+
+      ByteBuffer buffer = ByteBuffer.allocate(record.length + 12);
+      buffer.putInt(record.length);
+      buffer.put(record);
+      buffer.putLong(crc.getValue());
+      buffer.flip();
+
+      long position = length;
+      while (buffer.hasRemaining()) {
+        position += channel.write(buffer, position);
+      }
+      apply(ByteBuffer.wrap(record), this.length + 4);
+      length = position;
+    }
+
+    private void replay() throws IOException {
+      ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+      long position = 0;
+      while (position + 4 <= length) {
+        int recordLength = buffer.getInt((int) position);
+        if (recordLength <= 0 || position + 12 + recordLength > length) {
+          break;
+        }
+        byte[] record = new byte[recordLength];
+        buffer.position((int) position + 4);
+        buffer.get(record);
+        CRC32 crc = new CRC32();
+        crc.update(record);
+        if (crc.getValue() != buffer.getLong()) {
+          break;
+        }
+        apply(ByteBuffer.wrap(record), position + 4);
+        position += 12 + recordLength;
+      }
+      if (position < length) {
+        LOG.warn("cut off incomplete record at position {} of cache segment {}", position, file);
+        channel.truncate(position);
+        length = position;
+      }
+    }
+
+    private void apply(ByteBuffer record, long offset) {
+      byte type = record.get();
+      if (type == PUT) {
+        String repositoryId = readUTF(record);
+        HashCode hash = readHash(record);
+        int keyLength = record.getInt();
+        long keyOffset = offset + record.position();
+        record.position(record.position() + keyLength);
+        int valueLength = record.getInt();
+        long valueOffset = offset + record.position();
+        indexEntry(hash, new Entry(this, repositoryId, keyOffset, keyLength, valueOffset, valueLength));
+      } else if (type == REMOVE) {
+        unindexEntry(readHash(record));
+      } else if (type == CLEAR_REPOSITORY) {
+        clearRepositoryIndex(readUTF(record));
+      } else {
+        LOG.warn("unknown record type {} in cache segment {}", type, file);
+      }
+    }
+
+    private byte[] read(long offset, int length) throws IOException {
+      byte[] bytes = new byte[length];
+      if (mapped != null) {
+        ByteBuffer buffer = mapped.duplicate();
+        buffer.position((int) offset);
+        buffer.get(bytes);
+      } else {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        long position = offset;
+        while (buffer.hasRemaining()) {
+          int read = channel.read(buffer, position);
+          if (read < 0) {
+            throw new IOException("unexpected end of cache segment " + file);
+          }
+          position += read;
+        }
+      }
+      return bytes;
+    }
+
+    /**
+     * Segments which are no longer written are mapped into memory for reading.
+     */
+    private void seal() {
+      try {
+        mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+      } catch (IOException ex) {
+        LOG.debug("could not map cache segment {}, reading from channel", file, ex);
+      }
+    }
+
+    private void close() {
+      mapped = null;
+      IOUtil.close(channel);
+    }
+
+    private void delete() {
+      close();
+      try {
+        Files.deleteIfExists(file);
+      } catch (IOException ex) {
+        LOG.warn("could not delete cache segment {}", file, ex);
+      }
+    }
+  }
+
+  private static String readUTF(ByteBuffer buffer) {
+    int length = buffer.getShort() & 0xFFFF;
+    byte[] bytes = new byte[length];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static HashCode readHash(ByteBuffer buffer) {
+    byte[] bytes = new byte[HASH_LENGTH];
+    buffer.get(bytes);
+    return HashCode.fromBytes(bytes);
+  }
+
+  private static final class Entry {
+
+    private final Segment segment;
+    private final String repositoryId;
+    private final long keyOffset;
+    private final int keyLength;
+    private final long valueOffset;
+    private final int valueLength;
+
+    private Entry(Segment segment, String repositoryId, long keyOffset, int keyLength, long valueOffset, int valueLength) {
+      this.segment = segment;
+      this.repositoryId = repositoryId;
+      this.keyOffset = keyOffset;
+      this.keyLength = keyLength;
+      this.valueOffset = valueOffset;
+      this.valueLength = valueLength;
+    }
+
+    /**
+     * Returns the value, if the stored key is equal to the requested key. Different keys with the same hash are
+     * treated as a miss.
+     */
+    private byte[] read(byte[] keyBytes) {
+      try {
+        if (keyLength == keyBytes.length && Arrays.equals(segment.read(keyOffset, keyLength), keyBytes)) {
+          return segment.read(valueOffset, valueLength);
+        }
+      } catch (IOException ex) {
+        LOG.debug("could not read stored element", ex);
+      }
+      return null;
+    }
+  }
+}
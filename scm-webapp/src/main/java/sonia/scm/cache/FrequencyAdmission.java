@@ -0,0 +1,86 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package sonia.scm.cache;
+
+/**
+ * Admission policy of a cache with limited capacity. As long as the cache is far below its capacity, every element is
+ * admitted, because no other element would be evicted for it. Only if the cache is filled to more than
+ * {@link #THRESHOLD} of its capacity, new elements are admitted only if their keys were requested at least twice
+ * (doorkeeper).
+ *
+ * @since 2.41.0
+ */
+final class FrequencyAdmission {
+
+  /**
+   * Fraction of the capacity from which on the frequency of new elements is checked. Guava splits the capacity among
+   * its segments, so elements may be evicted slightly before the whole capacity is used.
+   */
+  static final double THRESHOLD = 0.9;
+
+  private final FrequencySketch sketch;
+  private final long threshold;
+  private final boolean weighted;
+
+  /**
+   * Creates an admission policy for a cache with the given capacity.
+   *
+   * @param sketch frequency of requested keys
+   * @param capacity maximum weight or maximum number of elements of the cache
+   * @param weighted {@code true} if the capacity is a maximum weight in bytes
+   */
+  FrequencyAdmission(FrequencySketch sketch, long capacity, boolean weighted) {
+    this.sketch = sketch;
+    this.threshold = (long) (capacity * THRESHOLD);
+    this.weighted = weighted;
+  }
+
+  /**
+   * Records a request of the given key.
+   *
+   * @param key requested key
+   */
+  void record(Object key) {
+    sketch.increment(key.hashCode());
+  }
+
+  /**
+   * Returns {@code true} if a new element with the given key should be stored in the cache.
+   *
+   * @param key key of the new element
+   * @param cache cache which should store the element
+   *
+   * @return {@code true} if the element is admitted
+   */
+  boolean isAdmitted(Object key, GuavaCache<?, ?> cache) {
+    return !isNearCapacity(cache) || sketch.frequency(key.hashCode()) > 1;
+  }
+
+  private boolean isNearCapacity(GuavaCache<?, ?> cache) {
+    // the weight of the guava cache is not exposed, so it is estimated from the weights of sampled elements
+    long load = weighted ? cache.getEstimatedMemory() : cache.size();
+    return load >= threshold;
+  }
+}
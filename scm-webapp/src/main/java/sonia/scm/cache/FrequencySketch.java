@@ -0,0 +1,114 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package sonia.scm.cache;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Probabilistic counter of the access frequency of cache keys, used as a doorkeeper which admits new entries only if
+ * their keys were requested repeatedly. This is the frequency sketch of TinyLFU, but not its admission policy: the
+ * candidate is not compared with the entry the cache would evict, because guava does not expose the eviction victim.
+ * The sketch uses four rows of small saturating counters. The estimated frequency of a
+ * key is the minimum of its counters. All counters are halved after a sample of accesses, so that the sketch forgets
+ * keys which were popular a long time ago.
+ *
+ * @since 2.41.0
+ */
+final class FrequencySketch {
+
+  private static final int DEPTH = 4;
+  private static final int MAX_COUNT = 15;
+  private static final int MIN_WIDTH = 1024;
+  private static final int MAX_WIDTH = 1 << 20;
+  private static final int[] SEEDS = {0x97cb3127, 0xe0a7c1f3, 0xc2b2ae35, 0x85ebca6b};
+
+  private final AtomicIntegerArray counters;
+  private final AtomicInteger additions = new AtomicInteger();
+  private final int mask;
+  private final int width;
+  private final int sampleSize;
+
+  /**
+   * Creates a sketch for a cache with the expected number of entries.
+   *
+   * @param expectedSize expected number of entries of the cache
+   */
+  FrequencySketch(long expectedSize) {
+    int size = (int) Math.max(MIN_WIDTH, Math.min(expectedSize, MAX_WIDTH));
+    this.width = Integer.highestOneBit(size - 1) << 1;
+    this.mask = width - 1;
+    this.sampleSize = 10 * width;
+    this.counters = new AtomicIntegerArray(DEPTH * width);
+  }
+
+  /**
+   * Records an access of the key with the given hash code.
+   *
+   * @param hashCode hash code of the key
+   */
+  void increment(int hashCode) {
+    boolean incremented = false;
+    for (int i = 0; i < DEPTH; i++) {
+      int index = indexOf(hashCode, i);
+      int count = counters.get(index);
+      if (count < MAX_COUNT && counters.compareAndSet(index, count, count + 1)) {
+        incremented = true;
+      }
+    }
+    if (incremented && additions.incrementAndGet() == sampleSize) {
+      reset();
+    }
+  }
+
+  /**
+   * Returns the estimated number of accesses of the key with the given hash code.
+   *
+   * @param hashCode hash code of the key
+   *
+   * @return estimated frequency
+   */
+  int frequency(int hashCode) {
+    int frequency = MAX_COUNT;
+    for (int i = 0; i < DEPTH; i++) {
+      frequency = Math.min(frequency, counters.get(indexOf(hashCode, i)));
+    }
+    return frequency;
+  }
+
+  private int indexOf(int hashCode, int row) {
+    int hash = hashCode * SEEDS[row];
+    hash ^= hash >>> 16;
+    return row * width + (hash & mask);
+  }
+
+  private void reset() {
+    // concurrent increments during the reset are tolerated, the sketch is an approximation anyway
+    additions.set(0);
+    for (int i = 0; i < counters.length(); i++) {
+      counters.set(i, counters.get(i) >>> 1);
+    }
+  }
+}
@@ -29,22 +29,63 @@ import com.google.common.cache.CacheStats;
 import com.google.common.collect.Sets;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import sonia.scm.repository.RepositoryCacheKey;
+import sonia.scm.repository.RepositoryCacheKeyPredicate;
+import sonia.scm.repository.RevisionCacheKey;
 
+import java.io.Serializable;
 import java.util.Collection;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
 
 public class GuavaCache<K, V> implements Cache<K, V> {
 
   private static final Logger logger = LoggerFactory.getLogger(GuavaCache.class);
 
-  private final com.google.common.cache.Cache<K, V> cache;
+  /**
+   * number of elements which are measured to estimate the memory of the cache
+   */
+  private static final int MEMORY_SAMPLE_SIZE = 64;
+
+  private final com.google.common.cache.Cache<Object, V> cache;
   private final CopyStrategy copyStrategy;
   private final String name;
+  private final FrequencyAdmission admission;
+  private final DiskCacheStore diskStore;
+  private final LongAdder rejectedCount = new LongAdder();
+  private final LongAdder coalescedCount = new LongAdder();
+  private final LongAdder loadCount = new LongAdder();
+  private final LongAdder totalLoadTime = new LongAdder();
+  private final Map<Object, CompletableFuture<V>> computations = new ConcurrentHashMap<>();
+
+  GuavaCache(com.google.common.cache.Cache<?, V> cache, CopyStrategy copyStrategy, String name) {
+    this(cache, copyStrategy, name, null, null);
+  }
 
-  GuavaCache(com.google.common.cache.Cache<K, V> cache, CopyStrategy copyStrategy, String name) {
-    this.cache = cache;
+  /**
+   * Creates a new cache, which admits new elements near its capacity only if their keys were requested frequently and
+   * which stores immutable elements on disk.
+   *
+   * @param cache underlying guava cache
+   * @param copyStrategy copy strategy for cached elements
+   * @param name name of the cache
+   * @param admission admission policy for new elements or {@code null} to admit every element
+   * @param diskStore second level store for elements with resolved revision keys or {@code null}
+   *
+   * @since 2.41.0
+   */
+  @SuppressWarnings("unchecked")
+  GuavaCache(com.google.common.cache.Cache<?, V> cache, CopyStrategy copyStrategy, String name,
+             FrequencyAdmission admission, DiskCacheStore diskStore) {
+    this.cache = (com.google.common.cache.Cache<Object, V>) cache;
     this.name = name;
+    this.admission = admission;
+    this.diskStore = diskStore;
 
     if (copyStrategy != null) {
       this.copyStrategy = copyStrategy;
@@ -60,44 +101,74 @@ public class GuavaCache<K, V> implements Cache<K, V> {
     }
 
     cache.invalidateAll();
+
+    if (diskStore != null) {
+      diskStore.clear();
+    }
   }
 
   @Override
   public boolean contains(K key) {
-    return cache.getIfPresent(key) != null;
+    recordAccess(key);
+    return getIfPresent(key) != null;
   }
 
   @Override
+  @SuppressWarnings("unchecked")
   public Set<K> keys() {
-    return cache.asMap().keySet();
+    return (Set<K>) cache.asMap().keySet();
   }
 
   @Override
   public V put(K key, V value) {
-    V previous = cache.getIfPresent(key);
+    Object internalKey = toInternalKey(key);
+    V previous = cache.getIfPresent(internalKey);
 
-    cache.put(key, copyStrategy.copyOnWrite(value));
+    store(key, internalKey, previous, value);
 
     return previous;
   }
 
   @Override
   public V remove(K key) {
-    V value = cache.getIfPresent(key);
+    Object internalKey = toInternalKey(key);
+    V value = cache.getIfPresent(internalKey);
 
-    cache.invalidate(key);
+    cache.invalidate(internalKey);
+
+    if (isStored(key)) {
+      diskStore.remove((Serializable) key);
+    }
 
     return value;
   }
 
+  @Override
+  public boolean replace(K key, V expected, V value) {
+    V copy = copyStrategy.copyOnWrite(value);
+    if (!replaceInternal(toInternalKey(key), expected, copy)) {
+      return false;
+    }
+    if (isStored(key) && isPersistable(copy)) {
+      diskStore.put((Serializable) key, ((RepositoryCacheKey) key).getRepositoryId(), (Serializable) copy);
+    }
+    return true;
+  }
+
+  /**
+   * Removes all matching elements. Keys on disk are not read to test the predicate: for a
+   * {@link RepositoryCacheKeyPredicate} the elements of the repository are removed from disk, for every other
+   * predicate all elements on disk are removed.
+   */
   @Override
   @SuppressWarnings("java:S4738") // we have to use guava predicate for compatibility
   public Iterable<V> removeAll(Predicate<K> filter) {
     Set<V> removedValues = Sets.newHashSet();
-    Set<K> keysToRemove = Sets.newHashSet();
+    Set<Object> keysToRemove = Sets.newHashSet();
 
-    for (Entry<K, V> e : cache.asMap().entrySet()) {
-      if (filter.apply(e.getKey())) {
+    for (Entry<Object, V> e : cache.asMap().entrySet()) {
+      K key = fromInternalKey(e.getKey());
+      if (key != null && filter.apply(key)) {
         keysToRemove.add(e.getKey());
         removedValues.add(e.getValue());
       }
@@ -107,6 +178,14 @@ public class GuavaCache<K, V> implements Cache<K, V> {
       cache.invalidateAll(keysToRemove);
     }
 
+    if (diskStore != null) {
+      if (filter instanceof RepositoryCacheKeyPredicate) {
+        diskStore.clearRepository(((RepositoryCacheKeyPredicate<?>) filter).getRepositoryId());
+      } else {
+        diskStore.clear();
+      }
+    }
+
     return removedValues;
   }
 
@@ -122,7 +201,8 @@ public class GuavaCache<K, V> implements Cache<K, V> {
 
   @Override
   public V get(K key) {
-    V value = cache.getIfPresent(key);
+    recordAccess(key);
+    V value = getIfPresent(key);
 
     if (value != null) {
       value = copyStrategy.copyOnRead(value);
@@ -131,9 +211,309 @@ public class GuavaCache<K, V> implements Cache<K, V> {
     return value;
   }
 
+  /**
+   * Returns the element with the specified key or computes it with the given loader. Only one computation per key runs
+   * at a time: concurrent callers for the same key wait for the running computation and receive its result. If the
+   * running computation fails, waiting callers start a computation on their own.
+   */
+  @Override
+  public <E extends Exception> V get(K key, CacheLoader<? extends V, E> loader) throws E {
+    V value = get(key);
+    if (value != null) {
+      return value;
+    }
+
+    Object internalKey = toInternalKey(key);
+    CompletableFuture<V> computation = new CompletableFuture<>();
+    CompletableFuture<V> running = computations.putIfAbsent(internalKey, computation);
+    if (running != null) {
+      return await(key, running, loader);
+    }
+
+    long start = System.nanoTime();
+    try {
+      value = loader.load();
+      V shared = null;
+      if (value != null) {
+        shared = store(key, internalKey, cache.getIfPresent(internalKey), value);
+      }
+      computation.complete(shared);
+      return value;
+    } finally {
+      loadCount.increment();
+      totalLoadTime.add(System.nanoTime() - start);
+      computations.remove(internalKey, computation);
+      if (!computation.isDone()) {
+        computation.completeExceptionally(new CacheException("computation of element " + key + " failed"));
+      }
+    }
+  }
+
   @Override
   public CacheStatistics getStatistics() {
     CacheStats cacheStats = cache.stats();
-    return new CacheStatistics(name, cacheStats.hitCount(), cacheStats.missCount());
+    return new CacheStatistics(
+      name, cacheStats.hitCount(), cacheStats.missCount(), size(), cacheStats.evictionCount(), getLoadCount(),
+      getTotalLoadTime(), getEstimatedMemory()
+    );
+  }
+
+  /**
+   * Returns the number of elements, which were computed with {@link #get(Object, CacheLoader)}.
+   *
+   * @return number of computed elements
+   *
+   * @since 2.41.0
+   */
+  public long getLoadCount() {
+    return loadCount.sum();
+  }
+
+  /**
+   * Returns the total time spent computing elements with {@link #get(Object, CacheLoader)}.
+   *
+   * @return total time in nanoseconds
+   *
+   * @since 2.41.0
+   */
+  public long getTotalLoadTime() {
+    return totalLoadTime.sum();
+  }
+
+  /**
+   * Estimates the memory retained by the elements of the cache. The estimated size of a sample of elements is
+   * extrapolated to all elements. The sizes are mostly taken from the estimates per type of the
+   * {@link RetainedSizeWeigher}, so that a scrape of the metrics does not have to walk the elements.
+   *
+   * @return estimated memory in bytes
+   *
+   * @since 2.41.0
+   */
+  public long getEstimatedMemory() {
+    long size = size();
+    long sampled = 0;
+    int count = 0;
+    for (V value : cache.asMap().values()) {
+      if (count >= MEMORY_SAMPLE_SIZE) {
+        break;
+      }
+      sampled += RetainedSizeWeigher.estimate(value);
+      count++;
+    }
+    return count == 0 ? 0 : sampled / count * size;
+  }
+
+  /**
+   * Returns the number of elements, which were not admitted to the cache because their keys were not requested
+   * frequently.
+   *
+   * @return number of rejected elements
+   *
+   * @since 2.41.0
+   */
+  public long getRejectedCount() {
+    return rejectedCount.sum();
+  }
+
+  /**
+   * Returns the number of requests, which did not compute an element on their own, because they waited for the running
+   * computation of another request.
+   *
+   * @return number of coalesced requests
+   *
+   * @since 2.41.0
+   */
+  public long getCoalescedCount() {
+    return coalescedCount.sum();
+  }
+
+  /**
+   * Closes the cache on shutdown. In contrast to {@link #clear()}, elements stored on disk are kept.
+   */
+  void close() {
+    cache.invalidateAll();
+
+    if (diskStore != null) {
+      diskStore.close();
+    }
+  }
+
+  /**
+   * Removes all elements of the repository from the disk store.
+   *
+   * @param repositoryId id of the repository
+   */
+  void clearDiskStore(String repositoryId) {
+    if (diskStore != null) {
+      diskStore.clearRepository(repositoryId);
+    }
+  }
+
+  /**
+   * Puts the element to the cache, if it is admitted, and returns the copy which is shared with concurrent callers. The
+   * shared copy is never handed out directly, because callers may modify the elements they receive.
+   */
+  private V store(K key, Object internalKey, V previous, V value) {
+    V copy = copyStrategy.copyOnWrite(value);
+
+    if (previous == null && !isAdmitted(key)) {
+      logger.trace("element {} is not admitted to cache {} near its capacity, because it was not requested frequently", key, name);
+      rejectedCount.increment();
+      return copy;
+    }
+
+    putInternal(internalKey, copy);
+
+    // the copy is stored, because the element is serialized in the background and callers may modify their value
+    if (isStored(key) && isPersistable(copy)) {
+      diskStore.put((Serializable) key, ((RepositoryCacheKey) key).getRepositoryId(), (Serializable) copy);
+    }
+
+    return copy;
+  }
+
+  private <E extends Exception> V await(K key, CompletableFuture<V> running, CacheLoader<? extends V, E> loader) throws E {
+    logger.trace("wait for running computation of element {} in cache {}", key, name);
+    coalescedCount.increment();
+    try {
+      V shared = running.get();
+      return shared != null ? copyStrategy.copyOnRead(shared) : null;
+    } catch (ExecutionException ex) {
+      logger.debug("running computation of element {} in cache {} failed, computing it again", key, name);
+      return get(key, loader);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new CacheException("interrupted while waiting for element " + key, ex);
+    }
+  }
+
+  /**
+   * Returns the element from memory or loads it from the disk store.
+   */
+  @SuppressWarnings("unchecked")
+  private V getIfPresent(K key) {
+    Object internalKey = toInternalKey(key);
+    V value = cache.getIfPresent(internalKey);
+
+    if (value == null && isStored(key)) {
+      value = (V) diskStore.get((Serializable) key, ((RepositoryCacheKey) key).getRepositoryId());
+      if (value != null) {
+        logger.trace("load element {} of cache {} from disk", key, name);
+        putInternal(internalKey, value);
+      }
+    }
+
+    return value;
+  }
+
+  /**
+   * Only elements whose keys are resolved to commit ids are stored on disk, because they never change.
+   */
+  private boolean isStored(Object key) {
+    return diskStore != null
+      && key instanceof RevisionCacheKey
+      && key instanceof Serializable
+      && ((RevisionCacheKey) key).isResolved();
+  }
+
+  /**
+   * Incomplete elements are kept only in memory, they are stored when they are put again after their completion.
+   */
+  private boolean isPersistable(V value) {
+    return value instanceof Serializable && (!(value instanceof Completable) || ((Completable) value).isComplete());
+  }
+
+  private void recordAccess(K key) {
+    if (admission != null && key != null) {
+      admission.record(key);
+    }
+  }
+
+  /**
+   * Near its capacity, elements are admitted only if their keys were requested at least twice (doorkeeper). This keeps
+   * keys which are requested only once, like these of crawlers scanning the whole repository, from evicting frequently
+   * used elements. The frequency is not compared with the frequency of the element which would be evicted. Elements
+   * which are computed in advance (see {@link CacheAdmission}) are always admitted.
+   */
+  private boolean isAdmitted(K key) {
+    return admission == null || CacheAdmission.isAdmittingAll() || admission.isAdmitted(key, this);
+  }
+
+  /**
+   * Returns the key, which is used for the underlying guava cache.
+   *
+   * @param key key of the cached element
+   *
+   * @return key of the underlying cache
+   *
+   * @since 2.41.0
+   */
+  protected Object toInternalKey(K key) {
+    return key;
+  }
+
+  /**
+   * Returns the key of the cached element for a key of the underlying guava cache or {@code null}, if the element is
+   * no longer valid.
+   *
+   * @param internalKey key of the underlying cache
+   *
+   * @return key of the cached element or {@code null}
+   *
+   * @since 2.41.0
+   */
+  @SuppressWarnings("unchecked")
+  protected K fromInternalKey(Object internalKey) {
+    return (K) internalKey;
+  }
+
+  /**
+   * Puts the element with the given key to the underlying guava cache.
+   *
+   * @param internalKey key of the underlying cache
+   * @param value element to cache
+   *
+   * @since 2.41.0
+   */
+  protected void putInternal(Object internalKey, V value) {
+    cache.put(internalKey, value);
+  }
+
+  /**
+   * Replaces the element with the given key in the underlying guava cache, if it is still mapped to the expected
+   * element.
+   *
+   * @param internalKey key of the underlying cache
+   * @param expected element which is expected to be cached
+   * @param value new element
+   *
+   * @return {@code true} if the element was replaced
+   *
+   * @since 2.41.0
+   */
+  protected boolean replaceInternal(Object internalKey, V expected, V value) {
+    return cache.asMap().replace(internalKey, expected, value);
+  }
+
+  /**
+   * Returns the underlying guava cache.
+   *
+   * @return underlying cache
+   *
+   * @since 2.41.0
+   */
+  protected com.google.common.cache.Cache<Object, V> getInternalCache() {
+    return cache;
+  }
+
+  /**
+   * Returns the name of the cache.
+   *
+   * @return name of the cache
+   *
+   * @since 2.41.0
+   */
+  public String getName() {
+    return name;
   }
 }
@@ -64,8 +64,10 @@ public class GuavaCacheConfiguration implements Serializable
     return MoreObjects.toStringHelper(this)
                   .add("concurrencyLevel", concurrencyLevel)
                   .add("copyStrategy", copyStrategy)
+                  .add("diskMaximumSize", diskMaximumSize)
                   .add("expireAfterAccess", expireAfterAccess)
                   .add("expireAfterWrite", expireAfterWrite)
+                  .add("frequencyAdmission", frequencyAdmission)
                   .add("initialCapacity", initialCapacity)
                   .add("maximumSize", maximumSize)
                   .add("maximumWeight", maximumWeight)
@@ -101,6 +103,19 @@ public class GuavaCacheConfiguration implements Serializable
     return copyStrategy;
   }
 
+  /**
+   * Returns the maximum size in bytes of the second level cache on disk. Elements are only stored on disk, if a
+   * maximum size is configured.
+   *
+   * @return maximum size on disk or {@code null}
+   *
+   * @since 2.41.0
+   */
+  public Long getDiskMaximumSize()
+  {
+    return diskMaximumSize;
+  }
+
   /**
    * Method description
    *
@@ -123,6 +138,18 @@ public class GuavaCacheConfiguration implements Serializable
     return expireAfterWrite;
   }
 
+  /**
+   * Returns {@code true}, if new elements are only admitted to the cache if their keys were requested frequently.
+   *
+   * @return {@code true} if frequency based admission is enabled
+   *
+   * @since 2.41.0
+   */
+  public Boolean getFrequencyAdmission()
+  {
+    return frequencyAdmission;
+  }
+
   /**
    * Method description
    *
@@ -211,6 +238,10 @@ public class GuavaCacheConfiguration implements Serializable
   @XmlJavaTypeAdapter(XmlCopyStrategyAdapter.class)
   private CopyStrategy copyStrategy;
 
+  /** maximum size of the second level cache on disk in bytes */
+  @XmlAttribute
+  private Long diskMaximumSize;
+
   /** Field description */
   @XmlAttribute
   private Long expireAfterAccess;
@@ -219,6 +250,10 @@ public class GuavaCacheConfiguration implements Serializable
   @XmlAttribute
   private Long expireAfterWrite;
 
+  /** admit only frequently requested elements */
+  @XmlAttribute
+  private Boolean frequencyAdmission;
+
   /** Field description */
   @XmlAttribute
   private Integer initialCapacity;
@@ -24,19 +24,47 @@
 
 package sonia.scm.cache;
 
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.BaseUnits;
 import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import sonia.scm.SCMContextProvider;
+import sonia.scm.repository.RepositoryCacheKey;
+import sonia.scm.repository.RepositoryDAO;
 
 import javax.inject.Inject;
+import javax.inject.Provider;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Collections;
+import java.util.concurrent.TimeUnit;
 
 public class GuavaCacheFactory {
 
   private final MeterRegistry meterRegistry;
+  private final SCMContextProvider context;
+  private final Provider<RepositoryDAO> repositoryDAO;
 
-  @Inject
   public GuavaCacheFactory(MeterRegistry meterRegistry) {
+    this(meterRegistry, null, null);
+  }
+
+  /**
+   * Creates a factory which is able to create caches with a second level on disk.
+   *
+   * @param meterRegistry registry for cache metrics
+   * @param context context to resolve the directory of the disk stores
+   * @param repositoryDAO dao to verify that the repositories of stored elements still exist
+   *
+   * @since 2.41.0
+   */
+  @Inject
+  public GuavaCacheFactory(MeterRegistry meterRegistry, SCMContextProvider context, Provider<RepositoryDAO> repositoryDAO) {
     this.meterRegistry = meterRegistry;
+    this.context = context;
+    this.repositoryDAO = repositoryDAO;
   }
 
   <K, V> GuavaCache<K, V> create(GuavaCacheConfiguration configuration, String name) {
@@ -44,6 +72,72 @@ public class GuavaCacheFactory {
 
     new GuavaCacheMetrics(cache, name, Collections.emptySet()).bindTo(meterRegistry);
 
-    return new GuavaCache<>(cache, configuration.getCopyStrategy(), name);
+    return bindMetrics(
+      new GuavaCache<>(cache, configuration.getCopyStrategy(), name, createAdmission(configuration), null), configuration
+    );
+  }
+
+  <K extends RepositoryCacheKey, V> GuavaRepositoryCache<K, V> createRepositoryCache(GuavaCacheConfiguration configuration, String name) {
+    GuavaRepositoryCache.Segments segments = new GuavaRepositoryCache.Segments();
+    com.google.common.cache.Cache<Object, V> cache = GuavaCaches.create(configuration, name, segments);
+
+    new GuavaCacheMetrics(cache, name, Collections.emptySet()).bindTo(meterRegistry);
+
+    return bindMetrics(
+      new GuavaRepositoryCache<>(
+        cache, segments, configuration.getCopyStrategy(), name, createAdmission(configuration),
+        createDiskStore(configuration, name)
+      ),
+      configuration
+    );
+  }
+
+  private DiskCacheStore createDiskStore(GuavaCacheConfiguration configuration, String name) {
+    if (configuration.getDiskMaximumSize() == null || context == null) {
+      return null;
+    }
+    Path directory = context.resolve(Paths.get("cache", name));
+    return new DiskCacheStore(
+      directory, configuration.getDiskMaximumSize(), repositoryId -> repositoryDAO.get().contains(repositoryId)
+    );
+  }
+
+  private FrequencyAdmission createAdmission(GuavaCacheConfiguration configuration) {
+    if (!Boolean.TRUE.equals(configuration.getFrequencyAdmission())) {
+      return null;
+    }
+    if (configuration.getMaximumWeight() != null) {
+      long expectedSize = configuration.getInitialCapacity() != null ? configuration.getInitialCapacity() : 0;
+      return new FrequencyAdmission(new FrequencySketch(expectedSize), configuration.getMaximumWeight(), true);
+    }
+    if (configuration.getMaximumSize() != null) {
+      long maximumSize = configuration.getMaximumSize();
+      return new FrequencyAdmission(new FrequencySketch(maximumSize), maximumSize, false);
+    }
+    // a cache without capacity never evicts elements, so there is nothing to protect
+    return null;
+  }
+
+  private <C extends GuavaCache<?, ?>> C bindMetrics(C cache, GuavaCacheConfiguration configuration) {
+    FunctionTimer.builder("cache.computations", cache, GuavaCache::getLoadCount, GuavaCache::getTotalLoadTime, TimeUnit.NANOSECONDS)
+      .tag("cache", cache.getName())
+      .description("The time spent computing missing elements")
+      .register(meterRegistry);
+    Gauge.builder("cache.memory.estimated", cache, GuavaCache::getEstimatedMemory)
+      .tag("cache", cache.getName())
+      .baseUnit(BaseUnits.BYTES)
+      .description("The estimated memory retained by the elements of the cache")
+      .register(meterRegistry);
+    FunctionCounter.builder("cache.coalesced", cache, GuavaCache::getCoalescedCount)
+      .tag("cache", cache.getName())
+      .description("The number of requests which waited for the running computation of the same element")
+      .register(meterRegistry);
+    if (Boolean.TRUE.equals(configuration.getFrequencyAdmission())) {
+      FunctionCounter.builder("cache.admission.rejected", cache, GuavaCache::getRejectedCount)
+        .tag("cache", cache.getName())
+        .description("The number of elements which were not admitted to the cache, because they were not requested frequently")
+        .register(meterRegistry);
+    }
+    return cache;
   }
 }
@@ -25,12 +25,18 @@
 package sonia.scm.cache;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.inject.Singleton;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import sonia.scm.repository.RepositoryCacheKey;
 
 import javax.inject.Inject;
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
@@ -43,8 +49,24 @@ public class GuavaCacheManager implements CacheManager, org.apache.shiro.cache.C
 
   private static final Logger LOG = LoggerFactory.getLogger(GuavaCacheManager.class);
 
+  /**
+   * caches which are always created as {@link GuavaRepositoryCache}, even if they are requested with
+   * {@link #getCache(String)} first
+   */
+  private static final Set<String> REPOSITORY_CACHES = ImmutableSet.of(
+    "sonia.cache.cmd.blame",
+    "sonia.cache.cmd.browse",
+    "sonia.cache.cmd.log",
+    "sonia.cache.cmd.tags",
+    "sonia.cache.cmd.branches",
+    "sonia.cache.cmd.branch-details",
+    "sonia.cache.cmd.modifications",
+    "sonia.cache.cmd.revisions"
+  );
+
   @SuppressWarnings({"java:S3740", "rawtypes"})
   private final ConcurrentHashMap<String, GuavaCache> caches = new ConcurrentHashMap<>();
+  private final Map<String, GuavaCacheConfiguration> configurations = new HashMap<>();
   private final GuavaCacheConfiguration defaultConfiguration;
   private final GuavaCacheFactory cacheFactory;
 
@@ -60,8 +82,13 @@ public class GuavaCacheManager implements CacheManager, org.apache.shiro.cache.C
     this.cacheFactory = cacheFactory;
 
     for (GuavaNamedCacheConfiguration ncc : config.getCaches()) {
-      LOG.debug("create cache {} from configured configuration {}", ncc.getName(), ncc);
-      caches.put(ncc.getName(), cacheFactory.create(ncc, ncc.getName()));
+      if (REPOSITORY_CACHES.contains(ncc.getName())) {
+        // created on first access, to choose between repository and plain cache
+        configurations.put(ncc.getName(), ncc);
+      } else {
+        LOG.debug("create cache {} from configured configuration {}", ncc.getName(), ncc);
+        caches.put(ncc.getName(), cacheFactory.create(ncc, ncc.getName()));
+      }
     }
   }
 
@@ -71,20 +98,59 @@ public class GuavaCacheManager implements CacheManager, org.apache.shiro.cache.C
     LOG.trace("try to retrieve cache {}", name);
 
     return caches.computeIfAbsent(name, cacheName -> {
-      LOG.debug(
-        "cache {} does not exists, creating a new instance from default configuration: {}",
-        cacheName, defaultConfiguration
-      );
-      return cacheFactory.create(defaultConfiguration, cacheName);
+      if (REPOSITORY_CACHES.contains(cacheName)) {
+        return cacheFactory.createRepositoryCache(getConfiguration(cacheName), cacheName);
+      }
+      return cacheFactory.create(getConfiguration(cacheName), cacheName);
     });
   }
 
+  @Override
+  @SuppressWarnings("unchecked")
+  public <K extends RepositoryCacheKey, V> RepositoryCache<K, V> getRepositoryCache(String name) {
+    LOG.trace("try to retrieve repository cache {}", name);
+
+    GuavaCache<K, V> cache = caches.computeIfAbsent(
+      name, cacheName -> cacheFactory.createRepositoryCache(getConfiguration(cacheName), cacheName)
+    );
+    if (cache instanceof RepositoryCache) {
+      return (RepositoryCache<K, V>) cache;
+    }
+    LOG.warn("cache {} was created as plain cache, repositories are removed by iterating over all elements", name);
+    return CacheManager.super.getRepositoryCache(name);
+  }
+
+  private GuavaCacheConfiguration getConfiguration(String name) {
+    GuavaCacheConfiguration configuration = configurations.get(name);
+    if (configuration != null) {
+      LOG.debug("create cache {} from configured configuration {}", name, configuration);
+      return configuration;
+    }
+    LOG.debug(
+      "cache {} does not exists, creating a new instance from default configuration: {}",
+      name, defaultConfiguration
+    );
+    return defaultConfiguration;
+  }
+
+  @Override
+  public Map<String, Cache<?, ?>> getCaches() {
+    ImmutableMap.Builder<String, Cache<?, ?>> builder = ImmutableMap.builder();
+    caches.forEach(builder::put);
+    return builder.build();
+  }
+
   @Override
   public void close() throws IOException {
     LOG.info("close guava cache manager");
 
     for (Cache<?, ?> c : caches.values()) {
-      c.clear();
+      if (c instanceof GuavaCache) {
+        // keeps the elements, which are stored on disk
+        ((GuavaCache<?, ?>) c).close();
+      } else {
+        c.clear();
+      }
     }
 
     caches.clear();
@@ -25,6 +25,7 @@
 package sonia.scm.cache;
 
 import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -39,6 +40,27 @@ public final class GuavaCaches {
 
   public static <K, V> com.google.common.cache.Cache<K, V> create(
     GuavaCacheConfiguration configuration, String name) {
+    return configure(configuration, name).build();
+  }
+
+  /**
+   * Creates a cache, which notifies the given listener about every removed element.
+   *
+   * @param configuration configuration of the cache
+   * @param name name of the cache
+   * @param removalListener listener for removed elements
+   *
+   * @return new cache
+   *
+   * @since 2.41.0
+   */
+  public static <K, V> com.google.common.cache.Cache<K, V> create(
+    GuavaCacheConfiguration configuration, String name, RemovalListener<? super K, ? super V> removalListener) {
+    CacheBuilder<K, V> builder = configure(configuration, name).removalListener(removalListener);
+    return builder.build();
+  }
+
+  private static CacheBuilder<Object, Object> configure(GuavaCacheConfiguration configuration, String name) {
     CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder();
 
     // Collect guava cache statistics
@@ -62,12 +84,15 @@ public final class GuavaCaches {
       builder.initialCapacity(configuration.getInitialCapacity());
     }
 
-    if (configuration.getMaximumSize() != null) {
-      builder.maximumSize(configuration.getMaximumSize());
-    }
-
     if (configuration.getMaximumWeight() != null) {
-      builder.maximumWeight(configuration.getMaximumWeight());
+      if (configuration.getMaximumSize() != null) {
+        LOG.warn("cache {} is configured with maximumSize and maximumWeight, only maximumWeight is used", name);
+      }
+      // the weight of an element is the approximate number of bytes retained by its key and value
+      builder = builder.maximumWeight(configuration.getMaximumWeight())
+        .weigher(new RetainedSizeWeigher());
+    } else if (configuration.getMaximumSize() != null) {
+      builder.maximumSize(configuration.getMaximumSize());
     }
 
     if (isEnabled(configuration.getRecordStats())) {
@@ -90,7 +115,7 @@ public final class GuavaCaches {
       LOG.trace("create new cache {} from builder: {}", name, builder);
     }
 
-    return builder.build();
+    return builder;
   }
 
   private static boolean isEnabled(Boolean v) {
@@ -0,0 +1,295 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package sonia.scm.cache;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sonia.scm.repository.RepositoryCacheKey;
+import sonia.scm.repository.RevisionCacheKey;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link GuavaCache} which groups its elements in segments per repository. All elements share the underlying guava
+ * cache and its limits, but every key is bound to a segment of its repository. Elements with keys which are resolved to
+ * commit ids and elements with unresolved keys, like branch names, are kept in separate segments. Clearing a repository
+ * replaces its segments, which makes all of its elements unreachable at once. The unreachable elements are evicted by the underlying
+ * cache like every other element, which are not accessed anymore.
+ * <p>
+ * Every segment counts its elements in the underlying cache. A segment is removed, when its last element is evicted,
+ * and the size of the cache is the sum of the current segments, so that neither has to iterate the elements.
+ *
+ * @param <K> type of the keys for the cache
+ * @param <V> type of cached elements
+ *
+ * @since 2.41.0
+ */
+public class GuavaRepositoryCache<K extends RepositoryCacheKey, V> extends GuavaCache<K, V> implements RepositoryCache<K, V> {
+
+  private static final Logger LOG = LoggerFactory.getLogger(GuavaRepositoryCache.class);
+
+  private final Segments segments;
+
+  /**
+   * Creates a new repository cache. The underlying cache has to notify the given segments about removed elements (see
+   * {@link GuavaCaches#create(GuavaCacheConfiguration, String, RemovalListener)}).
+   */
+  GuavaRepositoryCache(com.google.common.cache.Cache<?, V> cache, Segments segments, CopyStrategy copyStrategy,
+                       String name, FrequencyAdmission admission, DiskCacheStore diskStore) {
+    super(cache, copyStrategy, name, admission, diskStore);
+    this.segments = segments;
+  }
+
+  @Override
+  public void clearRepository(String repositoryId) {
+    LOG.debug("clear segments of repository {} in cache {}", repositoryId, getName());
+    segments.remove(repositoryId);
+    clearDiskStore(repositoryId);
+  }
+
+  /**
+   * Replaces the segment of unresolved elements of the repository. The disk store is not touched, because it keeps only
+   * elements with resolved keys.
+   */
+  @Override
+  public void clearUnresolved(String repositoryId) {
+    LOG.debug("clear segment of unresolved elements of repository {} in cache {}", repositoryId, getName());
+    segments.removeUnresolved(repositoryId);
+  }
+
+  @Override
+  public void clear() {
+    segments.clear();
+    super.clear();
+  }
+
+  @Override
+  public Set<K> keys() {
+    ImmutableSet.Builder<K> keys = ImmutableSet.builder();
+    for (Object internalKey : getInternalCache().asMap().keySet()) {
+      K key = fromInternalKey(internalKey);
+      if (key != null) {
+        keys.add(key);
+      }
+    }
+    return keys.build();
+  }
+
+  @Override
+  public Collection<V> values() {
+    ImmutableList.Builder<V> values = ImmutableList.builder();
+    getInternalCache().asMap().forEach((internalKey, value) -> {
+      if (fromInternalKey(internalKey) != null) {
+        values.add(value);
+      }
+    });
+    return values.build();
+  }
+
+  @Override
+  public int size() {
+    return segments.size();
+  }
+
+  @VisibleForTesting
+  int getSegmentCount() {
+    return segments.resolved.size() + segments.unresolved.size();
+  }
+
+  @Override
+  protected Object toInternalKey(K key) {
+    return new SegmentKey(segments.of(key), key);
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  protected K fromInternalKey(Object internalKey) {
+    SegmentKey segmentKey = (SegmentKey) internalKey;
+    if (segmentKey.segment == segments.current(segmentKey.key)) {
+      return (K) segmentKey.key;
+    }
+    return null;
+  }
+
+  @Override
+  protected void putInternal(Object internalKey, V value) {
+    // count before the put, so that a replaced element can not drop the count of the segment to zero
+    ((SegmentKey) internalKey).segment.size.incrementAndGet();
+    super.putInternal(internalKey, value);
+  }
+
+  @Override
+  protected boolean replaceInternal(Object internalKey, V expected, V value) {
+    // a successful replacement is counted down by the removal listener, just like a put
+    Segment segment = ((SegmentKey) internalKey).segment;
+    segment.size.incrementAndGet();
+    boolean replaced = super.replaceInternal(internalKey, expected, value);
+    if (!replaced) {
+      Segments.release(segment);
+    }
+    return replaced;
+  }
+
+  /**
+   * Current segments of a cache. The segments are notified about every element, which is removed from the underlying
+   * cache.
+   */
+  static final class Segments implements RemovalListener<Object, Object> {
+
+    /**
+     * segment for keys without repository
+     */
+    private final Segment global = new Segment(null, null);
+    private final Map<String, Segment> resolved = new ConcurrentHashMap<>();
+    private final Map<String, Segment> unresolved = new ConcurrentHashMap<>();
+
+    private Segment of(Object key) {
+      String repositoryId = repositoryId(key);
+      if (repositoryId == null) {
+        return global;
+      }
+      Map<String, Segment> map = segmentsOf(key);
+      return map.computeIfAbsent(repositoryId, id -> new Segment(id, map));
+    }
+
+    private Segment current(Object key) {
+      String repositoryId = repositoryId(key);
+      if (repositoryId == null) {
+        return global;
+      }
+      return segmentsOf(key).get(repositoryId);
+    }
+
+    private Map<String, Segment> segmentsOf(Object key) {
+      if (key instanceof RevisionCacheKey && ((RevisionCacheKey) key).isResolved()) {
+        return resolved;
+      }
+      return unresolved;
+    }
+
+    private void remove(String repositoryId) {
+      resolved.remove(repositoryId);
+      unresolved.remove(repositoryId);
+    }
+
+    private void removeUnresolved(String repositoryId) {
+      unresolved.remove(repositoryId);
+    }
+
+    private void clear() {
+      resolved.clear();
+      unresolved.clear();
+    }
+
+    private int size() {
+      int size = global.size.get();
+      for (Segment segment : resolved.values()) {
+        size += segment.size.get();
+      }
+      for (Segment segment : unresolved.values()) {
+        size += segment.size.get();
+      }
+      return size;
+    }
+
+    @Override
+    public void onRemoval(RemovalNotification<Object, Object> notification) {
+      Object key = notification.getKey();
+      if (key instanceof SegmentKey) {
+        release(((SegmentKey) key).segment);
+      }
+    }
+
+    private static void release(Segment segment) {
+      if (segment.size.decrementAndGet() == 0 && segment.owner != null) {
+        // removes the segment only, if it was not replaced in the meantime
+        segment.owner.remove(segment.repositoryId, segment);
+      }
+    }
+
+    private static String repositoryId(Object key) {
+      if (key instanceof RepositoryCacheKey) {
+        return ((RepositoryCacheKey) key).getRepositoryId();
+      }
+      return null;
+    }
+  }
+
+  /**
+   * Segment of a repository, compared by identity.
+   */
+  private static final class Segment {
+
+    private final String repositoryId;
+    /**
+     * map of segments, which contains this segment or {@code null} for the global segment
+     */
+    private final Map<String, Segment> owner;
+    private final AtomicInteger size = new AtomicInteger();
+
+    private Segment(String repositoryId, Map<String, Segment> owner) {
+      this.repositoryId = repositoryId;
+      this.owner = owner;
+    }
+  }
+
+  private static final class SegmentKey {
+
+    private final Segment segment;
+    private final Object key;
+
+    private SegmentKey(Segment segment, Object key) {
+      this.segment = segment;
+      this.key = key;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      SegmentKey that = (SegmentKey) o;
+      return segment == that.segment && Objects.equals(key, that.key);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * System.identityHashCode(segment) + Objects.hashCode(key);
+    }
+  }
+}
@@ -0,0 +1,261 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package sonia.scm.cache;
+
+import com.google.common.cache.Weigher;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Weighs cache entries by the approximate number of bytes retained by key and value. The size is estimated by walking
+ * the object graph, assuming a 64 bit jvm with compressed references. Fields of jdk classes are not accessible, so
+ * strings, arrays, collections and maps are estimated from their length. Transient fields are ignored, because they
+ * are mostly used for references to shared services.
+ * <p>
+ * Walking the object graph is too expensive for every put, so the size is estimated per type: the first instances of a
+ * type and every {@value #SAMPLE_INTERVAL}th instance afterwards are measured, all other instances are weighed with
+ * the moving average of the measured instances of their type.
+ *
+ * @since 2.41.0
+ */
+final class RetainedSizeWeigher implements Weigher<Object, Object> {
+
+  private static final int OBJECT_HEADER = 12;
+  private static final int ARRAY_HEADER = 16;
+  private static final int REFERENCE = 4;
+  private static final int COLLECTION_ENTRY = 16;
+  private static final int MAP_ENTRY = 32;
+
+  /**
+   * maximum number of objects to visit, the size of the remaining objects is extrapolated
+   */
+  private static final int MAX_OBJECTS = 100_000;
+
+  /**
+   * number of instances of a type, which are measured before the average is used
+   */
+  private static final int WARM_UP = 16;
+
+  /**
+   * after the warm up, every n-th instance of a type is measured to keep the average current
+   */
+  static final int SAMPLE_INTERVAL = 64;
+
+  private static final ClassValue<TypeEstimate> ESTIMATES = new ClassValue<TypeEstimate>() {
+    @Override
+    protected TypeEstimate computeValue(Class<?> type) {
+      return new TypeEstimate();
+    }
+  };
+
+  private static final ClassValue<List<Field>> FIELDS = new ClassValue<List<Field>>() {
+    @Override
+    protected List<Field> computeValue(Class<?> type) {
+      return collectFields(type);
+    }
+  };
+
+  @Override
+  public int weigh(Object key, Object value) {
+    long size = estimate(key) + estimate(value);
+    return (int) Math.min(size, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Returns the estimated number of bytes retained by the given object. Strings are measured directly, other objects
+   * are estimated from the measured instances of their type.
+   *
+   * @param root object to estimate
+   *
+   * @return estimated size in bytes
+   */
+  static long estimate(Object root) {
+    if (root == null) {
+      return 0;
+    } else if (root instanceof String) {
+      return measure(root);
+    }
+    return ESTIMATES.get(root.getClass()).estimate(root);
+  }
+
+  /**
+   * Returns the number of bytes retained by the given object, measured by walking its object graph.
+   *
+   * @param root object to measure
+   *
+   * @return measured size in bytes
+   */
+  static long measure(Object root) {
+    if (root == null) {
+      return 0;
+    }
+
+    Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+    Deque<Object> queue = new ArrayDeque<>();
+    queue.push(root);
+
+    long size = 0;
+    while (!queue.isEmpty()) {
+      Object object = queue.pop();
+      if (visited.add(object)) {
+        if (visited.size() > MAX_OBJECTS) {
+          return size + (size / MAX_OBJECTS) * queue.size();
+        }
+        size += shallowSize(object, queue);
+      }
+    }
+    return size;
+  }
+
+  private static long shallowSize(Object object, Deque<Object> queue) {
+    Class<?> type = object.getClass();
+    if (object instanceof String) {
+      return align(OBJECT_HEADER + 2L * REFERENCE) + align(ARRAY_HEADER + (long) ((String) object).length());
+    } else if (type.isArray()) {
+      return arraySize(object, type.getComponentType(), queue);
+    } else if (object instanceof Collection) {
+      Collection<?> collection = (Collection<?>) object;
+      collection.forEach(element -> push(queue, element));
+      return align(OBJECT_HEADER + 4L * REFERENCE) + (long) collection.size() * COLLECTION_ENTRY;
+    } else if (object instanceof Map) {
+      Map<?, ?> map = (Map<?, ?>) object;
+      map.forEach((k, v) -> {
+        push(queue, k);
+        push(queue, v);
+      });
+      return align(OBJECT_HEADER + 4L * REFERENCE) + (long) map.size() * MAP_ENTRY;
+    } else if (isShared(object)) {
+      return 0;
+    }
+    return objectSize(object, queue);
+  }
+
+  private static long arraySize(Object array, Class<?> componentType, Deque<Object> queue) {
+    int length = Array.getLength(array);
+    if (componentType.isPrimitive()) {
+      return align(ARRAY_HEADER + (long) length * primitiveSize(componentType));
+    }
+    for (Object element : (Object[]) array) {
+      push(queue, element);
+    }
+    return align(ARRAY_HEADER + (long) length * REFERENCE);
+  }
+
+  private static long objectSize(Object object, Deque<Object> queue) {
+    long size = OBJECT_HEADER;
+    for (Field field : FIELDS.get(object.getClass())) {
+      Class<?> type = field.getType();
+      if (type.isPrimitive()) {
+        size += primitiveSize(type);
+      } else {
+        size += REFERENCE;
+        if (field.canAccess(object)) {
+          push(queue, get(field, object));
+        }
+      }
+    }
+    return align(size);
+  }
+
+  private static Object get(Field field, Object object) {
+    try {
+      return field.get(object);
+    } catch (IllegalAccessException ex) {
+      return null;
+    }
+  }
+
+  private static void push(Deque<Object> queue, Object object) {
+    if (object != null) {
+      queue.push(object);
+    }
+  }
+
+  private static boolean isShared(Object object) {
+    return object instanceof Class || object instanceof Enum || object instanceof ClassLoader || object instanceof Thread;
+  }
+
+  private static List<Field> collectFields(Class<?> type) {
+    List<Field> fields = new ArrayList<>();
+    for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+      for (Field field : c.getDeclaredFields()) {
+        int modifiers = field.getModifiers();
+        if (!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers)) {
+          // fields of jdk classes are not accessible, they are only counted
+          field.trySetAccessible();
+          fields.add(field);
+        }
+      }
+    }
+    return Collections.unmodifiableList(fields);
+  }
+
+  private static int primitiveSize(Class<?> type) {
+    if (type == long.class || type == double.class) {
+      return 8;
+    } else if (type == int.class || type == float.class) {
+      return 4;
+    } else if (type == short.class || type == char.class) {
+      return 2;
+    }
+    return 1;
+  }
+
+  private static long align(long size) {
+    return (size + 7) & ~7L;
+  }
+
+  /**
+   * Moving average of the measured sizes of the instances of a type.
+   */
+  private static final class TypeEstimate {
+
+    private final AtomicLong instances = new AtomicLong();
+    private volatile long average;
+
+    long estimate(Object value) {
+      long instance = instances.getAndIncrement();
+      if (instance < WARM_UP || instance % SAMPLE_INTERVAL == 0) {
+        long measured = measure(value);
+        // concurrent updates may lose a sample, which does not matter for an estimate
+        average = instance == 0 ? measured : average + (measured - average) / 8;
+        return measured;
+      }
+      return average;
+    }
+  }
+}
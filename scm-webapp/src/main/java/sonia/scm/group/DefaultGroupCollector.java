@@ -96,10 +96,8 @@ public class DefaultGroupCollector implements GroupCollector {
   }
 
   private void appendInternalGroups(String principal, ImmutableSet.Builder<String> builder) {
-    for (Group group : groupDAO.getAll()) {
-      if (group.isMember(principal)) {
-        builder.add(group.getName());
-      }
+    for (Group group : groupDAO.getGroupsForMember(principal)) {
+      builder.add(group.getName());
     }
   }
 
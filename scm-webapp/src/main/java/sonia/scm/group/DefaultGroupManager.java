@@ -323,12 +323,9 @@ public class DefaultGroupManager extends AbstractGroupManager
   {
     LinkedList<Group> groups = new LinkedList<>();
 
-    for (Group group : groupDAO.getAll())
+    for (Group group : groupDAO.getGroupsForMember(member))
     {
-      if (group.isMember(member))
-      {
-        groups.add(group.clone());
-      }
+      groups.add(group.clone());
     }
 
     return groups;
@@ -29,8 +29,8 @@ import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
 import sonia.scm.ContextEntry;
 import sonia.scm.repository.Repository;
 import sonia.scm.repository.api.ImportFailedException;
-import sonia.scm.store.RepositoryStoreImporter;
 import sonia.scm.store.StoreEntryMetaData;
+import sonia.scm.store.StoreImporter;
 import sonia.scm.store.StoreType;
 
 import javax.inject.Inject;
@@ -39,10 +39,10 @@ import java.io.InputStream;
 
 public class TarArchiveRepositoryStoreImporter {
 
-  private final RepositoryStoreImporter repositoryStoreImporter;
+  private final StoreImporter repositoryStoreImporter;
 
   @Inject
-  public TarArchiveRepositoryStoreImporter(RepositoryStoreImporter repositoryStoreImporter) {
+  public TarArchiveRepositoryStoreImporter(StoreImporter repositoryStoreImporter) {
     this.repositoryStoreImporter = repositoryStoreImporter;
   }
 
@@ -59,6 +59,10 @@ import sonia.scm.store.JAXBConfigurationEntryStoreFactory;
 import sonia.scm.store.JAXBConfigurationStoreFactory;
 import sonia.scm.store.JAXBDataStoreFactory;
 import sonia.scm.store.JAXBPropertyFileAccess;
+import sonia.scm.store.mvstore.MVStoreBlobStoreFactory;
+import sonia.scm.store.mvstore.MVStoreConfigurationEntryStoreFactory;
+import sonia.scm.store.mvstore.MVStoreConfigurationStoreFactory;
+import sonia.scm.store.mvstore.MVStoreDataStoreFactory;
 import sonia.scm.update.BlobDirectoryAccess;
 import sonia.scm.update.PropertyFileAccess;
 import sonia.scm.update.RepositoryUpdateIterator;
@@ -103,10 +107,7 @@ public class BootstrapModule extends AbstractModule {
     // bind core
     bind(RepositoryArchivedCheck.class, EventDrivenRepositoryArchiveCheck.class);
     bind(RepositoryExportingCheck.class, DefaultRepositoryExportingCheck.class);
-    bind(ConfigurationStoreFactory.class, JAXBConfigurationStoreFactory.class);
-    bind(ConfigurationEntryStoreFactory.class, JAXBConfigurationEntryStoreFactory.class);
-    bind(DataStoreFactory.class, JAXBDataStoreFactory.class);
-    bind(BlobStoreFactory.class, FileBlobStoreFactory.class);
+    bindStores(StoreBackend.configured());
     bind(PluginLoader.class).toInstance(pluginLoader);
     bind(V1PropertyDAO.class, XmlV1PropertyDAO.class);
     bind(PropertyFileAccess.class, JAXBPropertyFileAccess.class);
@@ -116,6 +117,21 @@ public class BootstrapModule extends AbstractModule {
     bind(new TypeLiteral<UpdateStepRepositoryMetadataAccess<Path>>() {}).to(new TypeLiteral<MetadataStore>() {});
   }
 
+  private void bindStores(StoreBackend backend) {
+    LOG.info("use {} store backend", backend);
+    if (backend == StoreBackend.MVSTORE) {
+      bind(ConfigurationStoreFactory.class, MVStoreConfigurationStoreFactory.class);
+      bind(ConfigurationEntryStoreFactory.class, MVStoreConfigurationEntryStoreFactory.class);
+      bind(DataStoreFactory.class, MVStoreDataStoreFactory.class);
+      bind(BlobStoreFactory.class, MVStoreBlobStoreFactory.class);
+    } else {
+      bind(ConfigurationStoreFactory.class, JAXBConfigurationStoreFactory.class);
+      bind(ConfigurationEntryStoreFactory.class, JAXBConfigurationEntryStoreFactory.class);
+      bind(DataStoreFactory.class, JAXBDataStoreFactory.class);
+      bind(BlobStoreFactory.class, FileBlobStoreFactory.class);
+    }
+  }
+
   private <T> void bind(Class<T> clazz, Class<? extends T> defaultImplementation) {
     Class<? extends T> implementation = find(clazz, defaultImplementation);
     LOG.debug("bind {} to {}", clazz, implementation);
@@ -86,6 +86,7 @@ import sonia.scm.repository.HealthCheckService;
 import sonia.scm.repository.NamespaceManager;
 import sonia.scm.repository.NamespaceStrategy;
 import sonia.scm.repository.NamespaceStrategyProvider;
+import sonia.scm.repository.ReadableRepositoriesResolver;
 import sonia.scm.repository.PermissionProvider;
 import sonia.scm.repository.Repository;
 import sonia.scm.repository.RepositoryDAO;
@@ -109,12 +110,17 @@ import sonia.scm.security.AccessTokenCookieIssuer;
 import sonia.scm.security.AuthorizationChangedEventProducer;
 import sonia.scm.security.ConfigurableLoginAttemptHandler;
 import sonia.scm.security.DefaultAccessTokenCookieIssuer;
+import sonia.scm.security.DefaultReadableRepositoriesResolver;
 import sonia.scm.security.DefaultSecuritySystem;
 import sonia.scm.security.LoginAttemptHandler;
 import sonia.scm.security.RepositoryPermissionProvider;
 import sonia.scm.security.SecuritySystem;
 import sonia.scm.store.FileStoreExporter;
+import sonia.scm.store.RepositoryStoreImporter;
 import sonia.scm.store.StoreExporter;
+import sonia.scm.store.StoreImporter;
+import sonia.scm.store.mvstore.MVStoreExporter;
+import sonia.scm.store.mvstore.MVStoreImporter;
 import sonia.scm.template.MustacheTemplateEngine;
 import sonia.scm.template.TemplateEngine;
 import sonia.scm.template.TemplateEngineFactory;
@@ -222,9 +228,16 @@ class ScmServletModule extends ServletModule {
       GroupManagerProvider.class);
     bind(GroupDisplayManager.class, DefaultGroupDisplayManager.class);
     bind(NamespaceManager.class, DefaultNamespaceManager.class);
+    bind(ReadableRepositoriesResolver.class, DefaultReadableRepositoriesResolver.class);
     bind(GroupCollector.class, DefaultGroupCollector.class);
     bind(CGIExecutorFactory.class, DefaultCGIExecutorFactory.class);
-    bind(StoreExporter.class, FileStoreExporter.class);
+    if (StoreBackend.configured() == StoreBackend.MVSTORE) {
+      bind(StoreExporter.class, MVStoreExporter.class);
+      bind(StoreImporter.class, MVStoreImporter.class);
+    } else {
+      bind(StoreExporter.class, FileStoreExporter.class);
+      bind(StoreImporter.class, RepositoryStoreImporter.class);
+    }
 
     // bind ssl context provider
     bind(SSLContext.class).toProvider(SSLContextProvider.class);
@@ -0,0 +1,62 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package sonia.scm.lifecycle.modules;
+
+import java.util.Locale;
+
+/**
+ * Backend of the configuration, data and blob stores. The backend is selected with the system property
+ * {@value #PROPERTY}, the xml stores are used by default.
+ *
+ * @since 2.41.0
+ */
+public enum StoreBackend {
+
+  /**
+   * File based xml stores.
+   */
+  XML,
+
+  /**
+   * Embedded key value store from the module scm-dao-mvstore.
+   */
+  MVSTORE;
+
+  public static final String PROPERTY = "scm.storeBackend";
+
+  /**
+   * Returns the backend configured with the system property {@value #PROPERTY}.
+   *
+   * @return configured backend
+   */
+  public static StoreBackend configured() {
+    String value = System.getProperty(PROPERTY, XML.name());
+    try {
+      return valueOf(value.trim().toUpperCase(Locale.ENGLISH));
+    } catch (IllegalArgumentException ex) {
+      throw new IllegalStateException("unknown store backend " + value + " configured with " + PROPERTY, ex);
+    }
+  }
+}
@@ -26,6 +26,7 @@ package sonia.scm.metrics;
 
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 
 public class AuthenticationMetrics {
 
@@ -136,4 +137,37 @@ public class AuthenticationMetrics {
       .register(registry);
   }
 
+  /**
+   * Creates timer to track the time spent verifying credentials, e.g. hashing an api key passphrase.
+   *
+   * @param registry meter registry
+   * @param type     type of verified credential, e.g.: api_key
+   * @return new {@link Timer}
+   * @since 2.41.0
+   */
+  public static Timer credentialVerification(MeterRegistry registry, String type) {
+    return Timer
+      .builder("scm.auth.credential.verification")
+      .description("The time spent verifying credentials")
+      .tags("type", type)
+      .register(registry);
+  }
+
+  /**
+   * Creates counter to track lookups in the cache of verified credentials.
+   *
+   * @param registry meter registry
+   * @param type     type of verified credential, e.g.: api_key
+   * @param hit      {@code true} to count hits, {@code false} to count misses
+   * @return new {@link Counter}
+   * @since 2.41.0
+   */
+  public static Counter credentialCache(MeterRegistry registry, String type, boolean hit) {
+    return Counter
+      .builder("scm.auth.credential.cache")
+      .description("The amount of lookups in the cache of verified credentials")
+      .tags("type", type, "result", hit ? "hit" : "miss")
+      .register(registry);
+  }
+
 }
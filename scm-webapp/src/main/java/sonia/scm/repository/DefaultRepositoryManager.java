@@ -25,6 +25,7 @@
 package sonia.scm.repository;
 
 import com.google.common.base.Strings;
+import com.google.common.base.Suppliers;
 import com.google.common.collect.Lists;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
@@ -110,15 +111,18 @@ public class DefaultRepositoryManager extends AbstractRepositoryManager {
   private final Provider<NamespaceStrategy> namespaceStrategyProvider;
   private final ManagerDaoAdapter<Repository> managerDaoAdapter;
   private final RepositoryPostProcessor repositoryPostProcessor;
+  private final ReadableRepositoriesResolver readableRepositoriesResolver;
 
   @Inject
   public DefaultRepositoryManager(SCMContextProvider contextProvider, KeyGenerator keyGenerator,
                                   RepositoryDAO repositoryDAO, Set<RepositoryHandler> handlerSet,
-                                  Provider<NamespaceStrategy> namespaceStrategyProvider, RepositoryPostProcessor repositoryPostProcessor) {
+                                  Provider<NamespaceStrategy> namespaceStrategyProvider, RepositoryPostProcessor repositoryPostProcessor,
+                                  ReadableRepositoriesResolver readableRepositoriesResolver) {
     this.keyGenerator = keyGenerator;
     this.repositoryDAO = repositoryDAO;
     this.namespaceStrategyProvider = namespaceStrategyProvider;
     this.repositoryPostProcessor = repositoryPostProcessor;
+    this.readableRepositoriesResolver = readableRepositoriesResolver;
 
     handlerMap = new HashMap<>();
     types = new HashSet<>();
@@ -164,14 +168,14 @@ public class DefaultRepositoryManager extends AbstractRepositoryManager {
         if (initRepository) {
           try {
             getHandler(newRepository).create(newRepository);
-            invalidateRepositoryPermissions();
+            invalidateRepositoryPermissions(newRepository);
             afterCreation.accept(newRepository);
           } catch (Exception e) {
             delete(repository);
             throw e;
           }
         } else {
-          invalidateRepositoryPermissions();
+          invalidateRepositoryPermissions(newRepository);
           afterCreation.accept(newRepository);
         }
         fireEvent(HandlerEventType.CREATE, newRepository);
@@ -189,8 +193,8 @@ public class DefaultRepositoryManager extends AbstractRepositoryManager {
       .stream().anyMatch(t -> t.getName().equals(type));
   }
 
-  private void invalidateRepositoryPermissions() {
-    ScmEventBus.getInstance().post(AuthorizationChangedEvent.createForEveryUser());
+  private void invalidateRepositoryPermissions(Repository repository) {
+    ScmEventBus.getInstance().post(AuthorizationChangedEvent.createForRepository(repository.getId()));
   }
 
   @Override
@@ -352,11 +356,12 @@ public class DefaultRepositoryManager extends AbstractRepositoryManager {
   @Override
   public Collection<Repository> getAll(Predicate<Repository> filter, Comparator<Repository> comparator) {
     List<Repository> repositories = Lists.newArrayList();
+    Supplier<ReadableRepositories> readableRepositories = resolveReadableRepositories();
 
     for (Repository repository : repositoryDAO.getAll()) {
       if (handlerMap.containsKey(repository.getType())
         && filter.test(repository)
-        && RepositoryPermissions.read().isPermitted(repository)) {
+        && readableRepositories.get().contains(repository)) {
         Repository r = postProcess(repository);
 
         repositories.add(r);
@@ -379,10 +384,10 @@ public class DefaultRepositoryManager extends AbstractRepositoryManager {
   @Override
   public Collection<Repository> getAll(Comparator<Repository> comparator,
                                        int start, int limit) {
-
+    Supplier<ReadableRepositories> readableRepositories = resolveReadableRepositories();
     return Util.createSubCollection(repositoryDAO.getAll(), comparator,
       (collection, item) -> {
-        if (RepositoryPermissions.read().isPermitted(item)) {
+        if (readableRepositories.get().contains(item)) {
           collection.add(postProcess(item));
         }
       }, start, limit);
@@ -393,6 +398,11 @@ public class DefaultRepositoryManager extends AbstractRepositoryManager {
     return getAll(null, start, limit);
   }
 
+  private Supplier<ReadableRepositories> resolveReadableRepositories() {
+    // resolve on the first repository which passes the filters, so that empty listings stay cheap
+    return Suppliers.memoize(readableRepositoriesResolver::resolve);
+  }
+
   /**
    * @deprecated Use {@link NamespaceManager#getAll()} instead.
    */
@@ -0,0 +1,250 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package sonia.scm.repository;
+
+import com.github.legman.Subscribe;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.RateLimiter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sonia.scm.EagerSingleton;
+import sonia.scm.cache.CacheAdmission;
+import sonia.scm.plugin.Extension;
+import sonia.scm.repository.api.BrowseCommandBuilder;
+import sonia.scm.repository.api.Command;
+import sonia.scm.repository.api.RepositoryService;
+import sonia.scm.repository.api.RepositoryServiceFactory;
+import sonia.scm.work.CentralWorkQueue;
+
+import javax.inject.Inject;
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Recomputes the frequently requested results of the repository commands after a push has invalidated them, so that
+ * the next user who opens the repository does not have to wait for them. These are the first page of the log of the
+ * default branch, the branches with their details, the tags and the root directory.
+ * <p>
+ * The warm-up runs on the {@link CentralWorkQueue} with a lock for the repository. It is skipped for repositories which
+ * were not read recently, because their results would probably be evicted before they are requested. A warm-up which
+ * is not yet started already covers later pushes, so they do not enqueue another one. The number of warm-ups is limited
+ * by a rate over all repositories.
+ * <p>
+ * The warm-up can be configured with the following system properties:
+ * <ul>
+ *   <li>{@value ENABLED_PROPERTY}: set to {@code false} to disable the warm-up</li>
+ *   <li>{@value READ_WINDOW_PROPERTY}: repositories are only warmed up, if they were read within this number of
+ *   minutes (default: {@value DEFAULT_READ_WINDOW})</li>
+ *   <li>{@value RATE_PROPERTY}: maximum number of warm-ups per minute (default: {@value DEFAULT_RATE})</li>
+ *   <li>{@value BRANCH_DETAILS_PROPERTY}: maximum number of branches, whose details are computed (default:
+ *   {@value DEFAULT_BRANCH_DETAILS})</li>
+ * </ul>
+ *
+ * @since 2.41.0
+ */
+@Extension
+@EagerSingleton
+public class RepositoryCacheWarmUp {
+
+  public static final String ENABLED_PROPERTY = "scm.cacheWarmUp.enabled";
+  public static final String READ_WINDOW_PROPERTY = "scm.cacheWarmUp.readWindow";
+  public static final String RATE_PROPERTY = "scm.cacheWarmUp.rate";
+  public static final String BRANCH_DETAILS_PROPERTY = "scm.cacheWarmUp.branchDetails";
+
+  static final int DEFAULT_READ_WINDOW = 60;
+  static final int DEFAULT_RATE = 30;
+  static final int DEFAULT_BRANCH_DETAILS = 10;
+
+  static final String LOCK = "repository-cache-warm-up";
+
+  /**
+   * the page size of the log, which is used by the ui
+   */
+  private static final int LOG_PAGE_SIZE = 10;
+
+  private static final Logger LOG = LoggerFactory.getLogger(RepositoryCacheWarmUp.class);
+
+  private final CentralWorkQueue workQueue;
+  private final RepositoryManager repositoryManager;
+  private final RepositoryServiceFactory serviceFactory;
+  private final Clock clock;
+
+  private final boolean enabled;
+  private final Duration readWindow;
+  private final RateLimiter rateLimiter;
+  private final int branchDetailsLimit;
+
+  private final Set<String> pending = ConcurrentHashMap.newKeySet();
+  private final Map<String, Instant> lastWarmUps = new ConcurrentHashMap<>();
+
+  @Inject
+  public RepositoryCacheWarmUp(CentralWorkQueue workQueue, RepositoryManager repositoryManager,
+                               RepositoryServiceFactory serviceFactory) {
+    this(
+      workQueue, repositoryManager, serviceFactory, Clock.systemUTC(),
+      Boolean.parseBoolean(System.getProperty(ENABLED_PROPERTY, "true")),
+      Duration.ofMinutes(Integer.getInteger(READ_WINDOW_PROPERTY, DEFAULT_READ_WINDOW)),
+      Integer.getInteger(RATE_PROPERTY, DEFAULT_RATE),
+      Integer.getInteger(BRANCH_DETAILS_PROPERTY, DEFAULT_BRANCH_DETAILS)
+    );
+  }
+
+  @VisibleForTesting
+  @SuppressWarnings("java:S107") // configuration is passed for testing
+  RepositoryCacheWarmUp(CentralWorkQueue workQueue, RepositoryManager repositoryManager,
+                        RepositoryServiceFactory serviceFactory, Clock clock, boolean enabled,
+                        Duration readWindow, int rate, int branchDetailsLimit) {
+    this.workQueue = workQueue;
+    this.repositoryManager = repositoryManager;
+    this.serviceFactory = serviceFactory;
+    this.clock = clock;
+    this.enabled = enabled;
+    this.readWindow = readWindow;
+    this.rateLimiter = RateLimiter.create(Math.max(rate, 1) / 60.0);
+    this.branchDetailsLimit = branchDetailsLimit;
+  }
+
+  /**
+   * Enqueues the warm-up after the caches were cleared by the push. The caches are cleared synchronously during the
+   * dispatch of the event, whereas this subscriber is called asynchronously.
+   *
+   * @param event hook event
+   */
+  @Subscribe
+  public void onEvent(PostReceiveRepositoryHookEvent event) {
+    Repository repository = event.getRepository();
+    if (!enabled || repository == null) {
+      return;
+    }
+
+    String id = repository.getId();
+    if (!wasReadRecently(id)) {
+      LOG.trace("skip cache warm-up of repository {}, because it was not read recently", repository);
+    } else if (!pending.add(id)) {
+      LOG.trace("skip cache warm-up of repository {}, because a warm-up is already pending", repository);
+    } else if (!rateLimiter.tryAcquire()) {
+      pending.remove(id);
+      LOG.debug("skip cache warm-up of repository {}, because the rate of warm-ups is exceeded", repository);
+    } else {
+      LOG.debug("enqueue cache warm-up of repository {}", repository);
+      workQueue.append()
+        .locks(LOCK, id)
+        .runAsAdmin()
+        .enqueue(new RepositoryCacheWarmUpTask(id));
+    }
+  }
+
+  /**
+   * Only reads after the last warm-up are taken into account, because the warm-up reads the repository too.
+   */
+  private boolean wasReadRecently(String repositoryId) {
+    Optional<Instant> lastAccess = serviceFactory.getLastAccess(repositoryId);
+    if (!lastAccess.isPresent() || lastAccess.get().isBefore(clock.instant().minus(readWindow))) {
+      return false;
+    }
+    Instant lastWarmUp = lastWarmUps.get(repositoryId);
+    return lastWarmUp == null || lastAccess.get().isAfter(lastWarmUp);
+  }
+
+  /**
+   * Recomputes the cached results for the repository.
+   *
+   * @param repositoryId id of the repository
+   */
+  void warmUp(String repositoryId) {
+    // pushes during the warm-up have to enqueue another one
+    pending.remove(repositoryId);
+
+    Repository repository = repositoryManager.get(repositoryId);
+    if (repository == null) {
+      LOG.debug("skip cache warm-up of repository {}, because it does not exist anymore", repositoryId);
+      return;
+    }
+
+    try (RepositoryService service = serviceFactory.create(repository)) {
+      LOG.debug("warm up caches of repository {}", repository);
+      String defaultBranch = warmUpBranches(service);
+      if (service.isSupported(Command.TAGS)) {
+        service.getTagsCommand().getTags();
+      }
+      if (service.isSupported(Command.LOG)) {
+        service.getLogCommand().setBranch(defaultBranch).setPagingStart(0).setPagingLimit(LOG_PAGE_SIZE).getChangesets();
+      }
+      if (service.isSupported(Command.BROWSE)) {
+        warmUpBrowse(service, null);
+        if (defaultBranch != null) {
+          warmUpBrowse(service, defaultBranch);
+        }
+      }
+    } catch (IOException | RuntimeException ex) {
+      LOG.warn("failed to warm up caches of repository {}", repository, ex);
+    } finally {
+      lastWarmUps.put(repositoryId, clock.instant());
+    }
+  }
+
+  private String warmUpBranches(RepositoryService service) throws IOException {
+    if (!service.isSupported(Command.BRANCHES)) {
+      return null;
+    }
+    List<Branch> branches = service.getBranchesCommand().getBranches().getBranches();
+    if (service.isSupported(Command.BRANCH_DETAILS)) {
+      List<Branch> recentBranches = branches.stream()
+        .sorted(Comparator.comparing((Branch branch) -> branch.getLastCommitDate().orElse(0L)).reversed())
+        .limit(branchDetailsLimit)
+        .collect(toList());
+      for (Branch branch : recentBranches) {
+        service.getBranchDetailsCommand().execute(branch.getName());
+      }
+    }
+    return branches.stream()
+      .filter(Branch::isDefaultBranch)
+      .map(Branch::getName)
+      .findFirst()
+      .orElse(null);
+  }
+
+  /**
+   * Uses the same parameters as the source view of the ui, so that the cache keys are matching. The result is admitted
+   * to the browse cache, even though its key was never requested before.
+   */
+  private void warmUpBrowse(RepositoryService service, String revision) throws IOException {
+    BrowseCommandBuilder browseCommand = service.getBrowseCommand().setPath("/").setCollapse(true);
+    if (revision != null) {
+      browseCommand.setRevision(revision);
+    }
+    CacheAdmission.admitAll(browseCommand::getBrowserResult);
+  }
+}
@@ -29,7 +29,10 @@ import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.SearcherManager;
 import org.apache.lucene.store.FSDirectory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import sonia.scm.SCMContextProvider;
 import sonia.scm.plugin.PluginLoader;
 
@@ -40,6 +43,7 @@ import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.XmlRootElement;
+import java.io.Closeable;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -47,14 +51,24 @@ import java.nio.file.Paths;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 @Singleton
-public class IndexManager {
+public class IndexManager implements Closeable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(IndexManager.class);
+
+  // searchers are refreshed after every commit of our own writers,
+  // the interval only bounds the staleness if the index was changed otherwise
+  private static final long MAX_STALENESS = TimeUnit.SECONDS.toNanos(30);
 
   private final Path directory;
   private final AnalyzerFactory analyzerFactory;
   private final IndexXml indexXml;
+  private final Map<Path, PooledIndex> searchers = new ConcurrentHashMap<>();
 
   @Inject
   public IndexManager(SCMContextProvider context, PluginLoader pluginLoader, AnalyzerFactory analyzerFactory) {
@@ -90,6 +104,49 @@ public class IndexManager {
     return new NoOpIndexReader();
   }
 
+  /**
+   * Returns a pooled searcher for the index. The searcher is shared between concurrent searches
+   * and is refreshed after changes to the index have been committed.
+   * The returned searcher must be closed after the search.
+   */
+  PooledSearcher openSearcher(LuceneSearchableType type, String indexName) throws IOException {
+    Path path = resolveIndexDirectory(type, indexName);
+    PooledIndex index = searchers.get(path);
+    if (index == null) {
+      index = createPooledIndex(path);
+      if (index == null) {
+        return PooledSearcher.unpooled(new NoOpIndexReader());
+      }
+    }
+    return index.acquire();
+  }
+
+  private synchronized PooledIndex createPooledIndex(Path path) throws IOException {
+    PooledIndex index = searchers.get(path);
+    if (index != null) {
+      return index;
+    }
+    FSDirectory fsDirectory = FSDirectory.open(path);
+    if (!DirectoryReader.indexExists(fsDirectory)) {
+      fsDirectory.close();
+      return null;
+    }
+    LOG.debug("open pooled searcher for index at {}", path);
+    index = new PooledIndex(fsDirectory, new SearcherManager(fsDirectory, null));
+    searchers.put(path, index);
+    return index;
+  }
+
+  /**
+   * Marks the searcher of the index as stale, the next search will see all committed changes.
+   */
+  void refresh(IndexParams indexParams) {
+    PooledIndex index = searchers.get(resolveIndexDirectory(indexParams));
+    if (index != null) {
+      index.markStale();
+    }
+  }
+
   public IndexWriter openForWrite(IndexParams indexParams) {
     IndexWriterConfig config = new IndexWriterConfig(analyzerFactory.create(indexParams.getSearchableType()));
     config.setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
@@ -131,6 +188,51 @@ public class IndexManager {
     JAXB.marshal(indexXml, path.toFile());
   }
 
+  @Override
+  public synchronized void close() throws IOException {
+    for (PooledIndex index : searchers.values()) {
+      index.close();
+    }
+    searchers.clear();
+  }
+
+  private static class PooledIndex implements Closeable {
+
+    private final FSDirectory directory;
+    private final SearcherManager manager;
+    private volatile boolean stale = false;
+    private volatile long refreshedAt = System.nanoTime();
+
+    private PooledIndex(FSDirectory directory, SearcherManager manager) {
+      this.directory = directory;
+      this.manager = manager;
+    }
+
+    PooledSearcher acquire() throws IOException {
+      long now = System.nanoTime();
+      if (stale) {
+        stale = false;
+        refreshedAt = now;
+        // wait for the refresh, because the caller may expect to see its own changes
+        manager.maybeRefreshBlocking();
+      } else if (now - refreshedAt > MAX_STALENESS) {
+        refreshedAt = now;
+        manager.maybeRefresh();
+      }
+      return PooledSearcher.acquire(manager);
+    }
+
+    void markStale() {
+      stale = true;
+    }
+
+    @Override
+    public void close() throws IOException {
+      manager.close();
+      directory.close();
+    }
+  }
+
   @Data
   @XmlRootElement(name = "indices")
   @XmlAccessorType(XmlAccessType.FIELD)
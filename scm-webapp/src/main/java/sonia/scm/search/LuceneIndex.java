@@ -55,9 +55,13 @@ class LuceneIndex<T> implements Index<T>, AutoCloseable {
   private final SharableIndexWriter writer;
 
   LuceneIndex(IndexParams params, Supplier<IndexWriter> writerFactory) {
+    this(params, writerFactory, () -> {});
+  }
+
+  LuceneIndex(IndexParams params, Supplier<IndexWriter> writerFactory, Runnable afterCommit) {
     this.details = params;
     this.searchableType = params.getSearchableType();
-    this.writer = new SharableIndexWriter(writerFactory);
+    this.writer = new SharableIndexWriter(writerFactory, afterCommit);
     this.open();
   }
 
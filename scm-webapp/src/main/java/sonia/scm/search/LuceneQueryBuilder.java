@@ -28,7 +28,6 @@ import com.google.common.base.Strings;
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.analysis.TokenStream;
 import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
-import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.queryparser.flexible.core.QueryNodeException;
 import org.apache.lucene.queryparser.flexible.standard.StandardQueryParser;
@@ -43,8 +42,10 @@ import org.apache.lucene.search.TopScoreDocCollector;
 import org.apache.lucene.search.TotalHitCountCollector;
 import org.apache.lucene.search.WildcardQuery;
 import org.apache.lucene.search.highlight.InvalidTokenOffsetsException;
+import org.apache.shiro.SecurityUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import sonia.scm.repository.ReadableRepositoriesResolver;
 
 import javax.annotation.Nonnull;
 import java.io.IOException;
@@ -57,12 +58,17 @@ public class LuceneQueryBuilder<T> extends QueryBuilder<T> {
   private final LuceneSearchableType searchableType;
   private final String indexName;
   private final Analyzer analyzer;
+  private final ReadableRepositoriesResolver readableRepositoriesResolver;
+  private final PermissionFilterCache permissionFilterCache;
 
-  LuceneQueryBuilder(IndexManager opener, String indexName, LuceneSearchableType searchableType, Analyzer analyzer) {
+  LuceneQueryBuilder(IndexManager opener, String indexName, LuceneSearchableType searchableType, Analyzer analyzer,
+                     ReadableRepositoriesResolver readableRepositoriesResolver, PermissionFilterCache permissionFilterCache) {
     this.opener = opener;
     this.indexName = indexName;
     this.searchableType = searchableType;
     this.analyzer = analyzer;
+    this.readableRepositoriesResolver = readableRepositoriesResolver;
+    this.permissionFilterCache = permissionFilterCache;
   }
 
   @Override
@@ -87,14 +93,19 @@ public class LuceneQueryBuilder<T> extends QueryBuilder<T> {
     String queryString = Strings.nullToEmpty(queryParams.getQueryString());
 
     Query parsedQuery = createQuery(searchableType, queryParams, queryString);
-    Query query = Queries.filter(parsedQuery, queryParams);
+    Query query = Queries.permitted(
+      Queries.filter(parsedQuery, queryParams),
+      SecurityUtils.getSubject(),
+      readableRepositoriesResolver.resolve(),
+      permissionFilterCache
+    );
     if (LOG.isDebugEnabled()) {
       LOG.debug("execute lucene query: {}", query);
     }
-    try (IndexReader reader = opener.openForRead(searchableType, indexName)) {
-      IndexSearcher searcher = new IndexSearcher(reader);
+    try (PooledSearcher pooledSearcher = opener.openSearcher(searchableType, indexName)) {
+      IndexSearcher searcher = pooledSearcher.getSearcher();
 
-      searcher.search(query, new PermissionAwareCollector(reader, collector));
+      searcher.search(query, collector);
 
       return resultBuilder.create(searcher, parsedQuery);
     } catch (IOException e) {
@@ -24,17 +24,25 @@
 
 package sonia.scm.search;
 
+import sonia.scm.repository.ReadableRepositoriesResolver;
+
 import javax.inject.Inject;
 
 public class LuceneQueryBuilderFactory {
 
   private final IndexManager indexManager;
   private final AnalyzerFactory analyzerFactory;
+  private final ReadableRepositoriesResolver readableRepositoriesResolver;
+  private final PermissionFilterCache permissionFilterCache;
 
   @Inject
-  public LuceneQueryBuilderFactory(IndexManager indexManager, AnalyzerFactory analyzerFactory) {
+  LuceneQueryBuilderFactory(IndexManager indexManager, AnalyzerFactory analyzerFactory,
+                            ReadableRepositoriesResolver readableRepositoriesResolver,
+                            PermissionFilterCache permissionFilterCache) {
     this.indexManager = indexManager;
     this.analyzerFactory = analyzerFactory;
+    this.readableRepositoriesResolver = readableRepositoriesResolver;
+    this.permissionFilterCache = permissionFilterCache;
   }
 
   public <T> LuceneQueryBuilder<T> create(IndexParams indexParams) {
@@ -42,7 +50,9 @@ public class LuceneQueryBuilderFactory {
       indexManager,
       indexParams.getIndex(),
       indexParams.getSearchableType(),
-      analyzerFactory.create(indexParams.getSearchableType())
+      analyzerFactory.create(indexParams.getSearchableType()),
+      readableRepositoriesResolver,
+      permissionFilterCache
     );
   }
 
@@ -0,0 +1,67 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package sonia.scm.search;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.DocIdSet;
+import sonia.scm.repository.ReadableRepositories;
+
+import javax.annotation.Nullable;
+import javax.inject.Singleton;
+
+/**
+ * Caches the documents of index segments, which are permitted by a set of {@link ReadableRepositories}. An entry is
+ * bound to the core of a segment, which never changes, and to the instance of the readable repositories, which is
+ * renewed whenever the permissions of the subject change. Both are referenced weakly, so entries vanish with merged
+ * segments and outdated permissions.
+ *
+ * @since 2.41.0
+ */
+@Singleton
+class PermissionFilterCache {
+
+  private static final int MAX_ENTRIES_PER_SEGMENT = 128;
+
+  private final Cache<IndexReader.CacheKey, Cache<ReadableRepositories, DocIdSet>> segments = CacheBuilder.newBuilder()
+    .weakKeys()
+    .build();
+
+  @Nullable
+  DocIdSet get(IndexReader.CacheKey segment, ReadableRepositories readableRepositories) {
+    Cache<ReadableRepositories, DocIdSet> permitted = segments.getIfPresent(segment);
+    if (permitted == null) {
+      return null;
+    }
+    return permitted.getIfPresent(readableRepositories);
+  }
+
+  void put(IndexReader.CacheKey segment, ReadableRepositories readableRepositories, DocIdSet permitted) {
+    segments.asMap()
+      .computeIfAbsent(segment, key -> CacheBuilder.newBuilder().weakKeys().maximumSize(MAX_ENTRIES_PER_SEGMENT).build())
+      .put(readableRepositories, permitted);
+  }
+}
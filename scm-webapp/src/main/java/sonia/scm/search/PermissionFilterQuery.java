@@ -0,0 +1,206 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package sonia.scm.search;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.ConstantScoreScorer;
+import org.apache.lucene.search.ConstantScoreWeight;
+import org.apache.lucene.search.DocIdSet;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryVisitor;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.Weight;
+import org.apache.lucene.util.BitDocIdSet;
+import org.apache.lucene.util.BitSetIterator;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.FixedBitSet;
+import org.apache.lucene.util.RoaringDocIdSet;
+import org.apache.shiro.subject.Subject;
+import sonia.scm.repository.ReadableRepositories;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static sonia.scm.search.FieldNames.PERMISSION;
+
+/**
+ * Query which matches all documents the subject is permitted to read.
+ * Each distinct permission term is checked once per query rather than once per hit or segment, and the matching
+ * happens together with the actual query, so no stored fields have to be loaded. Read permissions of repositories are
+ * answered by the {@link ReadableRepositories} of the subject. Segments which only contain such permissions are
+ * cached for the readable repositories, so they are not computed again until the segment or the permissions change.
+ * Documents without permission are readable by everyone.
+ */
+final class PermissionFilterQuery extends Query {
+
+  private static final String REPOSITORY_READ = "repository:read:";
+
+  private final Subject subject;
+  private final ReadableRepositories readableRepositories;
+  private final PermissionFilterCache cache;
+  private final Map<String, Boolean> decisions = new ConcurrentHashMap<>();
+
+  PermissionFilterQuery(Subject subject, ReadableRepositories readableRepositories, PermissionFilterCache cache) {
+    this.subject = subject;
+    this.readableRepositories = readableRepositories;
+    this.cache = cache;
+  }
+
+  @Override
+  public Weight createWeight(IndexSearcher searcher, ScoreMode scoreMode, float boost) {
+    return new ConstantScoreWeight(this, boost) {
+      @Override
+      public Scorer scorer(LeafReaderContext context) throws IOException {
+        return new ConstantScoreScorer(this, score(), scoreMode, permitted(context.reader()).iterator());
+      }
+
+      @Override
+      public boolean isCacheable(LeafReaderContext ctx) {
+        // the result depends on the permissions of the subject, which are not part of the index
+        return false;
+      }
+    };
+  }
+
+  private DocIdSet permitted(LeafReader reader) throws IOException {
+    IndexReader.CacheHelper cacheHelper = reader.getCoreCacheHelper();
+    IndexReader.CacheKey segment = cacheHelper != null ? cacheHelper.getKey() : null;
+    if (segment != null) {
+      DocIdSet cached = cache.get(segment, readableRepositories);
+      if (cached != null) {
+        return cached;
+      }
+    }
+
+    int maxDoc = reader.maxDoc();
+    Terms terms = reader.terms(PERMISSION);
+    if (terms == null) {
+      return new AllDocIdSet(maxDoc);
+    }
+
+    boolean cacheable = segment != null;
+    FixedBitSet denied = null;
+    PostingsEnum postings = null;
+    TermsEnum termsEnum = terms.iterator();
+    for (BytesRef term = termsEnum.next(); term != null; term = termsEnum.next()) {
+      String permission = term.utf8ToString();
+      // only decisions of the readable repositories are valid beyond this query
+      cacheable = cacheable && getReadableRepositoryId(permission) != null;
+      if (!isPermitted(permission)) {
+        if (denied == null) {
+          denied = new FixedBitSet(maxDoc);
+        }
+        postings = termsEnum.postings(postings, PostingsEnum.NONE);
+        denied.or(postings);
+      }
+    }
+
+    DocIdSet permitted;
+    if (denied == null) {
+      permitted = new AllDocIdSet(maxDoc);
+    } else {
+      denied.flip(0, maxDoc);
+      permitted = cacheable ? compact(denied, maxDoc) : new BitDocIdSet(denied);
+    }
+    if (cacheable) {
+      cache.put(segment, readableRepositories, permitted);
+    }
+    return permitted;
+  }
+
+  private DocIdSet compact(FixedBitSet docs, int maxDoc) throws IOException {
+    return new RoaringDocIdSet.Builder(maxDoc)
+      .add(new BitSetIterator(docs, docs.cardinality()))
+      .build();
+  }
+
+  private boolean isPermitted(String permission) {
+    return decisions.computeIfAbsent(permission, p -> {
+      String repositoryId = getReadableRepositoryId(p);
+      if (repositoryId != null) {
+        return readableRepositories.contains(repositoryId);
+      }
+      return subject.isPermitted(p);
+    });
+  }
+
+  private static String getReadableRepositoryId(String permission) {
+    if (permission.startsWith(REPOSITORY_READ)) {
+      String id = permission.substring(REPOSITORY_READ.length());
+      if (!id.isEmpty() && id.indexOf(':') < 0 && id.indexOf(',') < 0 && !id.equals("*")) {
+        return id;
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public void visit(QueryVisitor visitor) {
+    visitor.visitLeaf(this);
+  }
+
+  @Override
+  public String toString(String field) {
+    return "permitted(" + subject.getPrincipal() + ")";
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    return sameClassAs(other) && subject == ((PermissionFilterQuery) other).subject;
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * classHash() + System.identityHashCode(subject);
+  }
+
+  private static final class AllDocIdSet extends DocIdSet {
+
+    private final int maxDoc;
+
+    private AllDocIdSet(int maxDoc) {
+      this.maxDoc = maxDoc;
+    }
+
+    @Override
+    public DocIdSetIterator iterator() {
+      return DocIdSetIterator.all(maxDoc);
+    }
+
+    @Override
+    public long ramBytesUsed() {
+      return Integer.BYTES;
+    }
+  }
+}
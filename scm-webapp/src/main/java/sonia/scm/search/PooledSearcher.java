@@ -0,0 +1,74 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package sonia.scm.search;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.ReferenceManager;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Searcher which is borrowed from a pool and must be closed after the search,
+ * in order to return it to the pool.
+ */
+final class PooledSearcher implements Closeable {
+
+  private final ReferenceManager<IndexSearcher> manager;
+  private final IndexSearcher searcher;
+
+  private PooledSearcher(ReferenceManager<IndexSearcher> manager, IndexSearcher searcher) {
+    this.manager = manager;
+    this.searcher = searcher;
+  }
+
+  static PooledSearcher acquire(ReferenceManager<IndexSearcher> manager) throws IOException {
+    return new PooledSearcher(manager, manager.acquire());
+  }
+
+  /**
+   * Returns a searcher for the given reader which is not pooled,
+   * the reader is not closed together with the searcher.
+   */
+  static PooledSearcher unpooled(IndexReader reader) {
+    return new PooledSearcher(null, new IndexSearcher(reader));
+  }
+
+  IndexSearcher getSearcher() {
+    return searcher;
+  }
+
+  IndexReader getReader() {
+    return searcher.getIndexReader();
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (manager != null) {
+      manager.release(searcher);
+    }
+  }
+}
@@ -29,10 +29,13 @@ import org.apache.lucene.search.BooleanClause;
 import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.TermQuery;
+import org.apache.shiro.subject.Subject;
+import sonia.scm.repository.ReadableRepositories;
 
 import java.util.Collection;
 import java.util.Map;
 
+import static org.apache.lucene.search.BooleanClause.Occur.FILTER;
 import static org.apache.lucene.search.BooleanClause.Occur.MUST;
 import static org.apache.lucene.search.BooleanClause.Occur.SHOULD;
 
@@ -51,6 +54,13 @@ final class Queries {
     return query;
   }
 
+  static Query permitted(Query query, Subject subject, ReadableRepositories readableRepositories, PermissionFilterCache cache) {
+    return new BooleanQuery.Builder()
+      .add(query, MUST)
+      .add(new PermissionFilterQuery(subject, readableRepositories, cache), FILTER)
+      .build();
+  }
+
   static Query filterQuery(Map<Class<?>, Collection<String>> filters) {
     return builder(filters).build();
   }
@@ -42,10 +42,16 @@ class SharableIndexWriter {
   private int usageCounter = 0;
 
   private final Supplier<IndexWriter> writerFactory;
+  private final Runnable afterCommit;
   private IndexWriter writer;
 
   SharableIndexWriter(Supplier<IndexWriter> writerFactory) {
+    this(writerFactory, () -> {});
+  }
+
+  SharableIndexWriter(Supplier<IndexWriter> writerFactory, Runnable afterCommit) {
     this.writerFactory = writerFactory;
+    this.afterCommit = afterCommit;
   }
 
   synchronized void open() {
@@ -85,9 +91,11 @@ class SharableIndexWriter {
       LOG.trace("no one seems to use index any longer, closing underlying writer");
       writer.close();
       writer = null;
+      afterCommit.run();
     } else if (usageCounter > 0) {
       LOG.trace("index is still used by {} task(s), commit work but keep writer open", usageCounter);
       writer.commit();
+      afterCommit.run();
     } else {
       LOG.warn("index is already closed");
     }
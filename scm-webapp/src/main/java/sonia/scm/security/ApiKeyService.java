@@ -25,8 +25,15 @@
 package sonia.scm.security;
 
 import com.github.legman.Subscribe;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
 import com.google.common.util.concurrent.Striped;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import org.apache.shiro.authc.credential.PasswordService;
 import org.apache.shiro.authz.AuthorizationException;
@@ -34,12 +41,17 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import sonia.scm.ContextEntry;
 import sonia.scm.HandlerEventType;
+import sonia.scm.cache.Cache;
+import sonia.scm.cache.CacheManager;
+import sonia.scm.metrics.AuthenticationMetrics;
+import sonia.scm.repository.RepositoryRoleEvent;
 import sonia.scm.store.DataStore;
 import sonia.scm.store.DataStoreFactory;
 import sonia.scm.user.UserEvent;
 import sonia.scm.user.UserPermissions;
 
 import javax.inject.Inject;
+import java.nio.charset.StandardCharsets;
 import java.security.SecureRandom;
 import java.util.Collection;
 import java.util.concurrent.locks.Lock;
@@ -57,26 +69,47 @@ public class ApiKeyService {
 
   private static final Logger LOG = LoggerFactory.getLogger(ApiKeyService.class);
   private static final int PASSPHRASE_LENGTH = 20;
+  // keys are checked for every request which is authenticated with an api key
+  private static final int CACHE_SIZE = 1000;
+  private static final String CACHE_NAME = "sonia.cache.apiKeys";
+  private static final String METRIC_TYPE = "api_key";
+  // keyed with a secret generated on every start, so the cache never holds anything
+  // which could be used to derive the passphrase
+  private static final HashFunction CREDENTIAL_HASH = Hashing.hmacSha256(createSecret());
 
   private final DataStore<ApiKeyCollection> store;
   private final PasswordService passwordService;
   private final KeyGenerator keyGenerator;
   private final Supplier<String> passphraseGenerator;
   private final ApiKeyTokenHandler tokenHandler;
+  private final Cache<VerifiedKey, CheckResult> verifiedKeys;
+  private final Timer verificationTimer;
+  private final Counter cacheHits;
+  private final Counter cacheMisses;
 
   private final Striped<ReadWriteLock> locks = Striped.readWriteLock(10);
 
   @Inject
-  ApiKeyService(DataStoreFactory storeFactory, KeyGenerator keyGenerator, PasswordService passwordService, ApiKeyTokenHandler tokenHandler) {
-    this(storeFactory, passwordService, keyGenerator, tokenHandler, () -> random(PASSPHRASE_LENGTH, 0, 0, true, true, null, new SecureRandom()));
+  ApiKeyService(DataStoreFactory storeFactory, KeyGenerator keyGenerator, PasswordService passwordService, ApiKeyTokenHandler tokenHandler, CacheManager cacheManager, MeterRegistry meterRegistry) {
+    this(storeFactory, passwordService, keyGenerator, tokenHandler, cacheManager, meterRegistry, () -> random(PASSPHRASE_LENGTH, 0, 0, true, true, null, new SecureRandom()));
   }
 
-  ApiKeyService(DataStoreFactory storeFactory, PasswordService passwordService, KeyGenerator keyGenerator, ApiKeyTokenHandler tokenHandler, Supplier<String> passphraseGenerator) {
-    this.store = storeFactory.withType(ApiKeyCollection.class).withName("apiKeys").build();
+  ApiKeyService(DataStoreFactory storeFactory, PasswordService passwordService, KeyGenerator keyGenerator, ApiKeyTokenHandler tokenHandler, CacheManager cacheManager, MeterRegistry meterRegistry, Supplier<String> passphraseGenerator) {
+    this.store = storeFactory.withType(ApiKeyCollection.class).withName("apiKeys").withCache(CACHE_SIZE).build();
     this.passwordService = passwordService;
     this.keyGenerator = keyGenerator;
     this.tokenHandler = tokenHandler;
     this.passphraseGenerator = passphraseGenerator;
+    this.verifiedKeys = cacheManager.getCache(CACHE_NAME);
+    this.verificationTimer = AuthenticationMetrics.credentialVerification(meterRegistry, METRIC_TYPE);
+    this.cacheHits = AuthenticationMetrics.credentialCache(meterRegistry, METRIC_TYPE, true);
+    this.cacheMisses = AuthenticationMetrics.credentialCache(meterRegistry, METRIC_TYPE, false);
+  }
+
+  private static byte[] createSecret() {
+    byte[] secret = new byte[32];
+    new SecureRandom().nextBytes(secret);
+    return secret;
   }
 
   public CreationResult createNewKey(String username, String keyDisplayName, String permissionRole) {
@@ -113,6 +146,7 @@ public class ApiKeyService {
         apiKeyCollection -> {
           ApiKeyCollection newApiKeyCollection = apiKeyCollection.remove(key -> id.equals(key.getId()));
           store.put(username, newApiKeyCollection);
+          verifiedKeys.removeAll(key -> key.matches(username, id));
           LOG.info("removed api key for user {}", username);
         }
       );
@@ -130,20 +164,43 @@ public class ApiKeyService {
   }
 
   CheckResult check(String user, String id, String passphrase) {
-    return doSynchronized(user, false, () -> store
-      .get(user)
-      .getKeys()
-      .stream()
-      .filter(key -> key.getId().equals(id))
-      .filter(key -> passwordsMatch(user, passphrase, key))
-      .map(ApiKeyWithPassphrase::getPermissionRole)
-      .map(role -> new CheckResult(user, role))
-      .findAny()
-      .orElseThrow(AuthorizationException::new));
+    VerifiedKey verifiedKey = new VerifiedKey(user, id, digest(user, id, passphrase));
+    // the result is cached while holding the read lock,
+    // so that a concurrent removal of the key cannot be overwritten
+    return doSynchronized(user, false, () -> {
+      CheckResult cached = verifiedKeys.get(verifiedKey);
+      if (cached != null) {
+        cacheHits.increment();
+        return cached;
+      }
+      cacheMisses.increment();
+      CheckResult result = store
+        .get(user)
+        .getKeys()
+        .stream()
+        .filter(key -> key.getId().equals(id))
+        .filter(key -> passwordsMatch(user, passphrase, key))
+        .map(ApiKeyWithPassphrase::getPermissionRole)
+        .map(role -> new CheckResult(user, role))
+        .findAny()
+        .orElseThrow(AuthorizationException::new);
+      verifiedKeys.put(verifiedKey, result);
+      return result;
+    });
+  }
+
+  private HashCode digest(String user, String id, String passphrase) {
+    return CREDENTIAL_HASH.newHasher()
+      .putInt(user.length())
+      .putString(user, StandardCharsets.UTF_8)
+      .putInt(id.length())
+      .putString(id, StandardCharsets.UTF_8)
+      .putString(passphrase, StandardCharsets.UTF_8)
+      .hash();
   }
 
   private boolean passwordsMatch(String user, String passphrase, ApiKeyWithPassphrase key) {
-    boolean result = passwordService.passwordsMatch(passphrase, key.getPassphrase());
+    boolean result = verificationTimer.record(() -> passwordService.passwordsMatch(passphrase, key.getPassphrase()));
     if (!result) {
       // this can only happen with a forged api key, so it may be relevant enough to issue a warning
       LOG.warn("got invalid api key for user {} with key id {}", user, key.getId());
@@ -192,7 +249,16 @@ public class ApiKeyService {
   @Subscribe
   public void cleanupForDeletedUser(UserEvent userEvent) {
     if (userEvent.getEventType() == HandlerEventType.DELETE) {
-      store.remove(userEvent.getItem().getId());
+      String username = userEvent.getItem().getId();
+      store.remove(username);
+      verifiedKeys.removeAll(key -> key.matches(username));
+    }
+  }
+
+  @Subscribe
+  public void invalidateForChangedRole(RepositoryRoleEvent event) {
+    if (event.getEventType().isPost()) {
+      verifiedKeys.clear();
     }
   }
 
@@ -209,4 +275,20 @@ public class ApiKeyService {
     private final String user;
     private final String permissionRole;
   }
+
+  @AllArgsConstructor
+  @EqualsAndHashCode
+  private static final class VerifiedKey {
+    private final String user;
+    private final String apiKeyId;
+    private final HashCode digest;
+
+    boolean matches(String user) {
+      return this.user.equals(user);
+    }
+
+    boolean matches(String user, String apiKeyId) {
+      return matches(user) && this.apiKeyId.equals(apiKeyId);
+    }
+  }
 }
@@ -131,7 +131,8 @@ public class AuthorizationChangedEventProducer {
   }
 
   /**
-   * Invalidates the whole cache, if a repository has changed. The cache get cleared for one of the following reasons:
+   * Invalidates the permissions of a repository, if the repository has changed. This happens for one of the following
+   * reasons:
    * <ul>
    * <li>New repository created</li>
    * <li>Repository was removed</li>
@@ -164,12 +165,12 @@ public class AuthorizationChangedEventProducer {
       logger.debug(
         "fire authorization changed event, because the permissions of repository {} have changed", repository
       );
-      fireEventForEveryUser();
+      fireEventForRepository(repository);
     } else if (!event.getItem().getNamespace().equals(event.getItemBeforeModification().getNamespace())) {
       logger.debug(
         "fire authorization changed event, because the namespace of repository {} has changed", repository
       );
-      fireEventForEveryUser();
+      fireEventForRepository(repository);
     } else {
       logger.debug(
         "authorization changed event is not fired, because non relevant field of repository {} has changed", repository
@@ -183,7 +184,7 @@ public class AuthorizationChangedEventProducer {
       logger.debug(
         "fire authorization changed event, because a relevant field of namespace {} has changed", namespace.getNamespace()
       );
-      fireEventForEveryUser();
+      sendEvent(AuthorizationChangedEvent.createForNamespace(namespace.getNamespace()));
     } else {
       logger.debug(
         "authorization changed event is not fired, because non relevant field of namespace {} has changed",
@@ -201,12 +202,16 @@ public class AuthorizationChangedEventProducer {
     sendEvent(AuthorizationChangedEvent.createForEveryUser());
   }
 
+  private void fireEventForRepository(Repository repository) {
+    sendEvent(AuthorizationChangedEvent.createForRepository(repository.getId()));
+  }
+
   private void handleRepositoryEvent(RepositoryEvent event) {
     logger.debug(
       "fire authorization changed event, because of received {} event for repository {}",
       event.getEventType(), event.getItem().getName()
     );
-    fireEventForEveryUser();
+    fireEventForRepository(event.getItem());
   }
 
   /**
@@ -0,0 +1,171 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package sonia.scm.security;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.Multimap;
+import org.apache.shiro.authz.AuthorizationInfo;
+import org.apache.shiro.authz.Permission;
+import sonia.scm.cache.Immutable;
+import sonia.scm.repository.ReadableRepositories;
+
+import java.util.Collection;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Deeply immutable {@link AuthorizationInfo}. Snapshots can be shared between requests and threads, so that they are
+ * returned from the cache without copying them.
+ *
+ * @since 2.41.0
+ */
+final class AuthorizationSnapshot implements AuthorizationInfo, Immutable {
+
+  private static final long serialVersionUID = -2946521539208519563L;
+
+  private final ImmutableSet<String> roles;
+  private final ImmutableSet<String> permissions;
+  private final ImmutableSetMultimap<String, String> repositoryPermissions;
+  private final ImmutableSet<String> stringPermissions;
+
+  // compiled lazily on the first permission check; concurrent initialization only wastes work
+  private transient volatile PermissionIndex permissionIndex;
+  private transient volatile Optional<ReadableRepositories> readableRepositories;
+
+  AuthorizationSnapshot(Collection<String> roles, Collection<String> stringPermissions) {
+    this(roles, stringPermissions, ImmutableSetMultimap.of());
+  }
+
+  /**
+   * Creates a snapshot, which keeps the permissions of repositories apart, so that they could be replaced with
+   * {@link #withRepositoryPermissions(Set, Multimap)}.
+   *
+   * @param roles roles of the subject
+   * @param permissions permissions which are not bound to a single repository
+   * @param repositoryPermissions permissions by repository id
+   */
+  AuthorizationSnapshot(Collection<String> roles, Collection<String> permissions, ImmutableSetMultimap<String, String> repositoryPermissions) {
+    this.roles = ImmutableSet.copyOf(roles);
+    this.permissions = ImmutableSet.copyOf(permissions);
+    this.repositoryPermissions = repositoryPermissions;
+    this.stringPermissions = ImmutableSet.<String>builder()
+      .addAll(this.permissions)
+      .addAll(repositoryPermissions.values())
+      .build();
+  }
+
+  /**
+   * Returns a new snapshot, in which the permissions of the given repositories are replaced.
+   *
+   * @param repositoryIds ids of the repositories to replace, including those which no longer grant permissions
+   * @param permissionsOfRepositories new permissions by repository id
+   *
+   * @return new snapshot
+   */
+  AuthorizationSnapshot withRepositoryPermissions(Set<String> repositoryIds, Multimap<String, String> permissionsOfRepositories) {
+    ImmutableSetMultimap.Builder<String, String> builder = ImmutableSetMultimap.builder();
+    repositoryPermissions.forEach((id, permission) -> {
+      if (!repositoryIds.contains(id)) {
+        builder.put(id, permission);
+      }
+    });
+    builder.putAll(permissionsOfRepositories);
+    return new AuthorizationSnapshot(roles, permissions, builder.build());
+  }
+
+  /**
+   * Returns the permissions of a single repository.
+   *
+   * @param repositoryId id of the repository
+   *
+   * @return permissions of the repository
+   */
+  ImmutableSet<String> getRepositoryPermissions(String repositoryId) {
+    return repositoryPermissions.get(repositoryId);
+  }
+
+  @Override
+  public ImmutableSet<String> getRoles() {
+    return roles;
+  }
+
+  @Override
+  public ImmutableSet<String> getStringPermissions() {
+    return stringPermissions;
+  }
+
+  /**
+   * Returns {@code null}, because snapshots only contain string permissions.
+   */
+  @Override
+  public Collection<Permission> getObjectPermissions() {
+    return null;
+  }
+
+  /**
+   * Returns the compiled index of the string permissions.
+   *
+   * @param resolver resolver for the string permissions
+   *
+   * @return index of permissions
+   */
+  PermissionIndex getPermissionIndex(ScmPermissionResolver resolver) {
+    PermissionIndex index = permissionIndex;
+    if (index == null) {
+      index = resolver.index(stringPermissions);
+      permissionIndex = index;
+    }
+    return index;
+  }
+
+  /**
+   * Returns the readable repositories or empty, if they could not be computed from the permissions (see
+   * {@link PermissionIndex#getPermittedIds(String, String)}). The same instance is returned for the lifetime of the
+   * snapshot, so it can be used to identify the permissions in caches.
+   *
+   * @param resolver resolver for the string permissions
+   *
+   * @return readable repositories or empty
+   */
+  @SuppressWarnings("java:S3077") // the optional and the readable repositories are immutable
+  Optional<ReadableRepositories> getReadableRepositories(ScmPermissionResolver resolver) {
+    Optional<ReadableRepositories> readable = readableRepositories;
+    if (readable == null) {
+      readable = getPermissionIndex(resolver).getPermittedIds("repository", "read").map(ReadableRepositories::of);
+      readableRepositories = readable;
+    }
+    return readable;
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+      .add("roles", roles)
+      .add("stringPermissions", stringPermissions)
+      .toString();
+  }
+}
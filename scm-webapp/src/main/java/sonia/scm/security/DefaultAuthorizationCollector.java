@@ -30,6 +30,7 @@ import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSet.Builder;
+import com.google.common.collect.ImmutableSetMultimap;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import org.apache.shiro.SecurityUtils;
@@ -52,11 +53,14 @@ import sonia.scm.repository.RepositoryPermission;
 import sonia.scm.user.User;
 import sonia.scm.user.UserPermissions;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.Optional;
 import java.util.Set;
 
 import static java.util.Collections.emptySet;
+import static java.util.Collections.singleton;
 
 /**
  *
@@ -165,7 +169,7 @@ public class DefaultAuthorizationCollector implements AuthorizationCollector
     final User user, final Set<String> groups)
   {
     Collection<AssignedPermission> globalPermissions =
-      securitySystem.getPermissions((AssignedPermission input) -> isUserPermitted(user, groups, input));
+      securitySystem.getPermissions((AssignedPermission input) -> isUserPermitted(user.getName(), groups, input));
 
     for (AssignedPermission gp : globalPermissions)
     {
@@ -176,43 +180,44 @@ public class DefaultAuthorizationCollector implements AuthorizationCollector
     }
   }
 
-  private void collectRepositoryPermissions(Builder<String> builder, User user,
+  private void collectRepositoryPermissions(ImmutableSetMultimap.Builder<String, String> builder, User user,
     Set<String> groups)
   {
     for (Repository repository : repositoryDAO.getAll())
     {
-      collectRepositoryPermissions(builder, repository, user, groups);
+      builder.putAll(repository.getId(), collectRepositoryPermissions(repository, user.getName(), groups));
     }
   }
 
-  private void collectRepositoryPermissions(Builder<String> builder,
-    Repository repository, User user, Set<String> groups)
+  private Collection<String> collectRepositoryPermissions(Repository repository, String username, Set<String> groups)
   {
     Optional<Namespace> namespace = namespaceDao.get(repository.getNamespace());
 
+    Collection<String> permissions = new ArrayList<>();
     boolean hasPermission = false;
     for (RepositoryPermission permission : repository.getPermissions())
     {
-      hasPermission = isUserPermitted(user, groups, permission);
+      hasPermission = isUserPermitted(username, groups, permission);
       if (hasPermission) {
-        addRepositoryPermission(builder, repository, user, permission);
+        addRepositoryPermission(permissions, repository, username, permission);
       }
     }
     for (RepositoryPermission permission : namespace.map(Namespace::getPermissions).orElse(emptySet()))
     {
-      hasPermission = isUserPermitted(user, groups, permission);
+      hasPermission = isUserPermitted(username, groups, permission);
       if (hasPermission) {
-        addRepositoryPermission(builder, repository, user, permission);
+        addRepositoryPermission(permissions, repository, username, permission);
       }
     }
 
     if (!hasPermission && logger.isTraceEnabled())
     {
-      logger.trace("no permission for user {} defined at repository {}", user.getName(), repository);
+      logger.trace("no permission for user {} defined at repository {}", username, repository);
     }
+    return permissions;
   }
 
-  private void addRepositoryPermission(Builder<String> builder, Repository repository, User user, RepositoryPermission permission) {
+  private void addRepositoryPermission(Collection<String> permissions, Repository repository, String username, RepositoryPermission permission) {
     Collection<String> verbs = getVerbs(permission);
     if (!verbs.isEmpty())
     {
@@ -220,10 +225,10 @@ public class DefaultAuthorizationCollector implements AuthorizationCollector
       if (logger.isTraceEnabled())
       {
         logger.trace("add repository permission {} for user {} at repository {}",
-          perm, user.getName(), repository.getName());
+          perm, username, repository.getName());
       }
 
-      builder.add(perm);
+      permissions.add(perm);
     }
   }
 
@@ -242,9 +247,10 @@ public class DefaultAuthorizationCollector implements AuthorizationCollector
 
   private AuthorizationInfo createAuthorizationInfo(User user, Set<String> groups) {
     Builder<String> builder = ImmutableSet.builder();
+    ImmutableSetMultimap.Builder<String, String> repositoryPermissions = ImmutableSetMultimap.builder();
 
     collectGlobalPermissions(builder, user, groups);
-    collectRepositoryPermissions(builder, user, groups);
+    collectRepositoryPermissions(repositoryPermissions, user, groups);
     builder.add(canReadOwnUser(user));
     if (!Authentications.isSubjectAnonymous(user.getName())) {
       builder.add(getUserAutocompletePermission());
@@ -254,10 +260,8 @@ public class DefaultAuthorizationCollector implements AuthorizationCollector
       builder.add(getPublicKeyPermission(user));
     }
 
-    SimpleAuthorizationInfo info = new SimpleAuthorizationInfo(ImmutableSet.of(Role.USER));
-    info.addStringPermissions(builder.build());
-
-    return info;
+    // immutable, so that it is returned from the cache without copying it
+    return new AuthorizationSnapshot(ImmutableSet.of(Role.USER), builder.build(), repositoryPermissions.build());
   }
 
   private String getGroupAutocompletePermission() {
@@ -286,24 +290,71 @@ public class DefaultAuthorizationCollector implements AuthorizationCollector
 
   //~--- get methods ----------------------------------------------------------
 
-  private boolean isUserPermitted(User user, Set<String> groups,
+  private boolean isUserPermitted(String username, Set<String> groups,
     PermissionObject perm)
   {
     //J-
     return (perm.isGroupPermission() && groups.contains(perm.getName()))
-      || ((!perm.isGroupPermission()) && user.getName().equals(perm.getName()));
+      || ((!perm.isGroupPermission()) && username.equals(perm.getName()));
     //J+
   }
 
   @Subscribe(async = false)
   public void invalidateCache(AuthorizationChangedEvent event) {
-    if (event.isEveryUserAffected()) {
+    if (event.isRepositorySpecific()) {
+      updateRepositoryPermissions(event.getIdOfAffectedRepository());
+    } else if (event.isNamespaceSpecific()) {
+      updateNamespacePermissions(event.getAffectedNamespace());
+    } else if (event.isEveryUserAffected()) {
       invalidateCache();
     } else {
       invalidateUserCache(event.getNameOfAffectedUser());
     }
   }
 
+  private void updateRepositoryPermissions(String repositoryId) {
+    logger.info("update cached permissions of repository {}, because of a received authorization event", repositoryId);
+    Repository repository = repositoryDAO.get(repositoryId);
+    // a deleted repository is replaced without permissions
+    updateRepositoryPermissions(singleton(repositoryId), repository != null ? singleton(repository) : emptySet());
+  }
+
+  private void updateNamespacePermissions(String namespace) {
+    logger.info("update cached permissions of namespace {}, because of a received authorization event", namespace);
+    Set<String> repositoryIds = new HashSet<>();
+    Collection<Repository> repositories = new ArrayList<>();
+    for (Repository repository : repositoryDAO.getAll()) {
+      if (namespace.equals(repository.getNamespace())) {
+        repositoryIds.add(repository.getId());
+        repositories.add(repository);
+      }
+    }
+    updateRepositoryPermissions(repositoryIds, repositories);
+  }
+
+  /**
+   * Replaces the permissions of the given repositories in every cached {@link AuthorizationSnapshot}, instead of
+   * clearing the whole cache, which would force every active user to collect the permissions of all repositories.
+   * A snapshot is only replaced, if it is still cached, so that a concurrent invalidation is never undone.
+   */
+  private void updateRepositoryPermissions(Set<String> repositoryIds, Collection<Repository> repositories) {
+    for (CacheKey key : ImmutableSet.copyOf(cache.keys())) {
+      AuthorizationInfo info = cache.get(key);
+      if (info instanceof AuthorizationSnapshot) {
+        ImmutableSetMultimap.Builder<String, String> permissions = ImmutableSetMultimap.builder();
+        for (Repository repository : repositories) {
+          permissions.putAll(repository.getId(), collectRepositoryPermissions(repository, key.username, key.groupnames));
+        }
+        AuthorizationSnapshot updated = ((AuthorizationSnapshot) info).withRepositoryPermissions(repositoryIds, permissions.build());
+        if (!cache.replace(key, info, updated)) {
+          logger.debug("cached permissions of {} were changed concurrently, skip update", key.username);
+        }
+      } else if (info != null) {
+        cache.remove(key);
+      }
+    }
+  }
+
   private void invalidateUserCache(final String username) {
     logger.info("invalidate cache for user {}, because of a received authorization event", username);
     cache.removeAll((CacheKey item) -> username.equalsIgnoreCase(item.username));
@@ -0,0 +1,102 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package sonia.scm.security;
+
+import org.apache.shiro.SecurityUtils;
+import org.apache.shiro.authz.Authorizer;
+import org.apache.shiro.mgt.RealmSecurityManager;
+import org.apache.shiro.mgt.SecurityManager;
+import org.apache.shiro.realm.Realm;
+import org.apache.shiro.subject.Subject;
+import sonia.scm.repository.ReadableRepositories;
+import sonia.scm.repository.ReadableRepositoriesResolver;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryDAO;
+import sonia.scm.repository.RepositoryPermissions;
+import sonia.scm.web.security.AdministrationContextRealm;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.Optional;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Resolves the readable repositories from the precompiled permissions of the {@link DefaultRealm}. If the permissions
+ * could not be resolved that way, e.g. because a plugin provides another authorizing realm, the read permission is
+ * checked for each repository, when it is looked up.
+ *
+ * @since 2.41.0
+ */
+@Singleton
+public class DefaultReadableRepositoriesResolver implements ReadableRepositoriesResolver {
+
+  private static final String READ_ALL = "repository:read:*";
+
+  private final RepositoryDAO repositoryDAO;
+
+  @Inject
+  public DefaultReadableRepositoriesResolver(RepositoryDAO repositoryDAO) {
+    this.repositoryDAO = repositoryDAO;
+  }
+
+  @Override
+  public ReadableRepositories resolve() {
+    Subject subject = SecurityUtils.getSubject();
+    if (subject.isPermitted(READ_ALL)) {
+      return ReadableRepositories.all();
+    }
+    return resolveFromDefaultRealm(subject)
+      .orElseGet(this::resolveByPermissionChecks);
+  }
+
+  private Optional<ReadableRepositories> resolveFromDefaultRealm(Subject subject) {
+    SecurityManager securityManager = SecurityUtils.getSecurityManager();
+    if (!(securityManager instanceof RealmSecurityManager) || subject.getPrincipals() == null) {
+      return Optional.empty();
+    }
+    DefaultRealm defaultRealm = null;
+    for (Realm realm : ((RealmSecurityManager) securityManager).getRealms()) {
+      if (realm instanceof DefaultRealm) {
+        defaultRealm = (DefaultRealm) realm;
+      } else if (realm instanceof Authorizer && !(realm instanceof AdministrationContextRealm)) {
+        // the administration context only grants every permission, which is already checked with READ_ALL;
+        // every other realm could grant permissions for single repositories
+        return Optional.empty();
+      }
+    }
+    if (defaultRealm == null) {
+      return Optional.empty();
+    }
+    return defaultRealm.getReadableRepositories(subject.getPrincipals());
+  }
+
+  private ReadableRepositories resolveByPermissionChecks() {
+    return ReadableRepositories.checking(
+      id -> RepositoryPermissions.read(id).isPermitted(),
+      () -> repositoryDAO.getAll().stream().map(Repository::getId).collect(toList())
+    );
+  }
+}
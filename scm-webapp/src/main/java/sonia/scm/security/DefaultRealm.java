@@ -34,16 +34,19 @@ import org.apache.shiro.authc.UsernamePasswordToken;
 import org.apache.shiro.authc.credential.PasswordMatcher;
 import org.apache.shiro.authc.credential.PasswordService;
 import org.apache.shiro.authz.AuthorizationInfo;
+import org.apache.shiro.authz.Permission;
 import org.apache.shiro.authz.SimpleAuthorizationInfo;
 import org.apache.shiro.realm.AuthorizingRealm;
 import org.apache.shiro.subject.PrincipalCollection;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import sonia.scm.plugin.Extension;
+import sonia.scm.repository.ReadableRepositories;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import java.util.Iterator;
+import java.util.Optional;
 import java.util.Set;
 
 /**
@@ -113,13 +116,54 @@ public class DefaultRealm extends AuthorizingRealm {
     return info;
   }
 
+  @Override
+  protected boolean isPermitted(Permission permission, AuthorizationInfo info) {
+    if (info instanceof AuthorizationSnapshot) {
+      // use the precompiled index instead of resolving and scanning all permissions for every check
+      return ((AuthorizationSnapshot) info).getPermissionIndex(permissionResolver).isPermitted(permission);
+    }
+    return super.isPermitted(permission, info);
+  }
+
+  /**
+   * Returns the repositories, which are readable according to the permissions of this realm. The result is empty, if
+   * the repositories could not be resolved from the precompiled permissions.
+   *
+   * @param principals principals of the subject
+   *
+   * @return readable repositories or empty
+   */
+  Optional<ReadableRepositories> getReadableRepositories(PrincipalCollection principals) {
+    AuthorizationInfo info = getAuthorizationInfo(principals);
+    if (info instanceof AuthorizationSnapshot) {
+      return ((AuthorizationSnapshot) info).getReadableRepositories(permissionResolver);
+    }
+    return Optional.empty();
+  }
+
   private AuthorizationInfo collectors(PrincipalCollection principals) {
-    SimpleAuthorizationInfo merged = new SimpleAuthorizationInfo();
+    AuthorizationInfo single = null;
+    SimpleAuthorizationInfo merged = null;
     for (AuthorizationCollector collector : authorizationCollectors) {
       AuthorizationInfo authorizationInfo = collector.collect(principals);
-      merge(merged, authorizationInfo);
+      if (authorizationInfo == null) {
+        continue;
+      }
+      if (single == null && merged == null) {
+        single = authorizationInfo;
+      } else {
+        if (merged == null) {
+          merged = new SimpleAuthorizationInfo();
+          merge(merged, single);
+        }
+        merge(merged, authorizationInfo);
+      }
+    }
+    if (merged != null) {
+      return merged;
     }
-    return merged;
+    // a single info is returned as it is, which avoids to copy all permissions of the user for every request
+    return single != null ? single : new SimpleAuthorizationInfo();
   }
 
   private void merge(SimpleAuthorizationInfo merged, AuthorizationInfo authorizationInfo) {
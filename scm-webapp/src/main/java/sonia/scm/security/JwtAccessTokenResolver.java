@@ -24,6 +24,9 @@
 
 package sonia.scm.security;
 
+import com.github.legman.Subscribe;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.JwtException;
@@ -31,10 +34,18 @@ import io.jsonwebtoken.Jwts;
 import org.apache.shiro.authc.AuthenticationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import sonia.scm.cache.Cache;
+import sonia.scm.cache.CacheManager;
 import sonia.scm.plugin.Extension;
 
 import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Jwt implementation of {@link AccessTokenResolver}.
@@ -42,6 +53,7 @@ import java.util.Set;
  * @author Sebastian Sdorra
  * @since 2.0.0
  */
+@Singleton
 @Extension
 public final class JwtAccessTokenResolver implements AccessTokenResolver {
 
@@ -50,29 +62,82 @@ public final class JwtAccessTokenResolver implements AccessTokenResolver {
    */
   private static final Logger LOG = LoggerFactory.getLogger(JwtAccessTokenResolver.class);
 
+  private static final String CACHE_NAME = "sonia.cache.accessTokens";
+
   private final SecureKeyResolver keyResolver;
   private final Set<AccessTokenValidator> validators;
+  private final Cache<HashCode, VerifiedToken> verifiedTokens;
+  private final Map<String, Set<HashCode>> digestsBySubject = new ConcurrentHashMap<>();
 
   @Inject
-  public JwtAccessTokenResolver(SecureKeyResolver keyResolver, Set<AccessTokenValidator> validators) {
+  public JwtAccessTokenResolver(SecureKeyResolver keyResolver, Set<AccessTokenValidator> validators, CacheManager cacheManager) {
     this.keyResolver = keyResolver;
     this.validators = validators;
+    this.verifiedTokens = cacheManager.getCache(CACHE_NAME);
   }
 
   @Override
   public JwtAccessToken resolve(BearerToken bearerToken) {
-    try {
-      String compact = bearerToken.getCredentials();
+    String compact = bearerToken.getCredentials();
+    HashCode digest = Hashing.sha256().hashString(compact, StandardCharsets.UTF_8);
+
+    JwtAccessToken token = getVerified(digest);
+    if (token == null) {
+      token = parse(compact);
+      store(digest, token);
+    }
+
+    // validators may depend on the current request, so they are not cached
+    validate(token);
+    return token;
+  }
+
+  private JwtAccessToken getVerified(HashCode digest) {
+    VerifiedToken verified = verifiedTokens.get(digest);
+    if (verified == null) {
+      return null;
+    }
+    JwtAccessToken token = verified.token;
+    if (!token.getExpiration().after(new Date())) {
+      verifiedTokens.remove(digest);
+      throw new TokenExpiredException("The jwt token has been expired");
+    }
+    if (!isSameKey(verified.key, keyResolver.getSecureKey(token.getSubject()))) {
+      LOG.debug("secure key of {} has changed, verify token again", token.getSubject());
+      verifiedTokens.remove(digest);
+      return null;
+    }
+    return token;
+  }
+
+  private boolean isSameKey(SecureKey verified, SecureKey current) {
+    // SecureKey#equals compares the bytes by reference
+    if (verified == null || current == null) {
+      return verified == current;
+    }
+    return verified.getCreationDate() == current.getCreationDate()
+      && Arrays.equals(verified.getBytes(), current.getBytes());
+  }
+
+  private void store(HashCode digest, JwtAccessToken token) {
+    verifiedTokens.put(digest, new VerifiedToken(token, keyResolver.getSecureKey(token.getSubject())));
+    digestsBySubject.compute(token.getSubject(), (subject, digests) -> {
+      Set<HashCode> indexed = digests != null ? digests : ConcurrentHashMap.newKeySet();
+      // forget tokens which were evicted from the cache in the meantime
+      indexed.removeIf(indexedDigest -> !verifiedTokens.contains(indexedDigest));
+      indexed.add(digest);
+      return indexed;
+    });
+  }
 
+  private JwtAccessToken parse(String compact) {
+    try {
       Claims claims = Jwts.parser()
         .setSigningKeyResolver(keyResolver)
         .parseClaimsJws(compact)
         .getBody();
 
-      JwtAccessToken token = new JwtAccessToken(claims, compact);
-      validate(token);
-
-      return token;
+      return new JwtAccessToken(claims, compact);
     } catch (ExpiredJwtException ex) {
       throw new TokenExpiredException("The jwt token has been expired", ex);
     } catch (JwtException ex) {
@@ -80,6 +145,28 @@ public final class JwtAccessTokenResolver implements AccessTokenResolver {
     }
   }
 
+  @Subscribe(async = false)
+  public void invalidate(LogoutEvent event) {
+    invalidate(event.getPrimaryPrincipal());
+  }
+
+  @Subscribe(async = false)
+  public void invalidate(AuthorizationChangedEvent event) {
+    if (!event.isEveryUserAffected()) {
+      invalidate(event.getNameOfAffectedUser());
+    } else if (!event.isRepositorySpecific() && !event.isNamespaceSpecific()) {
+      digestsBySubject.clear();
+      verifiedTokens.clear();
+    }
+  }
+
+  private void invalidate(String subject) {
+    Set<HashCode> digests = digestsBySubject.remove(subject);
+    if (digests != null) {
+      digests.forEach(verifiedTokens::remove);
+    }
+  }
+
 
   private void validate(AccessToken accessToken) {
     validators.forEach(validator -> validate(validator, accessToken));
@@ -97,4 +184,15 @@ public final class JwtAccessTokenResolver implements AccessTokenResolver {
     return String.format("token %s is invalid, marked by validator %s", accessToken.getId(), validator.getClass());
   }
 
+  private static final class VerifiedToken {
+
+    private final JwtAccessToken token;
+    private final SecureKey key;
+
+    private VerifiedToken(JwtAccessToken token, SecureKey key) {
+      this.token = token;
+      this.key = key;
+    }
+  }
+
 }
@@ -0,0 +1,217 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package sonia.scm.security;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ListMultimap;
+import org.apache.shiro.authz.Permission;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Precompiled index of the permissions of a subject. The index is keyed by subject (e.g. repository) and id, so that
+ * a permission check only evaluates the few permissions which could imply the requested one instead of scanning all
+ * permissions. The result of {@link #isPermitted(Permission)} is the same as the one of a linear scan.
+ *
+ * @since 2.41.0
+ */
+final class PermissionIndex {
+
+  private static final String WILDCARD_TOKEN = "*";
+  private static final int SUBJECT = 0;
+  private static final int IDS = 2;
+
+  private final List<Permission> permissions;
+  private final List<Permission> unindexed;
+  private final Map<String, SubjectIndex> subjects;
+
+  private PermissionIndex(List<Permission> permissions, List<Permission> unindexed, Map<String, SubjectIndex> subjects) {
+    this.permissions = permissions;
+    this.unindexed = unindexed;
+    this.subjects = subjects;
+  }
+
+  /**
+   * Creates an index for the given permissions.
+   *
+   * @param permissions permissions of the subject
+   *
+   * @return index of permissions
+   */
+  static PermissionIndex of(Collection<? extends Permission> permissions) {
+    ImmutableList.Builder<Permission> unindexed = ImmutableList.builder();
+    Map<String, SubjectIndex.Builder> builders = new HashMap<>();
+    for (Permission permission : permissions) {
+      if (!isIndexable(permission)) {
+        unindexed.add(permission);
+        continue;
+      }
+      ScmWildcardPermission wildcardPermission = (ScmWildcardPermission) permission;
+      for (String subject : wildcardPermission.parts().get(SUBJECT)) {
+        builders.computeIfAbsent(subject, s -> new SubjectIndex.Builder()).add(wildcardPermission);
+      }
+    }
+    Map<String, SubjectIndex> subjects = new HashMap<>();
+    builders.forEach((subject, builder) -> subjects.put(subject, builder.build()));
+    return new PermissionIndex(ImmutableList.copyOf(permissions), unindexed.build(), subjects);
+  }
+
+  private static boolean isIndexable(Permission permission) {
+    return permission instanceof ScmWildcardPermission
+      && !((ScmWildcardPermission) permission).parts().get(SUBJECT).contains(WILDCARD_TOKEN);
+  }
+
+  /**
+   * Returns {@code true} if one of the indexed permissions implies the given permission.
+   *
+   * @param permission requested permission
+   *
+   * @return {@code true} if the permission is granted
+   */
+  boolean isPermitted(Permission permission) {
+    if (!(permission instanceof ScmWildcardPermission)) {
+      return implies(permissions, permission);
+    }
+    List<Set<String>> parts = ((ScmWildcardPermission) permission).parts();
+    Set<String> subject = parts.get(SUBJECT);
+    if (subject.size() != 1 || subject.contains(WILDCARD_TOKEN)) {
+      return implies(permissions, permission);
+    }
+    if (implies(unindexed, permission)) {
+      return true;
+    }
+    SubjectIndex subjectIndex = subjects.get(subject.iterator().next());
+    return subjectIndex != null && subjectIndex.isPermitted(parts, permission);
+  }
+
+  /**
+   * Returns the ids, for which the verb on the subject is permitted, e.g. the ids of all readable repositories. The
+   * result is empty, if the ids could not be computed from the index, because a permission grants the verb for every
+   * id or because it is not a {@link ScmWildcardPermission}.
+   *
+   * @param subject subject of the permission, e.g. repository
+   * @param verb verb of the permission, e.g. read
+   *
+   * @return lower case ids or empty
+   */
+  Optional<Set<String>> getPermittedIds(String subject, String verb) {
+    String prefix = subject + ":" + verb + ":";
+    ScmWildcardPermission any = new ScmWildcardPermission(prefix + WILDCARD_TOKEN);
+    Set<String> ids = new HashSet<>();
+    boolean computable = collectPermittedIds(unindexed, prefix, any, ids);
+    SubjectIndex subjectIndex = subjects.get(any.parts().get(SUBJECT).iterator().next());
+    if (computable && subjectIndex != null) {
+      computable = collectPermittedIds(subjectIndex.unbound, prefix, any, ids)
+        && collectPermittedIds(subjectIndex.byId.values(), prefix, any, ids);
+    }
+    return computable ? Optional.of(ImmutableSet.copyOf(ids)) : Optional.empty();
+  }
+
+  private static boolean collectPermittedIds(Iterable<? extends Permission> candidates, String prefix, ScmWildcardPermission any, Set<String> ids) {
+    for (Permission candidate : candidates) {
+      if (!(candidate instanceof ScmWildcardPermission) || candidate.implies(any)) {
+        return false;
+      }
+      // a permission without explicit ids, which does not imply the wildcard id, does not imply any other id
+      List<Set<String>> parts = ((ScmWildcardPermission) candidate).parts();
+      if (parts.size() > IDS && !parts.get(IDS).contains(WILDCARD_TOKEN)) {
+        for (String id : parts.get(IDS)) {
+          if (!ids.contains(id) && candidate.implies(new ScmWildcardPermission(prefix + id))) {
+            ids.add(id);
+          }
+        }
+      }
+    }
+    return true;
+  }
+
+  private static boolean implies(Iterable<? extends Permission> candidates, Permission permission) {
+    for (Permission candidate : candidates) {
+      if (candidate.implies(permission)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Permissions of a single subject. Permissions with explicit ids are stored by id, all others (wildcard ids or
+   * shortened permissions like {@code repository:read}) could imply any id and are evaluated for every request.
+   */
+  private static final class SubjectIndex {
+
+    private final List<ScmWildcardPermission> unbound;
+    private final ListMultimap<String, ScmWildcardPermission> byId;
+
+    private SubjectIndex(List<ScmWildcardPermission> unbound, ListMultimap<String, ScmWildcardPermission> byId) {
+      this.unbound = unbound;
+      this.byId = byId;
+    }
+
+    boolean isPermitted(List<Set<String>> parts, Permission permission) {
+      if (implies(unbound, permission)) {
+        return true;
+      }
+      // a permission with explicit ids can only imply a request with explicit ids, if it contains every one of them,
+      // so it is enough to look at the permissions of one id
+      if (parts.size() > IDS) {
+        Set<String> ids = parts.get(IDS);
+        if (!ids.contains(WILDCARD_TOKEN)) {
+          return implies(byId.get(ids.iterator().next()), permission);
+        }
+      }
+      return false;
+    }
+
+    private static final class Builder {
+
+      private final ImmutableList.Builder<ScmWildcardPermission> unbound = ImmutableList.builder();
+      private final ImmutableListMultimap.Builder<String, ScmWildcardPermission> byId = ImmutableListMultimap.builder();
+
+      void add(ScmWildcardPermission permission) {
+        List<Set<String>> parts = permission.parts();
+        if (parts.size() <= IDS || parts.get(IDS).contains(WILDCARD_TOKEN)) {
+          unbound.add(permission);
+        } else {
+          for (String id : parts.get(IDS)) {
+            byId.put(id, permission);
+          }
+        }
+      }
+
+      SubjectIndex build() {
+        return new SubjectIndex(unbound.build(), byId.build());
+      }
+    }
+  }
+}
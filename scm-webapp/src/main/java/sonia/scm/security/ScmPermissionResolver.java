@@ -26,9 +26,23 @@ package sonia.scm.security;
 
 import org.apache.shiro.authz.permission.PermissionResolver;
 
+import java.util.Collection;
+import java.util.stream.Collectors;
+
 public class ScmPermissionResolver implements PermissionResolver {
   @Override
   public ScmWildcardPermission resolvePermission(String permissionString) {
     return new ScmWildcardPermission(permissionString);
   }
+
+  /**
+   * Resolves the given permission strings and compiles them to a {@link PermissionIndex}.
+   *
+   * @since 2.41.0
+   */
+  PermissionIndex index(Collection<String> permissionStrings) {
+    return PermissionIndex.of(
+      permissionStrings.stream().map(this::resolvePermission).collect(Collectors.toList())
+    );
+  }
 }
@@ -126,6 +126,13 @@ public class ScmWildcardPermission extends WildcardPermission {
     return of(new ScmWildcardPermission(subject + ":" + String.join(",", verbs) + ":" + String.join(",", ids)));
   }
 
+  /**
+   * Returns the parsed parts of the permission, e.g. subject, verbs and ids.
+   */
+  List<Set<String>> parts() {
+    return getParts();
+  }
+
   private Collection<String> intersect(List<Set<String>> theseParts, List<Set<String>> scopeParts, int position) {
     final Set<String> theseEntries = getEntries(theseParts, position);
     final Set<String> scopeEntries = getEntries(scopeParts, position);
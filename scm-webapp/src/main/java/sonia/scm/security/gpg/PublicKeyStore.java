@@ -40,6 +40,7 @@ import javax.inject.Singleton;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -51,6 +52,9 @@ public class PublicKeyStore {
 
   private static final String STORE_NAME = "gpg_public_keys";
   private static final String SUBKEY_STORE_NAME = "gpg_public_sub_keys";
+  // keys are used to verify signatures of every changeset, so we keep them in memory
+  private static final int CACHE_SIZE = 1000;
+  private static final String OWNER_INDEX = "owner";
 
   private final DataStore<RawGpgKey> store;
   private final DataStore<MasterKeyReference> subKeyStore;
@@ -58,8 +62,12 @@ public class PublicKeyStore {
 
   @Inject
   public PublicKeyStore(DataStoreFactory dataStoreFactory, ScmEventBus eventBus) {
-    this.store = dataStoreFactory.withType(RawGpgKey.class).withName(STORE_NAME).build();
-    this.subKeyStore = dataStoreFactory.withType(MasterKeyReference.class).withName(SUBKEY_STORE_NAME).build();
+    this.store = dataStoreFactory.withType(RawGpgKey.class)
+      .withName(STORE_NAME)
+      .withCache(CACHE_SIZE)
+      .withIndex(OWNER_INDEX, key -> normalize(key.getOwner()))
+      .build();
+    this.subKeyStore = dataStoreFactory.withType(MasterKeyReference.class).withName(SUBKEY_STORE_NAME).withCache(CACHE_SIZE).build();
     this.eventBus = eventBus;
   }
 
@@ -138,10 +146,12 @@ public class PublicKeyStore {
   }
 
   public List<RawGpgKey> findByUsername(String username) {
-    return store.getAll().values()
-      .stream()
-      .filter(rawGpgKey -> username.equalsIgnoreCase(rawGpgKey.getOwner()))
-      .collect(Collectors.toList());
+    return new ArrayList<>(store.getByIndex(OWNER_INDEX, normalize(username)).values());
+  }
+
+  private static String normalize(String username) {
+    // usernames are compared case insensitive
+    return username != null ? username.toLowerCase(Locale.ENGLISH) : null;
   }
 
 }
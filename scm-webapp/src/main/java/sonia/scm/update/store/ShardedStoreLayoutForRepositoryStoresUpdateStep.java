@@ -0,0 +1,53 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package sonia.scm.update.store;
+
+import sonia.scm.migration.RepositoryUpdateContext;
+import sonia.scm.migration.RepositoryUpdateStep;
+import sonia.scm.plugin.Extension;
+import sonia.scm.repository.RepositoryLocationResolver;
+
+import javax.inject.Inject;
+import java.nio.file.Path;
+
+@Extension
+public class ShardedStoreLayoutForRepositoryStoresUpdateStep extends ShardedStoreLayoutUpdateStep implements RepositoryUpdateStep {
+
+  private final RepositoryLocationResolver locationResolver;
+
+  @Inject
+  public ShardedStoreLayoutForRepositoryStoresUpdateStep(RepositoryLocationResolver locationResolver) {
+    this.locationResolver = locationResolver;
+  }
+
+  @Override
+  public void doUpdate(RepositoryUpdateContext repositoryUpdateContext) {
+    Path storeDirectory = locationResolver.forClass(Path.class)
+      .getLocation(repositoryUpdateContext.getRepositoryId())
+      .resolve("store");
+    migrateAllInDirectory(storeDirectory.resolve("data"));
+    migrateAllInDirectory(storeDirectory.resolve("blob"));
+  }
+}
@@ -0,0 +1,72 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package sonia.scm.update.store;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sonia.scm.migration.UpdateException;
+import sonia.scm.store.ShardedStoreLayout;
+import sonia.scm.version.Version;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+/**
+ * Moves the entries of data and blob stores to the sharded layout, see {@link ShardedStoreLayout}.
+ */
+abstract class ShardedStoreLayoutUpdateStep {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ShardedStoreLayoutUpdateStep.class);
+
+  public Version getTargetVersion() {
+    return Version.parse("2.41.0");
+  }
+
+  public String getAffectedDataType() {
+    return "sonia.scm.store.layout";
+  }
+
+  void migrateAllInDirectory(Path storeTypeDirectory) {
+    if (!Files.isDirectory(storeTypeDirectory)) {
+      return;
+    }
+    try (Stream<Path> stores = Files.list(storeTypeDirectory)) {
+      stores
+        .filter(Files::isDirectory)
+        .forEach(this::migrate);
+    } catch (IOException e) {
+      throw new UpdateException("could not list store directory " + storeTypeDirectory, e);
+    }
+  }
+
+  private void migrate(Path storeDirectory) {
+    int entries = ShardedStoreLayout.migrate(storeDirectory);
+    if (entries > 0) {
+      LOG.info("moved {} entries of store {} to sharded layout", entries, storeDirectory);
+    }
+  }
+}
@@ -0,0 +1,166 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package sonia.scm.api.v2.resources;
+
+import com.google.common.collect.ImmutableMap;
+import org.apache.shiro.authz.AuthorizationException;
+import org.apache.shiro.subject.Subject;
+import org.apache.shiro.util.ThreadContext;
+import org.jboss.resteasy.mock.MockHttpRequest;
+import org.jboss.resteasy.mock.MockHttpResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.cache.Cache;
+import sonia.scm.cache.CacheManager;
+import sonia.scm.cache.CacheStatistics;
+import sonia.scm.cache.RepositoryCache;
+import sonia.scm.web.RestDispatcher;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.UnsupportedEncodingException;
+import java.net.URISyntaxException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CacheResourceTest {
+
+  private RestDispatcher dispatcher;
+
+  @Mock
+  private Subject subject;
+  @Mock
+  private CacheManager cacheManager;
+  @Mock
+  private Cache<String, String> users;
+  @Mock
+  private RepositoryCache<?, ?> log;
+
+  @BeforeEach
+  void setUpDispatcher() {
+    dispatcher = new RestDispatcher();
+    dispatcher.addSingletonResource(new CacheResource(cacheManager));
+    lenient().when(cacheManager.getCaches()).thenReturn(ImmutableMap.of("users", users, "log", log));
+    lenient().when(users.getStatistics()).thenReturn(new CacheStatistics("users", 3, 1, 2, 0, 1, 1000, 512));
+    lenient().when(log.getStatistics()).thenReturn(new CacheStatistics("log", 0, 0));
+  }
+
+  @BeforeEach
+  void setUpSubject() {
+    ThreadContext.bind(subject);
+  }
+
+  @AfterEach
+  void tearDownSubject() {
+    ThreadContext.unbindSubject();
+  }
+
+  @Test
+  void shouldReturnStatisticsOfAllCaches() throws URISyntaxException, UnsupportedEncodingException {
+    MockHttpResponse response = invoke(MockHttpRequest.get("/v2/caches"));
+
+    assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_OK);
+    assertThat(response.getContentAsString())
+      .contains("\"name\":\"log\"")
+      .contains("\"name\":\"users\"")
+      .contains("\"hitRate\":0.75")
+      .contains("\"estimatedMemory\":512")
+      .doesNotContain("\"clear\"");
+  }
+
+  @Test
+  void shouldAppendClearLinkWithPermission() throws URISyntaxException, UnsupportedEncodingException {
+    when(subject.isPermitted("cache:clear")).thenReturn(true);
+
+    MockHttpResponse response = invoke(MockHttpRequest.get("/v2/caches/users"));
+
+    assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_OK);
+    assertThat(response.getContentAsString())
+      .contains("\"size\":2")
+      .contains("\"clear\":{\"href\":\"/v2/caches/users\"}");
+  }
+
+  @Test
+  void shouldReturn403WithoutPermission() throws URISyntaxException {
+    doThrow(new AuthorizationException("not permitted")).when(subject).checkPermission("cache:read");
+
+    MockHttpResponse response = invoke(MockHttpRequest.get("/v2/caches"));
+
+    assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_FORBIDDEN);
+  }
+
+  @Test
+  void shouldReturn404ForUnknownCache() throws URISyntaxException {
+    MockHttpResponse response = invoke(MockHttpRequest.get("/v2/caches/unknown"));
+
+    assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_NOT_FOUND);
+  }
+
+  @Test
+  void shouldClearCache() throws URISyntaxException {
+    MockHttpResponse response = invoke(MockHttpRequest.delete("/v2/caches/users"));
+
+    assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_NO_CONTENT);
+    verify(users).clear();
+  }
+
+  @Test
+  void shouldClearRepositoryOfCache() throws URISyntaxException {
+    MockHttpResponse response = invoke(MockHttpRequest.delete("/v2/caches/log?repository=42"));
+
+    assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_NO_CONTENT);
+    verify(log).clearRepository("42");
+  }
+
+  @Test
+  void shouldReturn404ForRepositoryOfPlainCache() throws URISyntaxException {
+    MockHttpResponse response = invoke(MockHttpRequest.delete("/v2/caches/users?repository=42"));
+
+    assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_NOT_FOUND);
+  }
+
+  @Test
+  void shouldReturn403WithoutClearPermission() throws URISyntaxException {
+    doThrow(new AuthorizationException("not permitted")).when(subject).checkPermission("cache:clear");
+
+    MockHttpResponse response = invoke(MockHttpRequest.delete("/v2/caches/users"));
+
+    assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_FORBIDDEN);
+  }
+
+  private MockHttpResponse invoke(MockHttpRequest request) {
+    MockHttpResponse response = new MockHttpResponse();
+    dispatcher.invoke(request, response);
+    return response;
+  }
+}
@@ -130,6 +130,19 @@ public abstract class CacheCopyTestBase
     assertEquals(1, mo.getVersion());
   }
 
+  /**
+   * Immutable elements must be returned as they are, regardless of the strategy.
+   */
+  @Test
+  public void testImmutableIsNotCopied()
+  {
+    Cache<String, MutableObject> cache = createCache(CopyStrategy.READWRITE);
+    MutableObject io = new ImmutableObject(1);
+
+    cache.put("a", io);
+    assertSame(io, cache.get("a"));
+  }
+
   //~--- inner classes --------------------------------------------------------
 
   /**
@@ -189,4 +202,18 @@ public abstract class CacheCopyTestBase
     /** Field description */
     private int version;
   }
+
+  /**
+   * Object which is marked as {@link Immutable}.
+   */
+  public static class ImmutableObject extends MutableObject implements Immutable
+  {
+
+    private static final long serialVersionUID = 2491622817432452317L;
+
+    public ImmutableObject(int version)
+    {
+      super(version);
+    }
+  }
 }
@@ -100,6 +100,18 @@ public abstract class CacheTestBase {
     assertNull(cache.get("test"));
   }
 
+  @Test
+  public void testReplace() {
+    cache.put("test", "test123");
+
+    assertFalse(cache.replace("test", "test456", "test789"));
+    assertFalse(cache.replace("test-1", "test123", "test789"));
+    assertTrue(cache.replace("test", "test123", "test456"));
+
+    assertEquals("test456", cache.get("test"));
+    assertFalse(cache.contains("test-1"));
+  }
+
   @Test
   public void testRemoveAll() {
     cache.put("test-1", "test123");
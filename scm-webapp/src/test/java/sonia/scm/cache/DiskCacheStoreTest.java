@@ -0,0 +1,260 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package sonia.scm.cache;
+
+import com.google.common.cache.CacheBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import sonia.scm.repository.BrowserResult;
+import sonia.scm.repository.FileObject;
+import sonia.scm.repository.RevisionCacheKey;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DiskCacheStoreTest {
+
+  @TempDir
+  Path directory;
+
+  private final Set<String> deletedRepositories = new HashSet<>();
+
+  private DiskCacheStore store;
+
+  @AfterEach
+  void closeStore() {
+    if (store != null) {
+      store.close();
+    }
+  }
+
+  @Test
+  void shouldReturnStoredElement() {
+    store = open(1024 * 1024);
+
+    store.put("a", "42", "A");
+    store.flush();
+
+    assertThat(store.get("a", "42")).isEqualTo("A");
+    assertThat(store.get("b", "42")).isNull();
+    assertThat(store.size()).isEqualTo(1);
+  }
+
+  @Test
+  void shouldReturnLatestElement() {
+    store = open(1024 * 1024);
+
+    store.put("a", "42", "A");
+    store.put("a", "42", "B");
+    store.flush();
+
+    assertThat(store.get("a", "42")).isEqualTo("B");
+    assertThat(store.size()).isEqualTo(1);
+  }
+
+  @Test
+  void shouldKeepElementsAfterReopen() {
+    store = open(1024 * 1024);
+    store.put("a", "42", "A");
+    store.put("b", "42", "B");
+    store.remove("b");
+    store.close();
+
+    store = open(1024 * 1024);
+
+    assertThat(store.get("a", "42")).isEqualTo("A");
+    assertThat(store.get("b", "42")).isNull();
+  }
+
+  @Test
+  void shouldClearRepository() {
+    store = open(1024 * 1024);
+    store.put("a", "42", "A");
+    store.put("b", "21", "B");
+
+    store.clearRepository("42");
+    store.close();
+    store = open(1024 * 1024);
+
+    assertThat(store.get("a", "42")).isNull();
+    assertThat(store.get("b", "21")).isEqualTo("B");
+  }
+
+  @Test
+  void shouldStoreOnlyCompleteElementsOfCache() {
+    store = open(1024 * 1024);
+    GuavaCache<ResolvedKey, BrowserResult> cache = new GuavaCache<>(
+      CacheBuilder.newBuilder().build(), CopyStrategy.NONE, "browse", null, store
+    );
+    FileObject file = new FileObject();
+    file.setPartialResult(true);
+    ResolvedKey key = new ResolvedKey("42", "c1");
+
+    cache.put(key, new BrowserResult("c1", file));
+    store.flush();
+    assertThat(store.get(key, "42")).isNull();
+
+    cache.put(key, new BrowserResult("c1", new FileObject()));
+    store.flush();
+    assertThat(store.get(key, "42")).isNotNull();
+  }
+
+  @Test
+  void shouldApplyRemovalAfterPendingElements() {
+    store = open(1024 * 1024);
+    store.put("a", "42", "A");
+    store.put("b", "42", "B");
+
+    store.remove("a");
+
+    assertThat(store.get("a", "42")).isNull();
+    assertThat(store.get("b", "42")).isEqualTo("B");
+  }
+
+  @Test
+  void shouldNotStoreElementsAfterClose() {
+    store = open(1024 * 1024);
+    store.close();
+
+    store.put("a", "42", "A");
+
+    assertThat(store.get("a", "42")).isNull();
+  }
+
+  @Test
+  void shouldDropElementsOfDeletedRepositories() {
+    store = open(1024 * 1024);
+    store.put("a", "42", "A");
+    store.close();
+
+    deletedRepositories.add("42");
+    store = open(1024 * 1024);
+
+    assertThat(store.get("a", "42")).isNull();
+    store.flush();
+    assertThat(store.size()).isZero();
+  }
+
+  @Test
+  void shouldDeleteFilesOnClear() throws IOException {
+    store = open(1024 * 1024);
+    store.put("a", "42", "A");
+
+    store.clear();
+
+    assertThat(store.get("a", "42")).isNull();
+    try (Stream<Path> files = Files.list(directory)) {
+      assertThat(files).isEmpty();
+    }
+  }
+
+  @Test
+  void shouldEvictOldestElements() {
+    store = open(16 * 1024);
+
+    for (int i = 0; i < 200; i++) {
+      store.put("key-" + i, "42", "value-" + i + "-" + "x".repeat(256));
+    }
+    store.flush();
+
+    assertThat(store.getSizeOnDisk()).isLessThanOrEqualTo(16 * 1024);
+    assertThat(store.get("key-0", "42")).isNull();
+    assertThat(store.get("key-199", "42")).isEqualTo("value-199-" + "x".repeat(256));
+  }
+
+  @Test
+  void shouldCutOffIncompleteRecord() throws IOException {
+    store = open(1024 * 1024);
+    store.put("a", "42", "A");
+    store.close();
+
+    Path segment = directory.resolve("segment-0.dat");
+    long length = Files.size(segment);
+    Files.write(segment, new byte[]{0, 0, 1, 0, 1, 2, 3}, StandardOpenOption.APPEND);
+
+    store = open(1024 * 1024);
+    assertThat(store.get("a", "42")).isEqualTo("A");
+    assertThat(Files.size(segment)).isEqualTo(length);
+
+    store.put("b", "42", "B");
+    store.close();
+    store = open(1024 * 1024);
+
+    assertThat(store.get("a", "42")).isEqualTo("A");
+    assertThat(store.get("b", "42")).isEqualTo("B");
+  }
+
+  private DiskCacheStore open(long maximumSize) {
+    return new DiskCacheStore(directory, maximumSize, repositoryId -> !deletedRepositories.contains(repositoryId));
+  }
+
+  private static class ResolvedKey implements RevisionCacheKey, Serializable {
+
+    private final String repositoryId;
+    private final String commitId;
+
+    private ResolvedKey(String repositoryId, String commitId) {
+      this.repositoryId = repositoryId;
+      this.commitId = commitId;
+    }
+
+    @Override
+    public String getRepositoryId() {
+      return repositoryId;
+    }
+
+    @Override
+    public boolean isResolved() {
+      return true;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      ResolvedKey that = (ResolvedKey) o;
+      return repositoryId.equals(that.repositoryId) && commitId.equals(that.commitId);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(repositoryId, commitId);
+    }
+  }
+}
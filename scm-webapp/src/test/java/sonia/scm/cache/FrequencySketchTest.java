@@ -0,0 +1,71 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package sonia.scm.cache;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FrequencySketchTest {
+
+  @Test
+  void shouldCountAccesses() {
+    FrequencySketch sketch = new FrequencySketch(100);
+
+    sketch.increment(42);
+    sketch.increment(42);
+    sketch.increment(21);
+
+    assertThat(sketch.frequency(42)).isEqualTo(2);
+    assertThat(sketch.frequency(21)).isEqualTo(1);
+    assertThat(sketch.frequency(7)).isZero();
+  }
+
+  @Test
+  void shouldSaturateCounters() {
+    FrequencySketch sketch = new FrequencySketch(100);
+
+    for (int i = 0; i < 100; i++) {
+      sketch.increment(42);
+    }
+
+    assertThat(sketch.frequency(42)).isEqualTo(15);
+  }
+
+  @Test
+  void shouldAgeCountersAfterSample() {
+    FrequencySketch sketch = new FrequencySketch(1024);
+    for (int i = 0; i < 8; i++) {
+      sketch.increment(42);
+    }
+
+    // the sample size is ten times the width of the sketch
+    for (int i = 0; i < 10 * 1024; i++) {
+      sketch.increment(i * 31 + 1000);
+    }
+
+    assertThat(sketch.frequency(42)).isLessThan(8);
+  }
+}
@@ -0,0 +1,137 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package sonia.scm.cache;
+
+import com.google.common.cache.CacheBuilder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import javax.xml.bind.JAXB;
+import java.io.StringReader;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GuavaCacheAdmissionTest {
+
+  private final GuavaCache<String, String> cache = new GuavaCache<>(
+    CacheBuilder.newBuilder().maximumSize(10).build(), CopyStrategy.NONE, "test",
+    new FrequencyAdmission(new FrequencySketch(10), 10, false), null
+  );
+
+  @Test
+  void shouldAdmitFirstElementOfEmptyCache() {
+    assertThat(cache.get("a")).isNull();
+    cache.put("a", "A");
+
+    assertThat(cache.get("a")).isEqualTo("A");
+    assertThat(cache.getRejectedCount()).isZero();
+  }
+
+  @Test
+  void shouldNotAdmitElementRequestedOnceNearCapacity() {
+    fillToThreshold();
+
+    assertThat(cache.get("a")).isNull();
+    cache.put("a", "A");
+
+    assertThat(cache.get("a")).isNull();
+    assertThat(cache.getRejectedCount()).isEqualTo(1);
+  }
+
+  @Test
+  void shouldAdmitElementRequestedTwiceNearCapacity() {
+    fillToThreshold();
+
+    cache.get("a");
+    cache.put("a", "A");
+    cache.get("a");
+    cache.put("a", "A");
+
+    assertThat(cache.get("a")).isEqualTo("A");
+  }
+
+  @Test
+  void shouldAdmitElementsComputedInAdvanceNearCapacity() {
+    fillToThreshold();
+
+    String value = CacheAdmission.admitAll(() -> cache.get("a", () -> "A"));
+
+    assertThat(value).isEqualTo("A");
+    assertThat(cache.get("a")).isEqualTo("A");
+    assertThat(cache.getRejectedCount()).isZero();
+  }
+
+  @Test
+  void shouldAlwaysUpdateCachedElements() {
+    fillToThreshold();
+
+    cache.get("a");
+    cache.get("a");
+    cache.put("a", "A");
+
+    assertThat(cache.put("a", "B")).isEqualTo("A");
+    assertThat(cache.get("a")).isEqualTo("B");
+  }
+
+  @Test
+  void shouldCheckFrequencyOfWeightedCacheNearMaximumWeight() {
+    GuavaCacheConfiguration configuration = JAXB.unmarshal(
+      new StringReader("<cache maximumWeight=\"100000\" frequencyAdmission=\"true\" />"), GuavaCacheConfiguration.class
+    );
+    GuavaCache<String, String> weightedCache = new GuavaCacheFactory(new SimpleMeterRegistry())
+      .create(configuration, "weighted");
+
+    weightedCache.put("first", "a".repeat(1000));
+    assertThat(weightedCache.contains("first")).isTrue();
+
+    for (int i = 0; i < 100; i++) {
+      weightedCache.put("key-" + i, "a".repeat(1000));
+    }
+
+    assertThat(weightedCache.getRejectedCount()).isPositive();
+  }
+
+  @Test
+  void shouldLimitCacheByWeight() {
+    GuavaCacheConfiguration configuration = JAXB.unmarshal(
+      new StringReader("<cache maximumWeight=\"10000\" frequencyAdmission=\"false\" />"), GuavaCacheConfiguration.class
+    );
+    GuavaCache<String, String> weightedCache = new GuavaCacheFactory(new SimpleMeterRegistry())
+      .create(configuration, "weighted");
+
+    for (int i = 0; i < 100; i++) {
+      weightedCache.put("key-" + i, "a".repeat(1000));
+    }
+
+    assertThat(weightedCache.size()).isLessThan(100);
+  }
+
+  private void fillToThreshold() {
+    for (int i = 0; i < 9; i++) {
+      cache.put("fill-" + i, "F");
+    }
+    assertThat(cache.size()).isEqualTo(9);
+  }
+}
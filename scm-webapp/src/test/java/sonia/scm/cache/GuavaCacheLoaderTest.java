@@ -0,0 +1,132 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package sonia.scm.cache;
+
+import com.google.common.cache.CacheBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class GuavaCacheLoaderTest {
+
+  private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+  private final GuavaCache<String, StringBuilder> cache = new GuavaCache<>(
+    CacheBuilder.newBuilder().build(), CopyStrategy.READWRITE, "test"
+  );
+
+  @AfterEach
+  void shutdownExecutor() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  void shouldLoadAndCacheMissingElement() {
+    StringBuilder value = cache.get("a", () -> new StringBuilder("A"));
+
+    assertThat(value).hasToString("A");
+    assertThat(cache.get("a")).hasToString("A");
+  }
+
+  @Test
+  void shouldNotLoadCachedElement() {
+    cache.put("a", new StringBuilder("A"));
+
+    StringBuilder value = cache.get("a", () -> {
+      throw new IllegalStateException("should not be called");
+    });
+
+    assertThat(value).hasToString("A");
+  }
+
+  @Test
+  void shouldComputeOnlyOnceForConcurrentCallers() throws Exception {
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    AtomicInteger computations = new AtomicInteger();
+
+    Future<StringBuilder> leader = executor.submit(() -> cache.get("a", () -> {
+      computations.incrementAndGet();
+      started.countDown();
+      release.await();
+      return new StringBuilder("A");
+    }));
+    started.await();
+
+    List<Future<StringBuilder>> waiters = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      waiters.add(executor.submit(() -> cache.get("a", () -> {
+        computations.incrementAndGet();
+        return new StringBuilder("B");
+      })));
+    }
+    while (cache.getCoalescedCount() < 3) {
+      Thread.sleep(10);
+    }
+    release.countDown();
+
+    assertThat(leader.get(5, TimeUnit.SECONDS)).hasToString("A");
+    for (Future<StringBuilder> waiter : waiters) {
+      StringBuilder value = waiter.get(5, TimeUnit.SECONDS);
+      assertThat(value).hasToString("A").isNotSameAs(leader.get());
+    }
+    assertThat(computations).hasValue(1);
+  }
+
+  @Test
+  void shouldComputeAgainIfRunningComputationFails() throws Exception {
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+
+    Future<StringBuilder> leader = executor.submit(() -> cache.get("a", () -> {
+      started.countDown();
+      release.await();
+      throw new IOException("failed");
+    }));
+    started.await();
+
+    Future<StringBuilder> waiter = executor.submit(() -> cache.get("a", () -> new StringBuilder("B")));
+    while (cache.getCoalescedCount() < 1) {
+      Thread.sleep(10);
+    }
+    release.countDown();
+
+    assertThatThrownBy(() -> leader.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(IOException.class);
+    assertThat(waiter.get(5, TimeUnit.SECONDS)).hasToString("B");
+    assertThat(cache.get("a")).hasToString("B");
+  }
+}
@@ -0,0 +1,229 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package sonia.scm.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import sonia.scm.repository.RepositoryCacheKey;
+import sonia.scm.repository.RevisionCacheKey;
+
+import java.util.Objects;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GuavaRepositoryCacheTest {
+
+  private GuavaCacheManager cacheManager;
+  private RepositoryCache<Key, String> cache;
+
+  @BeforeEach
+  void setUpCache() {
+    cacheManager = CacheTestUtil.createDefaultGuavaCacheManager();
+    cache = cacheManager.getRepositoryCache("sonia.cache.cmd.log");
+  }
+
+  @Test
+  void shouldCreateRepositoryCache() {
+    assertThat(cache).isInstanceOf(GuavaRepositoryCache.class);
+  }
+
+  @Test
+  void shouldReturnSameInstanceForPlainAccess() {
+    assertThat(cacheManager.<Key, String>getCache("sonia.cache.cmd.log")).isSameAs(cache);
+  }
+
+  @Test
+  void shouldCreateRepositoryCacheForKnownNameOnPlainAccess() {
+    Cache<Key, String> browseCache = cacheManager.getCache("sonia.cache.cmd.browse");
+
+    assertThat(browseCache).isInstanceOf(GuavaRepositoryCache.class);
+    assertThat(cacheManager.<Key, String>getRepositoryCache("sonia.cache.cmd.browse")).isSameAs(browseCache);
+  }
+
+  @Test
+  void shouldFallbackForPlainCache() {
+    Cache<Key, String> plainCache = cacheManager.getCache("plain");
+    plainCache.put(new Key("heart-of-gold", "a"), "a");
+    plainCache.put(new Key("puzzle-42", "b"), "b");
+
+    cacheManager.<Key, String>getRepositoryCache("plain").clearRepository("heart-of-gold");
+
+    assertThat(plainCache.keys()).containsOnly(new Key("puzzle-42", "b"));
+  }
+
+  @Test
+  void shouldClearOnlyElementsOfRepository() {
+    cache.put(new Key("heart-of-gold", "a"), "a");
+    cache.put(new Key("heart-of-gold", "b"), "b");
+    cache.put(new Key("puzzle-42", "a"), "c");
+
+    cache.clearRepository("heart-of-gold");
+
+    assertThat(cache.get(new Key("heart-of-gold", "a"))).isNull();
+    assertThat(cache.contains(new Key("heart-of-gold", "b"))).isFalse();
+    assertThat(cache.get(new Key("puzzle-42", "a"))).isEqualTo("c");
+    assertThat(cache.size()).isEqualTo(1);
+    assertThat(cache.keys()).containsOnly(new Key("puzzle-42", "a"));
+    assertThat(cache.values()).containsOnly("c");
+  }
+
+  @Test
+  void shouldCacheAgainAfterClearRepository() {
+    cache.put(new Key("heart-of-gold", "a"), "a");
+
+    cache.clearRepository("heart-of-gold");
+    cache.put(new Key("heart-of-gold", "a"), "b");
+
+    assertThat(cache.get(new Key("heart-of-gold", "a"))).isEqualTo("b");
+    assertThat(cache.size()).isEqualTo(1);
+  }
+
+  @Test
+  void shouldIgnoreStaleElementsOnRemoveAll() {
+    cache.put(new Key("heart-of-gold", "a"), "a");
+    cache.put(new Key("puzzle-42", "a"), "b");
+
+    cache.clearRepository("heart-of-gold");
+
+    assertThat(cache.removeAll(key -> true)).containsOnly("b");
+    assertThat(cache.size()).isZero();
+  }
+
+  @Test
+  void shouldCountReplacedAndRemovedElements() {
+    cache.put(new Key("heart-of-gold", "a"), "a");
+    cache.put(new Key("heart-of-gold", "a"), "b");
+    cache.put(new Key("heart-of-gold", "b"), "c");
+    cache.put(new Key("puzzle-42", "a"), "d");
+
+    assertThat(cache.size()).isEqualTo(3);
+
+    cache.remove(new Key("heart-of-gold", "a"));
+
+    assertThat(cache.size()).isEqualTo(2);
+  }
+
+  @Test
+  void shouldCountReplacedElements() {
+    cache.put(new Key("heart-of-gold", "a"), "a");
+
+    assertThat(cache.replace(new Key("heart-of-gold", "a"), "a", "b")).isTrue();
+    assertThat(cache.replace(new Key("heart-of-gold", "a"), "a", "c")).isFalse();
+    assertThat(cache.replace(new Key("puzzle-42", "a"), "a", "d")).isFalse();
+
+    assertThat(cache.get(new Key("heart-of-gold", "a"))).isEqualTo("b");
+    assertThat(cache.size()).isEqualTo(1);
+    assertThat(((GuavaRepositoryCache<Key, String>) cache).getSegmentCount()).isEqualTo(1);
+  }
+
+  @Test
+  void shouldRemoveSegmentWithLastElement() {
+    cache.put(new Key("heart-of-gold", "a"), "a");
+    cache.put(new Key("heart-of-gold", "b"), "b");
+    cache.put(new Key("puzzle-42", "a"), "c");
+
+    cache.remove(new Key("heart-of-gold", "a"));
+    cache.remove(new Key("heart-of-gold", "b"));
+
+    assertThat(((GuavaRepositoryCache<Key, String>) cache).getSegmentCount()).isEqualTo(1);
+    assertThat(cache.size()).isEqualTo(1);
+  }
+
+  @Test
+  void shouldClearOnlyUnresolvedElementsOfRepository() {
+    RepositoryCache<RepositoryCacheKey, String> mixed = cacheManager.getRepositoryCache("sonia.cache.cmd.log");
+    mixed.put(new Key("heart-of-gold", "main"), "a");
+    mixed.put(new RevisionKey("heart-of-gold", "42", true), "b");
+    mixed.put(new RevisionKey("heart-of-gold", "develop", false), "c");
+    mixed.put(new Key("puzzle-42", "main"), "d");
+
+    mixed.clearUnresolved("heart-of-gold");
+
+    assertThat(mixed.get(new Key("heart-of-gold", "main"))).isNull();
+    assertThat(mixed.get(new RevisionKey("heart-of-gold", "develop", false))).isNull();
+    assertThat(mixed.get(new RevisionKey("heart-of-gold", "42", true))).isEqualTo("b");
+    assertThat(mixed.get(new Key("puzzle-42", "main"))).isEqualTo("d");
+    assertThat(mixed.size()).isEqualTo(2);
+  }
+
+  @Test
+  void shouldClearAllRepositories() {
+    cache.put(new Key("heart-of-gold", "a"), "a");
+    cache.put(new Key("puzzle-42", "a"), "b");
+
+    cache.clear();
+
+    assertThat(cache.size()).isZero();
+    assertThat(cache.get(new Key("puzzle-42", "a"))).isNull();
+  }
+
+  private static class RevisionKey extends Key implements RevisionCacheKey {
+
+    private final boolean resolved;
+
+    private RevisionKey(String repositoryId, String value, boolean resolved) {
+      super(repositoryId, value);
+      this.resolved = resolved;
+    }
+
+    @Override
+    public boolean isResolved() {
+      return resolved;
+    }
+  }
+
+  private static class Key implements RepositoryCacheKey {
+
+    private final String repositoryId;
+    private final String value;
+
+    private Key(String repositoryId, String value) {
+      this.repositoryId = repositoryId;
+      this.value = value;
+    }
+
+    @Override
+    public String getRepositoryId() {
+      return repositoryId;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      Key key = (Key) o;
+      return repositoryId.equals(key.repositoryId) && value.equals(key.value);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(repositoryId, value);
+    }
+  }
+}
@@ -0,0 +1,133 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package sonia.scm.cache;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RetainedSizeWeigherTest {
+
+  @Test
+  void shouldReturnZeroForNull() {
+    assertThat(RetainedSizeWeigher.measure(null)).isZero();
+    assertThat(RetainedSizeWeigher.estimate(null)).isZero();
+  }
+
+  @Test
+  void shouldEstimateFromMeasuredInstancesOfType() {
+    for (int i = 0; i < 16; i++) {
+      assertThat(RetainedSizeWeigher.estimate(new Sample(100))).isEqualTo(RetainedSizeWeigher.measure(new Sample(100)));
+    }
+
+    // the average of the measured instances is used, instead of measuring the larger instance
+    assertThat(RetainedSizeWeigher.estimate(new Sample(10_000))).isEqualTo(RetainedSizeWeigher.measure(new Sample(100)));
+  }
+
+  @Test
+  void shouldEstimateStringByLength() {
+    assertThat(RetainedSizeWeigher.measure("a".repeat(1000)))
+      .isGreaterThan(RetainedSizeWeigher.measure("a".repeat(10)) + 900);
+  }
+
+  @Test
+  void shouldEstimatePrimitiveArrays() {
+    assertThat(RetainedSizeWeigher.measure(new long[100])).isEqualTo(816);
+  }
+
+  @Test
+  void shouldCountSharedObjectsOnce() {
+    String value = "a".repeat(1000);
+    long single = RetainedSizeWeigher.measure(new Node(value, null));
+
+    assertThat(RetainedSizeWeigher.measure(new Node(value, new Node(value, null))))
+      .isLessThan(single * 2);
+  }
+
+  @Test
+  void shouldIgnoreTransientFields() {
+    Node node = new Node("a", null);
+    long size = RetainedSizeWeigher.measure(node);
+
+    node.cached = "a".repeat(1000);
+
+    assertThat(RetainedSizeWeigher.measure(node)).isEqualTo(size);
+  }
+
+  @Test
+  void shouldEstimateCollectionsAndMaps() {
+    List<Node> nodes = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      nodes.add(new Node("node-" + i, null));
+    }
+
+    assertThat(RetainedSizeWeigher.measure(nodes))
+      .isGreaterThan(RetainedSizeWeigher.measure(nodes.subList(0, 10)) * 5);
+    assertThat(RetainedSizeWeigher.measure(ImmutableMap.of("key", nodes)))
+      .isGreaterThan(RetainedSizeWeigher.measure(nodes));
+  }
+
+  @Test
+  void shouldHandleCycles() {
+    Node node = new Node("a", null);
+    node.next = node;
+
+    assertThat(RetainedSizeWeigher.measure(Arrays.asList(node, node))).isPositive();
+  }
+
+  @Test
+  void shouldWeighKeyAndValue() {
+    RetainedSizeWeigher weigher = new RetainedSizeWeigher();
+
+    assertThat(weigher.weigh("key", "a".repeat(1000)))
+      .isEqualTo(RetainedSizeWeigher.measure("key") + RetainedSizeWeigher.measure("a".repeat(1000)));
+  }
+
+  private static class Sample {
+
+    private final long[] values;
+
+    private Sample(int length) {
+      this.values = new long[length];
+    }
+  }
+
+  private static class Node {
+
+    private final String value;
+    private Node next;
+    private transient String cached;
+
+    private Node(String value, Node next) {
+      this.value = value;
+      this.next = next;
+    }
+  }
+}
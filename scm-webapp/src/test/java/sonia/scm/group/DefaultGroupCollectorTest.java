@@ -138,7 +138,7 @@ class DefaultGroupCollectorTest {
   @Test
   void shouldNotResolveInternalGroupsForSystemAccount() {
     Set<String> groups = collector.collect(PRINCIPAL_SYSTEM);
-    verify(groupDAO, never()).getAll();
+    verify(groupDAO, never()).getGroupsForMember(PRINCIPAL_SYSTEM);
   }
 
 
@@ -150,10 +150,9 @@ class DefaultGroupCollectorTest {
     void setUpGroupsDao() {
       List<Group> groups = Lists.newArrayList(
         new Group("xml", "heartOfGold", "trillian"),
-        new Group("xml", "g42", "dent", "prefect"),
         new Group("xml", "fjordsOfAfrican", "dent", "trillian")
       );
-      when(groupDAO.getAll()).thenReturn(groups);
+      when(groupDAO.getGroupsForMember("trillian")).thenReturn(groups);
     }
 
     @Test
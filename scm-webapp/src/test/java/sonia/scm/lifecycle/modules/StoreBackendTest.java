@@ -0,0 +1,59 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package sonia.scm.lifecycle.modules;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static sonia.scm.lifecycle.modules.StoreBackend.PROPERTY;
+
+class StoreBackendTest {
+
+  @AfterEach
+  void cleanProperty() {
+    System.clearProperty(PROPERTY);
+  }
+
+  @Test
+  void shouldUseXmlWithoutProperty() {
+    assertThat(StoreBackend.configured()).isEqualTo(StoreBackend.XML);
+  }
+
+  @Test
+  void shouldUseConfiguredBackend() {
+    System.setProperty(PROPERTY, "mvstore");
+
+    assertThat(StoreBackend.configured()).isEqualTo(StoreBackend.MVSTORE);
+  }
+
+  @Test
+  void shouldFailForUnknownBackend() {
+    System.setProperty(PROPERTY, "oracle");
+
+    assertThrows(IllegalStateException.class, StoreBackend::configured);
+  }
+}
@@ -57,6 +57,7 @@ import sonia.scm.cache.GuavaCacheManager;
 import sonia.scm.config.ScmConfiguration;
 import sonia.scm.security.AuthorizationCollector;
 import sonia.scm.security.DefaultKeyGenerator;
+import sonia.scm.security.DefaultReadableRepositoriesResolver;
 import sonia.scm.security.KeyGenerator;
 import sonia.scm.user.UserTestData;
 
@@ -119,7 +120,8 @@ public class DefaultRepositoryManagerPerfTest {
       repositoryDAO,
       handlerSet,
       Providers.of(namespaceStrategy),
-      repositoryPostProcessor);
+      repositoryPostProcessor,
+      new DefaultReadableRepositoriesResolver(repositoryDAO));
 
     setUpTestRepositories();
 
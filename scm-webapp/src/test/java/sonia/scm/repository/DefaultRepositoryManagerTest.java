@@ -54,6 +54,7 @@ import sonia.scm.repository.api.HookContextFactory;
 import sonia.scm.repository.api.HookFeature;
 import sonia.scm.repository.spi.HookContextProvider;
 import sonia.scm.security.DefaultKeyGenerator;
+import sonia.scm.security.DefaultReadableRepositoriesResolver;
 import sonia.scm.security.KeyGenerator;
 import sonia.scm.store.ConfigurationStoreFactory;
 
@@ -63,6 +64,7 @@ import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.Stack;
+import java.util.function.Function;
 
 import static java.util.Collections.emptySet;
 import static org.hamcrest.Matchers.containsInAnyOrder;
@@ -282,6 +284,20 @@ public class DefaultRepositoryManagerTest extends ManagerTestBase<Repository> {
     );
   }
 
+  @Test
+  public void shouldResolveReadableRepositoriesOnlyForFilteredRepositories() {
+    ReadableRepositoriesResolver resolver = mock(ReadableRepositoriesResolver.class);
+    when(resolver.resolve()).thenReturn(ReadableRepositories.all());
+    RepositoryManager repositoryManager = createRepositoryManager(new DefaultKeyGenerator(), dao -> resolver);
+    repositoryManager.create(RepositoryTestData.createHeartOfGold());
+
+    assertTrue(repositoryManager.getAll(repository -> false, null).isEmpty());
+    verify(resolver, never()).resolve();
+
+    assertEquals(1, repositoryManager.getAll().size());
+    verify(resolver).resolve();
+  }
+
   @Test
   public void testEvents() {
     RepositoryManager repoManager = createManager();
@@ -550,6 +566,10 @@ public class DefaultRepositoryManagerTest extends ManagerTestBase<Repository> {
   }
 
   private DefaultRepositoryManager createRepositoryManager(KeyGenerator keyGenerator) {
+    return createRepositoryManager(keyGenerator, DefaultReadableRepositoriesResolver::new);
+  }
+
+  private DefaultRepositoryManager createRepositoryManager(KeyGenerator keyGenerator, Function<RepositoryDAO, ReadableRepositoriesResolver> resolverFactory) {
     Set<RepositoryHandler> handlerSet = new HashSet<>();
     repositoryDAO = createRepositoryDaoMock();
     mock(ConfigurationStoreFactory.class);
@@ -561,7 +581,8 @@ public class DefaultRepositoryManagerTest extends ManagerTestBase<Repository> {
     when(namespaceStrategy.createNamespace(Mockito.any(Repository.class))).thenAnswer(invocation -> mockedNamespace);
 
     return new DefaultRepositoryManager(contextProvider,
-      keyGenerator, repositoryDAO, handlerSet, Providers.of(namespaceStrategy), postProcessor);
+      keyGenerator, repositoryDAO, handlerSet, Providers.of(namespaceStrategy), postProcessor,
+      resolverFactory.apply(repositoryDAO));
   }
 
   private RepositoryDAO createRepositoryDaoMock() {
@@ -0,0 +1,195 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package sonia.scm.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Answers;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.cache.CacheAdmission;
+import sonia.scm.repository.api.Command;
+import sonia.scm.repository.api.RepositoryService;
+import sonia.scm.repository.api.RepositoryServiceFactory;
+import sonia.scm.work.CentralWorkQueue;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static sonia.scm.repository.RepositoryHookType.POST_RECEIVE;
+
+@ExtendWith(MockitoExtension.class)
+class RepositoryCacheWarmUpTest {
+
+  private static final Repository REPOSITORY = RepositoryTestData.createHeartOfGold();
+  private static final Instant NOW = Instant.parse("2026-10-18T10:00:00Z");
+
+  @Mock
+  private CentralWorkQueue workQueue;
+  @Mock(answer = Answers.RETURNS_SELF)
+  private CentralWorkQueue.Enqueue enqueue;
+  @Mock
+  private RepositoryManager repositoryManager;
+  @Mock
+  private RepositoryServiceFactory serviceFactory;
+  @Mock(answer = Answers.RETURNS_DEEP_STUBS)
+  private RepositoryService service;
+
+  private RepositoryCacheWarmUp warmUp;
+
+  @BeforeEach
+  void setUpWarmUp() {
+    REPOSITORY.setId("42");
+    lenient().when(workQueue.append()).thenReturn(enqueue);
+    warmUp = create(60);
+  }
+
+  @Test
+  void shouldEnqueueWarmUpForRecentlyReadRepository() {
+    when(serviceFactory.getLastAccess("42")).thenReturn(Optional.of(NOW.minus(Duration.ofMinutes(5))));
+
+    warmUp.onEvent(event());
+
+    verify(enqueue).locks(RepositoryCacheWarmUp.LOCK, "42");
+    verify(enqueue).runAsAdmin();
+    verify(enqueue).enqueue(any(RepositoryCacheWarmUpTask.class));
+  }
+
+  @Test
+  void shouldSkipRepositoryWithoutRecentReads() {
+    when(serviceFactory.getLastAccess("42")).thenReturn(Optional.of(NOW.minus(Duration.ofHours(2))));
+
+    warmUp.onEvent(event());
+
+    verify(workQueue, never()).append();
+  }
+
+  @Test
+  void shouldSkipRepositoryWhichWasNeverRead() {
+    when(serviceFactory.getLastAccess("42")).thenReturn(Optional.empty());
+
+    warmUp.onEvent(event());
+
+    verify(workQueue, never()).append();
+  }
+
+  @Test
+  void shouldEnqueueOnlyOneWarmUpUntilItIsStarted() {
+    when(serviceFactory.getLastAccess("42")).thenReturn(Optional.of(NOW.minus(Duration.ofMinutes(5))));
+
+    warmUp.onEvent(event());
+    warmUp.onEvent(event());
+
+    verify(workQueue, times(1)).append();
+  }
+
+  @Test
+  void shouldLimitRateOfWarmUps() {
+    warmUp = create(1);
+    when(serviceFactory.getLastAccess(anyString())).thenReturn(Optional.of(NOW.minus(Duration.ofMinutes(5))));
+
+    warmUp.onEvent(event());
+    Repository other = RepositoryTestData.create42Puzzle();
+    other.setId("21");
+    warmUp.onEvent(new PostReceiveRepositoryHookEvent(new RepositoryHookEvent(null, other, POST_RECEIVE)));
+
+    verify(workQueue, times(1)).append();
+  }
+
+  @Test
+  void shouldNotCountReadsOfWarmUp() {
+    when(repositoryManager.get("42")).thenReturn(REPOSITORY);
+    when(serviceFactory.create(REPOSITORY)).thenReturn(service);
+    when(serviceFactory.getLastAccess("42")).thenReturn(Optional.of(NOW.minus(Duration.ofMinutes(5))));
+
+    warmUp.warmUp("42");
+    warmUp.onEvent(event());
+
+    verify(workQueue, never()).append();
+  }
+
+  @Test
+  void shouldRecomputeCachedResults() throws IOException {
+    when(repositoryManager.get("42")).thenReturn(REPOSITORY);
+    when(serviceFactory.create(REPOSITORY)).thenReturn(service);
+    when(service.isSupported(any(Command.class))).thenReturn(true);
+    when(service.getBranchesCommand().getBranches().getBranches()).thenReturn(asList(
+      Branch.normalBranch("develop", "21", 1L),
+      Branch.defaultBranch("main", "42", 2L)
+    ));
+
+    warmUp.warmUp("42");
+
+    verify(service.getBranchDetailsCommand()).execute("main");
+    verify(service.getBranchDetailsCommand()).execute("develop");
+    verify(service.getTagsCommand()).getTags();
+    verify(service.getLogCommand().setBranch("main").setPagingStart(0).setPagingLimit(10)).getChangesets();
+    verify(service.getBrowseCommand().setPath("/").setCollapse(true), times(2)).getBrowserResult();
+  }
+
+  @Test
+  void shouldAdmitBrowseResultsToCache() throws IOException {
+    when(repositoryManager.get("42")).thenReturn(REPOSITORY);
+    when(serviceFactory.create(REPOSITORY)).thenReturn(service);
+    when(service.isSupported(any(Command.class))).thenAnswer(invocation -> invocation.getArgument(0) == Command.BROWSE);
+    List<Boolean> admitted = new ArrayList<>();
+    when(service.getBrowseCommand().setPath("/").setCollapse(true).getBrowserResult()).thenAnswer(invocation -> {
+      admitted.add(CacheAdmission.isAdmittingAll());
+      return null;
+    });
+
+    warmUp.warmUp("42");
+
+    assertThat(admitted).containsExactly(true);
+    assertThat(CacheAdmission.isAdmittingAll()).isFalse();
+  }
+
+  private RepositoryCacheWarmUp create(int rate) {
+    return new RepositoryCacheWarmUp(
+      workQueue, repositoryManager, serviceFactory, Clock.fixed(NOW, ZoneOffset.UTC), true, Duration.ofMinutes(60),
+      rate, 10
+    );
+  }
+
+  private PostReceiveRepositoryHookEvent event() {
+    return new PostReceiveRepositoryHookEvent(new RepositoryHookEvent(null, REPOSITORY, POST_RECEIVE));
+  }
+}
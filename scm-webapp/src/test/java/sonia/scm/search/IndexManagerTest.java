@@ -31,6 +31,7 @@ import org.apache.lucene.document.TextField;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexWriter;
 import org.assertj.core.api.AssertionsForClassTypes;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -78,6 +79,11 @@ class IndexManagerTest {
     indexManager = new IndexManager(context, pluginLoader, analyzerFactory);
   }
 
+  @AfterEach
+  void closeIndexManager() throws IOException {
+    indexManager.close();
+  }
+
   @Test
   void shouldCreateNewIndex() throws IOException {
     try (IndexWriter writer = open(Songs.class, "new-index")) {
@@ -181,6 +187,45 @@ class IndexManagerTest {
     }
   }
 
+  @Test
+  void shouldShareSearcherUntilRefresh() throws IOException {
+    try (IndexWriter writer = open(Songs.class, "pooled")) {
+      addDoc(writer, "Dent");
+    }
+
+    try (PooledSearcher first = indexManager.openSearcher(searchableType, "pooled");
+         PooledSearcher second = indexManager.openSearcher(searchableType, "pooled")) {
+      assertThat(first.getSearcher()).isSameAs(second.getSearcher());
+    }
+  }
+
+  @Test
+  void shouldSeeCommittedChangesAfterRefresh() throws IOException {
+    try (IndexWriter writer = open(Songs.class, "pooled")) {
+      addDoc(writer, "Dent");
+    }
+    try (PooledSearcher searcher = indexManager.openSearcher(searchableType, "pooled")) {
+      assertThat(searcher.getReader().numDocs()).isOne();
+    }
+
+    try (IndexWriter writer = open(Songs.class, "pooled")) {
+      addDoc(writer, "Trillian");
+    }
+    indexManager.refresh(new IndexParams("pooled", searchableType));
+
+    try (PooledSearcher searcher = indexManager.openSearcher(searchableType, "pooled")) {
+      assertThat(searcher.getReader().numDocs()).isEqualTo(2);
+    }
+  }
+
+  @Test
+  void shouldOpenNoOpSearcherForMissingIndex() throws IOException {
+    open(Songs.class, "pooled");
+    try (PooledSearcher searcher = indexManager.openSearcher(searchableType, "pooled")) {
+      assertThat(searcher.getReader()).isInstanceOf(NoOpIndexReader.class);
+    }
+  }
+
   private void addDoc(IndexWriter writer, String name) throws IOException {
     Document doc = new Document();
     doc.add(new TextField("hitchhiker", name, Field.Store.YES));
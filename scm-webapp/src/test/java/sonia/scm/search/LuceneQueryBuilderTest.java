@@ -49,11 +49,13 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.repository.ReadableRepositories;
 import sonia.scm.repository.Repository;
 
 import java.io.IOException;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
 import java.util.function.Consumer;
@@ -74,6 +76,8 @@ class LuceneQueryBuilderTest {
   @Mock
   private IndexManager opener;
 
+  private ReadableRepositories readableRepositories = ReadableRepositories.of(Collections.emptySet());
+
   @BeforeEach
   void setUpDirectory() {
     directory = new ByteBuffersDirectory();
@@ -272,6 +276,33 @@ class LuceneQueryBuilderTest {
     assertThat(hits).isOne();
   }
 
+  @Test
+  void shouldReturnHitsOfReadableRepositories() throws IOException {
+    try (IndexWriter writer = writer()) {
+      writer.addDocument(permissionDoc("Awesome content one", "repository:read:hog"));
+      writer.addDocument(permissionDoc("Awesome content two", "repository:read:puzzle"));
+    }
+    readableRepositories = ReadableRepositories.of(Collections.singleton("hog"));
+
+    QueryResult result = query(Simple.class, "content:awesome");
+    assertThat(result.getHits()).hasSize(1).allSatisfy(
+      hit -> assertValueField(hit, "content", "Awesome content one")
+    );
+  }
+
+  @Test
+  void shouldReturnHitsWithoutPermission() throws IOException {
+    try (IndexWriter writer = writer()) {
+      writer.addDocument(simpleDoc("Awesome content one"));
+      writer.addDocument(permissionDoc("Awesome content two", "cde"));
+      writer.addDocument(permissionDoc("Awesome content three", "abc"));
+    }
+
+    QueryResult result = query(Simple.class, "content:awesome");
+    assertThat(result.getTotalHits()).isEqualTo(2L);
+    assertThat(result.getHits()).hasSize(2);
+  }
+
   @Test
   void shouldFilterByRepository() throws IOException {
     try (IndexWriter writer = writer()) {
@@ -574,9 +605,10 @@ class LuceneQueryBuilderTest {
     try (DirectoryReader reader = DirectoryReader.open(directory)) {
       SearchableTypeResolver resolver = new SearchableTypeResolver(type);
       LuceneSearchableType searchableType = resolver.resolve(type);
-      lenient().when(opener.openForRead(searchableType, "default")).thenReturn(reader);
+      lenient().when(opener.openSearcher(searchableType, "default")).thenReturn(PooledSearcher.unpooled(reader));
       LuceneQueryBuilder<T> builder = new LuceneQueryBuilder<T>(
-        opener, "default", searchableType, new AnalyzerFactory().create(searchableType)
+        opener, "default", searchableType, new AnalyzerFactory().create(searchableType),
+        () -> readableRepositories, new PermissionFilterCache()
       );
       return builder.count(queryString).getTotalHits();
     }
@@ -598,9 +630,10 @@ class LuceneQueryBuilderTest {
       SearchableTypeResolver resolver = new SearchableTypeResolver(type);
       LuceneSearchableType searchableType = resolver.resolve(type);
 
-      lenient().when(opener.openForRead(searchableType, "default")).thenReturn(reader);
+      lenient().when(opener.openSearcher(searchableType, "default")).thenReturn(PooledSearcher.unpooled(reader));
       LuceneQueryBuilder<T> builder = new LuceneQueryBuilder<>(
-        opener, "default", searchableType, new AnalyzerFactory().create(searchableType)
+        opener, "default", searchableType, new AnalyzerFactory().create(searchableType),
+        () -> readableRepositories, new PermissionFilterCache()
       );
       consumer.accept(builder);
       return builder.execute(queryString);
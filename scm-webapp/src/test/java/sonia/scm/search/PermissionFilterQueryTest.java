@@ -0,0 +1,158 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package sonia.scm.search;
+
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.DocIdSet;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.shiro.subject.Subject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.repository.ReadableRepositories;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PermissionFilterQueryTest {
+
+  @Mock
+  private Subject subject;
+
+  private final PermissionFilterCache cache = new PermissionFilterCache();
+  private final ReadableRepositories readableRepositories = ReadableRepositories.of(Collections.singleton("hog"));
+
+  private Directory directory;
+
+  @BeforeEach
+  void setUpDirectory() {
+    directory = new ByteBuffersDirectory();
+  }
+
+  @Test
+  void shouldCheckEachPermissionOncePerQuery() throws IOException {
+    // every commit creates a new segment
+    index("abc", "cde");
+    index("abc", "cde");
+    when(subject.isPermitted("abc")).thenReturn(true);
+
+    try (DirectoryReader reader = DirectoryReader.open(directory)) {
+      assertThat(reader.leaves()).hasSize(2);
+
+      assertThat(count(reader)).isEqualTo(2);
+      verify(subject).isPermitted("abc");
+      verify(subject).isPermitted("cde");
+    }
+  }
+
+  @Test
+  void shouldResolveRepositoryPermissionsFromReadableRepositories() throws IOException {
+    index("repository:read:hog", "repository:read:puzzle", "repository:read:*");
+
+    try (DirectoryReader reader = DirectoryReader.open(directory)) {
+      assertThat(count(reader)).isEqualTo(1);
+      verify(subject).isPermitted("repository:read:*");
+      verify(subject, never()).isPermitted("repository:read:hog");
+    }
+  }
+
+  @Test
+  void shouldCacheSegmentsWithRepositoryPermissionsOnly() throws IOException {
+    index("repository:read:hog", "repository:read:puzzle");
+    index("repository:read:hog", "abc");
+
+    try (DirectoryReader reader = DirectoryReader.open(directory)) {
+      assertThat(count(reader)).isEqualTo(2);
+
+      LeafReaderContext repositoriesOnly = reader.leaves().get(0);
+      LeafReaderContext mixed = reader.leaves().get(1);
+      assertThat(cache.get(repositoriesOnly.reader().getCoreCacheHelper().getKey(), readableRepositories)).isNotNull();
+      assertThat(cache.get(mixed.reader().getCoreCacheHelper().getKey(), readableRepositories)).isNull();
+    }
+  }
+
+  @Test
+  void shouldReuseCachedSegments() throws IOException {
+    index("repository:read:hog", "repository:read:puzzle");
+
+    try (DirectoryReader reader = DirectoryReader.open(directory)) {
+      IndexReader.CacheKey segment = reader.leaves().get(0).reader().getCoreCacheHelper().getKey();
+      assertThat(count(reader)).isEqualTo(1);
+      DocIdSet cached = cache.get(segment, readableRepositories);
+
+      assertThat(count(reader)).isEqualTo(1);
+      assertThat(cache.get(segment, readableRepositories)).isSameAs(cached);
+    }
+  }
+
+  @Test
+  void shouldNotShareCachedSegmentsBetweenReadableRepositories() throws IOException {
+    index("repository:read:hog", "repository:read:puzzle");
+
+    try (DirectoryReader reader = DirectoryReader.open(directory)) {
+      assertThat(count(reader)).isEqualTo(1);
+
+      ReadableRepositories other = ReadableRepositories.of(Arrays.asList("hog", "puzzle"));
+      IndexSearcher searcher = new IndexSearcher(reader);
+      assertThat(searcher.count(new PermissionFilterQuery(subject, other, cache))).isEqualTo(2);
+    }
+  }
+
+  private int count(DirectoryReader reader) throws IOException {
+    IndexSearcher searcher = new IndexSearcher(reader);
+    return searcher.count(new PermissionFilterQuery(subject, readableRepositories, cache));
+  }
+
+  private void index(String... permissions) throws IOException {
+    IndexWriterConfig config = new IndexWriterConfig(new StandardAnalyzer());
+    try (IndexWriter writer = new IndexWriter(directory, config)) {
+      for (String permission : permissions) {
+        Document document = new Document();
+        document.add(new StringField(FieldNames.PERMISSION, permission, Field.Store.NO));
+        writer.addDocument(document);
+      }
+      writer.commit();
+    }
+  }
+}
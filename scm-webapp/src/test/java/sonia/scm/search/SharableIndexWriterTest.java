@@ -149,6 +149,20 @@ class SharableIndexWriterTest {
     verify(underlyingWriter).close();
   }
 
+  @Test
+  void shouldRunAfterCommit() throws IOException {
+    AtomicInteger commits = new AtomicInteger();
+    SharableIndexWriter writer = new SharableIndexWriter(() -> underlyingWriter, commits::incrementAndGet);
+    writer.open();
+    writer.open();
+
+    writer.close();
+    assertThat(commits.get()).isOne();
+
+    writer.close();
+    assertThat(commits.get()).isEqualTo(2);
+  }
+
   @Test
   void shouldDelegateUpdates() throws IOException {
     SharableIndexWriter writer = new SharableIndexWriter(() -> underlyingWriter);
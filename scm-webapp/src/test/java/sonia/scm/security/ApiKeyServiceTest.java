@@ -24,6 +24,8 @@
 
 package sonia.scm.security;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.apache.shiro.authc.credential.PasswordService;
 import org.apache.shiro.authz.AuthorizationException;
 import org.apache.shiro.subject.PrincipalCollection;
@@ -35,6 +37,9 @@ import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import sonia.scm.AlreadyExistsException;
 import sonia.scm.HandlerEventType;
+import sonia.scm.cache.MapCacheManager;
+import sonia.scm.repository.RepositoryRole;
+import sonia.scm.repository.RepositoryRoleEvent;
 import sonia.scm.store.DataStore;
 import sonia.scm.store.DataStoreFactory;
 import sonia.scm.store.InMemoryDataStore;
@@ -44,10 +49,13 @@ import sonia.scm.user.UserEvent;
 
 import java.util.function.Supplier;
 
+import static java.util.Collections.emptyList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 class ApiKeyServiceTest {
@@ -61,7 +69,8 @@ class ApiKeyServiceTest {
   ApiKeyTokenHandler tokenHandler = new ApiKeyTokenHandler();
   DataStoreFactory storeFactory = new InMemoryDataStoreFactory(new InMemoryDataStore<ApiKeyCollection>());
   DataStore<ApiKeyCollection> store = storeFactory.withType(ApiKeyCollection.class).withName("apiKeys").build();
-  ApiKeyService service = new ApiKeyService(storeFactory, passwordService, keyGenerator, tokenHandler, passphraseGenerator);
+  MeterRegistry meterRegistry = new SimpleMeterRegistry();
+  ApiKeyService service = new ApiKeyService(storeFactory, passwordService, keyGenerator, tokenHandler, new MapCacheManager(), meterRegistry, passphraseGenerator);
 
   @BeforeEach
   void mockPasswordService() {
@@ -151,6 +160,48 @@ class ApiKeyServiceTest {
       assertThat(service.check(secondKey)).extracting("permissionRole").isEqualTo("WRITE");
     }
 
+    @Test
+    void shouldVerifyPassphraseOnlyOnce() {
+      String key = service.createNewKey("dent","1", "READ").getToken();
+
+      service.check(key);
+      service.check(key);
+
+      verify(passwordService).passwordsMatch(any(), any());
+      assertThat(meterRegistry.get("scm.auth.credential.cache").tag("result", "hit").counter().count()).isEqualTo(1);
+      assertThat(meterRegistry.get("scm.auth.credential.verification").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldNotUseVerifiedKeyForWrongPassphrase() {
+      service.createNewKey("dent","1", "READ");
+
+      service.check("dent", "1", "1-hashed");
+
+      assertThrows(AuthorizationException.class, () -> service.check("dent", "1", "wrong"));
+    }
+
+    @Test
+    void shouldNotUseVerifiedKeyAfterRemoval() {
+      String key = service.createNewKey("dent","1", "READ").getToken();
+      service.check(key);
+
+      service.remove("dent", "1");
+
+      assertThrows(AuthorizationException.class, () -> service.check(key));
+    }
+
+    @Test
+    void shouldVerifyPassphraseAgainAfterRoleChange() {
+      String key = service.createNewKey("dent","1", "READ").getToken();
+      service.check(key);
+
+      service.invalidateForChangedRole(new RepositoryRoleEvent(HandlerEventType.MODIFY, new RepositoryRole("READ", emptyList(), "")));
+      service.check(key);
+
+      verify(passwordService, times(2)).passwordsMatch(any(), any());
+    }
+
     @Test
     void shouldFailWhenAddingSameNameTwice() {
       String firstKey = service.createNewKey("dent","1", "READ").getToken();
@@ -94,6 +94,12 @@ public class AuthorizationChangedEventProducerTest {
     assertTrue(producer.event.isEveryUserAffected());
   }
 
+  private void assertRepositoryEventIsFired(Repository repository){
+    assertGlobalEventIsFired();
+    assertTrue(producer.event.isRepositorySpecific());
+    assertEquals(repository.getId(), producer.event.getIdOfAffectedRepository());
+  }
+
   /**
    * Tests {@link AuthorizationChangedEventProducer#onEvent(sonia.scm.user.UserEvent)} with modified user.
    */
@@ -159,11 +165,12 @@ public class AuthorizationChangedEventProducerTest {
   public void testOnRepositoryEvent()
   {
     Repository repository = RepositoryTestData.createHeartOfGold();
+    repository.setId("42");
     producer.onEvent(new RepositoryEvent(HandlerEventType.BEFORE_CREATE, repository));
     assertEventIsNotFired();
 
     producer.onEvent(new RepositoryEvent(HandlerEventType.CREATE, repository));
-    assertGlobalEventIsFired();
+    assertRepositoryEventIsFired(repository);
   }
 
  /**
@@ -229,7 +236,7 @@ public class AuthorizationChangedEventProducerTest {
 
     repositoryModified.setNamespace("new_namespace");
     producer.onEvent(new RepositoryModificationEvent(HandlerEventType.CREATE, repositoryModified, repository));
-    assertGlobalEventIsFired();
+    assertRepositoryEventIsFired(repositoryModified);
   }
 
   private void resetStoredEvent(){
@@ -287,6 +294,8 @@ public class AuthorizationChangedEventProducerTest {
     namespaceModified.setPermissions(Lists.newArrayList(new RepositoryPermission("test123", singletonList("read"), false)));
     producer.onEvent(new NamespaceModificationEvent(HandlerEventType.CREATE, namespaceModified, namespace));
     assertGlobalEventIsFired();
+    assertTrue(producer.event.isNamespaceSpecific());
+    assertEquals("hitchhiker", producer.event.getAffectedNamespace());
 
     resetStoredEvent();
 
@@ -43,6 +43,8 @@ import org.mockito.junit.MockitoJUnitRunner;
 import sonia.scm.SCMContext;
 import sonia.scm.cache.Cache;
 import sonia.scm.cache.CacheManager;
+import sonia.scm.cache.Immutable;
+import sonia.scm.cache.MapCache;
 import sonia.scm.group.GroupCollector;
 import sonia.scm.repository.Namespace;
 import sonia.scm.repository.NamespaceDao;
@@ -54,17 +56,26 @@ import sonia.scm.repository.RepositoryTestData;
 import sonia.scm.user.User;
 import sonia.scm.user.UserTestData;
 
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
 import static com.google.common.collect.Lists.newArrayList;
 import static java.util.Arrays.asList;
 import static java.util.Collections.singletonList;
 import static java.util.Optional.of;
 import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.hasItems;
 import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertThrows;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.anyObject;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -172,6 +183,21 @@ public class DefaultAuthorizationCollectorTest {
     assertThat(authInfo.getObjectPermissions(), nullValue());
   }
 
+  /**
+   * Tests that the collected {@link AuthorizationInfo} is an immutable snapshot, which can be cached without copies.
+   */
+  @Test
+  @SubjectAware(
+    configuration = "classpath:sonia/scm/shiro-001.ini"
+  )
+  public void testCollectReturnsImmutableSnapshot() {
+    authenticate(UserTestData.createTrillian(), "main");
+
+    AuthorizationInfo authInfo = collector.collect();
+    assertThat(authInfo, instanceOf(Immutable.class));
+    assertThrows(UnsupportedOperationException.class, () -> authInfo.getStringPermissions().add("repository:*"));
+  }
+
   /**
    * Tests {@link AuthorizationCollector#collect(PrincipalCollection)} ()} without permissions.
    */
@@ -365,4 +391,105 @@ public class DefaultAuthorizationCollectorTest {
     verify(cache).removeAll(any());
   }
 
+  /**
+   * Tests that a repository specific {@link AuthorizationChangedEvent} only updates the permissions of the repository.
+   */
+  @Test
+  @SubjectAware(
+    configuration = "classpath:sonia/scm/shiro-001.ini"
+  )
+  public void testUpdateRepositoryPermissions() {
+    when(cacheManager.getCache(Mockito.any(String.class))).thenReturn(new MapCache<>());
+    collector = new DefaultAuthorizationCollector(cacheManager, repositoryDAO, securitySystem, repositoryPermissionProvider, groupCollector, namespaceDao);
+
+    authenticate(UserTestData.createTrillian(), "main");
+    Repository heartOfGold = RepositoryTestData.createHeartOfGold();
+    heartOfGold.setId("one");
+    heartOfGold.setPermissions(newArrayList(new RepositoryPermission("trillian", asList("read", "pull"), false)));
+    Repository puzzle42 = RepositoryTestData.create42Puzzle();
+    puzzle42.setId("two");
+    puzzle42.setPermissions(newArrayList(new RepositoryPermission("trillian", singletonList("read"), false)));
+    when(repositoryDAO.getAll()).thenReturn(newArrayList(heartOfGold, puzzle42));
+
+    assertThat(collector.collect().getStringPermissions(), hasItems("repository:read,pull:one", "repository:read:two"));
+
+    heartOfGold.setPermissions(newArrayList(new RepositoryPermission("trillian", singletonList("push"), false)));
+    when(repositoryDAO.get("one")).thenReturn(heartOfGold);
+    collector.invalidateCache(AuthorizationChangedEvent.createForRepository("one"));
+
+    AuthorizationInfo authInfo = collector.collect();
+    assertThat(authInfo.getStringPermissions(), hasItems("repository:push:one", "repository:read:two"));
+    assertThat(authInfo.getStringPermissions(), not(hasItem("repository:read,pull:one")));
+
+    when(repositoryDAO.get("two")).thenReturn(null);
+    collector.invalidateCache(AuthorizationChangedEvent.createForRepository("two"));
+
+    authInfo = collector.collect();
+    assertThat(authInfo.getStringPermissions(), hasItem("repository:push:one"));
+    assertThat(authInfo.getStringPermissions(), not(hasItem("repository:read:two")));
+    verify(repositoryDAO, times(1)).getAll();
+  }
+
+  /**
+   * Tests that a repository specific {@link AuthorizationChangedEvent} does not restore permissions, which were
+   * invalidated concurrently.
+   */
+  @Test
+  @SubjectAware(
+    configuration = "classpath:sonia/scm/shiro-001.ini"
+  )
+  public void testUpdateRepositoryPermissionsWithConcurrentInvalidation() {
+    when(cacheManager.getCache(Mockito.any(String.class))).thenReturn(new MapCache<>());
+    collector = new DefaultAuthorizationCollector(cacheManager, repositoryDAO, securitySystem, repositoryPermissionProvider, groupCollector, namespaceDao);
+
+    authenticate(UserTestData.createTrillian(), "main");
+    Repository heartOfGold = RepositoryTestData.createHeartOfGold();
+    heartOfGold.setId("one");
+    heartOfGold.setPermissions(newArrayList(new RepositoryPermission("trillian", asList("read", "pull"), false)));
+    when(repositoryDAO.getAll()).thenReturn(newArrayList(heartOfGold));
+    when(repositoryDAO.get("one")).thenReturn(heartOfGold);
+
+    assertThat(collector.collect().getStringPermissions(), hasItem("repository:read,pull:one"));
+
+    when(namespaceDao.get(heartOfGold.getNamespace())).thenAnswer(ic -> {
+      // the permissions of trillian are invalidated by another thread, while the repository permissions are updated
+      CompletableFuture.runAsync(() -> collector.invalidateCache(AuthorizationChangedEvent.createForUser("trillian"))).join();
+      return Optional.empty();
+    });
+    collector.invalidateCache(AuthorizationChangedEvent.createForRepository("one"));
+
+    collector.collect();
+    verify(repositoryDAO, times(2)).getAll();
+  }
+
+  /**
+   * Tests that a namespace specific {@link AuthorizationChangedEvent} updates the permissions of its repositories.
+   */
+  @Test
+  @SubjectAware(
+    configuration = "classpath:sonia/scm/shiro-001.ini"
+  )
+  public void testUpdateNamespacePermissions() {
+    when(cacheManager.getCache(Mockito.any(String.class))).thenReturn(new MapCache<>());
+    collector = new DefaultAuthorizationCollector(cacheManager, repositoryDAO, securitySystem, repositoryPermissionProvider, groupCollector, namespaceDao);
+
+    authenticate(UserTestData.createTrillian(), "main");
+    Repository heartOfGold = RepositoryTestData.createHeartOfGold();
+    heartOfGold.setId("one");
+    Repository puzzle42 = RepositoryTestData.create42Puzzle();
+    puzzle42.setNamespace("guide");
+    puzzle42.setId("two");
+    puzzle42.setPermissions(newArrayList(new RepositoryPermission("trillian", singletonList("read"), false)));
+    when(repositoryDAO.getAll()).thenReturn(newArrayList(heartOfGold, puzzle42));
+
+    assertThat(collector.collect().getStringPermissions(), not(hasItem("repository:read,pull:one")));
+
+    Namespace namespace = new Namespace(heartOfGold.getNamespace());
+    namespace.setPermissions(newArrayList(new RepositoryPermission("main", asList("read", "pull"), true)));
+    when(namespaceDao.get(heartOfGold.getNamespace())).thenReturn(of(namespace));
+    collector.invalidateCache(AuthorizationChangedEvent.createForNamespace(heartOfGold.getNamespace()));
+
+    assertThat(collector.collect().getStringPermissions(), hasItems("repository:read,pull:one", "repository:read:two"));
+  }
+
 }
@@ -0,0 +1,157 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package sonia.scm.security;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSetMultimap;
+import org.apache.shiro.SecurityUtils;
+import org.apache.shiro.authc.credential.DefaultPasswordService;
+import org.apache.shiro.mgt.DefaultSecurityManager;
+import org.apache.shiro.realm.SimpleAccountRealm;
+import org.apache.shiro.subject.SimplePrincipalCollection;
+import org.apache.shiro.subject.Subject;
+import org.apache.shiro.util.ThreadContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.cache.MapCacheManager;
+import sonia.scm.repository.ReadableRepositories;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryDAO;
+import sonia.scm.repository.RepositoryTestData;
+import sonia.scm.user.UserDAO;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class DefaultReadableRepositoriesResolverTest {
+
+  @Mock
+  private RepositoryDAO repositoryDAO;
+
+  @Mock
+  private Subject subject;
+
+  @Mock
+  private AuthorizationCollector collector;
+
+  @Mock
+  private LoginAttemptHandler loginAttemptHandler;
+
+  @Mock
+  private UserDAO userDAO;
+
+  private final Set<String> permissions = new HashSet<>();
+
+  private DefaultReadableRepositoriesResolver resolver;
+
+  @BeforeEach
+  void setUp() {
+    resolver = new DefaultReadableRepositoriesResolver(repositoryDAO);
+    ThreadContext.bind(subject);
+    lenient().when(subject.isPermitted(anyString())).thenAnswer(ic -> permissions.contains(ic.<String>getArgument(0)));
+  }
+
+  @AfterEach
+  void tearDown() {
+    ThreadContext.unbindSubject();
+    ThreadContext.unbindSecurityManager();
+  }
+
+  @Test
+  void shouldReturnAllIfEveryRepositoryIsReadable() {
+    permissions.add("repository:read:*");
+
+    ReadableRepositories readable = resolver.resolve();
+
+    assertThat(readable.isAll()).isTrue();
+    assertThat(readable.contains("42")).isTrue();
+  }
+
+  @Test
+  void shouldResolveFromPrecompiledPermissions() {
+    SimplePrincipalCollection principals = new SimplePrincipalCollection("trillian", DefaultRealm.REALM);
+    when(subject.getPrincipals()).thenReturn(principals);
+    when(collector.collect(principals)).thenReturn(new AuthorizationSnapshot(
+      ImmutableSet.of(Role.USER),
+      ImmutableSet.of("user:read:trillian", "repository:create"),
+      ImmutableSetMultimap.of(
+        "HeartOfGold", "repository:read,pull:HeartOfGold",
+        "puzzle", "repository:push:puzzle"
+      )
+    ));
+    SecurityUtils.setSecurityManager(new DefaultSecurityManager(createDefaultRealm()));
+
+    ReadableRepositories readable = resolver.resolve();
+
+    assertThat(readable.isAll()).isFalse();
+    assertThat(readable.contains("HeartOfGold")).isTrue();
+    assertThat(readable.contains("puzzle")).isFalse();
+    verify(repositoryDAO, never()).getAll();
+  }
+
+  @Test
+  void shouldCheckRepositoriesOnDemandIfAnotherRealmCouldGrantPermissions() {
+    SimplePrincipalCollection principals = new SimplePrincipalCollection("trillian", DefaultRealm.REALM);
+    when(subject.getPrincipals()).thenReturn(principals);
+    SecurityUtils.setSecurityManager(new DefaultSecurityManager(
+      Arrays.asList(createDefaultRealm(), new SimpleAccountRealm())
+    ));
+    Repository heartOfGold = RepositoryTestData.createHeartOfGold();
+    heartOfGold.setId("HeartOfGold");
+    Repository puzzle = RepositoryTestData.create42Puzzle();
+    puzzle.setId("puzzle");
+    when(repositoryDAO.getAll()).thenReturn(Arrays.asList(heartOfGold, puzzle));
+    permissions.add("repository:read:puzzle");
+
+    ReadableRepositories readable = resolver.resolve();
+
+    assertThat(readable.contains("HeartOfGold")).isFalse();
+    assertThat(readable.contains("puzzle")).isTrue();
+    verify(repositoryDAO, never()).getAll();
+    assertThat(readable.getIds()).containsOnly("puzzle");
+  }
+
+  private DefaultRealm createDefaultRealm() {
+    return new DefaultRealm(
+      new DefaultPasswordService(),
+      Collections.singleton(collector),
+      new DAORealmHelperFactory(loginAttemptHandler, userDAO, new MapCacheManager())
+    );
+  }
+}
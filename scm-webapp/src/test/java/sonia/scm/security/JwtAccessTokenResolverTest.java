@@ -43,6 +43,7 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.MockitoJUnitRunner;
+import sonia.scm.cache.MapCacheManager;
 
 import javax.crypto.spec.SecretKeySpec;
 import java.util.Date;
@@ -51,6 +52,8 @@ import java.util.Set;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static sonia.scm.security.SecureKeyTestUtil.createSecureKey;
 
@@ -80,7 +83,7 @@ public class JwtAccessTokenResolverTest {
   public void prepareObjectUnderTest() {
     Set<AccessTokenValidator> validators = Sets.newHashSet(validator);
     when(validator.validate(Mockito.any(AccessToken.class))).thenReturn(true);
-    resolver = new JwtAccessTokenResolver(keyResolver, validators);
+    resolver = new JwtAccessTokenResolver(keyResolver, validators, new MapCacheManager());
   }
 
   /**
@@ -97,6 +100,98 @@ public class JwtAccessTokenResolverTest {
     assertEquals("marvin", access.getSubject());
   }
   
+  /**
+   * Tests that {@link JwtAccessTokenResolver#resolve(BearerToken)} verifies the signature only once,
+   * but runs the validators for every request.
+   */
+  @Test
+  public void testResolveVerifiesSignatureOnlyOnce() {
+    SecureKey secureKey = createSecureKey();
+    resolveKey(secureKey);
+    BearerToken bearer = BearerToken.valueOf(createCompactToken("marvin", secureKey));
+
+    resolver.resolve(bearer);
+    JwtAccessToken access = resolver.resolve(bearer);
+
+    assertEquals("marvin", access.getSubject());
+    verify(keyResolver).resolveSigningKey(Mockito.any(JwsHeader.class), Mockito.any(Claims.class));
+    verify(validator, times(2)).validate(access);
+  }
+
+  /**
+   * Tests that {@link JwtAccessTokenResolver#resolve(BearerToken)} verifies the signature again after a logout.
+   */
+  @Test
+  public void testResolveAfterLogout() {
+    SecureKey secureKey = createSecureKey();
+    resolveKey(secureKey);
+    BearerToken bearer = BearerToken.valueOf(createCompactToken("marvin", secureKey));
+
+    resolver.resolve(bearer);
+    resolver.invalidate(new LogoutEvent("marvin"));
+    resolver.resolve(bearer);
+
+    verify(keyResolver, times(2)).resolveSigningKey(Mockito.any(JwsHeader.class), Mockito.any(Claims.class));
+  }
+
+  /**
+   * Tests that {@link JwtAccessTokenResolver#resolve(BearerToken)} verifies the signature again only for the
+   * subject of the logout.
+   */
+  @Test
+  public void testResolveAfterLogoutOfAnotherSubject() {
+    SecureKey secureKey = createSecureKey();
+    resolveKey(secureKey);
+    BearerToken marvin = BearerToken.valueOf(createCompactToken("marvin", secureKey));
+    BearerToken trillian = BearerToken.valueOf(createCompactToken("trillian", secureKey));
+
+    resolver.resolve(marvin);
+    resolver.resolve(trillian);
+    resolver.invalidate(new LogoutEvent("marvin"));
+    resolver.resolve(marvin);
+    resolver.resolve(trillian);
+
+    verify(keyResolver, times(3)).resolveSigningKey(Mockito.any(JwsHeader.class), Mockito.any(Claims.class));
+  }
+
+  /**
+   * Tests that {@link JwtAccessTokenResolver#resolve(BearerToken)} does not verify the signature again,
+   * if the secure key is read again with the same content.
+   */
+  @Test
+  public void testResolveWithReloadedKey() {
+    SecureKey secureKey = createSecureKey();
+    resolveKey(secureKey);
+    when(keyResolver.getSecureKey("marvin")).thenAnswer(
+      ic -> new SecureKey(secureKey.getBytes().clone(), secureKey.getCreationDate())
+    );
+    BearerToken bearer = BearerToken.valueOf(createCompactToken("marvin", secureKey));
+
+    resolver.resolve(bearer);
+    resolver.resolve(bearer);
+
+    verify(keyResolver).resolveSigningKey(Mockito.any(JwsHeader.class), Mockito.any(Claims.class));
+  }
+
+  /**
+   * Tests that {@link JwtAccessTokenResolver#resolve(BearerToken)} verifies the signature again,
+   * if the secure key of the subject has changed.
+   */
+  @Test
+  public void testResolveAfterKeyChange() {
+    SecureKey secureKey = createSecureKey();
+    resolveKey(secureKey);
+    BearerToken bearer = BearerToken.valueOf(createCompactToken("marvin", secureKey));
+
+    resolver.resolve(bearer);
+    when(keyResolver.getSecureKey("marvin")).thenReturn(createSecureKey());
+
+    // the token was signed with the old key
+    expectedException.expect(AuthenticationException.class);
+    resolveKey(createSecureKey());
+    resolver.resolve(bearer);
+  }
+
   /**
    * Tests {@link JwtAccessTokenResolver#resolve(BearerToken)} with a failed validator.
    */
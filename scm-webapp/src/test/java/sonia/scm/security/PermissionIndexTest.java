@@ -0,0 +1,174 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package sonia.scm.security;
+
+import com.google.common.collect.ImmutableSet;
+import org.apache.shiro.authz.Permission;
+import org.apache.shiro.authz.permission.WildcardPermission;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PermissionIndexTest {
+
+  private final ScmPermissionResolver resolver = new ScmPermissionResolver();
+
+  @Test
+  void shouldPermitExplicitIds() {
+    PermissionIndex index = resolver.index(Arrays.asList("repository:read,pull:42", "repository:push:21,42"));
+
+    assertThat(index.isPermitted(resolve("repository:read:42"))).isTrue();
+    assertThat(index.isPermitted(resolve("repository:push:42"))).isTrue();
+    assertThat(index.isPermitted(resolve("repository:push:21"))).isTrue();
+    assertThat(index.isPermitted(resolve("repository:read:21"))).isFalse();
+    assertThat(index.isPermitted(resolve("repository:read:1337"))).isFalse();
+  }
+
+  @Test
+  void shouldPermitWildcardIds() {
+    PermissionIndex index = resolver.index(Arrays.asList("repository:read:*", "user:read"));
+
+    assertThat(index.isPermitted(resolve("repository:read:42"))).isTrue();
+    assertThat(index.isPermitted(resolve("repository:read:*"))).isTrue();
+    assertThat(index.isPermitted(resolve("user:read:trillian"))).isTrue();
+    assertThat(index.isPermitted(resolve("repository:push:42"))).isFalse();
+  }
+
+  @Test
+  void shouldNotImplyWildcardRequestsWithExplicitIds() {
+    PermissionIndex index = resolver.index(singletonList("repository:read:42"));
+
+    assertThat(index.isPermitted(resolve("repository:read:*"))).isFalse();
+    assertThat(index.isPermitted(resolve("repository:read"))).isFalse();
+  }
+
+  @Test
+  void shouldPermitRequestsWithMultipleIds() {
+    PermissionIndex index = resolver.index(Arrays.asList("repository:read:21,42", "repository:read:1337"));
+
+    assertThat(index.isPermitted(resolve("repository:read:42,21"))).isTrue();
+    assertThat(index.isPermitted(resolve("repository:read:42,1337"))).isFalse();
+  }
+
+  @Test
+  void shouldPermitEverythingForWildcardSubject() {
+    PermissionIndex index = resolver.index(singletonList("*"));
+
+    assertThat(index.isPermitted(resolve("repository:read:42"))).isTrue();
+    assertThat(index.isPermitted(resolve("configuration:write"))).isTrue();
+  }
+
+  @Test
+  void shouldPermitMultipleSubjects() {
+    PermissionIndex index = resolver.index(singletonList("user,group:autocomplete"));
+
+    assertThat(index.isPermitted(resolve("user:autocomplete"))).isTrue();
+    assertThat(index.isPermitted(resolve("group:autocomplete"))).isTrue();
+    assertThat(index.isPermitted(resolve("user,group:autocomplete"))).isTrue();
+    assertThat(index.isPermitted(resolve("repository:autocomplete"))).isFalse();
+  }
+
+  @Test
+  void shouldHandleForeignPermissions() {
+    Permission custom = p -> p.toString().equals("custom");
+    PermissionIndex index = PermissionIndex.of(Arrays.asList(custom, new WildcardPermission("repository:read:42")));
+
+    assertThat(index.isPermitted(new WildcardPermission("repository:read:42"))).isTrue();
+    assertThat(index.isPermitted(resolve("repository:read:42"))).isTrue();
+    assertThat(index.isPermitted(new NamedPermission("custom"))).isTrue();
+    assertThat(index.isPermitted(new NamedPermission("other"))).isFalse();
+  }
+
+  @Test
+  void shouldMatchLinearScan() {
+    List<String> permissions = Arrays.asList(
+      "repository:read,pull:1", "repository:*:2", "repository:push:3,4", "repository:read",
+      "user:read:trillian", "group:*", "configuration:list", "plugin:read:a:b"
+    );
+    List<String> requests = Arrays.asList(
+      "repository:read:1", "repository:pull:1", "repository:push:1", "repository:push:2", "repository:push:4",
+      "repository:push:3,4", "repository:push:*", "repository:read:5", "repository:read", "repository:delete",
+      "user:read:trillian", "user:read:dent", "user:read", "group:write:a", "configuration:list",
+      "configuration:list:a", "plugin:read:a", "plugin:read:a:b", "plugin:read:a:c", "*", "repository,user:read:1"
+    );
+    PermissionIndex index = resolver.index(permissions);
+
+    for (String request : requests) {
+      ScmWildcardPermission requested = resolve(request);
+      boolean linear = permissions.stream().map(this::resolve).anyMatch(p -> p.implies(requested));
+      assertThat(index.isPermitted(requested)).as(request).isEqualTo(linear);
+    }
+  }
+
+  @Test
+  void shouldReturnPermittedIds() {
+    PermissionIndex index = resolver.index(Arrays.asList(
+      "repository:read,pull:one", "repository:*:Two", "repository:push:three", "repository:create", "user:read:four"
+    ));
+
+    assertThat(index.getPermittedIds("repository", "read")).contains(ImmutableSet.of("one", "two"));
+  }
+
+  @Test
+  void shouldNotReturnPermittedIdsIfEveryIdIsPermitted() {
+    PermissionIndex index = resolver.index(Arrays.asList("repository:read:one", "repository:read,pull"));
+
+    assertThat(index.getPermittedIds("repository", "read")).isEmpty();
+  }
+
+  @Test
+  void shouldNotReturnPermittedIdsForForeignPermissions() {
+    PermissionIndex index = PermissionIndex.of(singletonList(new NamedPermission("custom")));
+
+    assertThat(index.getPermittedIds("repository", "read")).isEmpty();
+  }
+
+  private ScmWildcardPermission resolve(String permission) {
+    return resolver.resolvePermission(permission);
+  }
+
+  private static class NamedPermission implements Permission {
+
+    private final String name;
+
+    private NamedPermission(String name) {
+      this.name = name;
+    }
+
+    @Override
+    public boolean implies(Permission p) {
+      return equals(p);
+    }
+
+    @Override
+    public String toString() {
+      return name;
+    }
+  }
+}
@@ -0,0 +1,75 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package sonia.scm.update.store;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.SCMContextProvider;
+import sonia.scm.store.ShardedStoreLayout;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ShardedStoreLayoutForGlobalStoresUpdateStepTest {
+
+  @Mock
+  private SCMContextProvider contextProvider;
+
+  @Test
+  void shouldMigrateDataAndBlobStores(@TempDir Path baseDirectory) throws IOException {
+    when(contextProvider.getBaseDirectory()).thenReturn(baseDirectory.toFile());
+    Path dataStore = baseDirectory.resolve("var").resolve("data").resolve("users");
+    Path blobStore = baseDirectory.resolve("var").resolve("blob").resolve("avatars");
+    Files.createDirectories(dataStore);
+    Files.createDirectories(blobStore);
+    Files.write(dataStore.resolve("trillian.xml"), "<user/>".getBytes());
+    Files.write(blobStore.resolve("trillian.blob"), "png".getBytes());
+
+    new ShardedStoreLayoutForGlobalStoresUpdateStep(contextProvider).doUpdate();
+
+    assertThat(ShardedStoreLayout.isSharded(dataStore.toFile())).isTrue();
+    assertThat(ShardedStoreLayout.isSharded(blobStore.toFile())).isTrue();
+    assertThat(dataStore.resolve("trillian.xml")).doesNotExist();
+    assertThat(ShardedStoreLayout.resolveEntry(dataStore, "trillian.xml")).hasContent("<user/>");
+    assertThat(ShardedStoreLayout.resolveEntry(blobStore, "trillian.blob")).hasContent("png");
+  }
+
+  @Test
+  void shouldIgnoreMissingStoreDirectories(@TempDir Path baseDirectory) {
+    when(contextProvider.getBaseDirectory()).thenReturn(baseDirectory.toFile());
+
+    new ShardedStoreLayoutForGlobalStoresUpdateStep(contextProvider).doUpdate();
+
+    assertThat(baseDirectory.resolve("var")).doesNotExist();
+  }
+}